@@ -3,40 +3,151 @@ package com.codingwithmitch.foodrecipes;
 
 import android.os.Handler;
 import android.os.Looper;
+import android.os.Process;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 
 public class AppExecutors {
 
+    private static final int CORES = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    // reads and CPU work queued beyond these are rejected rather than piling up behind a stall
+    private static final int DISK_READ_QUEUE = 128;
+    private static final int COMPUTE_QUEUE = 64;
+
     private static AppExecutors instance;
 
-    public static AppExecutors getInstance() {
+    public static synchronized AppExecutors getInstance() {
         if (instance == null) {
             instance = new AppExecutors();
         }
         return instance;
     }
 
-    // this is the background thread.
-    private final Executor mDiskIO = Executors.newSingleThreadExecutor();
+    // serialized writer: db writes must not interleave. Unbounded, so a write is never dropped nor run
+    // on the caller (which may be the main thread, and would interleave with the writer)
+    private final ExecutorService mDiskWrite;
+
+    // parallel db reads. Bounded: when full a read is rejected (and counted in the stats), never run
+    // on the caller, as Room can't be read from the main thread. Callers answer without it
+    private final ExecutorService mDiskRead;
+
+    // CPU bound work: parsing, indexing, ranking. Bounded the same way; a rejected ranking is shown
+    // unranked
+    private final ExecutorService mCompute;
+
+    // repository and network work, run by RequestPriority rather than FIFO. API calls are executed
+    // on its threads by LiveDataCallAdapter, so there's no separate network pool
+    private final RequestScheduler mScheduler;
 
     // thread for posting data to the mainThread
-    private final Executor mMainThreadExecutor = new MainThreadExecutor();
+    private final DelayedExecutor mMainThreadExecutor;
+
+    // time as seen by the repository and NetworkBoundResource
+    private final Clock mClock;
+
+    private AppExecutors() {
+        this(
+                new MonitoredExecutor("db-writer", 1, MonitoredExecutor.UNBOUNDED,
+                        Process.THREAD_PRIORITY_BACKGROUND, new ThreadPoolExecutor.AbortPolicy()),
+                new MonitoredExecutor("db-reader", CORES, DISK_READ_QUEUE,
+                        Process.THREAD_PRIORITY_BACKGROUND, new ThreadPoolExecutor.AbortPolicy()),
+                new MonitoredExecutor("compute", CORES, COMPUTE_QUEUE,
+                        Process.THREAD_PRIORITY_BACKGROUND + Process.THREAD_PRIORITY_MORE_FAVORABLE,
+                        new ThreadPoolExecutor.AbortPolicy()),
+                new RequestScheduler("scheduler", 5),
+                new MainThreadExecutor(),
+                Clock.SYSTEM
+        );
+    }
+
+    // with a virtual Clock and executors driven by it, tests run deterministically in virtual time
+    @VisibleForTesting
+    public AppExecutors(ExecutorService diskWrite, ExecutorService diskRead, ExecutorService compute,
+                        RequestScheduler scheduler, DelayedExecutor mainThread, Clock clock) {
+        mDiskWrite = diskWrite;
+        mDiskRead = diskRead;
+        mCompute = compute;
+        mScheduler = scheduler;
+        mMainThreadExecutor = mainThread;
+        mClock = clock;
+    }
+
+    // lets JVM tests run without the Android main looper; all background work goes to @background.
+    // The test owns @scheduler and shuts it down
+    @VisibleForTesting
+    public AppExecutors(ExecutorService background, RequestScheduler scheduler, DelayedExecutor mainThread) {
+        this(background, background, background, scheduler, mainThread, Clock.SYSTEM);
+    }
 
 
-    public Executor diskIO() {
-        return mDiskIO;
+    public ExecutorService diskWrite() {
+        return mDiskWrite;
+    }
+
+    public ExecutorService diskRead() {
+        return mDiskRead;
+    }
+
+    public ExecutorService compute() {
+        return mCompute;
+    }
+
+    public RequestScheduler scheduler() {
+        return mScheduler;
     }
 
-    public Executor mainThread() {
+    public DelayedExecutor mainThread() {
         return mMainThreadExecutor;
     }
 
-    private static class MainThreadExecutor implements Executor {
+    public Clock clock() {
+        return mClock;
+    }
+
+    /**
+     * @return queue depth and wait time of each background pool
+     */
+    @NonNull
+    public List<MonitoredExecutor.Stats> getStats() {
+        List<MonitoredExecutor.Stats> stats = new ArrayList<>();
+        for (ExecutorService executor : new ExecutorService[]{mDiskWrite, mDiskRead, mCompute}) {
+            if (executor instanceof MonitoredExecutor && !containsPool(stats, (MonitoredExecutor) executor)) {
+                stats.add(((MonitoredExecutor) executor).getStats());
+            }
+        }
+        return stats;
+    }
+
+    private static boolean containsPool(List<MonitoredExecutor.Stats> stats, MonitoredExecutor executor) {
+        for (MonitoredExecutor.Stats stat : stats) {
+            if (stat.name.equals(executor.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * An Executor that can also run a command after a delay, and take it back before it has run
+     * (e.g. to debounce keystrokes).
+     */
+    public interface DelayedExecutor extends Executor {
+
+        void executeDelayed(@NonNull Runnable command, long delayMillis);
+
+        // removes every pending run of @command
+        void cancel(@NonNull Runnable command);
+    }
+
+    private static class MainThreadExecutor implements DelayedExecutor {
 
         private Handler mainThreadHandler = new Handler(Looper.getMainLooper());
 
@@ -44,5 +155,15 @@ public class AppExecutors {
         public void execute(@NonNull Runnable command) {
             mainThreadHandler.post(command);
         }
+
+        @Override
+        public void executeDelayed(@NonNull Runnable command, long delayMillis) {
+            mainThreadHandler.postDelayed(command, delayMillis);
+        }
+
+        @Override
+        public void cancel(@NonNull Runnable command) {
+            mainThreadHandler.removeCallbacks(command);
+        }
     }
 }
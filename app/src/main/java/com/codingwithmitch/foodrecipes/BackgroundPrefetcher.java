@@ -0,0 +1,94 @@
+package com.codingwithmitch.foodrecipes;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.PowerManager;
+
+import androidx.annotation.Nullable;
+
+import com.codingwithmitch.foodrecipes.repositories.RecipeRepository;
+import com.codingwithmitch.foodrecipes.requests.ConnectivityMonitor;
+import com.codingwithmitch.foodrecipes.requests.RateLimiter;
+
+/**
+ * What {@link CategoryPrewarmer} and {@link QueryPrefetcher} share: they start once the first frame
+ * is drawn, skip the queries whose page is still in memory, and hold back when a fetch would cost
+ * the user something.
+ */
+abstract class BackgroundPrefetcher {
+
+    private static final int MIN_BATTERY_PERCENT = 20;
+
+    final Context context;
+    private boolean started;
+
+    BackgroundPrefetcher(Context context){
+        this.context = context;
+    }
+
+    /**
+     * Starts the prefetch once @activity has drawn its first frame. Only the first call in the
+     * process does anything.
+     */
+    public void startAfterFirstFrame(Activity activity){
+        if(started){
+            return;
+        }
+        started = true;
+        // runs after the traversal that draws the first frame
+        activity.getWindow().getDecorView().post(new Runnable() {
+            @Override
+            public void run() {
+                prefetch();
+            }
+        });
+    }
+
+    // on the main thread, after the first frame
+    abstract void prefetch();
+
+    // warm: page 1 is in memory, where a search is served from without waiting on the network
+    boolean isWarm(String canonicalQuery){
+        return RecipeRepository.getInstance(context).isPageInMemory(canonicalQuery, 1);
+    }
+
+    // why sending @requests prefetches now would cost the user something, null if it wouldn't
+    @Nullable
+    String whyNotPrefetch(int requests){
+        if(!ConnectivityMonitor.getInstance().isOnline()){
+            return "offline";
+        }
+        ConnectivityManager connectivityManager =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if(connectivityManager != null && connectivityManager.isActiveNetworkMetered()
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+                && connectivityManager.getRestrictBackgroundStatus()
+                        == ConnectivityManager.RESTRICT_BACKGROUND_STATUS_ENABLED){
+            return "data saver";
+        }
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        if(powerManager != null && powerManager.isPowerSaveMode()){
+            return "battery saver";
+        }
+        Intent battery = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if(battery != null){
+            int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+            int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+            boolean charging = battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+            if(!charging && level >= 0 && scale > 0 && level * 100 / scale < MIN_BATTERY_PERCENT){
+                return "battery low";
+            }
+        }
+        // the searches the user makes come first
+        RateLimiter.State quota = RateLimiter.getInstance().getSnapshot();
+        if(quota.getRemainingToday() < quota.dailyQuota / 2 + requests){
+            return "quota";
+        }
+        return null;
+    }
+}
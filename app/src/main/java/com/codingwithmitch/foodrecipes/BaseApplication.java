@@ -0,0 +1,77 @@
+package com.codingwithmitch.foodrecipes;
+
+import android.app.Application;
+
+import com.codingwithmitch.foodrecipes.repositories.RecipeRepository;
+import com.codingwithmitch.foodrecipes.requests.ConnectivityMonitor;
+import com.codingwithmitch.foodrecipes.requests.RateLimiter;
+import com.codingwithmitch.foodrecipes.requests.RequestPriority;
+import com.codingwithmitch.foodrecipes.requests.ServiceGenerator;
+import com.codingwithmitch.foodrecipes.util.Logger;
+import com.codingwithmitch.foodrecipes.util.RequestMetrics;
+import com.codingwithmitch.foodrecipes.util.Tracer;
+
+import java.io.File;
+import java.io.IOException;
+
+public class BaseApplication extends Application {
+
+    private static final String TAG = "BaseApplication";
+    private static final long METRICS_DUMP_INTERVAL_SECONDS = 60;
+    private static final String TRACE_FILE = "trace.json";
+    // frequent searches kept warm: 5 queries, 10 requests a day, 5 pages of recipes
+    private static final QueryPrefetcher.Budget PREFETCH_BUDGET =
+            new QueryPrefetcher.Budget(5, 10, 5 * RecipeRepository.PAGE_SIZE);
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        ConnectivityMonitor.init(this);
+        RateLimiter.init(this);
+        warmUpNetwork();
+        RecipeRepository.getInstance(this).loadSearchState();
+        QueryPrefetcher.getInstance(this).setBudget(PREFETCH_BUDGET);
+        if(BuildConfig.DEBUG){
+            RequestMetrics.getInstance().startPeriodicDump(METRICS_DUMP_INTERVAL_SECONDS);
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        RecipeRepository.getInstance(this).trimMemory(level);
+        if(level == TRIM_MEMORY_UI_HIDDEN){
+            // the process may be killed from here on
+            RecipeRepository.getInstance(this).saveSearchState();
+        }
+        if(BuildConfig.DEBUG && level == TRIM_MEMORY_UI_HIDDEN){
+            exportTrace();
+        }
+    }
+
+    // snapshot of the trace each time the app goes to the background:
+    // adb exec-out run-as com.example.foodrecipes cat files/trace.json > trace.json
+    private void exportTrace(){
+        final File file = new File(getFilesDir(), TRACE_FILE);
+        AppExecutors.getInstance().diskWrite().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Tracer.getInstance().exportTo(file);
+                } catch (IOException e) {
+                    Logger.e(TAG, "exportTrace: ", e);
+                }
+            }
+        });
+    }
+
+    // pre-connect to the API and initialize Retrofit off the main thread, so the first search doesn't pay for it
+    private void warmUpNetwork(){
+        AppExecutors.getInstance().scheduler().submit(RequestPriority.PREFETCH, null, new Runnable() {
+            @Override
+            public void run() {
+                ServiceGenerator.warmUp();
+            }
+        });
+    }
+}
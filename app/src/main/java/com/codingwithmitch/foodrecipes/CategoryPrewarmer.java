@@ -0,0 +1,98 @@
+package com.codingwithmitch.foodrecipes;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.lifecycle.Observer;
+
+import com.codingwithmitch.foodrecipes.repositories.RecipeRepository;
+import com.codingwithmitch.foodrecipes.util.Constants;
+import com.codingwithmitch.foodrecipes.util.Logger;
+import com.codingwithmitch.foodrecipes.util.QueryCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Fetches page 1 of each of the default categories in the background once the category grid is on
+ * screen, so that the first tap on one is answered from the cache instead of the network.
+ *
+ * Nothing is fetched offline, under Data Saver on a metered network, in battery saver, on a low
+ * battery that isn't charging, or when less than half of today's API quota is left. A category
+ * whose page is still in memory is not fetched again, and taps on categories are counted as hits
+ * or misses by whether the search had cached results to show.
+ */
+public class CategoryPrewarmer extends BackgroundPrefetcher {
+
+    private static final String TAG = "CategoryPrewarmer";
+
+    private static CategoryPrewarmer instance;
+
+    public static synchronized CategoryPrewarmer getInstance(Context context){
+        if(instance == null){
+            instance = new CategoryPrewarmer(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    // category taps, and those that found the category warm; main thread only
+    private int taps;
+    private int hits;
+
+    private CategoryPrewarmer(Context context){
+        super(context);
+    }
+
+    @Override
+    void prefetch(){
+        List<String> cold = new ArrayList<>();
+        for(String category : Constants.DEFAULT_SEARCH_CATEGORIES){
+            if(!isWarm(QueryCache.canonicalize(category))){
+                cold.add(category);
+            }
+        }
+        if(cold.isEmpty()){
+            Logger.d(TAG, "prewarm: every category is warm");
+            return;
+        }
+        String reason = whyNotPrefetch(cold.size());
+        if(reason != null){
+            Logger.d(TAG, "prewarm: skipped: ", reason);
+            return;
+        }
+        Logger.d(TAG, "prewarm: categories: ", cold);
+        RecipeRepository.getInstance(context).prewarmQueries(cold.toArray(new String[0]),
+                new Observer<String>() {
+                    @Override
+                    public void onChanged(String category) {
+                        Logger.d(TAG, "prewarm: warmed: ", category);
+                    }
+                });
+    }
+
+    /**
+     * Counts a tap on @category as a hit if its search has results to show before the network
+     * answers (in memory or in the db), and logs the hit rate so far. Call it before the search.
+     */
+    public void recordTap(final String category){
+        RecipeRepository.getInstance(context).isPageCached(category, 1, new Observer<Boolean>() {
+            @Override
+            public void onChanged(Boolean cached) {
+                taps++;
+                if(cached){
+                    hits++;
+                }
+                // formatting boxes the counts, so only when it's logged
+                if(Logger.isLoggable(Log.DEBUG)){
+                    Logger.d(TAG, "recordTap: " + String.format(Locale.US, "%s, prewarm hits: %d of %d taps (%.0f%%)",
+                            category, hits, taps, getHitRatio() * 100));
+                }
+            }
+        });
+    }
+
+    public double getHitRatio(){
+        return taps == 0 ? 0 : (double) hits / taps;
+    }
+}
@@ -0,0 +1,26 @@
+package com.codingwithmitch.foodrecipes;
+
+/**
+ * Source of time for the repository, {@link com.codingwithmitch.foodrecipes.util.NetworkBoundResource}
+ * and the view models, so that tests can run them in virtual time.
+ */
+public interface Clock {
+
+    // monotonic, for measuring durations
+    long nanoTime();
+
+    // wall clock, for timestamps stored in the cache
+    long currentTimeMillis();
+
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+}
@@ -0,0 +1,176 @@
+package com.codingwithmitch.foodrecipes;
+
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed-size pool with named threads and a bounded (or {@link #UNBOUNDED}) queue that keeps track
+ * of its queue depth and of how long tasks wait in the queue before they start.
+ */
+public class MonitoredExecutor extends ThreadPoolExecutor {
+
+    // queue capacity of a pool that never rejects work (until it is shut down)
+    public static final int UNBOUNDED = -1;
+
+    private final String name;
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public MonitoredExecutor(String name, int threads, int queueCapacity, int threadPriority,
+                             RejectedExecutionHandler rejectionPolicy) {
+        super(threads, threads, 30, TimeUnit.SECONDS, queueOf(queueCapacity),
+                new NamedThreadFactory(name, threadPriority));
+        this.name = name;
+        allowCoreThreadTimeOut(true);
+        setRejectedExecutionHandler(new CountingRejectionHandler(rejectionPolicy));
+    }
+
+    private static BlockingQueue<Runnable> queueOf(int capacity) {
+        return capacity == UNBOUNDED
+                ? new LinkedBlockingQueue<Runnable>()
+                : new ArrayBlockingQueue<Runnable>(capacity);
+    }
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        super.execute(new TimedRunnable(command));
+        int depth = getQueue().size();
+        int max = maxQueueDepth.get();
+        while (depth > max && !maxQueueDepth.compareAndSet(max, depth)) {
+            max = maxQueueDepth.get();
+        }
+    }
+
+    @Override
+    protected void beforeExecute(Thread thread, Runnable runnable) {
+        super.beforeExecute(thread, runnable);
+        if (runnable instanceof TimedRunnable) {
+            long wait = System.nanoTime() - ((TimedRunnable) runnable).enqueuedAt;
+            started.incrementAndGet();
+            totalWaitNanos.addAndGet(wait);
+            long max = maxWaitNanos.get();
+            while (wait > max && !maxWaitNanos.compareAndSet(max, wait)) {
+                max = maxWaitNanos.get();
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @NonNull
+    public Stats getStats() {
+        long startedCount = started.get();
+        return new Stats(
+                name,
+                getQueue().size(),
+                maxQueueDepth.get(),
+                getActiveCount(),
+                getCompletedTaskCount(),
+                rejected.get(),
+                startedCount == 0 ? 0 : totalWaitNanos.get() / startedCount,
+                maxWaitNanos.get()
+        );
+    }
+
+    public static class Stats {
+
+        public final String name;
+        public final int queueDepth;
+        public final int maxQueueDepth;
+        public final int activeThreads;
+        public final long completedTasks;
+        public final long rejectedTasks;
+        public final long averageWaitNanos;
+        public final long maxWaitNanos;
+
+        Stats(String name, int queueDepth, int maxQueueDepth, int activeThreads, long completedTasks,
+              long rejectedTasks, long averageWaitNanos, long maxWaitNanos) {
+            this.name = name;
+            this.queueDepth = queueDepth;
+            this.maxQueueDepth = maxQueueDepth;
+            this.activeThreads = activeThreads;
+            this.completedTasks = completedTasks;
+            this.rejectedTasks = rejectedTasks;
+            this.averageWaitNanos = averageWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%s: queue=%d (max %d) active=%d completed=%d rejected=%d wait=avg %.2fms/max %.2fms",
+                    name, queueDepth, maxQueueDepth, activeThreads, completedTasks, rejectedTasks,
+                    averageWaitNanos / 1e6, maxWaitNanos / 1e6);
+        }
+    }
+
+    private static class TimedRunnable implements Runnable {
+
+        final Runnable delegate;
+        final long enqueuedAt = System.nanoTime();
+
+        TimedRunnable(Runnable delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void run() {
+            delegate.run();
+        }
+    }
+
+    private class CountingRejectionHandler implements RejectedExecutionHandler {
+
+        private final RejectedExecutionHandler delegate;
+
+        CountingRejectionHandler(RejectedExecutionHandler delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+            rejected.incrementAndGet();
+            delegate.rejectedExecution(runnable, executor);
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final String name;
+        private final int threadPriority;
+        private final AtomicInteger count = new AtomicInteger();
+
+        NamedThreadFactory(String name, int threadPriority) {
+            this.name = name;
+            this.threadPriority = threadPriority;
+        }
+
+        @Override
+        public Thread newThread(@NonNull final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(threadPriority);
+                    runnable.run();
+                }
+            }, name + "-" + count.incrementAndGet());
+        }
+    }
+}
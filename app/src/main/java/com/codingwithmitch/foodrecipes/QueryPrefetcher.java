@@ -0,0 +1,180 @@
+package com.codingwithmitch.foodrecipes;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.VisibleForTesting;
+import androidx.lifecycle.Observer;
+
+import com.codingwithmitch.foodrecipes.repositories.RecipeRepository;
+import com.codingwithmitch.foodrecipes.util.Constants;
+import com.codingwithmitch.foodrecipes.util.Logger;
+import com.codingwithmitch.foodrecipes.util.QueryCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the queries the user searches most warm: once the first frame is drawn and the saved
+ * search counts are read, page 1 of each of the top ones (as counted by
+ * {@link RecipeRepository#recordSearch}, with older searches counting less) that isn't still in
+ * memory is fetched in the background.
+ *
+ * How much that may cost is a {@link Budget}. On top of that it holds back in the same conditions
+ * as {@link CategoryPrewarmer} (offline, Data Saver, battery, quota). The default categories are
+ * left to CategoryPrewarmer.
+ */
+public class QueryPrefetcher extends BackgroundPrefetcher {
+
+    private static final String TAG = "QueryPrefetcher";
+
+    private static final String PREFERENCES_NAME = "query_prefetch";
+    private static final String KEY_BUDGET_DAY = "budget_day";
+    private static final String KEY_BUDGET_REQUESTS = "budget_requests";
+
+    // a query searched once is not a habit
+    private static final double MIN_SEARCHES = 2;
+
+    /**
+     * How much the prefetch may cost: how many queries are kept warm, how many requests a day it
+     * may send, and how many recipes the prefetched pages may take. A page is at most
+     * RecipeRepository.PAGE_SIZE recipes, held in the QueryCache and saved to the db, so
+     * maxCachedRecipes bounds what the prefetch adds to both.
+     */
+    public static class Budget {
+
+        public final int maxQueries;
+        public final int maxRequestsPerDay;
+        public final int maxCachedRecipes;
+
+        public Budget(int maxQueries, int maxRequestsPerDay, int maxCachedRecipes) {
+            this.maxQueries = maxQueries;
+            this.maxRequestsPerDay = maxRequestsPerDay;
+            this.maxCachedRecipes = maxCachedRecipes;
+        }
+
+        // how many queries can be kept warm within both maxQueries and maxCachedRecipes
+        int getQueriesKeptWarm() {
+            return Math.min(maxQueries, maxCachedRecipes / RecipeRepository.PAGE_SIZE);
+        }
+    }
+
+    public static final Budget DEFAULT_BUDGET = new Budget(5, 10, 5 * RecipeRepository.PAGE_SIZE);
+
+    private static QueryPrefetcher instance;
+
+    public static synchronized QueryPrefetcher getInstance(Context context){
+        if(instance == null){
+            instance = new QueryPrefetcher(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private final SharedPreferences preferences;
+    private final Clock clock;
+    private volatile Budget budget = DEFAULT_BUDGET;
+
+    private QueryPrefetcher(Context context){
+        super(context);
+        this.preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        this.clock = AppExecutors.getInstance().clock();
+    }
+
+    // applies from the next prefetch on
+    public void setBudget(Budget budget){
+        this.budget = budget;
+    }
+
+    public Budget getBudget(){
+        return budget;
+    }
+
+    @Override
+    void prefetch(){
+        // right away if the counts were read before the first frame, otherwise once they are
+        RecipeRepository.getInstance(context).whenQueryStatsLoaded(new Runnable() {
+            @Override
+            public void run() {
+                prefetchFrequentQueries();
+            }
+        });
+    }
+
+    private void prefetchFrequentQueries(){
+        Budget budget = this.budget;
+        int keptWarm = budget.getQueriesKeptWarm();
+        List<String> categories = new ArrayList<>();
+        for(String category : Constants.DEFAULT_SEARCH_CATEGORIES){
+            categories.add(QueryCache.canonicalize(category));
+        }
+        List<String> frequent = RecipeRepository.getInstance(context)
+                .getFrequentQueries(keptWarm + categories.size(), MIN_SEARCHES);
+        List<String> warm = new ArrayList<>();
+        for(String query : frequent){
+            if(isWarm(query)){
+                warm.add(query);
+            }
+        }
+        int requestsLeft = budget.maxRequestsPerDay - getRequestsToday();
+        List<String> cold = selectQueries(frequent, categories, warm, keptWarm, requestsLeft);
+        if(cold.isEmpty()){
+            Logger.d(TAG, "prefetch: nothing to fetch, frequent: ", frequent, " requests left today: ",
+                    requestsLeft);
+            return;
+        }
+        String reason = whyNotPrefetch(cold.size());
+        if(reason != null){
+            Logger.d(TAG, "prefetch: skipped: ", reason);
+            return;
+        }
+        Logger.d(TAG, "prefetch: queries: ", cold);
+        RecipeRepository.getInstance(context).prewarmQueries(cold.toArray(new String[0]),
+                new Observer<String>() {
+                    @Override
+                    public void onChanged(String query) {
+                        preferences.edit()
+                                .putLong(KEY_BUDGET_DAY, today())
+                                .putInt(KEY_BUDGET_REQUESTS, getRequestsToday() + 1)
+                                .apply();
+                    }
+                });
+    }
+
+    /**
+     * The queries to fetch: of @frequent (most searched first), the first @maxQueries that aren't
+     * @categories, less the @warm ones, and no more than @requestsLeft.
+     */
+    @VisibleForTesting
+    static List<String> selectQueries(List<String> frequent, Collection<String> categories,
+                                      Collection<String> warm, int maxQueries, int requestsLeft){
+        List<String> cold = new ArrayList<>();
+        int kept = 0;
+        for(String query : frequent){
+            if(kept >= maxQueries || cold.size() >= requestsLeft){
+                break;
+            }
+            if(categories.contains(query)){
+                continue;
+            }
+            kept++;
+            if(!warm.contains(query)){
+                cold.add(query);
+            }
+        }
+        return cold;
+    }
+
+    // prefetches answered by the network today; a failure isn't counted, as it stops the rest
+    private int getRequestsToday(){
+        if(preferences.getLong(KEY_BUDGET_DAY, -1) != today()){
+            return 0;
+        }
+        return preferences.getInt(KEY_BUDGET_REQUESTS, 0);
+    }
+
+    private long today(){
+        return TimeUnit.MILLISECONDS.toDays(clock.currentTimeMillis());
+    }
+}
@@ -1,8 +1,8 @@
 package com.codingwithmitch.foodrecipes;
 
+import android.content.Intent;
 import android.os.Bundle;
 
-import android.util.Log;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.LinearLayout;
@@ -12,26 +12,31 @@ import android.widget.TextView;
 
 import androidx.annotation.Nullable;
 import androidx.appcompat.widget.AppCompatImageView;
+import androidx.core.content.ContextCompat;
 import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProviders;
 
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.request.RequestOptions;
 import com.codingwithmitch.foodrecipes.models.Recipe;
+import com.codingwithmitch.foodrecipes.util.Logger;
 import com.codingwithmitch.foodrecipes.util.Resource;
 import com.codingwithmitch.foodrecipes.viewmodels.RecipeViewModel;
 
+import java.util.List;
+
 public class RecipeActivity extends BaseActivity {
 
     private static final String TAG = "RecipeActivity";
 
     // UI components
     private AppCompatImageView mRecipeImage;
-    private TextView mRecipeTitle, mRecipeRank;
-    private LinearLayout mRecipeIngredientsContainer;
+    private TextView mRecipeTitle, mRecipeRank, mSimilarTitle;
+    private LinearLayout mRecipeIngredientsContainer, mSimilarContainer;
     private ScrollView mScrollView;
 
     private RecipeViewModel mRecipeViewModel;
+    private boolean mSimilarRequested;
 
 
     @Override
@@ -43,6 +48,8 @@ public class RecipeActivity extends BaseActivity {
         mRecipeRank = findViewById(R.id.recipe_social_score);
         mRecipeIngredientsContainer = findViewById(R.id.ingredients_container);
         mScrollView = findViewById(R.id.parent);
+        mSimilarTitle = findViewById(R.id.similar_title);
+        mSimilarContainer = findViewById(R.id.similar_container);
 
         mRecipeViewModel = ViewModelProviders.of(this).get(RecipeViewModel.class);
 
@@ -52,7 +59,7 @@ public class RecipeActivity extends BaseActivity {
     private void getIncomingIntent(){
         if(getIntent().hasExtra("recipe")){
             Recipe recipe = getIntent().getParcelableExtra("recipe");
-            Log.d(TAG, "getIncomingIntent: " + recipe.getTitle());
+            Logger.d(TAG, "getIncomingIntent: ", recipe.getTitle());
             subscribeObservers(recipe.getRecipe_id());
         }
     }
@@ -73,18 +80,19 @@ public class RecipeActivity extends BaseActivity {
                             }
 
                             case ERROR:{
-                                Log.e(TAG, "onChanged: status: ERROR, Recipe: " + recipeResource.data.getTitle() );
-                                Log.e(TAG, "onChanged: ERROR message: " + recipeResource.message );
+                                Logger.e(TAG, "onChanged: status: ERROR, Recipe: ", recipeResource.data.getTitle());
+                                Logger.e(TAG, "onChanged: ERROR message: ", recipeResource.message);
                                 showParent();showProgressBar(false);
                                 setRecipeProperties(recipeResource.data);
                                 break;
                             }
 
                             case SUCCESS:{
-                                Log.d(TAG, "onChanged: cache has been refreshed.");
-                                Log.d(TAG, "onChanged: status: SUCCESS, Recipe: " + recipeResource.data.getTitle());
+                                Logger.d(TAG, "onChanged: cache has been refreshed.");
+                                Logger.d(TAG, "onChanged: status: SUCCESS, Recipe: ", recipeResource.data.getTitle());
                                 showParent();
-                                showProgressBar(false);
+                                // a cached recipe may be shown while it's being revalidated
+                                showProgressBar(recipeResource.refreshing);
                                 setRecipeProperties(recipeResource.data);
                                 break;
                             }
@@ -110,6 +118,49 @@ public class RecipeActivity extends BaseActivity {
             mRecipeRank.setText(String.valueOf(Math.round(recipe.getSocial_rank())));
 
             setIngredients(recipe);
+
+            // once the recipe is saved with its ingredients (indexed before the save), it can be compared with the others
+            if(recipe.getIngredients() != null && !mSimilarRequested){
+                mSimilarRequested = true;
+                subscribeSimilarRecipes(recipe.getRecipe_id());
+            }
+        }
+    }
+
+    private void subscribeSimilarRecipes(String recipeId){
+        mRecipeViewModel.getSimilarRecipes(recipeId).observe(this, new Observer<List<Recipe>>() {
+            @Override
+            public void onChanged(@Nullable List<Recipe> recipes) {
+                if(recipes != null){
+                    setSimilarRecipes(recipes);
+                }
+            }
+        });
+    }
+
+    private void setSimilarRecipes(List<Recipe> recipes){
+        mSimilarContainer.removeAllViews();
+        mSimilarTitle.setVisibility(recipes.isEmpty() ? View.GONE : View.VISIBLE);
+
+        for(final Recipe recipe: recipes){
+            TextView textView = new TextView(this);
+            textView.setText(recipe.getTitle());
+            textView.setTextSize(15);
+            textView.setTextColor(ContextCompat.getColor(this, R.color.colorAccent));
+            textView.setPadding(0, 8, 0, 8);
+            textView.setLayoutParams(
+                    new LinearLayout.LayoutParams(
+                            ViewGroup.LayoutParams.MATCH_PARENT,
+                            ViewGroup.LayoutParams.WRAP_CONTENT));
+            textView.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    Intent intent = new Intent(RecipeActivity.this, RecipeActivity.class);
+                    intent.putExtra("recipe", recipe);
+                    startActivity(intent);
+                }
+            });
+            mSimilarContainer.addView(textView);
         }
     }
 
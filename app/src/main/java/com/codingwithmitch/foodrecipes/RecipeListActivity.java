@@ -2,8 +2,9 @@ package com.codingwithmitch.foodrecipes;
 
 
 import android.content.Intent;
+import android.database.Cursor;
+import android.database.MatrixCursor;
 import android.os.Bundle;
-import android.util.Log;
 import android.widget.Toast;
 
 
@@ -11,6 +12,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.widget.SearchView;
 import androidx.appcompat.widget.Toolbar;
+import androidx.cursoradapter.widget.SimpleCursorAdapter;
 import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProviders;
 import androidx.recyclerview.widget.LinearLayoutManager;
@@ -24,11 +26,13 @@ import com.bumptech.glide.util.ViewPreloadSizeProvider;
 import com.codingwithmitch.foodrecipes.adapters.OnRecipeListener;
 import com.codingwithmitch.foodrecipes.adapters.RecipeRecyclerAdapter;
 import com.codingwithmitch.foodrecipes.models.Recipe;
+import com.codingwithmitch.foodrecipes.util.Logger;
 import com.codingwithmitch.foodrecipes.util.Resource;
 import com.codingwithmitch.foodrecipes.util.Testing;
 import com.codingwithmitch.foodrecipes.util.VerticalSpacingItemDecorator;
 import com.codingwithmitch.foodrecipes.viewmodels.RecipeListViewModel;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static com.codingwithmitch.foodrecipes.viewmodels.RecipeListViewModel.QUERY_EXHAUSTED;
@@ -42,6 +46,10 @@ public class RecipeListActivity extends BaseActivity implements OnRecipeListener
     private RecyclerView mRecyclerView;
     private RecipeRecyclerAdapter mAdapter;
     private SearchView mSearchView;
+    private SimpleCursorAdapter mSuggestionAdapter;
+
+    // columns of the suggestion rows
+    private static final String[] SUGGESTION_COLUMNS = {"_id", "suggestion"};
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -56,6 +64,10 @@ public class RecipeListActivity extends BaseActivity implements OnRecipeListener
         initSearchView();
         subscribeObservers();
         setSupportActionBar((Toolbar)findViewById(R.id.toolbar));
+        // the first tap on a category shouldn't wait on the network
+        CategoryPrewarmer.getInstance(this).startAfterFirstFrame(this);
+        // nor should searching again for what the user searches most
+        QueryPrefetcher.getInstance(this).startAfterFirstFrame(this);
 
     }
 
@@ -64,7 +76,7 @@ public class RecipeListActivity extends BaseActivity implements OnRecipeListener
             @Override
             public void onChanged(@Nullable Resource<List<Recipe>> listResource) {
                 if(listResource != null){
-                    Log.d(TAG, "onChanged: status: " + listResource.status);
+                    Logger.d(TAG, "onChanged: status: ", listResource.status);
 
                     if(listResource.data != null) {
                         switch (listResource.status) {
@@ -79,16 +91,19 @@ public class RecipeListActivity extends BaseActivity implements OnRecipeListener
                                 break;
                             }
                             case SUCCESS: {
-                                Log.d(TAG, "onChanged: cache has been refreshed.");
-                                Log.d(TAG, "onChanged: status: SUCCESS, #Recipes: " + listResource.data.size());
+                                Logger.d(TAG, "onChanged: cache has been refreshed.");
+                                Logger.d(TAG, "onChanged: status: SUCCESS, #Recipes: ", listResource.data.size());
                                 mAdapter.hideLoading();
                                 mAdapter.setRecipes(listResource.data);
+                                // cached results are shown while they are being refreshed
+                                showProgressBar(listResource.refreshing);
                                 break;
                             }
                             case ERROR: {
-                                Log.e(TAG, "onChanged: cannot refresh cache.");
-                                Log.e(TAG, "onChanged: ERROR message: " + listResource.message );
-                                Log.e(TAG, "onChanged: status: ERROR, #Recipes: " + listResource.data.size());
+                                Logger.e(TAG, "onChanged: cannot refresh cache.");
+                                Logger.e(TAG, "onChanged: ERROR message: ", listResource.message);
+                                Logger.e(TAG, "onChanged: status: ERROR, #Recipes: ", listResource.data.size());
+                                showProgressBar(false);
                                 mAdapter.hideLoading();
                                 mAdapter.setRecipes(listResource.data);
                                 Toast.makeText(RecipeListActivity.this, listResource.message, Toast.LENGTH_SHORT).show();
@@ -105,6 +120,19 @@ public class RecipeListActivity extends BaseActivity implements OnRecipeListener
             }
         });
 
+        mRecipeListViewModel.getSuggestions().observe(this, new Observer<List<String>>() {
+            @Override
+            public void onChanged(@Nullable List<String> suggestions) {
+                if(suggestions != null){
+                    MatrixCursor cursor = new MatrixCursor(SUGGESTION_COLUMNS, suggestions.size());
+                    for(int i = 0; i < suggestions.size(); i++){
+                        cursor.addRow(new Object[]{i, suggestions.get(i)});
+                    }
+                    mSuggestionAdapter.changeCursor(cursor);
+                }
+            }
+        });
+
         mRecipeListViewModel.getViewstate().observe(this, new Observer<RecipeListViewModel.ViewState>() {
             @Override
             public void onChanged(@Nullable RecipeListViewModel.ViewState viewState) {
@@ -130,7 +158,21 @@ public class RecipeListActivity extends BaseActivity implements OnRecipeListener
     private void searchRecipeApi(String query){
         //scroll to the beginning of the list
         mRecyclerView.smoothScrollToPosition(0);
-        mRecipeListViewModel.searchRecipesApi(query, 1);
+        if(query.indexOf(',') >= 0){
+            // "chicken, dinner": the results of both, merged
+            List<String> queries = new ArrayList<>();
+            for(String part : query.split(",")){
+                if(!part.trim().isEmpty()){
+                    queries.add(part.trim());
+                }
+            }
+            if(!queries.isEmpty()){
+                mRecipeListViewModel.searchRecipesApi(queries);
+            }
+        }
+        else{
+            mRecipeListViewModel.searchRecipesApi(query, 1);
+        }
         //clear focus of the searchview
         mSearchView.clearFocus();
     }
@@ -172,6 +214,26 @@ public class RecipeListActivity extends BaseActivity implements OnRecipeListener
 
     private void initSearchView(){
 
+        mSuggestionAdapter = new SimpleCursorAdapter(this, android.R.layout.simple_list_item_1, null,
+                new String[]{SUGGESTION_COLUMNS[1]}, new int[]{android.R.id.text1}, 0);
+        mSearchView.setSuggestionsAdapter(mSuggestionAdapter);
+        mSearchView.setOnSuggestionListener(new SearchView.OnSuggestionListener() {
+            @Override
+            public boolean onSuggestionSelect(int position) {
+                return false;
+            }
+
+            @Override
+            public boolean onSuggestionClick(int position) {
+                Cursor cursor = mSuggestionAdapter.getCursor();
+                if(cursor != null && cursor.moveToPosition(position)){
+                    // submits the suggestion as the query
+                    mSearchView.setQuery(cursor.getString(1), true);
+                }
+                return true;
+            }
+        });
+
         mSearchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
             @Override
             public boolean onQueryTextSubmit(String s) {
@@ -182,7 +244,9 @@ public class RecipeListActivity extends BaseActivity implements OnRecipeListener
 
             @Override
             public boolean onQueryTextChange(String s) {
-                return false;
+                // cached results as the user types, a network search once they pause
+                mRecipeListViewModel.searchAsYouType(s);
+                return true;
             }
         });
     }
@@ -197,6 +261,7 @@ public class RecipeListActivity extends BaseActivity implements OnRecipeListener
     @Override
     public void onCategoryClick(String category) {
         //perform a query when, when we click on a category
+        CategoryPrewarmer.getInstance(this).recordTap(category);
         searchRecipeApi(category);
         
     }
@@ -0,0 +1,407 @@
+package com.codingwithmitch.foodrecipes;
+
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.codingwithmitch.foodrecipes.requests.RequestPriority;
+import com.codingwithmitch.foodrecipes.util.Logger;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs repository and network work by {@link RequestPriority} instead of in FIFO order:
+ * a search submitted by the user starts before queued detail loads, which start before
+ * next-page prefetches, which start before background syncs. Within a priority it's FIFO.
+ *
+ * Low priority (not user visible) work is also deferred and preempted:
+ * - it never takes the last thread, so a search never waits for a prefetch to finish
+ * - it doesn't start while user visible work is running
+ * - if user visible work arrives and every thread is busy, the most recently started low
+ *   priority job that can be preempted is interrupted and put back in the queue
+ *
+ * Jobs can be given a tag, to cancel everything queued or running under it at once.
+ */
+public class RequestScheduler {
+
+    private static final String TAG = "RequestScheduler";
+
+    // set on a request by the repository, read by LiveDataCallAdapter; never sent to the server
+    public static final String TAG_HEADER = "X-Request-Tag";
+
+    /**
+     * Work for the scheduler. If it is {@link #isPreemptible()}, {@link #run} may be called again
+     * after a preemption, so it must be repeatable (e.g. clone the retrofit Call).
+     */
+    public static abstract class Job {
+
+        // runs on a scheduler thread. Returns false if it stopped early because it was interrupted,
+        // true if it ran to the end: a preemption that came too late doesn't make it run again
+        public abstract boolean run(@NonNull Ticket ticket);
+
+        // called from another thread to stop run() early, because the job was cancelled or preempted
+        public void interrupt() {
+        }
+
+        // whether interrupt() makes run() return early so that it can safely be run again later.
+        // Only such jobs are preempted; the others always run to the end
+        public boolean isPreemptible() {
+            return false;
+        }
+
+        // called once from the cancelling thread, whether or not run() had started; a queued
+        // job that is cancelled never runs, so this is where it reports back to its caller
+        public void onCancelled() {
+        }
+    }
+
+    public enum State {QUEUED, RUNNING, PREEMPTED, CANCELLED, DONE}
+
+    /**
+     * Handle on a submitted job.
+     */
+    public static class Ticket implements Comparable<Ticket> {
+
+        public final RequestPriority priority;
+        @Nullable
+        public final String tag;
+        private final Job job;
+        private long sequence;
+        private volatile State state = State.QUEUED;
+        private final RequestScheduler scheduler;
+
+        Ticket(RequestScheduler scheduler, RequestPriority priority, @Nullable String tag, Job job, long sequence) {
+            this.scheduler = scheduler;
+            this.priority = priority;
+            this.tag = tag;
+            this.job = job;
+            this.sequence = sequence;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public boolean isCancelled() {
+            return state == State.CANCELLED;
+        }
+
+        // true once the running job should stop: cancelled, or preempted and going back to the queue
+        public boolean isInterrupted() {
+            return state == State.CANCELLED || state == State.PREEMPTED;
+        }
+
+        public void cancel() {
+            scheduler.cancel(this);
+        }
+
+        @Override
+        public int compareTo(@NonNull Ticket other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private final String name;
+    private final int threads;
+    private final int maxLowPriority;
+
+    // guarded by this
+    private final PriorityQueue<Ticket> queue = new PriorityQueue<>();
+    private final List<Ticket> running = new ArrayList<>();
+    private int runningUserVisible;
+    private int runningLowPriority;
+    private boolean shutdown;
+    private boolean started;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong preempted = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+
+    public RequestScheduler(String name, int threads) {
+        this.name = name;
+        this.threads = Math.max(2, threads);
+        this.maxLowPriority = this.threads - 1;
+    }
+
+    // the threads are started with the first job; called holding the lock
+    private void startWorkers() {
+        started = true;
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    work();
+                }
+            }, name + "-" + (i + 1));
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    @NonNull
+    public Ticket submit(@NonNull RequestPriority priority, @Nullable String tag, @NonNull Job job) {
+        Ticket ticket = new Ticket(this, priority, tag, job, sequence.incrementAndGet());
+        Ticket victim = null;
+        synchronized (this) {
+            if (shutdown) {
+                ticket.state = State.CANCELLED;
+                return ticket;
+            }
+            if (!started) {
+                startWorkers();
+            }
+            queue.add(ticket);
+            if (priority.isUserVisible() && running.size() == threads) {
+                victim = newestLowPriority();
+                if (victim != null) {
+                    victim.state = State.PREEMPTED;
+                }
+            }
+            notifyAll();
+        }
+        if (victim != null) {
+            Logger.d(TAG, "submit: preempting a job of priority ", victim.priority);
+            preempted.incrementAndGet();
+            victim.job.interrupt();
+        }
+        return ticket;
+    }
+
+    public Ticket submit(@NonNull RequestPriority priority, @Nullable String tag, @NonNull final Runnable runnable) {
+        return submit(priority, tag, new Job() {
+            @Override
+            public boolean run(@NonNull Ticket ticket) {
+                runnable.run();
+                return true;
+            }
+        });
+    }
+
+    /**
+     * @return an Executor that submits everything at @priority, for code that takes an Executor
+     */
+    @NonNull
+    public Executor asExecutor(@NonNull final RequestPriority priority, @Nullable final String tag) {
+        return new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                submit(priority, tag, command);
+            }
+        };
+    }
+
+    /**
+     * Cancels every queued or running job tagged @tag.
+     * @return how many jobs were cancelled
+     */
+    public int cancel(@NonNull String tag) {
+        List<Ticket> queuedTickets = new ArrayList<>();
+        List<Ticket> runningTickets = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Ticket> iterator = queue.iterator();
+            while (iterator.hasNext()) {
+                Ticket ticket = iterator.next();
+                if (tag.equals(ticket.tag)) {
+                    iterator.remove();
+                    ticket.state = State.CANCELLED;
+                    queuedTickets.add(ticket);
+                }
+            }
+            for (Ticket ticket : running) {
+                if (tag.equals(ticket.tag) && ticket.state != State.CANCELLED) {
+                    ticket.state = State.CANCELLED;
+                    runningTickets.add(ticket);
+                }
+            }
+        }
+        notifyCancelled(queuedTickets, runningTickets);
+        return queuedTickets.size() + runningTickets.size();
+    }
+
+    void cancel(Ticket ticket) {
+        boolean wasRunning;
+        synchronized (this) {
+            if (ticket.state == State.DONE || ticket.state == State.CANCELLED) {
+                return;
+            }
+            queue.remove(ticket);
+            wasRunning = running.contains(ticket);
+            ticket.state = State.CANCELLED;
+        }
+        List<Ticket> tickets = new ArrayList<>();
+        tickets.add(ticket);
+        notifyCancelled(wasRunning ? new ArrayList<Ticket>() : tickets, wasRunning ? tickets : new ArrayList<Ticket>());
+    }
+
+    // outside the lock: the jobs' callbacks may take their own locks
+    private void notifyCancelled(List<Ticket> queuedTickets, List<Ticket> runningTickets) {
+        for (Ticket ticket : runningTickets) {
+            ticket.job.interrupt();
+        }
+        for (Ticket ticket : queuedTickets) {
+            ticket.job.onCancelled();
+        }
+        for (Ticket ticket : runningTickets) {
+            ticket.job.onCancelled();
+        }
+        cancelled.addAndGet(queuedTickets.size() + runningTickets.size());
+    }
+
+    public void shutdown() {
+        List<Ticket> queuedTickets;
+        synchronized (this) {
+            shutdown = true;
+            for (Ticket ticket : queue) {
+                ticket.state = State.CANCELLED;
+            }
+            queuedTickets = new ArrayList<>(queue);
+            queue.clear();
+            notifyAll();
+        }
+        notifyCancelled(queuedTickets, new ArrayList<Ticket>());
+    }
+
+    private void work() {
+        while (true) {
+            Ticket ticket;
+            synchronized (this) {
+                while ((ticket = next()) == null) {
+                    if (shutdown) {
+                        return;
+                    }
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+
+            boolean finished = true;
+            try {
+                finished = ticket.job.run(ticket);
+            } catch (RuntimeException e) {
+                Logger.e(TAG, "work: job failed", e);
+            }
+
+            boolean dropped = false;
+            synchronized (this) {
+                running.remove(ticket);
+                if (ticket.priority.isUserVisible()) {
+                    runningUserVisible--;
+                } else {
+                    runningLowPriority--;
+                }
+                if (ticket.state == State.PREEMPTED && !finished) {
+                    if (shutdown) {
+                        ticket.state = State.CANCELLED;
+                        dropped = true;
+                    } else {
+                        // back in line, behind the work that preempted it
+                        ticket.state = State.QUEUED;
+                        ticket.sequence = sequence.incrementAndGet();
+                        queue.add(ticket);
+                    }
+                } else if (ticket.state == State.RUNNING || ticket.state == State.PREEMPTED) {
+                    ticket.state = State.DONE;
+                    completed.incrementAndGet();
+                }
+                notifyAll();
+            }
+            if (dropped) {
+                // preempted, then shut down before it could run again: it has already stopped
+                List<Ticket> tickets = new ArrayList<>();
+                tickets.add(ticket);
+                notifyCancelled(tickets, new ArrayList<Ticket>());
+            }
+        }
+    }
+
+    // the next ticket this thread may start, or null to wait; called holding the lock
+    private Ticket next() {
+        Ticket head = queue.peek();
+        if (head == null) {
+            return null;
+        }
+        if (!head.priority.isUserVisible()
+                && (runningUserVisible > 0 || runningLowPriority >= maxLowPriority)) {
+            // deferred: the head is the best there is, so nothing user visible is waiting either
+            return null;
+        }
+        queue.poll();
+        head.state = State.RUNNING;
+        running.add(head);
+        if (head.priority.isUserVisible()) {
+            runningUserVisible++;
+        } else {
+            runningLowPriority++;
+        }
+        return head;
+    }
+
+    private Ticket newestLowPriority() {
+        Ticket newest = null;
+        for (Ticket ticket : running) {
+            if (!ticket.priority.isUserVisible() && ticket.state == State.RUNNING && ticket.job.isPreemptible()
+                    && (newest == null || ticket.sequence > newest.sequence)) {
+                newest = ticket;
+            }
+        }
+        return newest;
+    }
+
+    @NonNull
+    public synchronized Stats getStats() {
+        int[] queued = new int[RequestPriority.values().length];
+        for (Ticket ticket : queue) {
+            queued[ticket.priority.ordinal()]++;
+        }
+        return new Stats(name, queued, running.size(), completed.get(), preempted.get(), cancelled.get());
+    }
+
+    public static class Stats {
+
+        public final String name;
+        private final int[] queued;
+        public final int running;
+        public final long completed;
+        public final long preempted;
+        public final long cancelled;
+
+        Stats(String name, int[] queued, int running, long completed, long preempted, long cancelled) {
+            this.name = name;
+            this.queued = queued;
+            this.running = running;
+            this.completed = completed;
+            this.preempted = preempted;
+            this.cancelled = cancelled;
+        }
+
+        public int getQueued(@NonNull RequestPriority priority) {
+            return queued[priority.ordinal()];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(name).append(": queued");
+            for (RequestPriority priority : RequestPriority.values()) {
+                builder.append(' ').append(priority.name().toLowerCase(Locale.US)).append('=').append(queued[priority.ordinal()]);
+            }
+            return builder.append(" running=").append(running)
+                    .append(" completed=").append(completed)
+                    .append(" preempted=").append(preempted)
+                    .append(" cancelled=").append(cancelled)
+                    .toString();
+        }
+    }
+}
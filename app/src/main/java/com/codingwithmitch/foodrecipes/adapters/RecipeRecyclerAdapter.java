@@ -2,7 +2,6 @@ package com.codingwithmitch.foodrecipes.adapters;
 
 import android.net.Uri;
 import android.text.TextUtils;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -20,6 +19,8 @@ import com.bumptech.glide.util.ViewPreloadSizeProvider;
 import com.codingwithmitch.foodrecipes.R;
 import com.codingwithmitch.foodrecipes.models.Recipe;
 import com.codingwithmitch.foodrecipes.util.Constants;
+import com.codingwithmitch.foodrecipes.util.Logger;
+import com.codingwithmitch.foodrecipes.util.Tracer;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -54,8 +55,17 @@ public class RecipeRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.Vie
     @NonNull
     @Override
     public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup viewGroup, int i) {
-        Log.d(TAG, "onCreateViewHolder: METHOD CALLED");
+        Logger.v(TAG, "onCreateViewHolder: METHOD CALLED");
 
+        long start = Tracer.now();
+        try {
+            return inflateViewHolder(viewGroup, i);
+        } finally {
+            Tracer.getInstance().complete("RecipeRecyclerAdapter.onCreateViewHolder", start);
+        }
+    }
+
+    private RecyclerView.ViewHolder inflateViewHolder(@NonNull ViewGroup viewGroup, int i) {
         View view = null;
         switch (i){
 
@@ -90,8 +100,9 @@ public class RecipeRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.Vie
 
     @Override
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder viewHolder, int i) {
-        Log.d(TAG, "onBindViewHolder: METHOD CALLED");
+        Logger.v(TAG, "onBindViewHolder: METHOD CALLED");
 
+        long start = Tracer.now();
         int itemViewType = getItemViewType(i);
         if(itemViewType == RECIPE_TYPE){
             ((RecipeViewHolder)viewHolder).onBind(mRecipes.get(i));
@@ -100,6 +111,7 @@ public class RecipeRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.Vie
 
             ((CategoryViewHolder)viewHolder).onBind(mRecipes.get(i));
         }
+        Tracer.getInstance().complete("RecipeRecyclerAdapter.onBindViewHolder", start);
 
     }
 
@@ -188,7 +200,7 @@ public class RecipeRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.Vie
 
     public void displaySearchCategories(){
         // for displaying the search categories
-        Log.d(TAG, "displaySearchCategories: METHOD CALLED");
+        Logger.d(TAG, "displaySearchCategories: METHOD CALLED");
 
         List<Recipe> categories = new ArrayList<>();
         for(int i = 0; i< Constants.DEFAULT_SEARCH_CATEGORIES.length; i++)
@@ -213,8 +225,14 @@ public class RecipeRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.Vie
     }
 
     public void setRecipes(List<Recipe> recipes){
+        long start = Tracer.now();
         mRecipes = recipes;
         notifyDataSetChanged();
+        Tracer tracer = Tracer.getInstance();
+        if(tracer.isEnabled()){
+            tracer.complete("RecipeRecyclerAdapter.setRecipes",
+                    recipes != null ? recipes.size() + " recipes" : null, start);
+        }
     }
 
     public Recipe getSelectedRecipe(int position){
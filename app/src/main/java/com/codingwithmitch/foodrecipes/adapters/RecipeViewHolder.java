@@ -12,6 +12,7 @@ import com.bumptech.glide.RequestManager;
 import com.bumptech.glide.util.ViewPreloadSizeProvider;
 import com.codingwithmitch.foodrecipes.R;
 import com.codingwithmitch.foodrecipes.models.Recipe;
+import com.codingwithmitch.foodrecipes.util.Tracer;
 
 public class RecipeViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
 
@@ -43,8 +44,17 @@ public class RecipeViewHolder extends RecyclerView.ViewHolder implements View.On
     }
 
     public void onBind(Recipe recipe){
-        requestManager.load(recipe.getImage_url())
-                      .into(image);
+        Tracer tracer = Tracer.getInstance();
+        if(tracer.isEnabled()){
+            long id = tracer.beginAsync(TracingImageListener.SPAN, recipe.getImage_url());
+            requestManager.load(recipe.getImage_url())
+                          .listener(new TracingImageListener(tracer, id))
+                          .into(image);
+        }
+        else{
+            requestManager.load(recipe.getImage_url())
+                          .into(image);
+        }
 
         title.setText(recipe.getTitle());
         publisher.setText(recipe.getPublisher());
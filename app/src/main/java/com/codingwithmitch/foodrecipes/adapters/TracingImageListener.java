@@ -0,0 +1,46 @@
+package com.codingwithmitch.foodrecipes.adapters;
+
+import android.graphics.drawable.Drawable;
+
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
+import com.codingwithmitch.foodrecipes.util.Tracer;
+
+import java.util.Locale;
+
+/**
+ * Ends the {@link Tracer} span of a Glide image load, noting where the image came from
+ * (memory cache, disk cache or network).
+ */
+class TracingImageListener implements RequestListener<Drawable> {
+
+    static final String SPAN = "Glide.load";
+
+    private final Tracer tracer;
+    private final long id;
+
+    TracingImageListener(Tracer tracer, long id) {
+        this.tracer = tracer;
+        this.id = id;
+    }
+
+    @Override
+    public boolean onLoadFailed(@Nullable GlideException e, Object model, Target<Drawable> target,
+                                boolean isFirstResource) {
+        tracer.instant(SPAN + " failed", String.valueOf(model));
+        tracer.endAsync(SPAN, id);
+        return false;
+    }
+
+    @Override
+    public boolean onResourceReady(Drawable resource, Object model, Target<Drawable> target,
+                                   DataSource dataSource, boolean isFirstResource) {
+        tracer.instant(SPAN + " " + dataSource.name().toLowerCase(Locale.US), null);
+        tracer.endAsync(SPAN, id);
+        return false;
+    }
+}
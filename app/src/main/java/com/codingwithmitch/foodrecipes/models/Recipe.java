@@ -147,6 +147,37 @@ public class Recipe implements Parcelable{
         this.recipe_id = recipe_id;
     }
 
+    // content equality, so refreshed data can be compared with what is already displayed
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Recipe recipe = (Recipe) o;
+        return Float.compare(recipe.social_rank, social_rank) == 0 &&
+                timestamp == recipe.timestamp &&
+                equal(recipe_id, recipe.recipe_id) &&
+                equal(title, recipe.title) &&
+                equal(publisher, recipe.publisher) &&
+                equal(image_url, recipe.image_url) &&
+                Arrays.equals(ingredients, recipe.ingredients);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = recipe_id != null ? recipe_id.hashCode() : 0;   // null for the adapter's placeholder rows
+        result = 31 * result + (title != null ? title.hashCode() : 0);
+        result = 31 * result + (publisher != null ? publisher.hashCode() : 0);
+        result = 31 * result + (image_url != null ? image_url.hashCode() : 0);
+        result = 31 * result + Float.floatToIntBits(social_rank);
+        result = 31 * result + Arrays.hashCode(ingredients);
+        result = 31 * result + timestamp;
+        return result;
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
     @Override
     public String toString() {
         return "Recipe{" +
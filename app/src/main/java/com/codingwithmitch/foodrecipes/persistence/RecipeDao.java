@@ -34,4 +34,20 @@ public interface RecipeDao {
     @Query("SELECT * FROM recipes WHERE recipe_id = :recipe_id")
     LiveData<Recipe> getRecipe(String recipe_id);
 
+    // the same queries, run once on the caller's (background) thread
+
+    @Query("SELECT * FROM recipes WHERE title LIKE '%' || :query || '%' OR ingredients LIKE '%' || :query || '%' " +
+            "ORDER BY social_rank DESC LIMIT (:pageNumber * 30)")
+    List<Recipe> searchRecipesSync(String query, int pageNumber);
+
+    @Query("SELECT * FROM recipes WHERE recipe_id = :recipe_id")
+    Recipe getRecipeSync(String recipe_id);
+
+    @Query("SELECT * FROM recipes WHERE recipe_id IN (:recipe_ids)")
+    List<Recipe> getRecipesSync(List<String> recipe_ids);
+
+    // the whole table in recipe_id order, @limit rows at a time: pass the last id of the previous batch
+    @Query("SELECT * FROM recipes WHERE recipe_id > :after_recipe_id ORDER BY recipe_id LIMIT :limit")
+    List<Recipe> getRecipesAfterSync(String after_recipe_id, int limit);
+
 }
@@ -0,0 +1,128 @@
+package com.codingwithmitch.foodrecipes.persistence;
+
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+import androidx.lifecycle.Observer;
+
+import com.codingwithmitch.foodrecipes.models.Recipe;
+import com.codingwithmitch.foodrecipes.util.Tracer;
+
+import java.util.List;
+
+/**
+ * {@link RecipeDao} that records a {@link Tracer} span for every write, and for every
+ * LiveData query the time from it becoming active to its first value (later values are instants).
+ */
+public class TracingRecipeDao implements RecipeDao {
+
+    private final RecipeDao delegate;
+    private final Tracer tracer;
+
+    public TracingRecipeDao(RecipeDao delegate, Tracer tracer) {
+        this.delegate = delegate;
+        this.tracer = tracer;
+    }
+
+    @Override
+    public long[] insertRecipes(Recipe... recipe) {
+        long start = Tracer.now();
+        long[] rowIds = delegate.insertRecipes(recipe);
+        tracer.complete("RecipeDao.insertRecipes", start);
+        return rowIds;
+    }
+
+    @Override
+    public void insertRecipe(Recipe recipe) {
+        long start = Tracer.now();
+        delegate.insertRecipe(recipe);
+        tracer.complete("RecipeDao.insertRecipe", start);
+    }
+
+    @Override
+    public void updateRecipe(String recipe_id, String title, String publisher, String image_url, float social_rank) {
+        long start = Tracer.now();
+        delegate.updateRecipe(recipe_id, title, publisher, image_url, social_rank);
+        tracer.complete("RecipeDao.updateRecipe", start);
+    }
+
+    @Override
+    public LiveData<List<Recipe>> searchRecipes(String query, int pageNumber) {
+        return traced("RecipeDao.searchRecipes", delegate.searchRecipes(query, pageNumber));
+    }
+
+    @Override
+    public LiveData<Recipe> getRecipe(String recipe_id) {
+        return traced("RecipeDao.getRecipe", delegate.getRecipe(recipe_id));
+    }
+
+    @Override
+    public List<Recipe> searchRecipesSync(String query, int pageNumber) {
+        long start = Tracer.now();
+        List<Recipe> recipes = delegate.searchRecipesSync(query, pageNumber);
+        tracer.complete("RecipeDao.searchRecipesSync", start);
+        return recipes;
+    }
+
+    @Override
+    public Recipe getRecipeSync(String recipe_id) {
+        long start = Tracer.now();
+        Recipe recipe = delegate.getRecipeSync(recipe_id);
+        tracer.complete("RecipeDao.getRecipeSync", start);
+        return recipe;
+    }
+
+    @Override
+    public List<Recipe> getRecipesSync(List<String> recipe_ids) {
+        long start = Tracer.now();
+        List<Recipe> recipes = delegate.getRecipesSync(recipe_ids);
+        tracer.complete("RecipeDao.getRecipesSync", start);
+        return recipes;
+    }
+
+    @Override
+    public List<Recipe> getRecipesAfterSync(String after_recipe_id, int limit) {
+        long start = Tracer.now();
+        List<Recipe> recipes = delegate.getRecipesAfterSync(after_recipe_id, limit);
+        tracer.complete("RecipeDao.getRecipesAfterSync", start);
+        return recipes;
+    }
+
+    private <T> LiveData<T> traced(String name, LiveData<T> source) {
+        if (!tracer.isEnabled()) {
+            return source;
+        }
+        return new TracedLiveData<>(name, source, tracer);
+    }
+
+    private static class TracedLiveData<T> extends MediatorLiveData<T> {
+
+        private final String name;
+        private final Tracer tracer;
+        private long queryId;
+
+        TracedLiveData(final String name, LiveData<T> source, final Tracer tracer) {
+            this.name = name;
+            this.tracer = tracer;
+            addSource(source, new Observer<T>() {
+                @Override
+                public void onChanged(@Nullable T value) {
+                    if (queryId != 0) {
+                        tracer.endAsync(name, queryId);
+                        queryId = 0;
+                    } else {
+                        tracer.instant(name + " emit", null);
+                    }
+                    setValue(value);
+                }
+            });
+        }
+
+        @Override
+        protected void onActive() {
+            // Room runs the query when its LiveData becomes active
+            queryId = tracer.beginAsync(name, null);
+            super.onActive();
+        }
+    }
+}
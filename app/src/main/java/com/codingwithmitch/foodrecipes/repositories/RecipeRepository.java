@@ -1,30 +1,131 @@
 package com.codingwithmitch.foodrecipes.repositories;
 
 import android.content.Context;
-import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Observer;
 
 import com.codingwithmitch.foodrecipes.AppExecutors;
 import com.codingwithmitch.foodrecipes.models.Recipe;
 import com.codingwithmitch.foodrecipes.persistence.RecipeDao;
 import com.codingwithmitch.foodrecipes.persistence.RecipeDatabase;
+import com.codingwithmitch.foodrecipes.persistence.TracingRecipeDao;
+import com.codingwithmitch.foodrecipes.requests.ConnectivityMonitor;
+import com.codingwithmitch.foodrecipes.requests.RateLimiter;
+import com.codingwithmitch.foodrecipes.requests.RecipeApi;
+import com.codingwithmitch.foodrecipes.requests.RequestPriority;
 import com.codingwithmitch.foodrecipes.requests.ServiceGenerator;
 import com.codingwithmitch.foodrecipes.requests.responses.ApiResponse;
 import com.codingwithmitch.foodrecipes.requests.responses.RecipeResponse;
 import com.codingwithmitch.foodrecipes.requests.responses.RecipeSearchResponse;
+import com.codingwithmitch.foodrecipes.search.IngredientIndex;
+import com.codingwithmitch.foodrecipes.search.MinHashIndex;
+import com.codingwithmitch.foodrecipes.search.Persistable;
+import com.codingwithmitch.foodrecipes.search.QueryFrequencySketch;
+import com.codingwithmitch.foodrecipes.search.RecipeMerger;
+import com.codingwithmitch.foodrecipes.search.RecipeRanker;
+import com.codingwithmitch.foodrecipes.search.SuggestionTrie;
+import com.codingwithmitch.foodrecipes.search.TrigramIndex;
+import com.codingwithmitch.foodrecipes.util.CachePolicy;
 import com.codingwithmitch.foodrecipes.util.Constants;
+import com.codingwithmitch.foodrecipes.util.Flow;
+import com.codingwithmitch.foodrecipes.util.Logger;
 import com.codingwithmitch.foodrecipes.util.NetworkBoundResource;
+import com.codingwithmitch.foodrecipes.util.Publishers;
+import com.codingwithmitch.foodrecipes.util.QueryCache;
 import com.codingwithmitch.foodrecipes.util.Resource;
+import com.codingwithmitch.foodrecipes.util.Tracer;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import retrofit2.Call;
+import retrofit2.Response;
 
 public class RecipeRepository{
     private static final String TAG = "RecipeRepository";
+
+    // RequestScheduler tags
+    private static final String SEARCH_TAG = "search";
+    private static final String RECIPE_TAG = "recipe:";
+
+    // rows per page of RecipeDao.searchRecipes, and at most as many recipes per page from the API
+    public static final int PAGE_SIZE = 30;
+
+    private static final String QUOTA_MESSAGE = "The API quota is used up.";
+    private static final String NO_RECIPES_MESSAGE = "The API returned no recipes.";
+
+    // in-memory search results: about 20 full pages, each kept for 5 minutes
+    private static final int QUERY_CACHE_MAX_RECIPES = 20 * PAGE_SIZE;
+    public static final long QUERY_CACHE_TTL_SECONDS = 5 * 60;
+
+    // sub-searches of searchRecipesMulti running at once; the scheduler bounds the app as a whole
+    private static final int MULTI_SEARCH_PARALLELISM = 3;
+
+    // cached matches RecipeRanker picks the local-first results from
+    private static final int RANKED_CANDIDATE_PAGES = 10;
+
+    // rows read at a time when the search indexes are first built from the table
+    private static final int INDEX_BATCH_SIZE = 500;
+
+    // "similar recipes": how many, and how much of their ingredients they have to share (estimated Jaccard)
+    private static final int SIMILAR_RECIPES_LIMIT = 5;
+    private static final float SIMILAR_RECIPES_MIN_SIMILARITY = 0.25f;
+
+    // search suggestions: how much each source counts, and where they are kept between launches
+    private static final String SUGGESTIONS_FILE = "suggestions.bin";
+    private static final int CATEGORY_SUGGESTION_WEIGHT = 50;
+    private static final int QUERY_SUGGESTION_WEIGHT = 20;
+
+    // how often each query is searched, for the prefetcher: how fast it forgets, and where it is kept
+    private static final String QUERY_STATS_FILE = "query_stats.bin";
+    private static final long QUERY_STATS_HALF_LIFE_MILLIS = TimeUnit.DAYS.toMillis(14);
+    private static final int QUERY_STATS_CANDIDATES = 64;
+
     private static RecipeRepository instance;
     private RecipeDao recipeDao;
+    private RecipeApi recipeApi;
+    private AppExecutors appExecutors;
+    private QueryCache<Recipe> queryCache;
+    private final RecipeRanker ranker = new RecipeRanker();
+
+    // built from the table at startup (loadSearchState), then kept up to date as recipes are saved
+    private final TrigramIndex titleIndex = new TrigramIndex();
+    private final IngredientIndex ingredientIndex = new IngredientIndex();
+    private final MinHashIndex similarityIndex = new MinHashIndex();
+    private final Object indexLock = new Object();
+    private boolean indexesLoaded;  // guarded by indexLock
+
+    private final SuggestionTrie suggestions = new SuggestionTrie();
+    private final QueryFrequencySketch queryStats;
+    private final File filesDir;                    // null when suggestions and query stats are not persisted
+    private volatile long savedSuggestionModifications = -1;
+    private volatile long savedQueryStatsModifications = -1;
+    private volatile boolean queryStatsLoaded;      // whether the saved query stats have been read, if there are any
+    private final List<Runnable> onQueryStatsLoaded = new ArrayList<>();   // waiting for them; guarded by itself
 
     public static RecipeRepository getInstance(Context context){
         if(instance == null){
@@ -36,17 +137,269 @@ public class RecipeRepository{
 
     private RecipeRepository(Context context) {
         //DAO for the cache
-        recipeDao = RecipeDatabase.getInstance(context).getRecipeDao();
+        this(new TracingRecipeDao(RecipeDatabase.getInstance(context).getRecipeDao(), Tracer.getInstance()),
+                ServiceGenerator.getRecipeApi(), AppExecutors.getInstance(),
+                context.getApplicationContext().getFilesDir());
+    }
+
+    // lets tests run the repository against a fake cache and a local stand-in server
+    @VisibleForTesting
+    public RecipeRepository(RecipeDao recipeDao, RecipeApi recipeApi, AppExecutors appExecutors) {
+        this(recipeDao, recipeApi, appExecutors, null);
+    }
+
+    private RecipeRepository(RecipeDao recipeDao, RecipeApi recipeApi, AppExecutors appExecutors,
+                             @Nullable File filesDir) {
+        this.recipeDao = recipeDao;
+        this.recipeApi = recipeApi;
+        this.appExecutors = appExecutors;
+        this.filesDir = filesDir;
+        this.queryCache = new QueryCache<>(appExecutors.clock(), QUERY_CACHE_MAX_RECIPES, QUERY_CACHE_TTL_SECONDS);
+        this.queryStats = new QueryFrequencySketch(QUERY_STATS_HALF_LIFE_MILLIS, QUERY_STATS_CANDIDATES,
+                appExecutors.clock().currentTimeMillis());
+        // with nothing to read, the suggestions start from the categories right away
+        this.queryStatsLoaded = filesDir == null;
+        if(filesDir == null){
+            seedSuggestions();
+        }
+    }
+
+    // the categories, whether or not they have been searched
+    private void seedSuggestions(){
+        for(String category : Constants.DEFAULT_SEARCH_CATEGORIES){
+            suggestions.offer(QueryCache.canonicalize(category), CATEGORY_SUGGESTION_WEIGHT);
+        }
     }
 
 //method for int() the networkBound class
     public LiveData<Resource<List<Recipe>>> searchRecipesApi(final String query, final int pageNumber){
+        // stale-while-revalidate: a page held in memory (younger than QUERY_CACHE_TTL_SECONDS) is served
+        // as is; db rows carry no refresh time, so they are shown while the search is refreshed
+        return searchRecipesApi(query, pageNumber, CachePolicy.staleWhileRevalidate(QUERY_CACHE_TTL_SECONDS));
+    }
+
+    public LiveData<Resource<List<Recipe>>> searchRecipesApi(String query, final int pageNumber,
+                                                             final CachePolicy cachePolicy){
+
+        // "Chicken " and "chicken" are one search, for the caches and for the API
+        final String canonicalQuery = QueryCache.canonicalize(query);
+        final String key = QueryCache.keyOf(canonicalQuery, pageNumber);
+        List<Recipe> cached = null;
+        if(cachePolicy.mode != CachePolicy.Mode.NETWORK_ONLY){
+            cached = queryCache.get(key);
+            if(cached != null && settlesFromMemory(key, cachePolicy)){
+                Logger.d(TAG, "searchRecipesApi: served from memory: ", key);
+                if(pageNumber == 1){
+                    suggestions.increment(canonicalQuery, QUERY_SUGGESTION_WEIGHT);
+                }
+                // a copy: the adapter adds its loading and exhausted rows to the list it is given
+                return new MutableLiveData<>(Resource.<List<Recipe>>success(new ArrayList<>(cached)));
+            }
+        }
+        // too old for the policy: shown while the search goes through NetworkBoundResource
+        final List<Recipe> inMemory = cached == null ? null : new ArrayList<>(cached);
+
+        final MediatorLiveData<Resource<List<Recipe>>> results = new MediatorLiveData<>();
+        final LiveData<Resource<List<Recipe>>> source = searchRecipesBound(canonicalQuery, pageNumber, cachePolicy);
+        // bumped by every emission, so that a ranking finished after a newer one is dropped
+        final int[] generation = new int[1];
+        if(inMemory != null){
+            Logger.d(TAG, "searchRecipesApi: revalidating the page in memory: ", key, " ", cachePolicy);
+            results.setValue(whileRevalidating(inMemory, cachePolicy));
+        }
+        results.addSource(source, new Observer<Resource<List<Recipe>>>() {
+            @Override
+            public void onChanged(Resource<List<Recipe>> emitted) {
+                final int current = ++generation[0];
+                final Resource<List<Recipe>> resource = withMemoryPage(emitted, inMemory, cachePolicy);
+                // only settled, non-empty pages: an exhausted query is asked again next time
+                if(resource != null && resource.status == Resource.Status.SUCCESS && !resource.refreshing
+                        && resource.data != null && !resource.data.isEmpty()){
+                    queryCache.put(key, resource.data);
+                    // a query that found something is worth suggesting again
+                    if(pageNumber == 1){
+                        suggestions.increment(canonicalQuery, QUERY_SUGGESTION_WEIGHT);
+                    }
+                }
+                if(resource != null && resource.status == Resource.Status.ERROR
+                        && ConnectivityMonitor.OFFLINE_MESSAGE.equals(resource.message)
+                        && resource.data != null && !resource.data.isEmpty()){
+                    // offline, the saved recipes are all there is: show them (and the error) at once,
+                    // then the most relevant first once they are ranked
+                    results.setValue(resource);
+                    rankAsync(canonicalQuery, resource.data, resource.data.size(), new Observer<List<Recipe>>() {
+                        @Override
+                        public void onChanged(List<Recipe> ranked) {
+                            if(current == generation[0]){
+                                results.setValue(Resource.error(resource.message, ranked));
+                            }
+                        }
+                    });
+                    return;
+                }
+                results.setValue(resource);
+            }
+        });
+        return results;
+    }
+
+    /*
+     * Combined results of several queries ("Chicken" plus "Dinner"): page @pageNumber of each, at
+     * most MULTI_SEARCH_PARALLELISM at a time, each through searchRecipesApi (so memory hits and the
+     * offline fallback apply). Every time one settles, the pages so far are merged by social_rank,
+     * without repeats, and emitted as a refreshing SUCCESS; the last one gives the final SUCCESS, or
+     * ERROR (with whatever was merged, e.g. another query's page or cached matches) if any query failed.
+     */
+    public LiveData<Resource<List<Recipe>>> searchRecipesMulti(List<String> queries, int pageNumber){
+        List<String> distinct = new ArrayList<>();
+        for(String query : queries){
+            String canonicalQuery = QueryCache.canonicalize(query);
+            if(!canonicalQuery.isEmpty() && !distinct.contains(canonicalQuery)){
+                distinct.add(canonicalQuery);
+            }
+        }
+        FanOut fanOut = new FanOut(distinct, pageNumber);
+        fanOut.start();
+        return fanOut.results;
+    }
+
+    // the state of one searchRecipesMulti; only touched on the main thread
+    private class FanOut {
+
+        final MediatorLiveData<Resource<List<Recipe>>> results = new MediatorLiveData<>();
+        private final List<String> queries;
+        private final int pageNumber;
+        private final List<List<Recipe>> settledPages = new ArrayList<>();
+        private int started;
+        private int settled;
+        private String lastError;
+
+        FanOut(List<String> queries, int pageNumber){
+            this.queries = queries;
+            this.pageNumber = pageNumber;
+        }
+
+        void start(){
+            if(queries.isEmpty()){
+                results.setValue(Resource.<List<Recipe>>success(new ArrayList<Recipe>()));
+                return;
+            }
+            results.setValue(Resource.<List<Recipe>>loading(null));
+            while(started < Math.min(MULTI_SEARCH_PARALLELISM, queries.size())){
+                startNext();
+            }
+        }
+
+        private void startNext(){
+            final String query = queries.get(started++);
+            final LiveData<Resource<List<Recipe>>> source = searchRecipesApi(query, pageNumber);
+            results.addSource(source, new Observer<Resource<List<Recipe>>>() {
+                @Override
+                public void onChanged(Resource<List<Recipe>> resource) {
+                    // only settled results: not the cache shown while loading or revalidating
+                    if(resource == null || resource.status == Resource.Status.LOADING
+                            || (resource.status == Resource.Status.SUCCESS && resource.refreshing)){
+                        return;
+                    }
+                    results.removeSource(source);
+                    onSettled(query, resource);
+                }
+            });
+        }
+
+        private void onSettled(String query, Resource<List<Recipe>> resource){
+            settled++;
+            if(resource.data != null && !resource.data.isEmpty()){
+                settledPages.add(resource.data);
+            }
+            if(resource.status == Resource.Status.ERROR){
+                Logger.d(TAG, "searchRecipesMulti: ", query, " failed: ", resource.message);
+                lastError = resource.message;
+            }
+            List<Recipe> merged = RecipeMerger.mergeByRank(settledPages, Integer.MAX_VALUE);
+            if(settled < queries.size()){
+                results.setValue(Resource.refreshing(merged));
+                if(started < queries.size()){
+                    startNext();
+                }
+            }
+            else if(lastError != null){
+                // part of the results is missing or only from the cache: not a SUCCESS
+                results.setValue(Resource.error(lastError, merged));
+            }
+            else{
+                results.setValue(Resource.success(merged));
+            }
+        }
+    }
+
+    // whether a page held in memory settles a search under @cachePolicy, as NetworkBoundResource
+    // decides for the db: search rows are always fetched under CACHE_FIRST (shouldFetch())
+    private boolean settlesFromMemory(String key, CachePolicy cachePolicy){
+        switch (cachePolicy.mode){
+            case CACHE_ONLY:
+                return true;
+
+            case STALE_WHILE_REVALIDATE:
+                long ageSeconds = queryCache.getAgeSeconds(key);
+                return ageSeconds >= 0 && ageSeconds < cachePolicy.maxAgeSeconds;
+
+            default:
+                return false;
+        }
+    }
+
+    // @page from memory, shown the way NetworkBoundResource shows cached data while it fetches
+    private static Resource<List<Recipe>> whileRevalidating(List<Recipe> page, CachePolicy cachePolicy){
+        return cachePolicy.mode == CachePolicy.Mode.STALE_WHILE_REVALIDATE
+                ? Resource.refreshing(page)
+                : Resource.loading(page);
+    }
+
+    // until the db has rows for the search, the page from memory stands in for them
+    private static Resource<List<Recipe>> withMemoryPage(Resource<List<Recipe>> resource,
+                                                         List<Recipe> inMemory, CachePolicy cachePolicy){
+        if(inMemory == null || resource == null || (resource.data != null && !resource.data.isEmpty())){
+            return resource;
+        }
+        if(resource.status == Resource.Status.LOADING){
+            return whileRevalidating(inMemory, cachePolicy);
+        }
+        if(resource.status == Resource.Status.ERROR){
+            return Resource.error(resource.message, inMemory);
+        }
+        return resource;
+    }
+
+    // ranks @candidates on the compute pool and hands the result to @onRanked on the main thread
+    private void rankAsync(final String query, final List<Recipe> candidates, final int limit,
+                           final Observer<List<Recipe>> onRanked){
+        boolean queued = tryExecute(appExecutors.compute(), new Runnable() {
+            @Override
+            public void run() {
+                final List<Recipe> ranked = ranker.rank(query, candidates, limit);
+                appExecutors.mainThread().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        onRanked.onChanged(ranked);
+                    }
+                });
+            }
+        });
+        if(!queued){
+            // in the order they came
+            postResult(onRanked, new ArrayList<>(candidates.subList(0, Math.min(limit, candidates.size()))));
+        }
+    }
+
+    private LiveData<Resource<List<Recipe>>> searchRecipesBound(final String query, final int pageNumber,
+                                                                CachePolicy cachePolicy){
 
         /*
         * @Recipe is the cache data
         * @RecipeSearchResponse => the API response
          */
-        return new NetworkBoundResource<List<Recipe>, RecipeSearchResponse>(AppExecutors.getInstance() ){
+        return new NetworkBoundResource<List<Recipe>, RecipeSearchResponse>(appExecutors, cachePolicy){
 
             /*
              * @Recipe is the cache data
@@ -54,43 +407,21 @@ public class RecipeRepository{
              */
 
             @Override
-            public void saveCallResult(@NonNull RecipeSearchResponse item) {
-
-            // saving the response data to the cache db
-                if(item.getRecipes() != null){
-
-                    // recipe list will be null if the api key is expired
-                    Log.d(TAG, "saveCallResult: recipe response: " + item.toString());
-
-                    Recipe[] recipes = new Recipe[item.getRecipes().size()];
-
-                    int index = 0;
-                    for(long rowid: recipeDao.insertRecipes((Recipe[]) (item.getRecipes().toArray(recipes))))
-                    {
-                        if(rowid == -1){
-                            Log.d(TAG, "saveCallResult: CONFLICT... This recipe is already in the cache");
-                            // if the recipe already exists... I don't want to set the ingredients or timestamp b/c
-                            // they will be erased
-                            //don't set recipe because it doesn't contain the ingredients
-
-                            recipeDao.updateRecipe(
-                                    recipes[index].getRecipe_id(),
-                                    recipes[index].getTitle(),
-                                    recipes[index].getPublisher(),
-                                    recipes[index].getImage_url(),
-                                    recipes[index].getSocial_rank()
-                            );
-                        }
-                        index++;
-                    }
-                }
+            public boolean saveCallResult(@NonNull RecipeSearchResponse item) {
+                return saveSearchResponse(item);
             }
 
             @Override
-            public boolean shouldFetch(@Nullable List<Recipe> data) {
+            public boolean shouldFetch(@NonNull List<Recipe> data) {
                 return true; // always query the network since the queries can be anything
             }
 
+            @NonNull
+            @Override
+            protected String getOperationName() {
+                return "searchRecipes";
+            }
+
             @NonNull
             @Override
             public LiveData<List<Recipe>> loadFromDb() {
@@ -102,52 +433,424 @@ public class RecipeRepository{
             @NonNull
             @Override
             public LiveData<ApiResponse<RecipeSearchResponse>> createCall() {
-                return ServiceGenerator.getRecipeApi().searchRecipe(
+                return recipeApi.searchRecipe(
                         Constants.API_KEY,
                         query,
-                        String.valueOf(pageNumber)
+                        String.valueOf(pageNumber),
+                        RequestPriority.SEARCH.name(),
+                        SEARCH_TAG
                 );
             }
 
         }.getAsLiveData();
     }
 
+    /*
+     * First page of cached results for @query, without touching the network, ranked by relevance
+     * (RecipeRanker) among the best RANKED_CANDIDATE_PAGES pages of cached matches by social_rank.
+     */
+    public LiveData<List<Recipe>> searchCache(String query){
+        final String canonicalQuery = QueryCache.canonicalize(query);
+        final MediatorLiveData<List<Recipe>> results = new MediatorLiveData<>();
+        final int[] generation = new int[1];
+        results.addSource(recipeDao.searchRecipes(canonicalQuery, RANKED_CANDIDATE_PAGES), new Observer<List<Recipe>>() {
+            @Override
+            public void onChanged(final List<Recipe> candidates) {
+                final int current = ++generation[0];
+                if(candidates == null || candidates.isEmpty()){
+                    // nothing contains the text as typed: it may be misspelled
+                    searchFuzzyAsync(canonicalQuery, new Observer<List<Recipe>>() {
+                        @Override
+                        public void onChanged(List<Recipe> fuzzy) {
+                            if(current == generation[0]){
+                                results.setValue(fuzzy.isEmpty() ? candidates : fuzzy);
+                            }
+                        }
+                    });
+                    return;
+                }
+                rankAsync(canonicalQuery, candidates, PAGE_SIZE, new Observer<List<Recipe>>() {
+                    @Override
+                    public void onChanged(List<Recipe> ranked) {
+                        if(current == generation[0]){
+                            results.setValue(ranked);
+                        }
+                    }
+                });
+            }
+        });
+        return results;
+    }
+
+    /*
+     * Typo-tolerant search of the cache, without touching the network: recipes whose titles match
+     * every word of @query within a few edits ("chiken", "lasagne"), closest first.
+     */
+    public LiveData<List<Recipe>> searchRecipesFuzzy(String query){
+        final MutableLiveData<List<Recipe>> results = new MutableLiveData<>();
+        searchFuzzyAsync(QueryCache.canonicalize(query), new Observer<List<Recipe>>() {
+            @Override
+            public void onChanged(List<Recipe> recipes) {
+                results.setValue(recipes);
+            }
+        });
+        return results;
+    }
+
+    // runs the fuzzy search on the disk read pool and hands the result to @onFound on the main thread
+    private void searchFuzzyAsync(final String canonicalQuery, final Observer<List<Recipe>> onFound){
+        boolean queued = tryExecute(appExecutors.diskRead(), new Runnable() {
+            @Override
+            public void run() {
+                final List<Recipe> recipes = searchFuzzyNow(canonicalQuery);
+                appExecutors.mainThread().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        onFound.onChanged(recipes);
+                    }
+                });
+            }
+        });
+        if(!queued){
+            postResult(onFound, new ArrayList<Recipe>());
+        }
+    }
+
+    @WorkerThread
+    private List<Recipe> searchFuzzyNow(String canonicalQuery){
+        loadIndexes();
+        long start = appExecutors.clock().nanoTime();
+        // closest first
+        List<Recipe> recipes = getRecipesInOrder(titleIndex.search(canonicalQuery, PAGE_SIZE));
+        Logger.d(TAG, "searchFuzzy: matches: ", recipes.size(), " in (us): ",
+                (appExecutors.clock().nanoTime() - start) / 1000);
+        return recipes;
+    }
+
+    /*
+     * "Cook with what I have": cached recipes using at least @minMatches of @ingredients, those
+     * using the most first. Only recipes saved with their ingredients (opened at least once) count.
+     */
+    public LiveData<List<Recipe>> searchRecipesByIngredients(final List<String> ingredients, final int minMatches){
+        final MutableLiveData<List<Recipe>> results = new MutableLiveData<>();
+        boolean queued = tryExecute(appExecutors.diskRead(), new Runnable() {
+            @Override
+            public void run() {
+                loadIndexes();
+                long start = appExecutors.clock().nanoTime();
+                List<Recipe> recipes = getRecipesInOrder(ingredientIndex.search(ingredients, minMatches, PAGE_SIZE));
+                Logger.d(TAG, "searchRecipesByIngredients: matches: ", recipes.size(), " in (us): ",
+                        (appExecutors.clock().nanoTime() - start) / 1000);
+                results.postValue(recipes);
+            }
+        });
+        if(!queued){
+            results.postValue(new ArrayList<Recipe>());
+        }
+        return results;
+    }
+
+    /*
+     * Cached recipes sharing the most ingredients with @recipeId, most similar first. Like the
+     * ingredient search, only recipes saved with their ingredients count.
+     */
+    public LiveData<List<Recipe>> getSimilarRecipes(final String recipeId){
+        final MutableLiveData<List<Recipe>> results = new MutableLiveData<>();
+        boolean queued = tryExecute(appExecutors.diskRead(), new Runnable() {
+            @Override
+            public void run() {
+                loadIndexes();
+                long start = appExecutors.clock().nanoTime();
+                List<String> similar = similarityIndex.similarTo(recipeId,
+                        SIMILAR_RECIPES_MIN_SIMILARITY, SIMILAR_RECIPES_LIMIT);
+                Logger.d(TAG, "getSimilarRecipes: matches: ", similar.size(), " in (us): ",
+                        (appExecutors.clock().nanoTime() - start) / 1000);
+                results.postValue(getRecipesInOrder(similar));
+            }
+        });
+        if(!queued){
+            results.postValue(new ArrayList<Recipe>());
+        }
+        return results;
+    }
+
+    // the cached recipes for @recipeIds, in that order
+    @WorkerThread
+    private List<Recipe> getRecipesInOrder(List<String> recipeIds){
+        if(recipeIds.isEmpty()){
+            return new ArrayList<>();
+        }
+        Map<String, Recipe> recipesById = new HashMap<>();
+        for(Recipe recipe : recipeDao.getRecipesSync(recipeIds)){
+            recipesById.put(recipe.getRecipe_id(), recipe);
+        }
+        List<Recipe> recipes = new ArrayList<>(recipeIds.size());
+        for(String recipeId : recipeIds){
+            Recipe recipe = recipesById.get(recipeId);
+            if(recipe != null){
+                recipes.add(recipe);
+            }
+        }
+        return recipes;
+    }
+
+    /*
+     * Builds the search indexes from the whole table, once, a batch at a time. Started by
+     * loadSearchState; a query that comes first waits for it. Recipes saved meanwhile are indexed by
+     * the save as well; adding a recipe twice is a no-op.
+     */
+    @WorkerThread
+    private void loadIndexes(){
+        synchronized (indexLock){
+            if(indexesLoaded){
+                return;
+            }
+            long start = appExecutors.clock().nanoTime();
+            String after = "";
+            List<Recipe> batch;
+            do{
+                batch = recipeDao.getRecipesAfterSync(after, INDEX_BATCH_SIZE);
+                for(Recipe recipe : batch){
+                    index(recipe);
+                }
+                if(!batch.isEmpty()){
+                    after = batch.get(batch.size() - 1).getRecipe_id();
+                }
+            } while(batch.size() == INDEX_BATCH_SIZE);
+            indexesLoaded = true;
+            Logger.d(TAG, "loadIndexes: recipes: ", titleIndex.size(), " in (ms): ",
+                    (appExecutors.clock().nanoTime() - start) / 1000000);
+        }
+    }
+
+    @WorkerThread
+    private void index(Recipe recipe){
+        titleIndex.add(recipe.getRecipe_id(), recipe.getTitle(), recipe.getSocial_rank());
+        // popular titles first; offering a title again is a no-op
+        suggestions.offer(QueryCache.canonicalize(recipe.getTitle()), 1 + (int) (recipe.getSocial_rank() / 10));
+        // search results come without ingredients, and saving them keeps the ones in the table
+        if(recipe.getIngredients() != null){
+            ingredientIndex.add(recipe.getRecipe_id(), recipe.getIngredients(), recipe.getSocial_rank());
+            similarityIndex.add(recipe.getRecipe_id(), recipe.getIngredients());
+            for(String ingredient : recipe.getIngredients()){
+                // "2 cups shredded chicken breasts" is suggested as "chicken breast", weighted by the recipes using it
+                List<String> words = IngredientIndex.normalize(ingredient);
+                if(!words.isEmpty()){
+                    StringBuilder name = new StringBuilder(words.get(0));
+                    for(int i = 1; i < words.size(); i++){
+                        name.append(' ').append(words.get(i));
+                    }
+                    suggestions.offer(name.toString(), ingredientIndex.countRecipesUsing(name.toString()));
+                }
+            }
+        }
+    }
+
+    /*
+     * Up to @limit suggestions for what has been typed so far, heaviest first: past queries,
+     * categories, ingredients and cached titles starting with it. Cheap enough for the main thread.
+     */
+    public List<String> suggest(String typed, int limit){
+        String prefix = QueryCache.canonicalize(typed);
+        if(prefix.isEmpty()){
+            return new ArrayList<>();
+        }
+        return suggestions.complete(prefix, limit);
+    }
+
+    /*
+     * Counts a search the user made, towards the queries the prefetcher keeps warm. Categories are
+     * counted too, but they are prewarmed anyway.
+     */
+    public void recordSearch(String query){
+        String canonicalQuery = QueryCache.canonicalize(query);
+        if(!canonicalQuery.isEmpty()){
+            queryStats.add(canonicalQuery, appExecutors.clock().currentTimeMillis());
+        }
+    }
+
+    /*
+     * Up to @limit queries searched at least @minSearches times lately (decayed), most searched first;
+     * none until loadSearchState has read the saved counts.
+     */
+    public List<String> getFrequentQueries(int limit, double minSearches){
+        if(!queryStatsLoaded){
+            Logger.d(TAG, "getFrequentQueries: query stats not loaded yet");
+            return new ArrayList<>();
+        }
+        return queryStats.top(limit, minSearches, appExecutors.clock().currentTimeMillis());
+    }
+
+    /*
+     * Runs @onLoaded on the main thread once loadSearchState has read the saved query stats, or
+     * right away if it has, so that getFrequentQueries has them.
+     */
+    public void whenQueryStatsLoaded(Runnable onLoaded){
+        synchronized (onQueryStatsLoaded){
+            if(!queryStatsLoaded){
+                onQueryStatsLoaded.add(onLoaded);
+                return;
+            }
+        }
+        appExecutors.mainThread().execute(onLoaded);
+    }
+
+    /*
+     * Reads the suggestions and query stats saved by saveSearchState, then builds the search indexes
+     * from the table, on the disk read pool: at startup, rather than under the first fuzzy, ingredient
+     * or similar-recipes query. On first launch, or if the file is unreadable, the suggestions come
+     * from the table too.
+     */
+    public void loadSearchState(){
+        if(filesDir == null){
+            return;
+        }
+        appExecutors.diskRead().execute(new Runnable() {
+            @Override
+            public void run() {
+                long start = appExecutors.clock().nanoTime();
+                if(readState(new File(filesDir, QUERY_STATS_FILE), queryStats)){
+                    savedQueryStatsModifications = queryStats.getModifications();
+                }
+                List<Runnable> waiting;
+                synchronized (onQueryStatsLoaded){
+                    queryStatsLoaded = true;
+                    waiting = new ArrayList<>(onQueryStatsLoaded);
+                    onQueryStatsLoaded.clear();
+                }
+                for(Runnable onLoaded : waiting){
+                    appExecutors.mainThread().execute(onLoaded);
+                }
+                if(readState(new File(filesDir, SUGGESTIONS_FILE), suggestions)){
+                    savedSuggestionModifications = suggestions.getModifications();
+                    Logger.d(TAG, "loadSearchState: phrases: ", suggestions.size(), " in (ms): ",
+                            (appExecutors.clock().nanoTime() - start) / 1000000);
+                }
+                // after the load, which then swaps the saved trie in as it is
+                seedSuggestions();
+                loadIndexes();
+            }
+        });
+    }
+
+    // writes the suggestions and query stats to disk, each if it changed since it was last read or written
+    public void saveSearchState(){
+        if(filesDir == null){
+            return;
+        }
+        appExecutors.diskWrite().execute(new Runnable() {
+            @Override
+            public void run() {
+                long modifications = suggestions.getModifications();
+                if(modifications != savedSuggestionModifications
+                        && writeState(new File(filesDir, SUGGESTIONS_FILE), suggestions)){
+                    savedSuggestionModifications = modifications;
+                }
+                modifications = queryStats.getModifications();
+                if(modifications != savedQueryStatsModifications
+                        && writeState(new File(filesDir, QUERY_STATS_FILE), queryStats)){
+                    savedQueryStatsModifications = modifications;
+                }
+            }
+        });
+    }
+
+    // whether @state could be read from @file
+    @WorkerThread
+    private static boolean readState(File file, Persistable state){
+        if(!file.exists()){
+            return false;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            state.readFrom(in);
+            return true;
+        } catch (IOException e) {
+            Logger.e(TAG, "readState: " + file.getName() + ": ", e);
+            return false;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    // whether @state could be written to @file
+    @WorkerThread
+    private static boolean writeState(File file, Persistable state){
+        // written aside and renamed, so a crash midway leaves the previous file
+        File temporary = new File(file.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+            state.writeTo(out);
+            out.close();
+            out = null;
+            if(!temporary.renameTo(file)){
+                throw new IOException("Could not rename " + temporary);
+            }
+            return true;
+        } catch (IOException e) {
+            Logger.e(TAG, "writeState: " + file.getName() + ": ", e);
+            return false;
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable){
+        if(closeable != null){
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
     public LiveData<Resource<Recipe>> searchRecipe(final String recipeId){
+        // refetch only once the cached recipe is older than RECIPE_REFRESH_TIME
+        return searchRecipe(recipeId, CachePolicy.CACHE_FIRST);
+    }
+
+    public LiveData<Resource<Recipe>> searchRecipe(final String recipeId, CachePolicy cachePolicy){
         // for getting the ingredients of a recipe
 
         //@Recipe is the data to be cached
         //@RecipeResponse is the network response
-        return new NetworkBoundResource<Recipe, RecipeResponse>(AppExecutors.getInstance()){
+        return new NetworkBoundResource<Recipe, RecipeResponse>(appExecutors, cachePolicy){
 
             @Override
-            public void saveCallResult(@NonNull RecipeResponse item) {
+            public boolean saveCallResult(@NonNull RecipeResponse item) {
 
-                // Recipe will be NULL if API key is expired
-                if(item.getRecipe() != null){
-                    item.getRecipe().setTimestamp((int)(System.currentTimeMillis() / 1000)); // save time in seconds
-                    //insert recipe into cache
-                    recipeDao.insertRecipe(item.getRecipe());
-                }
+                return saveRecipeResponse(item);
             }
 
             @Override
-            public boolean shouldFetch(@Nullable Recipe data) {
-                Log.d(TAG, "shouldFetch: recipe: " + data.toString());
-                int currentTime = (int)(System.currentTimeMillis() / 1000);
-                Log.d(TAG, "shouldFetch: current time: " + currentTime);
-
+            public boolean shouldFetch(@NonNull Recipe data) {
+                Logger.d(TAG, "shouldFetch: recipe: ", data.getRecipe_id());
+                int currentTime = (int)(appExecutors.clock().currentTimeMillis() / 1000);
                 int lastRefresh = data.getTimestamp();
-                Log.d(TAG, "shouldFetch: last refresh: " + lastRefresh);
-                Log.d(TAG, "shouldFetch: it's been " + ((currentTime - lastRefresh) / 60 / 60 / 24)
-                        + " days since this recipe was refreshed. 30 days must elapse.");
-                if(((System.currentTimeMillis() / 1000) - data.getTimestamp()) >= Constants.RECIPE_REFRESH_TIME){
-                    Log.d(TAG, "shouldFetch: SHOULD REFRESH RECIPE? " + true);
+                Logger.d(TAG, "shouldFetch: days since this recipe was refreshed (30 must elapse): ",
+                        (currentTime - lastRefresh) / 60 / 60 / 24);
+                if((currentTime - data.getTimestamp()) >= Constants.RECIPE_REFRESH_TIME){
+                    Logger.d(TAG, "shouldFetch: SHOULD REFRESH RECIPE? ", true);
                     return true;
                 }
-                Log.d(TAG, "shouldFetch: SHOULD REFRESH RECIPE? " + false);
+                Logger.d(TAG, "shouldFetch: SHOULD REFRESH RECIPE? ", false);
                 return false;
             }
 
+            @Override
+            protected long getCachedAtSeconds(@NonNull Recipe data) {
+                // rows inserted by a search have no timestamp (0) until their details are fetched
+                return data.getTimestamp();
+            }
+
+            @NonNull
+            @Override
+            protected String getOperationName() {
+                return "getRecipe";
+            }
+
             @NonNull
             @Override
             public LiveData<Recipe> loadFromDb() {
@@ -160,14 +863,357 @@ public class RecipeRepository{
             public LiveData<ApiResponse<RecipeResponse>> createCall() {
 
                 //making the call to the API
-                return ServiceGenerator.getRecipeApi().getRecipe(
+                return recipeApi.getRecipe(
                         Constants.API_KEY,
-                        recipeId
+                        recipeId,
+                        RequestPriority.DETAIL.name(),
+                        RECIPE_TAG + recipeId
                 );
             }
 
         }.getAsLiveData();
     }
 
+    // reactive streams: demand driven, cancellable, and run on the RequestScheduler rather than the main thread.
+    // The prefetches use them directly, and a screen through searchRecipePagesAsLiveData
+
+    /**
+     * The pages of @query from @firstPage on, one item per page. A page is only fetched (and saved
+     * to the cache) once it has been requested; if it can't be fetched the cached rows for it are
+     * used instead. The stream ends at the first empty page, and cancelling it cancels the call
+     * in flight.
+     */
+    public Flow.Publisher<List<Recipe>> searchRecipePages(String query, int firstPage, RequestPriority priority){
+        return searchRecipePages(query, firstPage, priority, true);
+    }
+
+    /**
+     * {@link #searchRecipePages} for a screen: @initialPages pages are loaded once it is observed,
+     * and each further page when {@link Publishers.PublisherLiveData#request(long)} asks for it.
+     * While nobody observes it the call in flight is cancelled; observed again, it goes on from the
+     * page after the last one delivered.
+     */
+    public Publishers.PublisherLiveData<List<Recipe>> searchRecipePagesAsLiveData(final String query, int initialPages){
+        final String canonicalQuery = QueryCache.canonicalize(query);
+        return Publishers.toLiveData(new Publishers.Resumable<List<Recipe>>() {
+            @NonNull
+            @Override
+            public Flow.Publisher<List<Recipe>> from(long delivered) {
+                return searchRecipePages(canonicalQuery, 1 + (int) delivered, RequestPriority.SEARCH);
+            }
+        }, initialPages);
+    }
+
+    private Flow.Publisher<List<Recipe>> searchRecipePages(final String query, final int firstPage,
+                                                           final RequestPriority priority,
+                                                           final boolean fallBackToCache){
+        // untagged: cancelSearch() is for the screen's search, and the stream is cancelled through its subscription
+        return Publishers.generate(appExecutors.scheduler().asExecutor(priority, null),
+                new Callable<Publishers.Generator<List<Recipe>>>() {
+                    @Override
+                    public Publishers.Generator<List<Recipe>> call() {
+                        return new PageGenerator(query, firstPage, priority, fallBackToCache);
+                    }
+                });
+    }
+
+    /**
+     * Page 1 of each of @queries (categories, or frequent searches), fetched one after another at
+     * PREFETCH priority, saved to the cache and kept in memory, so that searching it again shows it
+     * at once. @onWarmed gets each canonical query whose page came from the network, on the main
+     * thread; the first failure (offline, rate limited, quota) stops the rest. Unlike
+     * searchRecipePages there is no fallback to the cached rows: kept in memory as a fresh page,
+     * they would be served without being revalidated.
+     */
+    public void prewarmQueries(String[] queries, final Observer<String> onWarmed){
+        List<Flow.Publisher<String>> pages = new ArrayList<>();
+        for(String query : queries){
+            final String canonicalQuery = QueryCache.canonicalize(query);
+            Flow.Publisher<List<Recipe>> fromNetwork =
+                    searchRecipePages(canonicalQuery, 1, RequestPriority.PREFETCH, false);
+            pages.add(Publishers.map(Publishers.take(fromNetwork, 1),
+                    new Publishers.Function<List<Recipe>, String>() {
+                        @Override
+                        public String apply(List<Recipe> page) {
+                            queryCache.put(QueryCache.keyOf(canonicalQuery, 1), page);
+                            return canonicalQuery;
+                        }
+                    }));
+        }
+        Publishers.concat(pages).subscribe(new Flow.Subscriber<String>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(String query) {
+                postResult(onWarmed, query);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                Logger.d(TAG, "prewarmQueries: stopped: ", throwable.getMessage());
+            }
+
+            @Override
+            public void onComplete() {
+                Logger.d(TAG, "prewarmQueries: done");
+            }
+        });
+    }
 
+    /**
+     * Whether a search for page @pageNumber of @query would show results before the network
+     * answers: from the page held in memory (younger than QUERY_CACHE_TTL_SECONDS), or from rows
+     * saved in the db. @onResult gets the answer on the main thread.
+     */
+    public void isPageCached(String query, final int pageNumber, final Observer<Boolean> onResult){
+        final String canonicalQuery = QueryCache.canonicalize(query);
+        if(isPageInMemory(canonicalQuery, pageNumber)){
+            postResult(onResult, true);
+            return;
+        }
+        boolean queued = tryExecute(appExecutors.diskRead(), new Runnable() {
+            @Override
+            public void run() {
+                List<Recipe> upToPage = recipeDao.searchRecipesSync(canonicalQuery, pageNumber);
+                postResult(onResult, upToPage != null && upToPage.size() > (pageNumber - 1) * PAGE_SIZE);
+            }
+        });
+        if(!queued){
+            postResult(onResult, false);
+        }
+    }
+
+    /*
+     * Whether page @pageNumber of @query is held in memory, young enough to be served as it is.
+     * Memory only: it starts empty with every launch.
+     */
+    public boolean isPageInMemory(String query, int pageNumber){
+        // not get(): this isn't a lookup, and mustn't count as a hit or a miss
+        long ageSeconds = queryCache.getAgeSeconds(QueryCache.keyOf(QueryCache.canonicalize(query), pageNumber));
+        return ageSeconds >= 0 && ageSeconds < QUERY_CACHE_TTL_SECONDS;
+    }
+
+    /*
+     * Queues @task on @executor, or returns false if the pool is full or shut down. The rejection is
+     * counted in the pool's stats (see AppExecutors#getStats), and the caller answers without the
+     * pool: the reader and compute pools are bounded, and a task is never run on the caller.
+     */
+    private boolean tryExecute(Executor executor, Runnable task){
+        try {
+            executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            Logger.w(TAG, "tryExecute: rejected: ", e.getMessage());
+            return false;
+        }
+    }
+
+    private <T> void postResult(final Observer<T> observer, final T result){
+        appExecutors.mainThread().execute(new Runnable() {
+            @Override
+            public void run() {
+                observer.onChanged(result);
+            }
+        });
+    }
+
+    /**
+     * Executes the blocking calls of one subscription, and cancels the one in flight when the
+     * subscription is cancelled.
+     */
+    private abstract class CallGenerator<T> extends Publishers.Generator<T> {
+
+        private volatile Call<?> current;
+        private volatile boolean cancelled;
+
+        boolean isCancelled(){
+            return cancelled;
+        }
+
+        @NonNull
+        <R> R execute(Call<R> call) throws IOException {
+            current = call;
+            if(cancelled){
+                call.cancel();
+            }
+            Response<R> response = call.execute();
+            R body = response.body();
+            if(!response.isSuccessful() || body == null){
+                throw new IOException("HTTP " + response.code() + " " + response.message());
+            }
+            return body;
+        }
+
+        // runs @write on the db writer (writes are serialized there) and waits for it
+        <R> R save(Callable<R> write) throws IOException {
+            try {
+                return appExecutors.diskWrite().submit(write).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while saving");
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause());
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            Call<?> call = current;
+            if(call != null){
+                call.cancel();
+            }
+        }
+    }
+
+    private class PageGenerator extends CallGenerator<List<Recipe>> {
+
+        private final String query;
+        private final RequestPriority priority;
+        // whether a page that can't be fetched is served from the cached rows instead
+        private final boolean fallBackToCache;
+        private int page;
+
+        PageGenerator(String query, int firstPage, RequestPriority priority, boolean fallBackToCache) {
+            this.query = query;
+            this.page = firstPage;
+            this.priority = priority;
+            this.fallBackToCache = fallBackToCache;
+        }
+
+        @Override
+        public List<Recipe> next() throws Exception {
+            List<Recipe> recipes;
+            try {
+                final RecipeSearchResponse response = execute(
+                        recipeApi.searchRecipeCall(Constants.API_KEY, query, String.valueOf(page), priority.name()));
+                save(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        return saveSearchResponse(response);
+                    }
+                });
+                if(response.getRecipes() == null){
+                    throw new IOException(noRecipesMessage(response.getError()));
+                }
+                recipes = response.getRecipes();
+            } catch (IOException e) {
+                if(isCancelled() || !fallBackToCache){
+                    throw e;
+                }
+                recipes = cachedPage();
+                if(recipes.isEmpty()){
+                    throw e;
+                }
+                Logger.d(TAG, "searchRecipePages: serving a cached page: ", e.getMessage());
+            }
+            page++;
+            // an empty page is the end of the results
+            return recipes.isEmpty() ? null : recipes;
+        }
+
+        // the rows of @page in the cache, ordered like RecipeDao.searchRecipes
+        private List<Recipe> cachedPage(){
+            List<Recipe> upToPage = recipeDao.searchRecipesSync(query, page);
+            int from = (page - 1) * PAGE_SIZE;
+            if(upToPage == null || upToPage.size() <= from){
+                return new ArrayList<>();
+            }
+            return new ArrayList<>(upToPage.subList(from, upToPage.size()));
+        }
+    }
+
+    // saves the recipes of a search response; returns whether anything was written
+    @WorkerThread
+    private boolean saveSearchResponse(@NonNull RecipeSearchResponse item){
+        // saving the response data to the cache db
+        if(item.getRecipes() != null){
+
+            // recipe list will be null if the api key is expired
+            Logger.d(TAG, "saveCallResult: recipes in response: ", item.getRecipes().size());
+
+            Recipe[] recipes = item.getRecipes().toArray(new Recipe[item.getRecipes().size()]);
+
+            // indexed before the write, so a query started by the write's emission finds them
+            for(Recipe recipe : recipes){
+                index(recipe);
+            }
+            int index = 0;
+            for(long rowid: recipeDao.insertRecipes(recipes))
+            {
+                if(rowid == -1){
+                    Logger.d(TAG, "saveCallResult: CONFLICT... This recipe is already in the cache");
+                    // if the recipe already exists... I don't want to set the ingredients or timestamp b/c
+                    // they will be erased
+                    //don't set recipe because it doesn't contain the ingredients
+
+                    recipeDao.updateRecipe(
+                            recipes[index].getRecipe_id(),
+                            recipes[index].getTitle(),
+                            recipes[index].getPublisher(),
+                            recipes[index].getImage_url(),
+                            recipes[index].getSocial_rank()
+                    );
+                }
+                index++;
+            }
+            // every recipe was either inserted or updated
+            return recipes.length > 0;
+        }
+        else{
+            // null recipes: the call failed, and only the quota error means the key ran out
+            reportIfQuotaError(item.getError());
+            return false;
+        }
+    }
+
+    @WorkerThread
+    private boolean saveRecipeResponse(@NonNull RecipeResponse item){
+        // Recipe will be NULL if API key is expired
+        if(item.getRecipe() != null){
+            item.getRecipe().setTimestamp((int)(appExecutors.clock().currentTimeMillis() / 1000)); // save time in seconds
+            // indexed before the write: the recipe emitted by the write asks for its similar recipes
+            index(item.getRecipe());
+            //insert recipe into cache
+            recipeDao.insertRecipe(item.getRecipe());
+            return true;
+        }
+        else{
+            reportIfQuotaError(item.getError());
+            return false;
+        }
+    }
+
+    private static void reportIfQuotaError(@Nullable String error){
+        Logger.d(TAG, "saveCallResult: no recipes, error: ", error);
+        if(Constants.API_QUOTA_ERROR.equals(error)){
+            RateLimiter.getInstance().reportQuotaExhausted();
+        }
+    }
+
+    // why a response without recipes failed, for the error shown instead
+    private static String noRecipesMessage(@Nullable String error){
+        return Constants.API_QUOTA_ERROR.equals(error) ? QUOTA_MESSAGE : NO_RECIPES_MESSAGE;
+    }
+
+    // called from onTrimMemory
+    public void trimMemory(int level){
+        queryCache.trimMemory(level);
+    }
+
+    public QueryCache<Recipe> getQueryCache(){
+        return queryCache;
+    }
+
+    // stops the search in flight, if any; its LiveData falls back to the cache
+    public void cancelSearch(){
+        appExecutors.scheduler().cancel(SEARCH_TAG);
+    }
+
+    public void cancelRecipe(String recipeId){
+        appExecutors.scheduler().cancel(RECIPE_TAG + recipeId);
+    }
 }
@@ -0,0 +1,22 @@
+package com.codingwithmitch.foodrecipes.requests;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Fails calls immediately while {@link ConnectivityMonitor} reports the device offline,
+ * instead of letting them wait for the connect timeout.
+ */
+public class ConnectivityInterceptor implements Interceptor {
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        // looked up per call: the client may be built before ConnectivityMonitor.init()
+        if(!ConnectivityMonitor.getInstance().isOnline()){
+            throw new IOException(ConnectivityMonitor.OFFLINE_MESSAGE);
+        }
+        return chain.proceed(chain.request());
+    }
+}
@@ -0,0 +1,175 @@
+package com.codingwithmitch.foodrecipes.requests;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import android.net.NetworkRequest;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.codingwithmitch.foodrecipes.AppExecutors;
+import com.codingwithmitch.foodrecipes.util.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tracks whether the device can actually reach the internet (connected, and on API 23+ validated and not
+ * behind a captive portal).
+ *
+ * While offline, NetworkBoundResource serves the cache straight away and queues its refresh with
+ * {@link #runWhenOnline(Runnable)}; the queue is run as one batch on the main thread when connectivity returns.
+ * A refresh whose result nobody observes any more is taken back out with {@link #cancel(Runnable)}.
+ */
+public class ConnectivityMonitor {
+
+    private static final String TAG = "ConnectivityMonitor";
+
+    public static final String OFFLINE_MESSAGE = "No network connection.\nShowing saved recipes.";
+
+    // deferred refreshes beyond this are dropped, oldest first
+    private static final int MAX_DEFERRED = 20;
+
+    private static ConnectivityMonitor instance;
+
+    public static synchronized void init(Context context) {
+        if (instance == null || instance.connectivityManager == null) {
+            instance = new ConnectivityMonitor(
+                    (ConnectivityManager) context.getApplicationContext().getSystemService(Context.CONNECTIVITY_SERVICE));
+            instance.register();
+        }
+    }
+
+    // before init() (e.g. in JVM tests) the monitor assumes it is online
+    public static synchronized ConnectivityMonitor getInstance() {
+        if (instance == null) {
+            instance = new ConnectivityMonitor(null);
+        }
+        return instance;
+    }
+
+    @Nullable
+    private final ConnectivityManager connectivityManager;
+    private final MutableLiveData<Boolean> online = new MutableLiveData<>();
+    private final List<Runnable> deferred = new ArrayList<>();
+    private volatile boolean isOnline = true;
+
+    private ConnectivityMonitor(@Nullable ConnectivityManager connectivityManager) {
+        this.connectivityManager = connectivityManager;
+        if (connectivityManager != null) {
+            isOnline = computeOnline();
+        }
+        online.postValue(isOnline);
+    }
+
+    private void register() {
+        if (connectivityManager == null) {
+            return;
+        }
+        NetworkRequest request = new NetworkRequest.Builder()
+                .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                .build();
+        connectivityManager.registerNetworkCallback(request, new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(Network network) {
+                update();
+            }
+
+            @Override
+            public void onCapabilitiesChanged(Network network, NetworkCapabilities networkCapabilities) {
+                update();
+            }
+
+            @Override
+            public void onLost(Network network) {
+                update();
+            }
+        });
+    }
+
+    public boolean isOnline() {
+        return isOnline;
+    }
+
+    public LiveData<Boolean> getOnline() {
+        return online;
+    }
+
+    /**
+     * Runs @refresh on the main thread as soon as the device is online (right away if it already is).
+     */
+    public void runWhenOnline(@NonNull Runnable refresh) {
+        synchronized (deferred) {
+            if (!isOnline) {
+                if (deferred.size() == MAX_DEFERRED) {
+                    deferred.remove(0);
+                }
+                deferred.add(refresh);
+                return;
+            }
+        }
+        AppExecutors.getInstance().mainThread().execute(refresh);
+    }
+
+    // drops @refresh if it is still waiting for connectivity
+    public void cancel(@NonNull Runnable refresh) {
+        synchronized (deferred) {
+            deferred.remove(refresh);
+        }
+    }
+
+    private void update() {
+        boolean wasOnline = isOnline;
+        isOnline = computeOnline();
+        if (wasOnline != isOnline) {
+            Logger.d(TAG, "update: online: ", isOnline);
+            online.postValue(isOnline);
+            if (isOnline) {
+                runDeferred();
+            }
+        }
+    }
+
+    private void runDeferred() {
+        final List<Runnable> batch;
+        synchronized (deferred) {
+            if (deferred.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(deferred);
+            deferred.clear();
+        }
+        Logger.d(TAG, "runDeferred: deferred refreshes to run: ", batch.size());
+        AppExecutors.getInstance().mainThread().execute(new Runnable() {
+            @Override
+            public void run() {
+                for (Runnable refresh : batch) {
+                    refresh.run();
+                }
+            }
+        });
+    }
+
+    @SuppressWarnings("deprecation")
+    private boolean computeOnline() {
+        NetworkInfo info = connectivityManager.getActiveNetworkInfo();
+        if (info == null || !info.isConnected()) {
+            return false;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            NetworkCapabilities capabilities =
+                    connectivityManager.getNetworkCapabilities(connectivityManager.getActiveNetwork());
+            // a captive portal (hotel / airport wifi) is connected but can't reach the API
+            return capabilities != null
+                    && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED)
+                    && !capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_CAPTIVE_PORTAL);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,28 @@
+package com.codingwithmitch.foodrecipes.requests;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Application interceptor that records the HTTP status of every response into {@link NetworkMetrics}.
+ * Phase timings are recorded by {@link NetworkEventListener}.
+ */
+public class MetricsInterceptor implements Interceptor {
+
+    private final NetworkMetrics metrics;
+
+    public MetricsInterceptor(NetworkMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Response response = chain.proceed(request);
+        metrics.recordStatus(NetworkMetrics.endpointOf(request.url().encodedPath()), response.code());
+        return response;
+    }
+}
@@ -0,0 +1,157 @@
+package com.codingwithmitch.foodrecipes.requests;
+
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Headers;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Records the phase timings and byte counts of a single call into {@link NetworkMetrics}.
+ * A new listener is created for every call by {@link #FACTORY}, so no state is shared between calls.
+ */
+public class NetworkEventListener extends EventListener {
+
+    public static final Factory FACTORY = new Factory() {
+        @Override
+        public EventListener create(Call call) {
+            return new NetworkEventListener(
+                    NetworkMetrics.getInstance(),
+                    NetworkMetrics.endpointOf(call.request().url().encodedPath())
+            );
+        }
+    };
+
+    private final NetworkMetrics metrics;
+    private final NetworkMetrics.CallRecord record;
+
+    private long callStart;
+    private long dnsStart;
+    private long connectStart;
+    private long secureConnectStart;
+    private long requestStart;
+    private long requestEnd;
+    private long responseBodyStart;
+
+    NetworkEventListener(NetworkMetrics metrics, String endpoint) {
+        this.metrics = metrics;
+        this.record = new NetworkMetrics.CallRecord(endpoint, System.currentTimeMillis());
+    }
+
+    @Override
+    public void callStart(Call call) {
+        callStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+        dnsStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+        set(NetworkMetrics.Phase.DNS, dnsStart);
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        connectStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectStart(Call call) {
+        secureConnectStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, @Nullable Handshake handshake) {
+        set(NetworkMetrics.Phase.TLS, secureConnectStart);
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, @Nullable Protocol protocol) {
+        set(NetworkMetrics.Phase.CONNECT, connectStart);
+    }
+
+    @Override
+    public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy,
+                              @Nullable Protocol protocol, IOException ioe) {
+        set(NetworkMetrics.Phase.CONNECT, connectStart);
+    }
+
+    @Override
+    public void requestHeadersStart(Call call) {
+        requestStart = System.nanoTime();
+    }
+
+    @Override
+    public void requestHeadersEnd(Call call, Request request) {
+        record.bytesSent += byteCount(request.headers());
+        requestEnd = System.nanoTime();
+        set(NetworkMetrics.Phase.REQUEST, requestStart);
+    }
+
+    @Override
+    public void requestBodyEnd(Call call, long byteCount) {
+        record.bytesSent += byteCount;
+        requestEnd = System.nanoTime();
+        set(NetworkMetrics.Phase.REQUEST, requestStart);
+    }
+
+    @Override
+    public void responseHeadersStart(Call call) {
+        set(NetworkMetrics.Phase.TIME_TO_FIRST_BYTE, requestEnd);
+    }
+
+    @Override
+    public void responseHeadersEnd(Call call, Response response) {
+        record.bytesReceived += byteCount(response.headers());
+    }
+
+    @Override
+    public void responseBodyStart(Call call) {
+        responseBodyStart = System.nanoTime();
+    }
+
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+        record.bytesReceived += byteCount;
+        set(NetworkMetrics.Phase.DOWNLOAD, responseBodyStart);
+    }
+
+    @Override
+    public void callEnd(Call call) {
+        set(NetworkMetrics.Phase.TOTAL, callStart);
+        metrics.record(record);
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        record.failed = true;
+        set(NetworkMetrics.Phase.TOTAL, callStart);
+        metrics.record(record);
+    }
+
+    private void set(NetworkMetrics.Phase phase, long start) {
+        record.durations[phase.ordinal()] = System.nanoTime() - start;
+    }
+
+    // approximate size of the headers on the wire (HTTP/1.1 framing)
+    private static long byteCount(Headers headers) {
+        long count = 0;
+        for (int i = 0; i < headers.size(); i++) {
+            count += headers.name(i).length() + headers.value(i).length() + 4;     // ": " and CRLF
+        }
+        return count;
+    }
+}
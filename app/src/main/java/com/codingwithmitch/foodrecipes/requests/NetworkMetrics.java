@@ -0,0 +1,307 @@
+package com.codingwithmitch.foodrecipes.requests;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * In-process registry for the timings of every {@link RecipeApi} call.
+ *
+ * Phase timings come from {@link NetworkEventListener}, the status code from {@link MetricsInterceptor}
+ * and the Gson parse time from {@link TimingConverterFactory}. Everything is aggregated per endpoint
+ * ("api/search", "api/get") and the last {@link #MAX_RECENT_CALLS} calls are kept as-is.
+ */
+public class NetworkMetrics {
+
+    public enum Phase {
+        DNS,                    // dnsStart -> dnsEnd
+        CONNECT,                // connectStart -> connectEnd (includes TLS)
+        TLS,                    // secureConnectStart -> secureConnectEnd
+        REQUEST,                // requestHeadersStart -> request body/headers end
+        TIME_TO_FIRST_BYTE,     // request end -> responseHeadersStart
+        DOWNLOAD,               // responseBodyStart -> responseBodyEnd
+        PARSE,                  // Gson conversion, overlaps DOWNLOAD since the body is streamed
+        TOTAL                   // callStart -> callEnd/callFailed
+    }
+
+    static final int MAX_RECENT_CALLS = 50;
+
+    private static NetworkMetrics instance;
+
+    public static synchronized NetworkMetrics getInstance() {
+        if (instance == null) {
+            instance = new NetworkMetrics();
+        }
+        return instance;
+    }
+
+    private final Map<String, EndpointStats> endpoints = new HashMap<>();
+    private final ArrayDeque<CallRecord> recentCalls = new ArrayDeque<>(MAX_RECENT_CALLS);
+
+    private NetworkMetrics() {
+    }
+
+    // called by the event listener once a call has ended or failed
+    synchronized void record(@NonNull CallRecord record) {
+        EndpointStats stats = statsFor(record.endpoint);
+        stats.calls++;
+        if (record.failed) {
+            stats.failures++;
+        }
+        stats.bytesSent += record.bytesSent;
+        stats.bytesReceived += record.bytesReceived;
+        for (Phase phase : Phase.values()) {
+            long nanos = record.durations[phase.ordinal()];
+            if (nanos >= 0) {
+                stats.add(phase, nanos);
+            }
+        }
+
+        if (recentCalls.size() == MAX_RECENT_CALLS) {
+            recentCalls.removeFirst();
+        }
+        recentCalls.addLast(record);
+    }
+
+    // called by the interceptor with the HTTP status of the response
+    synchronized void recordStatus(@NonNull String endpoint, int code) {
+        EndpointStats stats = statsFor(endpoint);
+        if (code >= 400) {
+            stats.httpErrors++;
+        }
+    }
+
+    // called by the converter after the body has been parsed
+    synchronized void recordParse(@NonNull String endpoint, long nanos) {
+        statsFor(endpoint).add(Phase.PARSE, nanos);
+    }
+
+    private EndpointStats statsFor(String endpoint) {
+        EndpointStats stats = endpoints.get(endpoint);
+        if (stats == null) {
+            stats = new EndpointStats(endpoint);
+            endpoints.put(endpoint, stats);
+        }
+        return stats;
+    }
+
+    /**
+     * @return a copy of the aggregated stats for @endpoint, or null if it was never called
+     */
+    @Nullable
+    public synchronized EndpointStats getStats(@NonNull String endpoint) {
+        EndpointStats stats = endpoints.get(endpoint);
+        return stats != null ? stats.copy() : null;
+    }
+
+    @NonNull
+    public synchronized List<EndpointStats> getAllStats() {
+        List<EndpointStats> copies = new ArrayList<>(endpoints.size());
+        for (EndpointStats stats : endpoints.values()) {
+            copies.add(stats.copy());
+        }
+        return copies;
+    }
+
+    /**
+     * @return the most recent calls, oldest first
+     */
+    @NonNull
+    public synchronized List<CallRecord> getRecentCalls() {
+        return new ArrayList<>(recentCalls);
+    }
+
+    public synchronized void reset() {
+        endpoints.clear();
+        recentCalls.clear();
+    }
+
+    /**
+     * Writes a human readable report of the aggregated stats and the recent calls to @file.
+     */
+    public void dumpTo(@NonNull File file) throws IOException {
+        List<EndpointStats> stats = getAllStats();
+        List<CallRecord> calls = getRecentCalls();
+
+        PrintWriter writer = new PrintWriter(new FileWriter(file));
+        try {
+            writer.println("# endpoint stats (ms)");
+            for (EndpointStats endpointStats : stats) {
+                writer.println(endpointStats.toString());
+            }
+            writer.println();
+            writer.println("# recent calls (ms)");
+            for (CallRecord call : calls) {
+                writer.println(call.toString());
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    static String endpointOf(@NonNull String encodedPath) {
+        // "/api/search" -> "api/search"
+        return encodedPath.startsWith("/") ? encodedPath.substring(1) : encodedPath;
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.US, "%.1f", nanos / 1e6);
+    }
+
+    /**
+     * Aggregated count / total / max for each phase of one endpoint.
+     */
+    public static class EndpointStats {
+
+        public final String endpoint;
+        int calls;
+        int failures;
+        int httpErrors;
+        long bytesSent;
+        long bytesReceived;
+        private final int[] counts = new int[Phase.values().length];
+        private final long[] totals = new long[Phase.values().length];
+        private final long[] maxes = new long[Phase.values().length];
+
+        EndpointStats(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        void add(Phase phase, long nanos) {
+            int i = phase.ordinal();
+            counts[i]++;
+            totals[i] += nanos;
+            if (nanos > maxes[i]) {
+                maxes[i] = nanos;
+            }
+        }
+
+        EndpointStats copy() {
+            EndpointStats copy = new EndpointStats(endpoint);
+            copy.calls = calls;
+            copy.failures = failures;
+            copy.httpErrors = httpErrors;
+            copy.bytesSent = bytesSent;
+            copy.bytesReceived = bytesReceived;
+            System.arraycopy(counts, 0, copy.counts, 0, counts.length);
+            System.arraycopy(totals, 0, copy.totals, 0, totals.length);
+            System.arraycopy(maxes, 0, copy.maxes, 0, maxes.length);
+            return copy;
+        }
+
+        public int getCalls() {
+            return calls;
+        }
+
+        public int getFailures() {
+            return failures;
+        }
+
+        public int getHttpErrors() {
+            return httpErrors;
+        }
+
+        public long getBytesSent() {
+            return bytesSent;
+        }
+
+        public long getBytesReceived() {
+            return bytesReceived;
+        }
+
+        // number of calls that went through @phase (e.g. DNS is skipped on a pooled connection)
+        public int getCount(Phase phase) {
+            return counts[phase.ordinal()];
+        }
+
+        public long getAverageNanos(Phase phase) {
+            int count = counts[phase.ordinal()];
+            return count == 0 ? 0 : totals[phase.ordinal()] / count;
+        }
+
+        public long getMaxNanos(Phase phase) {
+            return maxes[phase.ordinal()];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(endpoint)
+                    .append(" calls=").append(calls)
+                    .append(" failures=").append(failures)
+                    .append(" httpErrors=").append(httpErrors)
+                    .append(" sent=").append(bytesSent)
+                    .append(" received=").append(bytesReceived);
+            for (Phase phase : Phase.values()) {
+                if (counts[phase.ordinal()] > 0) {
+                    builder.append(' ').append(phase.name().toLowerCase(Locale.US))
+                            .append("=avg ").append(millis(getAverageNanos(phase)))
+                            .append("/max ").append(millis(getMaxNanos(phase)));
+                }
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * Phase durations of a single call. A duration of -1 means the phase did not happen.
+     */
+    public static class CallRecord {
+
+        public final String endpoint;
+        public final long startTimeMillis;
+        final long[] durations = new long[Phase.values().length];
+        long bytesSent;
+        long bytesReceived;
+        boolean failed;
+
+        CallRecord(String endpoint, long startTimeMillis) {
+            this.endpoint = endpoint;
+            this.startTimeMillis = startTimeMillis;
+            for (int i = 0; i < durations.length; i++) {
+                durations[i] = -1;
+            }
+        }
+
+        public long getDurationNanos(Phase phase) {
+            return durations[phase.ordinal()];
+        }
+
+        public long getBytesSent() {
+            return bytesSent;
+        }
+
+        public long getBytesReceived() {
+            return bytesReceived;
+        }
+
+        public boolean isFailed() {
+            return failed;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder()
+                    .append(startTimeMillis).append(' ').append(endpoint)
+                    .append(failed ? " FAILED" : "")
+                    .append(" sent=").append(bytesSent)
+                    .append(" received=").append(bytesReceived);
+            for (Phase phase : Phase.values()) {
+                if (durations[phase.ordinal()] >= 0) {
+                    builder.append(' ').append(phase.name().toLowerCase(Locale.US))
+                            .append('=').append(millis(durations[phase.ordinal()]));
+                }
+            }
+            return builder.toString();
+        }
+    }
+}
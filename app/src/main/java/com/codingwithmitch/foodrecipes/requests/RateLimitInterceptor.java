@@ -0,0 +1,64 @@
+package com.codingwithmitch.foodrecipes.requests;
+
+import com.codingwithmitch.foodrecipes.RequestScheduler;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Puts every API call through the {@link RateLimiter}.
+ * Shed calls never reach the server: they get a local 429 response, which surfaces as an
+ * ApiErrorResponse so NetworkBoundResource falls back to the cache.
+ */
+public class RateLimitInterceptor implements Interceptor {
+
+    static final int HTTP_TOO_MANY_REQUESTS = 429;
+    static final String SHED_MESSAGE = "Request skipped to save the daily API quota.";
+
+    private final RateLimiter rateLimiter;
+
+    public RateLimitInterceptor(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        RequestPriority priority = RequestPriority.fromHeader(request.header(RequestPriority.HEADER));
+        // scheduling headers never leave the app
+        request = request.newBuilder()
+                .removeHeader(RequestPriority.HEADER)
+                .removeHeader(RequestScheduler.TAG_HEADER)
+                .build();
+
+        // only the API endpoints count against the key (not the warm-up pre-connect)
+        if(!request.url().encodedPath().startsWith("/api/")){
+            return chain.proceed(request);
+        }
+
+        boolean granted;
+        try {
+            granted = rateLimiter.acquire(priority);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the rate limiter", e);
+        }
+
+        if(!granted){
+            return new Response.Builder()
+                    .request(request)
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(HTTP_TOO_MANY_REQUESTS)
+                    .message(SHED_MESSAGE)
+                    .body(ResponseBody.create(MediaType.parse("text/plain"), SHED_MESSAGE))
+                    .build();
+        }
+        return chain.proceed(request);
+    }
+}
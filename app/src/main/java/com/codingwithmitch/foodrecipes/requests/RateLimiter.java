@@ -0,0 +1,289 @@
+package com.codingwithmitch.foodrecipes.requests;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.codingwithmitch.foodrecipes.util.Constants;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket + daily quota budget for the calls made with {@link Constants#API_KEY}.
+ *
+ * - the token bucket smooths bursts (rapid pagination, repeated category taps)
+ * - the daily budget is split by {@link RequestPriority}: prefetches and background refreshes may only use
+ *   part of it, so the rest stays reserved for what the user is waiting on
+ * - when tokens are short, lower priorities wait behind higher ones and are shed once their wait budget runs out
+ */
+public class RateLimiter {
+
+    private static final String PREFERENCES_NAME = "rate_limiter";
+    private static final String KEY_DAY = "quota_day";
+    private static final String KEY_USED = "quota_used";
+    private static final String KEY_EXHAUSTED = "quota_exhausted";
+
+    // share of the daily quota a priority may use, the rest is reserved for higher priorities
+    private static final double PREFETCH_QUOTA_SHARE = 0.8;
+    private static final double BACKGROUND_QUOTA_SHARE = 0.6;
+
+    private static RateLimiter instance;
+
+    public static synchronized RateLimiter getInstance() {
+        if (instance == null) {
+            instance = new RateLimiter(Constants.API_BURST_SIZE, Constants.API_REQUESTS_PER_SECOND,
+                    Constants.API_DAILY_QUOTA);
+        }
+        return instance;
+    }
+
+    // restores today's usage so restarting the app doesn't reset the budget
+    public static void init(Context context) {
+        getInstance().attach(context.getApplicationContext()
+                .getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE));
+    }
+
+    private final int burstSize;
+    private final double tokensPerNano;
+    private final int dailyQuota;
+
+    private double tokens;
+    private long lastRefill;
+    private long day;
+    private int usedToday;
+    // the server said the key ran out today
+    private boolean exhaustedToday;
+
+    private final int[] waiting = new int[RequestPriority.values().length];
+    private final int[] granted = new int[RequestPriority.values().length];
+    private final int[] deferred = new int[RequestPriority.values().length];
+    private final int[] shed = new int[RequestPriority.values().length];
+
+    @Nullable
+    private SharedPreferences preferences;
+    private final MutableLiveData<State> state = new MutableLiveData<>();
+
+    public RateLimiter(int burstSize, double requestsPerSecond, int dailyQuota) {
+        this.burstSize = burstSize;
+        this.tokensPerNano = requestsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.dailyQuota = dailyQuota;
+        this.tokens = burstSize;
+        this.lastRefill = System.nanoTime();
+        this.day = currentDay();
+    }
+
+    private synchronized void attach(SharedPreferences preferences) {
+        this.preferences = preferences;
+        if (preferences.getLong(KEY_DAY, -1) == day) {
+            usedToday = Math.max(usedToday, preferences.getInt(KEY_USED, 0));
+            exhaustedToday |= preferences.getBoolean(KEY_EXHAUSTED, false);
+        }
+        publish();
+    }
+
+    /**
+     * Takes a token for a call of @priority, waiting for one if the bucket is empty.
+     * @return false if the call was shed: its share of the daily quota is used up, or no token
+     * became available within its wait budget
+     */
+    public synchronized boolean acquire(@NonNull RequestPriority priority) throws InterruptedException {
+        int p = priority.ordinal();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis(priority));
+        boolean counted = false;
+
+        waiting[p]++;
+        try {
+            while (true) {
+                rollOverDay();
+                if (!withinQuota(priority)) {
+                    shed[p]++;
+                    return false;
+                }
+
+                refill();
+                if (tokens >= 1 && !higherPriorityWaiting(p)) {
+                    tokens -= 1;
+                    usedToday++;
+                    granted[p]++;
+                    persist();
+                    return true;
+                }
+
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    shed[p]++;
+                    return false;
+                }
+                if (!counted) {
+                    deferred[p]++;
+                    counted = true;
+                }
+                long untilNextToken = (long) Math.ceil((1 - Math.min(tokens, 1)) / tokensPerNano);
+                TimeUnit.NANOSECONDS.timedWait(this, Math.max(1, Math.min(remaining, untilNextToken)));
+            }
+        } finally {
+            waiting[p]--;
+            notifyAll();
+            publish();
+        }
+    }
+
+    /**
+     * Called when the API answers that the key ran out ({@link Constants#API_QUOTA_ERROR}).
+     * Prefetches and background refreshes are shed until the quota resets; what the user asks for
+     * is still sent, and the server stays the one to refuse it.
+     */
+    public synchronized void reportQuotaExhausted() {
+        rollOverDay();
+        exhaustedToday = true;
+        persist();
+        publish();
+    }
+
+    public LiveData<State> getState() {
+        return state;
+    }
+
+    @NonNull
+    public synchronized State getSnapshot() {
+        rollOverDay();
+        refill();
+        return new State(this);
+    }
+
+    private boolean withinQuota(RequestPriority priority) {
+        if (exhaustedToday && (priority == RequestPriority.PREFETCH || priority == RequestPriority.BACKGROUND)) {
+            return false;
+        }
+        return usedToday < quotaFor(priority);
+    }
+
+    private int quotaFor(RequestPriority priority) {
+        switch (priority) {
+            case PREFETCH:
+                return (int) (dailyQuota * PREFETCH_QUOTA_SHARE);
+            case BACKGROUND:
+                return (int) (dailyQuota * BACKGROUND_QUOTA_SHARE);
+            default:
+                return dailyQuota;
+        }
+    }
+
+    private static long maxWaitMillis(RequestPriority priority) {
+        switch (priority) {
+            case SEARCH:
+            case DETAIL:
+                return TimeUnit.SECONDS.toMillis(Constants.CONNECTION_TIMEOUT);
+            case PREFETCH:
+                return 1000;
+            default:
+                return 0;       // background work is shed instead of queued
+        }
+    }
+
+    private boolean higherPriorityWaiting(int priority) {
+        for (int i = 0; i < priority; i++) {
+            if (waiting[i] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burstSize, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+    }
+
+    private void rollOverDay() {
+        long today = currentDay();
+        if (today != day) {
+            day = today;
+            usedToday = 0;
+            exhaustedToday = false;
+            persist();
+        }
+    }
+
+    private void persist() {
+        if (preferences != null) {
+            preferences.edit()
+                    .putLong(KEY_DAY, day)
+                    .putInt(KEY_USED, usedToday)
+                    .putBoolean(KEY_EXHAUSTED, exhaustedToday)
+                    .apply();
+        }
+    }
+
+    private void publish() {
+        state.postValue(new State(this));
+    }
+
+    private static long currentDay() {
+        // the quota resets at midnight UTC
+        return TimeUnit.MILLISECONDS.toDays(System.currentTimeMillis());
+    }
+
+    /**
+     * Immutable snapshot of the limiter.
+     */
+    public static class State {
+
+        public final double tokens;
+        public final int usedToday;
+        public final int dailyQuota;
+        public final boolean exhaustedToday;
+        private final int[] granted;
+        private final int[] deferred;
+        private final int[] shed;
+
+        private State(RateLimiter limiter) {
+            tokens = limiter.tokens;
+            usedToday = limiter.usedToday;
+            dailyQuota = limiter.dailyQuota;
+            exhaustedToday = limiter.exhaustedToday;
+            granted = limiter.granted.clone();
+            deferred = limiter.deferred.clone();
+            shed = limiter.shed.clone();
+        }
+
+        public int getRemainingToday() {
+            return Math.max(0, dailyQuota - usedToday);
+        }
+
+        public int getGranted(RequestPriority priority) {
+            return granted[priority.ordinal()];
+        }
+
+        // calls that had to wait for a token (and were either granted or shed afterwards)
+        public int getDeferred(RequestPriority priority) {
+            return deferred[priority.ordinal()];
+        }
+
+        public int getShed(RequestPriority priority) {
+            return shed[priority.ordinal()];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("RateLimiter.State{")
+                    .append("tokens=").append(String.format(Locale.US, "%.2f", tokens))
+                    .append(", usedToday=").append(usedToday)
+                    .append('/').append(dailyQuota)
+                    .append(exhaustedToday ? " (exhausted)" : "");
+            for (RequestPriority priority : RequestPriority.values()) {
+                builder.append(", ").append(priority.name())
+                        .append("=granted ").append(getGranted(priority))
+                        .append("/deferred ").append(getDeferred(priority))
+                        .append("/shed ").append(getShed(priority));
+            }
+            return builder.append('}').toString();
+        }
+    }
+}
@@ -2,12 +2,14 @@ package com.codingwithmitch.foodrecipes.requests;
 
 import androidx.lifecycle.LiveData;
 
+import com.codingwithmitch.foodrecipes.RequestScheduler;
 import com.codingwithmitch.foodrecipes.requests.responses.ApiResponse;
 import com.codingwithmitch.foodrecipes.requests.responses.RecipeResponse;
 import com.codingwithmitch.foodrecipes.requests.responses.RecipeSearchResponse;
 
 import retrofit2.Call;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
 import retrofit2.http.Query;
 
 public interface RecipeApi {
@@ -17,13 +19,27 @@ public interface RecipeApi {
     LiveData<ApiResponse<RecipeSearchResponse>>searchRecipe(
             @Query("key") String key,
             @Query("q") String query,
-            @Query("page") String page
+            @Query("page") String page,
+            @Header(RequestPriority.HEADER) String priority,
+            @Header(RequestScheduler.TAG_HEADER) String tag
     );
 
     // GET RECIPE REQUEST
     @GET("api/get")
     LiveData<ApiResponse<RecipeResponse>> getRecipe(
             @Query("key") String key,
-            @Query("rId") String recipe_id
+            @Query("rId") String recipe_id,
+            @Header(RequestPriority.HEADER) String priority,
+            @Header(RequestScheduler.TAG_HEADER) String tag
+    );
+
+    // blocking variant, executed on the caller's thread by RecipeRepository's publishers
+
+    @GET("api/search")
+    Call<RecipeSearchResponse> searchRecipeCall(
+            @Query("key") String key,
+            @Query("q") String query,
+            @Query("page") String page,
+            @Header(RequestPriority.HEADER) String priority
     );
 }
@@ -0,0 +1,32 @@
+package com.codingwithmitch.foodrecipes.requests;
+
+/**
+ * Priority of a {@link RecipeApi} call, highest first.
+ * Sent to {@link RateLimitInterceptor} through the {@link #HEADER} request header, which is stripped
+ * before the request goes on the wire.
+ */
+public enum RequestPriority {
+
+    SEARCH,         // search submitted by the user, or a category tap
+    DETAIL,         // recipe opened by the user
+    PREFETCH,       // pages / recipes the user is likely to open next
+    BACKGROUND;     // cache refreshes nobody is waiting for
+
+    public static final String HEADER = "X-Request-Priority";
+
+    public boolean isUserVisible(){
+        return this == SEARCH || this == DETAIL;
+    }
+
+    public static RequestPriority fromHeader(String value){
+        if(value != null){
+            for(RequestPriority priority : values()){
+                if(priority.name().equals(value)){
+                    return priority;
+                }
+            }
+        }
+        // untagged calls are treated as user visible so they are never shed
+        return SEARCH;
+    }
+}
@@ -1,11 +1,28 @@
 package com.codingwithmitch.foodrecipes.requests;
 
+
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.codingwithmitch.foodrecipes.AppExecutors;
+import com.codingwithmitch.foodrecipes.RequestScheduler;
+import com.codingwithmitch.foodrecipes.requests.responses.RecipeResponse;
+import com.codingwithmitch.foodrecipes.requests.responses.RecipeSearchResponse;
 import com.codingwithmitch.foodrecipes.util.Constants;
 import com.codingwithmitch.foodrecipes.util.LiveDataCallAdapterFactory;
+import com.codingwithmitch.foodrecipes.util.Logger;
+import com.google.gson.Gson;
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 
+import okhttp3.ConnectionPool;
+import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
@@ -15,33 +32,106 @@ import static com.codingwithmitch.foodrecipes.util.Constants.WRITE_TIMEOUT;
 
 public class ServiceGenerator {
 
-    //client for setting the connection time out
-    private static OkHttpClient client = new OkHttpClient.Builder()
-            // establish connection with server
-            .connectTimeout(CONNECTION_TIMEOUT, TimeUnit.SECONDS)
+    private static final String TAG = "ServiceGenerator";
+
+    // idle connections are kept around so the first search after warm-up reuses the pre-connected socket
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    private static final long KEEP_ALIVE_MINUTES = 5;
 
-            // time between each byte read from server
-            .readTimeout(READ_TIMEOUT, TimeUnit.SECONDS)
+    // shared so the type adapters created during warm-up are cached for the real calls
+    private static Gson gson = new Gson();
 
-            // time between each byte sent to server
-            .writeTimeout(WRITE_TIMEOUT, TimeUnit.SECONDS)
+    private static OkHttpClient client = newClient(RateLimiter.getInstance());
 
-            .retryOnConnectionFailure(false)
+    private static Retrofit retrofit = newRetrofit(Constants.BASE_URL, client,
+            AppExecutors.getInstance().scheduler());
 
-            .build();
+    private static RecipeApi recipeApi = retrofit.create(RecipeApi.class);
 
-    private static Retrofit.Builder retrofitBuilder =
-            new Retrofit.Builder()
-                    .baseUrl(Constants.BASE_URL)
-                    .client(client)
-                    .addCallAdapterFactory(new LiveDataCallAdapterFactory())
-                    .addConverterFactory(GsonConverterFactory.create());
+    private static OkHttpClient newClient(RateLimiter rateLimiter){
+        //client for setting the connection time out
+        return new OkHttpClient.Builder()
+                // establish connection with server
+                .connectTimeout(CONNECTION_TIMEOUT, TimeUnit.SECONDS)
 
-    private static Retrofit retrofit = retrofitBuilder.build();
+                // time between each byte read from server
+                .readTimeout(READ_TIMEOUT, TimeUnit.SECONDS)
 
-    private static RecipeApi recipeApi = retrofit.create(RecipeApi.class);
+                // time between each byte sent to server
+                .writeTimeout(WRITE_TIMEOUT, TimeUnit.SECONDS)
+
+                .retryOnConnectionFailure(false)
+
+                // reuse connections, multiplexed over HTTP/2 when the server supports it
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+
+                // fail fast instead of waiting for the connect timeout while offline
+                .addInterceptor(new ConnectivityInterceptor())
+
+                // phase timings and byte counts for every call
+                .eventListenerFactory(NetworkEventListener.FACTORY)
+                .addInterceptor(new MetricsInterceptor(NetworkMetrics.getInstance()))
+
+                // token bucket + daily quota for API_KEY
+                .addInterceptor(new RateLimitInterceptor(rateLimiter))
+
+                .build();
+    }
+
+    private static Retrofit newRetrofit(String baseUrl, OkHttpClient client, RequestScheduler scheduler){
+        return new Retrofit.Builder()
+                .baseUrl(baseUrl)
+                .client(client)
+                .addCallAdapterFactory(new LiveDataCallAdapterFactory(scheduler))
+                .addConverterFactory(TimingConverterFactory.create(GsonConverterFactory.create(gson)))
+                // parse the RecipeApi annotations in create() instead of on the first call
+                .validateEagerly(true)
+                .build();
+    }
 
     public static RecipeApi getRecipeApi(){
         return recipeApi;
     }
+
+    /**
+     * Builds a RecipeApi with the same client stack as {@link #getRecipeApi()} but against @baseUrl,
+     * e.g. a local stand-in server, with its calls run on @scheduler.
+     */
+    @VisibleForTesting
+    public static RecipeApi createRecipeApi(String baseUrl, RateLimiter rateLimiter, RequestScheduler scheduler){
+        return newRetrofit(baseUrl, newClient(rateLimiter), scheduler).create(RecipeApi.class);
+    }
+
+    /**
+     * Pays the cold-start costs of the first {@link RecipeApi} request ahead of time:
+     * 1) static init of the client, Retrofit and the RecipeApi proxy (by touching this class)
+     * 2) Gson type adapters for the response models
+     * 3) DNS resolution of {@link Constants#BASE_URL}
+     * 4) TCP + TLS setup, leaving the connection in the pool for the first search
+     *
+     * Blocks on network I/O, so it must not be called on the main thread.
+     */
+    @WorkerThread
+    public static void warmUp(){
+        long start = System.nanoTime();
+
+        gson.getAdapter(RecipeSearchResponse.class);
+        gson.getAdapter(RecipeResponse.class);
+
+        HttpUrl baseUrl = HttpUrl.get(Constants.BASE_URL);
+        try {
+            client.dns().lookup(baseUrl.host());
+
+            // HEAD keeps the pre-connect cheap; the body (if any) is never read
+            Request request = new Request.Builder().url(baseUrl).head().build();
+            Response response = client.newCall(request).execute();
+            response.close();
+        } catch (IOException e) {
+            // the first real request will simply pay for the connection itself
+            Logger.w(TAG, "warmUp: could not pre-connect: ", e.getMessage());
+        }
+
+        Logger.d(TAG, "warmUp: done in (ms): ", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
 }
@@ -0,0 +1,65 @@
+package com.codingwithmitch.foodrecipes.requests;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+
+/**
+ * Wraps another converter factory (Gson) and records how long each response body takes to convert.
+ * The endpoint is taken from the @GET annotation of the {@link RecipeApi} method.
+ */
+public class TimingConverterFactory extends Converter.Factory {
+
+    private final Converter.Factory delegate;
+    private final NetworkMetrics metrics;
+
+    public static TimingConverterFactory create(Converter.Factory delegate) {
+        return new TimingConverterFactory(delegate, NetworkMetrics.getInstance());
+    }
+
+    private TimingConverterFactory(Converter.Factory delegate, NetworkMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+        final Converter<ResponseBody, ?> converter = delegate.responseBodyConverter(type, annotations, retrofit);
+        if (converter == null) {
+            return null;
+        }
+        final String endpoint = endpointOf(annotations);
+        return new Converter<ResponseBody, Object>() {
+            @Override
+            public Object convert(ResponseBody value) throws IOException {
+                long start = System.nanoTime();
+                try {
+                    return converter.convert(value);
+                } finally {
+                    metrics.recordParse(endpoint, System.nanoTime() - start);
+                }
+            }
+        };
+    }
+
+    @Override
+    public Converter<?, RequestBody> requestBodyConverter(Type type, Annotation[] parameterAnnotations,
+                                                          Annotation[] methodAnnotations, Retrofit retrofit) {
+        return delegate.requestBodyConverter(type, parameterAnnotations, methodAnnotations, retrofit);
+    }
+
+    private static String endpointOf(Annotation[] annotations) {
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof GET) {
+                return NetworkMetrics.endpointOf(((GET) annotation).value());
+            }
+        }
+        return "unknown";
+    }
+}
@@ -13,15 +13,26 @@ public class RecipeResponse {
     @Expose()
     private Recipe recipe;
 
+    // set instead of the recipe when the call failed, e.g. to "limit" once the key's quota is used up
+    @SerializedName("error")
+    @Expose()
+    private String error;
+
     @Nullable
     public Recipe getRecipe(){
         return recipe;
     }
 
+    @Nullable
+    public String getError(){
+        return error;
+    }
+
     @Override
     public String toString() {
         return "RecipeResponse{" +
                 "recipe=" + recipe +
+                ", error=" + error +
                 '}';
     }
 }
@@ -20,6 +20,11 @@ public class RecipeSearchResponse {
     @Expose()
     private List<Recipe> recipes;
 
+    // set instead of the recipes when the call failed, e.g. to "limit" once the key's quota is used up
+    @SerializedName("error")
+    @Expose()
+    private String error;
+
     public int getCount() {
         return count;
     }
@@ -29,11 +34,17 @@ public class RecipeSearchResponse {
         return recipes;
     }
 
+    @Nullable
+    public String getError() {
+        return error;
+    }
+
     @Override
     public String toString() {
         return "RecipeSearchResponse{" +
                 "count=" + count +
                 ", recipes=" + recipes +
+                ", error=" + error +
                 '}';
     }
 }
@@ -0,0 +1,235 @@
+package com.codingwithmitch.foodrecipes.search;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * "Cook with what I have": recipes ranked by how many of a set of ingredients they use.
+ *
+ * Ingredient lines ("2 cups shredded chicken breasts") are reduced to their normalized words
+ * ("chicken", "breast"): quantities, units and preparation words dropped, plurals made singular.
+ * Each word maps to the {@link RoaringBitmap} of the recipes using it. An ingredient asked for is
+ * covered by the AND of its words' bitmaps, the candidates are the OR of those, and each candidate
+ * scores the number of ingredients it covers. Ties go to the recipe needing fewest other
+ * ingredients, then to social_rank.
+ *
+ * Recipes are added one at a time, as they are saved with their ingredients; re-adding a recipe
+ * replaces its ingredients. All methods are synchronized.
+ */
+public class IngredientIndex {
+
+    // words of an ingredient line that say how much or how it is prepared, not what it is
+    private static final Set<String> NOT_INGREDIENTS = new HashSet<>(Arrays.asList(
+            "cup", "cups", "tablespoon", "tablespoons", "tbsp", "tbs", "teaspoon", "teaspoons", "tsp",
+            "ounce", "ounces", "oz", "pound", "pounds", "lb", "lbs", "gram", "grams", "kg", "ml",
+            "liter", "liters", "pinch", "dash", "can", "cans", "package", "packages", "pkg", "jar",
+            "bottle", "bunch", "clove", "cloves", "slice", "slices", "piece", "pieces", "stick",
+            "sticks", "large", "medium", "small", "whole", "fresh", "freshly", "dried", "ground",
+            "chopped", "minced", "diced", "sliced", "shredded", "grated", "crushed", "melted",
+            "softened", "peeled", "cooked", "uncooked", "boneless", "skinless", "finely", "thinly",
+            "roughly", "coarsely", "divided", "optional", "taste", "about", "plus", "more", "for",
+            "and", "the", "with", "into", "inch", "inches", "cut", "room", "temperature", "serving",
+            "garnish", "strip", "strips", "cube", "cubes", "wedge", "wedges", "halved", "quartered",
+            "or", "of", "to", "a", "an", "at", "in"));
+
+    // sort keys pack the document into the low bits
+    private static final int DOCUMENT_BITS = 24;
+    private static final long DOCUMENT_MASK = (1L << DOCUMENT_BITS) - 1;
+    private static final float MAX_SOCIAL_RANK = 100;
+
+    private final Map<String, Integer> documentsByRecipe = new HashMap<>();
+    private final List<String> recipeIds = new ArrayList<>();
+    // words each document is posted under, to take it out again when it is re-added
+    private final List<String[]> documentWords = new ArrayList<>();
+    private int[] ingredientCounts = new int[64];
+    private float[] socialRanks = new float[64];
+
+    private final Map<String, RoaringBitmap> recipesByWord = new HashMap<>();
+
+    /**
+     * Indexes the @ingredients of @recipeId, replacing what it was indexed with before.
+     */
+    public synchronized void add(@NonNull String recipeId, @NonNull String[] ingredients, float socialRank) {
+        Integer existing = documentsByRecipe.get(recipeId);
+        int document;
+        if(existing != null){
+            document = existing;
+            for(String word : documentWords.get(document)){
+                RoaringBitmap recipes = recipesByWord.get(word);
+                recipes.remove(document);
+                if(recipes.isEmpty()){
+                    recipesByWord.remove(word);
+                }
+            }
+        }
+        else{
+            document = recipeIds.size();
+            recipeIds.add(recipeId);
+            documentWords.add(null);
+            documentsByRecipe.put(recipeId, document);
+            if(document == ingredientCounts.length){
+                ingredientCounts = Arrays.copyOf(ingredientCounts, document * 2);
+                socialRanks = Arrays.copyOf(socialRanks, document * 2);
+            }
+        }
+
+        Set<String> words = new HashSet<>();
+        for(String ingredient : ingredients){
+            words.addAll(normalize(ingredient));
+        }
+        for(String word : words){
+            RoaringBitmap recipes = recipesByWord.get(word);
+            if(recipes == null){
+                recipes = new RoaringBitmap();
+                recipesByWord.put(word, recipes);
+            }
+            recipes.add(document);
+        }
+        documentWords.set(document, words.toArray(new String[0]));
+        ingredientCounts[document] = ingredients.length;
+        socialRanks[document] = socialRank;
+    }
+
+    /**
+     * @param minMatches how many of @ingredients a recipe has to use at least
+     * @return up to @limit recipe ids, those using the most of @ingredients first
+     */
+    @NonNull
+    public synchronized List<String> search(@NonNull List<String> ingredients, int minMatches, int limit) {
+        List<RoaringBitmap> covering = new ArrayList<>();
+        RoaringBitmap candidates = new RoaringBitmap();
+        for(String ingredient : ingredients){
+            RoaringBitmap recipes = recipesUsing(ingredient);
+            if(recipes != null && !recipes.isEmpty()){
+                covering.add(recipes);
+                candidates = RoaringBitmap.or(candidates, recipes);
+            }
+        }
+        if(covering.size() < minMatches){
+            return new ArrayList<>();
+        }
+
+        int[] documents = candidates.toArray();
+        long[] keys = new long[documents.length];
+        int count = 0;
+        for(int document : documents){
+            int matches = 0;
+            for(RoaringBitmap recipes : covering){
+                if(recipes.contains(document)){
+                    matches++;
+                }
+            }
+            if(matches >= Math.max(1, minMatches)){
+                keys[count++] = sortKey(document, matches);
+            }
+        }
+        Arrays.sort(keys, 0, count);
+
+        int size = Math.min(limit, count);
+        List<String> ids = new ArrayList<>(size);
+        for(int i = 0; i < size; i++){
+            ids.add(recipeIds.get((int) (keys[i] & DOCUMENT_MASK)));
+        }
+        return ids;
+    }
+
+    // recipes using every word of @ingredient, null if it has no indexed words
+    private RoaringBitmap recipesUsing(String ingredient) {
+        RoaringBitmap recipes = null;
+        for(String word : normalize(ingredient)){
+            RoaringBitmap withWord = recipesByWord.get(word);
+            if(withWord == null){
+                return null;
+            }
+            recipes = recipes == null ? withWord : RoaringBitmap.and(recipes, withWord);
+        }
+        return recipes;
+    }
+
+    // most matches, then fewest other ingredients, then highest social_rank, then the document
+    private long sortKey(int document, int matches) {
+        long fewerMatches = 255 - Math.min(matches, 255);
+        long missing = Math.min(Math.max(0, ingredientCounts[document] - matches), 4095);
+        float rank = Math.max(0, Math.min(MAX_SOCIAL_RANK, socialRanks[document]));
+        long rankKey = (long) ((MAX_SOCIAL_RANK - rank) * 1000);
+        return (fewerMatches << 53) | (missing << 41) | (rankKey << DOCUMENT_BITS) | document;
+    }
+
+    /**
+     * @return the distinct words that say what @ingredient is: lower case letters only, units and
+     * preparation words dropped, plurals made singular ("2 cups diced Tomatoes" -> [tomato])
+     */
+    @NonNull
+    public static List<String> normalize(String ingredient) {
+        List<String> words = new ArrayList<>();
+        if(ingredient == null){
+            return words;
+        }
+        String text = ingredient.toLowerCase(Locale.US);
+        int length = text.length();
+        int i = 0;
+        while(i < length){
+            while(i < length && !Character.isLetter(text.charAt(i))){
+                i++;
+            }
+            int start = i;
+            while(i < length && Character.isLetter(text.charAt(i))){
+                i++;
+            }
+            if(i - start < 2){
+                continue;
+            }
+            String word = text.substring(start, i);
+            if(NOT_INGREDIENTS.contains(word)){
+                continue;
+            }
+            word = singular(word);
+            if(!words.contains(word)){
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    static String singular(String word) {
+        int length = word.length();
+        if(length > 4 && word.endsWith("ies")){
+            return word.substring(0, length - 3) + "y";                    // berries
+        }
+        if(length > 4 && (word.endsWith("oes") || word.endsWith("ches") || word.endsWith("shes"))){
+            return word.substring(0, length - 2);                           // tomatoes, peaches
+        }
+        if(length > 3 && word.endsWith("s") && !word.endsWith("ss") && !word.endsWith("us")){
+            return word.substring(0, length - 1);                           // onions, not hummus
+        }
+        return word;
+    }
+
+    // @return how many recipes use @ingredient
+    public synchronized int countRecipesUsing(@NonNull String ingredient) {
+        RoaringBitmap recipes = recipesUsing(ingredient);
+        return recipes == null ? 0 : recipes.cardinality();
+    }
+
+    // recipes indexed
+    public synchronized int size() {
+        return recipeIds.size();
+    }
+
+    // rough heap size of the bitmaps
+    public synchronized long estimateBytes() {
+        long bytes = 0;
+        for(RoaringBitmap recipes : recipesByWord.values()){
+            bytes += recipes.estimateBytes();
+        }
+        return bytes;
+    }
+}
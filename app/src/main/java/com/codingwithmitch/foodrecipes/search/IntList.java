@@ -0,0 +1,40 @@
+package com.codingwithmitch.foodrecipes.search;
+
+import java.util.Arrays;
+
+/**
+ * Growable int array, for postings and scratch lists that would otherwise box every element.
+ */
+class IntList {
+
+    int[] values;
+    int size;
+
+    IntList() {
+        this(4);
+    }
+
+    IntList(int capacity) {
+        values = new int[Math.max(1, capacity)];
+    }
+
+    void add(int value) {
+        if(size == values.length){
+            values = Arrays.copyOf(values, size + (size >> 1) + 1);
+        }
+        values[size++] = value;
+    }
+
+    int get(int index) {
+        return values[index];
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    // bytes held by the backing array
+    long capacityBytes() {
+        return 16 + 4L * values.length;
+    }
+}
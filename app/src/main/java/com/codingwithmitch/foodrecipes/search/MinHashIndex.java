@@ -0,0 +1,279 @@
+package com.codingwithmitch.foodrecipes.search;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * "Similar recipes": recipes whose ingredients overlap the most, without comparing every pair.
+ *
+ * A recipe's ingredients are reduced to their normalized words ({@link IngredientIndex#normalize})
+ * and summarized by a MinHash signature: for each of {@link #HASHES} hash functions, the smallest
+ * hash of any of its words. Two signatures agree at a position with probability equal to the
+ * Jaccard similarity of the word sets, so the fraction of agreeing positions estimates it.
+ *
+ * Signatures are cut into {@link #BANDS} bands of {@link #ROWS} values and each band is a bucket
+ * key (locality-sensitive hashing). Recipes sharing a bucket are the candidates, and only they are
+ * compared: with 32 bands of 2 a pair at similarity 0.3 shares a bucket 95% of the time, one at
+ * 0.05 less than 8%.
+ *
+ * Re-adding a recipe with other ingredients retires its old signature, which stays in its buckets
+ * but is skipped. All methods are synchronized.
+ */
+public class MinHashIndex {
+
+    static final int HASHES = 64;
+    static final int ROWS = 2;
+    static final int BANDS = HASHES / ROWS;
+
+    // sort keys pack the document into the low bits
+    private static final int DOCUMENT_BITS = 32;
+
+    // multiply-shift hash functions, the same on every run
+    private static final long[] MULTIPLIERS = new long[HASHES];
+    private static final long[] INCREMENTS = new long[HASHES];
+    static {
+        Random random = new Random(0x5eed);
+        for(int i = 0; i < HASHES; i++){
+            MULTIPLIERS[i] = random.nextLong() | 1;
+            INCREMENTS[i] = random.nextLong();
+        }
+    }
+
+    private final Map<String, Integer> documentsByRecipe = new HashMap<>();
+    private final List<String> recipeIds = new ArrayList<>();
+    private int[] signatures = new int[64 * HASHES];
+    private final BitSet retired = new BitSet();
+
+    /*
+     * Buckets: an open-addressing table from bucket key to the documents in the bucket, which are
+     * kept contiguous (and ascending) so that a query reads them, and their signatures, in order.
+     */
+    private long[] bucketKeys = new long[256];
+    private IntList[] buckets = new IntList[256];
+    private int bucketCount;
+
+    // which documents a query has already looked at, reused
+    private int[] stamps = new int[64];
+    private int stamp;
+
+    /**
+     * Indexes the @ingredients of @recipeId. Recipes whose ingredients have no words are left out.
+     */
+    public synchronized void add(@NonNull String recipeId, @NonNull String[] ingredients) {
+        Set<String> words = new HashSet<>();
+        for(String ingredient : ingredients){
+            words.addAll(IngredientIndex.normalize(ingredient));
+        }
+        Integer existing = documentsByRecipe.get(recipeId);
+        if(words.isEmpty()){
+            if(existing != null){
+                retired.set(existing);
+                documentsByRecipe.remove(recipeId);
+            }
+            return;
+        }
+        int[] signature = signatureOf(words);
+        if(existing != null){
+            if(sameSignature(existing, signature)){
+                return;
+            }
+            retired.set(existing);
+        }
+
+        int document = recipeIds.size();
+        recipeIds.add(recipeId);
+        documentsByRecipe.put(recipeId, document);
+        if((document + 1) * HASHES > signatures.length){
+            signatures = Arrays.copyOf(signatures, signatures.length * 2);
+        }
+        System.arraycopy(signature, 0, signatures, document * HASHES, HASHES);
+        for(int band = 0; band < BANDS; band++){
+            addEntry(bucketKey(signatures, document * HASHES, band), document);
+        }
+    }
+
+    /**
+     * @param minSimilarity the estimated Jaccard similarity of the ingredient words a recipe needs
+     * @return up to @limit other recipes, the most similar to @recipeId first; none if it is not indexed
+     */
+    @NonNull
+    public synchronized List<String> similarTo(@NonNull String recipeId, float minSimilarity, int limit) {
+        List<String> similar = new ArrayList<>();
+        Integer found = documentsByRecipe.get(recipeId);
+        if(found == null || limit <= 0){
+            return similar;
+        }
+        int document = found;
+        int offset = document * HASHES;
+        int minMatches = (int) Math.ceil(minSimilarity * HASHES);
+        if(stamps.length < recipeIds.size()){
+            stamps = Arrays.copyOf(stamps, Math.max(recipeIds.size(), stamps.length * 2));
+        }
+        if(++stamp == 0){
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+        stamps[document] = stamp;
+
+        long[] keys = new long[16];
+        int count = 0;
+        for(int band = 0; band < BANDS; band++){
+            // every band of the recipe's own signature has a bucket
+            IntList bucket = buckets[slotOf(bucketKey(signatures, offset, band))];
+            for(int i = 0; i < bucket.size; i++){
+                int candidate = bucket.values[i];
+                if(stamps[candidate] == stamp || retired.get(candidate)){
+                    continue;
+                }
+                stamps[candidate] = stamp;
+                int matches = matches(offset, candidate * HASHES);
+                if(matches >= minMatches){
+                    if(count == keys.length){
+                        keys = Arrays.copyOf(keys, count * 2);
+                    }
+                    // most matches first, then the earliest added
+                    keys[count++] = ((long) (HASHES - matches) << DOCUMENT_BITS) | candidate;
+                }
+            }
+        }
+        Arrays.sort(keys, 0, count);
+        for(int i = 0; i < Math.min(limit, count); i++){
+            similar.add(recipeIds.get((int) keys[i]));
+        }
+        return similar;
+    }
+
+    /**
+     * @return the estimated Jaccard similarity of the ingredients of @a and @b, 0 if either is not indexed
+     */
+    public synchronized float estimateSimilarity(@NonNull String a, @NonNull String b) {
+        Integer first = documentsByRecipe.get(a);
+        Integer second = documentsByRecipe.get(b);
+        if(first == null || second == null){
+            return 0;
+        }
+        return matches(first * HASHES, second * HASHES) / (float) HASHES;
+    }
+
+    // recipes indexed
+    public synchronized int size() {
+        return documentsByRecipe.size();
+    }
+
+    // rough heap size of the signatures and buckets
+    public synchronized long estimateBytes() {
+        long bytes = 4L * signatures.length + 12L * bucketKeys.length;
+        for(IntList bucket : buckets){
+            if(bucket != null){
+                bytes += 16 + bucket.capacityBytes();
+            }
+        }
+        return bytes;
+    }
+
+    private void addEntry(long key, int document) {
+        int slot = slotOf(key);
+        if(buckets[slot] == null){
+            if((bucketCount + 1) * 4 > bucketKeys.length * 3){
+                growBuckets();
+                slot = slotOf(key);
+            }
+            bucketKeys[slot] = key;
+            buckets[slot] = new IntList(1);
+            bucketCount++;
+        }
+        buckets[slot].add(document);
+    }
+
+    // the slot holding @key, or the empty one it would go in
+    private int slotOf(long key) {
+        int mask = bucketKeys.length - 1;
+        int slot = (int) (key ^ (key >>> 32)) & mask;
+        while(buckets[slot] != null && bucketKeys[slot] != key){
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void growBuckets() {
+        long[] keys = bucketKeys;
+        IntList[] lists = buckets;
+        bucketKeys = new long[keys.length * 2];
+        buckets = new IntList[keys.length * 2];
+        for(int i = 0; i < keys.length; i++){
+            if(lists[i] != null){
+                int slot = slotOf(keys[i]);
+                bucketKeys[slot] = keys[i];
+                buckets[slot] = lists[i];
+            }
+        }
+    }
+
+    private static int[] signatureOf(Set<String> words) {
+        int[] signature = new int[HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for(String word : words){
+            long hash = mix(word.hashCode());
+            for(int i = 0; i < HASHES; i++){
+                // the top 31 bits of a multiply-shift hash
+                int value = (int) ((MULTIPLIERS[i] * hash + INCREMENTS[i]) >>> 33);
+                if(value < signature[i]){
+                    signature[i] = value;
+                }
+            }
+        }
+        return signature;
+    }
+
+    // spreads String.hashCode, whose low bits are weak for short words
+    private static long mix(int hash) {
+        return mix(hash & 0xffffffffL);
+    }
+
+    // MurmurHash3's 64-bit finalizer
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53ec34dL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static long bucketKey(int[] signatures, int offset, int band) {
+        long key = band;
+        for(int row = 0; row < ROWS; row++){
+            key = key * 0x9E3779B97F4A7C15L + signatures[offset + band * ROWS + row];
+        }
+        return mix(key);
+    }
+
+    private int matches(int first, int second) {
+        int matches = 0;
+        for(int i = 0; i < HASHES; i++){
+            if(signatures[first + i] == signatures[second + i]){
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    private boolean sameSignature(int document, int[] signature) {
+        int offset = document * HASHES;
+        for(int i = 0; i < HASHES; i++){
+            if(signatures[offset + i] != signature[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+}
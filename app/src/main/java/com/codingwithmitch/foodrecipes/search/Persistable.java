@@ -0,0 +1,20 @@
+package com.codingwithmitch.foodrecipes.search;
+
+import androidx.annotation.NonNull;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * A structure the repository keeps in a file between launches.
+ */
+public interface Persistable {
+
+    void writeTo(@NonNull DataOutputStream out) throws IOException;
+
+    void readFrom(@NonNull DataInputStream in) throws IOException;
+
+    // changes since the structure was created, to tell whether it needs saving
+    long getModifications();
+}
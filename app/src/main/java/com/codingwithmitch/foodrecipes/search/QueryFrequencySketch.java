@@ -0,0 +1,213 @@
+package com.codingwithmitch.foodrecipes.search;
+
+import androidx.annotation.NonNull;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How often each query has been searched lately, in a fixed few KB however many queries there are.
+ *
+ * Counts live in a count-min sketch: {@link #DEPTH} rows of {@link #WIDTH} counters, a query adding
+ * to one counter per row and its estimate being the smallest of them. Collisions can only raise an
+ * estimate, and conservative update (only raising the counters that are at the minimum) keeps that
+ * small. Counts decay with a half-life: instead of touching every counter, a new search adds
+ * 2^(age of the sketch / half-life) and estimates are divided by the same factor, with the table
+ * rescaled before the factor gets large.
+ *
+ * The sketch can't list its queries, so the most frequent are kept apart as candidates: a bounded
+ * set of queries, the one estimated lowest making room for a new one. All methods are synchronized.
+ */
+public class QueryFrequencySketch implements Persistable {
+
+    static final int DEPTH = 4;
+    static final int WIDTH = 1024;
+    private static final int FILE_VERSION = 1;
+    // rescale the table before increments reach this
+    private static final double MAX_SCALE = 1 << 20;
+
+    private final long halfLifeMillis;
+    private final int maxCandidates;
+
+    private float[] counts = new float[DEPTH * WIDTH];
+    // when an increment was worth 1
+    private long epochMillis;
+    // the candidates, in the order they were first searched (ties keep it)
+    private final Map<String, Boolean> candidates = new LinkedHashMap<>();
+    private long modifications;
+
+    /**
+     * @param halfLifeMillis how long it takes a search to count half as much
+     * @param maxCandidates  how many of the most frequent queries can be listed by {@link #top}
+     */
+    public QueryFrequencySketch(long halfLifeMillis, int maxCandidates, long nowMillis) {
+        this.halfLifeMillis = halfLifeMillis;
+        this.maxCandidates = maxCandidates;
+        this.epochMillis = nowMillis;
+    }
+
+    // counts one search of @query at @nowMillis
+    public synchronized void add(@NonNull String query, long nowMillis) {
+        double scale = scaleAt(nowMillis);
+        if(scale > MAX_SCALE){
+            rescale(nowMillis);
+            scale = 1;
+        }
+        int[] cells = cellsOf(query);
+        float estimate = Float.MAX_VALUE;
+        for(int cell : cells){
+            estimate = Math.min(estimate, counts[cell]);
+        }
+        float raised = (float) (estimate + scale);
+        for(int cell : cells){
+            if(counts[cell] < raised){
+                counts[cell] = raised;
+            }
+        }
+
+        if(!candidates.containsKey(query)){
+            if(candidates.size() == maxCandidates){
+                String lowest = null;
+                float lowestCount = Float.MAX_VALUE;
+                for(String candidate : candidates.keySet()){
+                    float count = rawEstimate(candidate);
+                    if(count < lowestCount){
+                        lowest = candidate;
+                        lowestCount = count;
+                    }
+                }
+                // a newcomer only displaces a candidate it has caught up with
+                if(lowestCount > raised){
+                    modifications++;
+                    return;
+                }
+                candidates.remove(lowest);
+            }
+            candidates.put(query, Boolean.TRUE);
+        }
+        modifications++;
+    }
+
+    // @return the decayed number of searches of @query at @nowMillis, possibly overestimated
+    public synchronized double estimate(@NonNull String query, long nowMillis) {
+        return rawEstimate(query) / scaleAt(nowMillis);
+    }
+
+    /**
+     * @return up to @limit queries searched at least @minCount times (decayed), most frequent first
+     */
+    @NonNull
+    public synchronized List<String> top(int limit, double minCount, long nowMillis) {
+        final double scale = scaleAt(nowMillis);
+        final Map<String, Float> counted = new LinkedHashMap<>();
+        for(String candidate : candidates.keySet()){
+            float count = rawEstimate(candidate);
+            if(count / scale >= minCount){
+                counted.put(candidate, count);
+            }
+        }
+        List<String> top = new ArrayList<>(counted.keySet());
+        Collections.sort(top, new Comparator<String>() {
+            @Override
+            public int compare(String a, String b) {
+                return Float.compare(counted.get(b), counted.get(a));
+            }
+        });
+        return top.size() > limit ? new ArrayList<>(top.subList(0, limit)) : top;
+    }
+
+    // changes since the sketch was created, to tell whether it needs saving
+    public synchronized long getModifications() {
+        return modifications;
+    }
+
+    public synchronized void writeTo(@NonNull DataOutputStream out) throws IOException {
+        out.writeInt(FILE_VERSION);
+        out.writeLong(epochMillis);
+        for(float count : counts){
+            out.writeFloat(count);
+        }
+        out.writeInt(candidates.size());
+        for(String candidate : candidates.keySet()){
+            out.writeUTF(candidate);
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads back what {@link #writeTo} wrote, replacing the counts. Searches counted before the
+     * file was read are lost, which at startup is at most a few.
+     */
+    public synchronized void readFrom(@NonNull DataInputStream in) throws IOException {
+        if(in.readInt() != FILE_VERSION){
+            throw new IOException("Unknown query sketch file version.");
+        }
+        long epoch = in.readLong();
+        float[] loaded = new float[DEPTH * WIDTH];
+        for(int i = 0; i < loaded.length; i++){
+            loaded[i] = in.readFloat();
+        }
+        int count = in.readInt();
+        List<String> queries = new ArrayList<>();
+        for(int i = 0; i < count; i++){
+            queries.add(in.readUTF());
+        }
+        epochMillis = epoch;
+        counts = loaded;
+        candidates.clear();
+        for(String query : queries.subList(0, Math.min(queries.size(), maxCandidates))){
+            candidates.put(query, Boolean.TRUE);
+        }
+        modifications++;
+    }
+
+    private float rawEstimate(String query) {
+        float estimate = Float.MAX_VALUE;
+        for(int cell : cellsOf(query)){
+            estimate = Math.min(estimate, counts[cell]);
+        }
+        return estimate;
+    }
+
+    private double scaleAt(long nowMillis) {
+        return Math.pow(2, (double) (nowMillis - epochMillis) / halfLifeMillis);
+    }
+
+    // divides every count by the current scale, making an increment worth 1 again
+    private void rescale(long nowMillis) {
+        double scale = scaleAt(nowMillis);
+        for(int i = 0; i < counts.length; i++){
+            counts[i] = (float) (counts[i] / scale);
+        }
+        epochMillis = nowMillis;
+    }
+
+    // one counter per row, from two hashes combined (Kirsch-Mitzenmacher)
+    private static int[] cellsOf(String query) {
+        long hash = mix(query.hashCode() & 0xffffffffL);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        int[] cells = new int[DEPTH];
+        for(int row = 0; row < DEPTH; row++){
+            cells[row] = row * WIDTH + ((h1 + row * h2) & (WIDTH - 1));
+        }
+        return cells;
+    }
+
+    // MurmurHash3's 64-bit finalizer
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53ec34dL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,124 @@
+package com.codingwithmitch.foodrecipes.search;
+
+import androidx.annotation.NonNull;
+
+import com.codingwithmitch.foodrecipes.models.Recipe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Combines the results of several queries ("Chicken" plus "Dinner") into one list ordered by
+ * social_rank, each recipe once.
+ *
+ * Each list is put in rank order (a stable sort, which leaves an already ranked page as it is),
+ * then a k-way merge repeatedly takes the best head among the lists from a heap, skipping recipes
+ * already taken. That is O(n log k) for n recipes over k lists, and it stops as soon as @limit
+ * recipes are out, so merging again as each query completes stays cheap.
+ */
+public final class RecipeMerger {
+
+    private static final Comparator<Recipe> BY_RANK = new Comparator<Recipe>() {
+        @Override
+        public int compare(Recipe a, Recipe b) {
+            return Float.compare(b.getSocial_rank(), a.getSocial_rank());
+        }
+    };
+
+    private RecipeMerger() {
+    }
+
+    /**
+     * @return up to @limit of the recipes in @lists, highest social_rank first; between equal ranks
+     * the earlier list wins, and a recipe in several lists is kept where it first comes out
+     */
+    @NonNull
+    public static List<Recipe> mergeByRank(@NonNull List<? extends List<Recipe>> lists, int limit) {
+        int k = lists.size();
+        List<List<Recipe>> runs = new ArrayList<>(k);
+        int total = 0;
+        for(List<Recipe> list : lists){
+            List<Recipe> run = new ArrayList<>(list);
+            Collections.sort(run, BY_RANK);
+            runs.add(run);
+            total += run.size();
+        }
+
+        // heap of list indices, ordered by the rank of each list's head
+        int[] heap = new int[k];
+        int[] positions = new int[k];
+        int size = 0;
+        for(int list = 0; list < k; list++){
+            if(!runs.get(list).isEmpty()){
+                size = push(heap, size, list, runs, positions);
+            }
+        }
+
+        List<Recipe> merged = new ArrayList<>(Math.min(limit, total));
+        Set<String> seen = new HashSet<>();
+        while(size > 0 && merged.size() < limit){
+            int list = heap[0];
+            Recipe recipe = runs.get(list).get(positions[list]++);
+            // take the head out, and put the list back if it has more
+            size--;
+            if(positions[list] < runs.get(list).size()){
+                heap[0] = list;
+                size++;
+            }
+            else{
+                heap[0] = heap[size];
+            }
+            siftDown(heap, size, 0, runs, positions);
+            if(seen.add(recipe.getRecipe_id())){
+                merged.add(recipe);
+            }
+        }
+        return merged;
+    }
+
+    private static int push(int[] heap, int size, int list, List<List<Recipe>> runs, int[] positions) {
+        int at = size;
+        while(at > 0){
+            int parent = (at - 1) / 2;
+            if(!before(list, heap[parent], runs, positions)){
+                break;
+            }
+            heap[at] = heap[parent];
+            at = parent;
+        }
+        heap[at] = list;
+        return size + 1;
+    }
+
+    private static void siftDown(int[] heap, int size, int at, List<List<Recipe>> runs, int[] positions) {
+        if(size == 0){
+            return;
+        }
+        int list = heap[at];
+        while(true){
+            int child = 2 * at + 1;
+            if(child >= size){
+                break;
+            }
+            if(child + 1 < size && before(heap[child + 1], heap[child], runs, positions)){
+                child++;
+            }
+            if(!before(heap[child], list, runs, positions)){
+                break;
+            }
+            heap[at] = heap[child];
+            at = child;
+        }
+        heap[at] = list;
+    }
+
+    // whether the head of list @a comes out before the head of list @b
+    private static boolean before(int a, int b, List<List<Recipe>> runs, int[] positions) {
+        int order = BY_RANK.compare(runs.get(a).get(positions[a]), runs.get(b).get(positions[b]));
+        return order < 0 || (order == 0 && a < b);
+    }
+}
@@ -0,0 +1,284 @@
+package com.codingwithmitch.foodrecipes.search;
+
+import androidx.annotation.NonNull;
+
+import com.codingwithmitch.foodrecipes.models.Recipe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Relevance ranking of cached recipes, for when the API (which ranks its own results) isn't asked.
+ *
+ * BM25F: a query term's frequency is summed over title, publisher and ingredients, each weighted
+ * by its boost and normalized by the field's length against its average over the candidates, then
+ * saturated with k1 and weighted by the term's idf over the candidates. A title match therefore
+ * outranks a passing mention in one ingredient. log(1 + social_rank) is added as a prior, so that
+ * among equally relevant recipes the popular ones come first.
+ *
+ * A document token matches a term it equals, or, at half weight, one it starts with ("chicken"
+ * while "chick" is being typed). Candidates are scanned in place and scored into primitive buffers
+ * that are kept between calls, so ranking allocates little more than the returned list.
+ * {@link #rank} is synchronized since calls share those buffers.
+ */
+public class RecipeRanker {
+
+    static final int TITLE = 0;
+    static final int PUBLISHER = 1;
+    static final int INGREDIENTS = 2;
+    private static final int FIELDS = 3;
+
+    // length normalization per field: publishers are short and all about the same length
+    private static final float[] LENGTH_NORMALIZATION = {0.75f, 0.3f, 0.75f};
+    private static final float K1 = 1.2f;
+    private static final float PREFIX_MATCH_WEIGHT = 0.5f;
+    private static final double MAX_SOCIAL_RANK = 100;
+
+    // query terms past this are ignored
+    static final int MAX_TERMS = 8;
+
+    private final float[] boosts;
+    // score added for a social_rank of 100
+    private final float socialRankWeight;
+
+    // query terms, lower case, as (start, length) into queryChars
+    private char[] queryChars = new char[32];
+    private final int[] termStarts = new int[MAX_TERMS];
+    private final int[] termLengths = new int[MAX_TERMS];
+    private int termCount;
+
+    // per ranking, grown to the largest candidate set seen
+    private float[] termFrequencies = new float[0];        // [candidate][term][field]
+    private int[] fieldLengths = new int[0];               // [candidate][field], in tokens
+    private double[] scores = new double[0];
+    private int[] order = new int[0];
+    private int[] mergeBuffer = new int[0];
+    private final long[] totalLengths = new long[FIELDS];
+    private final int[] documentFrequencies = new int[MAX_TERMS];
+    private final double[] idfs = new double[MAX_TERMS];
+
+    public RecipeRanker() {
+        this(3f, 0.5f, 1f, 1f);
+    }
+
+    public RecipeRanker(float titleBoost, float publisherBoost, float ingredientsBoost, float socialRankWeight) {
+        this.boosts = new float[]{titleBoost, publisherBoost, ingredientsBoost};
+        this.socialRankWeight = socialRankWeight;
+    }
+
+    /**
+     * @return the @limit most relevant of @candidates for @query, best first. Equally scored
+     * candidates keep their order in @candidates.
+     */
+    @NonNull
+    public synchronized List<Recipe> rank(@NonNull String query, @NonNull List<Recipe> candidates, int limit) {
+        int count = candidates.size();
+        parseQuery(query);
+        ensureCapacity(count);
+        score(candidates);
+        sortByScore(count);
+
+        int size = Math.min(limit, count);
+        List<Recipe> ranked = new ArrayList<>(size);
+        for(int i = 0; i < size; i++){
+            ranked.add(candidates.get(order[i]));
+        }
+        return ranked;
+    }
+
+    // splits @query into distinct lower case terms
+    private void parseQuery(String query) {
+        if(queryChars.length < query.length()){
+            queryChars = new char[query.length()];
+        }
+        termCount = 0;
+        int used = 0;
+        int length = query.length();
+        int i = 0;
+        while(i < length && termCount < MAX_TERMS){
+            while(i < length && !Character.isLetterOrDigit(query.charAt(i))){
+                i++;
+            }
+            int start = used;
+            while(i < length && Character.isLetterOrDigit(query.charAt(i))){
+                queryChars[used++] = Character.toLowerCase(query.charAt(i++));
+            }
+            if(used > start && !isTerm(start, used - start)){
+                termStarts[termCount] = start;
+                termLengths[termCount] = used - start;
+                termCount++;
+            }
+        }
+    }
+
+    private boolean isTerm(int start, int length) {
+        for(int term = 0; term < termCount; term++){
+            if(termLengths[term] == length
+                    && regionEquals(queryChars, termStarts[term], queryChars, start, length)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean regionEquals(char[] a, int aStart, char[] b, int bStart, int length) {
+        for(int i = 0; i < length; i++){
+            if(a[aStart + i] != b[bStart + i]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void ensureCapacity(int count) {
+        if(scores.length < count){
+            int capacity = Math.max(count, scores.length * 2);
+            termFrequencies = new float[capacity * MAX_TERMS * FIELDS];
+            fieldLengths = new int[capacity * FIELDS];
+            scores = new double[capacity];
+            order = new int[capacity];
+            mergeBuffer = new int[capacity];
+        }
+    }
+
+    private void score(List<Recipe> candidates) {
+        int count = candidates.size();
+        int stride = termCount * FIELDS;
+        Arrays.fill(termFrequencies, 0, count * stride, 0f);
+        Arrays.fill(totalLengths, 0);
+        Arrays.fill(documentFrequencies, 0);
+
+        // term frequencies and field lengths
+        for(int doc = 0; doc < count; doc++){
+            Recipe recipe = candidates.get(doc);
+            int base = doc * stride;
+            fieldLengths[doc * FIELDS + TITLE] = scan(recipe.getTitle(), base, TITLE);
+            fieldLengths[doc * FIELDS + PUBLISHER] = scan(recipe.getPublisher(), base, PUBLISHER);
+            int ingredientTokens = 0;
+            String[] ingredients = recipe.getIngredients();
+            if(ingredients != null){
+                for(String ingredient : ingredients){
+                    ingredientTokens += scan(ingredient, base, INGREDIENTS);
+                }
+            }
+            fieldLengths[doc * FIELDS + INGREDIENTS] = ingredientTokens;
+            for(int field = 0; field < FIELDS; field++){
+                totalLengths[field] += fieldLengths[doc * FIELDS + field];
+            }
+            for(int term = 0; term < termCount; term++){
+                int offset = base + term * FIELDS;
+                if(termFrequencies[offset + TITLE] > 0 || termFrequencies[offset + PUBLISHER] > 0
+                        || termFrequencies[offset + INGREDIENTS] > 0){
+                    documentFrequencies[term]++;
+                }
+            }
+        }
+
+        for(int term = 0; term < termCount; term++){
+            double df = documentFrequencies[term];
+            idfs[term] = Math.log(1 + (count - df + 0.5) / (df + 0.5));
+        }
+
+        for(int doc = 0; doc < count; doc++){
+            int base = doc * stride;
+            double score = 0;
+            for(int term = 0; term < termCount; term++){
+                double frequency = 0;
+                for(int field = 0; field < FIELDS; field++){
+                    float tf = termFrequencies[base + term * FIELDS + field];
+                    if(tf > 0){
+                        double averageLength = Math.max(1.0, (double) totalLengths[field] / count);
+                        double b = LENGTH_NORMALIZATION[field];
+                        frequency += boosts[field] * tf
+                                / (1 - b + b * fieldLengths[doc * FIELDS + field] / averageLength);
+                    }
+                }
+                if(frequency > 0){
+                    score += idfs[term] * frequency * (K1 + 1) / (K1 + frequency);
+                }
+            }
+            float socialRank = candidates.get(doc).getSocial_rank();
+            score += socialRankWeight * Math.log1p(Math.max(0, socialRank)) / Math.log1p(MAX_SOCIAL_RANK);
+            scores[doc] = score;
+        }
+    }
+
+    /**
+     * Adds the query terms found in @text to the candidate's frequencies (at @base) for @field.
+     * @return the number of tokens in @text
+     */
+    private int scan(String text, int base, int field) {
+        if(text == null){
+            return 0;
+        }
+        int tokens = 0;
+        int length = text.length();
+        int i = 0;
+        while(i < length){
+            while(i < length && !Character.isLetterOrDigit(text.charAt(i))){
+                i++;
+            }
+            int start = i;
+            while(i < length && Character.isLetterOrDigit(text.charAt(i))){
+                i++;
+            }
+            int tokenLength = i - start;
+            if(tokenLength == 0){
+                continue;
+            }
+            tokens++;
+            for(int term = 0; term < termCount; term++){
+                if(tokenLength >= termLengths[term] && startsWith(text, start, term)){
+                    termFrequencies[base + term * FIELDS + field] +=
+                            tokenLength == termLengths[term] ? 1f : PREFIX_MATCH_WEIGHT;
+                }
+            }
+        }
+        return tokens;
+    }
+
+    private boolean startsWith(String text, int start, int term) {
+        int termStart = termStarts[term];
+        for(int i = 0; i < termLengths[term]; i++){
+            if(Character.toLowerCase(text.charAt(start + i)) != queryChars[termStart + i]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // stable bottom-up merge sort of candidate indices, best score first
+    private void sortByScore(int count) {
+        for(int i = 0; i < count; i++){
+            order[i] = i;
+        }
+        int[] from = order;
+        int[] to = mergeBuffer;
+        for(int width = 1; width < count; width *= 2){
+            for(int left = 0; left < count; left += 2 * width){
+                int middle = Math.min(left + width, count);
+                int right = Math.min(left + 2 * width, count);
+                int i = left;
+                int j = middle;
+                int k = left;
+                while(i < middle && j < right){
+                    // ties go to the left run, which keeps equal candidates in their input order
+                    to[k++] = scores[from[j]] > scores[from[i]] ? from[j++] : from[i++];
+                }
+                while(i < middle){
+                    to[k++] = from[i++];
+                }
+                while(j < right){
+                    to[k++] = from[j++];
+                }
+            }
+            int[] swap = from;
+            from = to;
+            to = swap;
+        }
+        if(from != order){
+            System.arraycopy(from, 0, order, 0, count);
+        }
+    }
+}
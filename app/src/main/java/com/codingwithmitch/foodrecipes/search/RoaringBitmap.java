@@ -0,0 +1,452 @@
+package com.codingwithmitch.foodrecipes.search;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Compressed set of non-negative ints in the style of Roaring bitmaps.
+ *
+ * Values are split by their high 16 bits into containers of at most 65536 values. A container
+ * holding up to 4096 values is a sorted char array (2 bytes a value); past that it becomes a
+ * 65536-bit bitmap (8 KB, whatever it holds), and back once it shrinks. Intersections and unions
+ * work container by container, merging sorted arrays, probing a bitmap with an array, or AND-ing /
+ * OR-ing bitmaps a long at a time. {@link #and} and {@link #or} return new bitmaps; only
+ * {@link #add} and {@link #remove} modify one. Not thread safe.
+ */
+public class RoaringBitmap {
+
+    // an array container past this is converted to a bitmap
+    static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 65536 / 64;
+
+    // sorted high halves, and their containers
+    private char[] keys = new char[4];
+    private Container[] containers = new Container[4];
+    private int size;
+
+    public void add(int value) {
+        char high = (char) (value >>> 16);
+        int index = indexOf(high);
+        if(index >= 0){
+            containers[index] = containers[index].add((char) value);
+        }
+        else{
+            insert(-index - 1, high, new ArrayContainer().add((char) value));
+        }
+    }
+
+    public void remove(int value) {
+        int index = indexOf((char) (value >>> 16));
+        if(index < 0){
+            return;
+        }
+        Container container = containers[index].remove((char) value);
+        if(container.cardinality() == 0){
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+            containers[--size] = null;
+        }
+        else{
+            containers[index] = container;
+        }
+    }
+
+    public boolean contains(int value) {
+        int index = indexOf((char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for(int i = 0; i < size; i++){
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // the values, ascending
+    @NonNull
+    public int[] toArray() {
+        int[] values = new int[cardinality()];
+        int at = 0;
+        for(int i = 0; i < size; i++){
+            at = containers[i].copyTo(keys[i] << 16, values, at);
+        }
+        return values;
+    }
+
+    @NonNull
+    public static RoaringBitmap and(@NonNull RoaringBitmap a, @NonNull RoaringBitmap b) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while(i < a.size && j < b.size){
+            if(a.keys[i] < b.keys[j]){
+                i++;
+            }
+            else if(a.keys[i] > b.keys[j]){
+                j++;
+            }
+            else{
+                Container container = a.containers[i].and(b.containers[j]);
+                if(container.cardinality() > 0){
+                    result.append(a.keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    @NonNull
+    public static RoaringBitmap or(@NonNull RoaringBitmap a, @NonNull RoaringBitmap b) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while(i < a.size || j < b.size){
+            if(j == b.size || (i < a.size && a.keys[i] < b.keys[j])){
+                result.append(a.keys[i], a.containers[i].copy());
+                i++;
+            }
+            else if(i == a.size || a.keys[i] > b.keys[j]){
+                result.append(b.keys[j], b.containers[j].copy());
+                j++;
+            }
+            else{
+                result.append(a.keys[i], a.containers[i].or(b.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    // rough heap size
+    public long estimateBytes() {
+        long bytes = 32 + 2L * keys.length + 4L * containers.length;
+        for(int i = 0; i < size; i++){
+            bytes += containers[i].estimateBytes();
+        }
+        return bytes;
+    }
+
+    private int indexOf(char high) {
+        return Arrays.binarySearch(keys, 0, size, high);
+    }
+
+    private void insert(int index, char high, Container container) {
+        ensureCapacity();
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = high;
+        containers[index] = container;
+        size++;
+    }
+
+    // for building results, whose keys come in ascending order
+    private void append(char high, Container container) {
+        ensureCapacity();
+        keys[size] = high;
+        containers[size] = container;
+        size++;
+    }
+
+    private void ensureCapacity() {
+        if(size == keys.length){
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+    }
+
+    /**
+     * The low 16 bits of the values sharing one high half. Mutators return the container to use
+     * from then on, which is a different one when it crossed {@link #ARRAY_MAX}.
+     */
+    private abstract static class Container {
+
+        abstract Container add(char value);
+
+        abstract Container remove(char value);
+
+        abstract boolean contains(char value);
+
+        abstract int cardinality();
+
+        abstract Container and(Container other);
+
+        abstract Container or(Container other);
+
+        abstract Container copy();
+
+        // writes the values, each or-ed with @high, from @at; returns the next free index
+        abstract int copyTo(int high, int[] values, int at);
+
+        abstract long estimateBytes();
+    }
+
+    private static final class ArrayContainer extends Container {
+
+        char[] values;
+        int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if(index >= 0){
+                return this;
+            }
+            if(cardinality == ARRAY_MAX){
+                return toBitmap().add(value);
+            }
+            index = -index - 1;
+            if(cardinality == values.length){
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, Math.max(4, cardinality * 2)));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if(index >= 0){
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] result = new char[Math.min(cardinality, other.cardinality())];
+            int count = 0;
+            if(other instanceof ArrayContainer){
+                ArrayContainer array = (ArrayContainer) other;
+                int i = 0;
+                int j = 0;
+                while(i < cardinality && j < array.cardinality){
+                    if(values[i] < array.values[j]){
+                        i++;
+                    }
+                    else if(values[i] > array.values[j]){
+                        j++;
+                    }
+                    else{
+                        result[count++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            }
+            else{
+                for(int i = 0; i < cardinality; i++){
+                    if(other.contains(values[i])){
+                        result[count++] = values[i];
+                    }
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container or(Container other) {
+            if(other instanceof BitmapContainer){
+                return other.or(this);
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            char[] result = new char[cardinality + array.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while(i < cardinality || j < array.cardinality){
+                if(j == array.cardinality || (i < cardinality && values[i] < array.values[j])){
+                    result[count++] = values[i++];
+                }
+                else if(i == cardinality || values[i] > array.values[j]){
+                    result[count++] = array.values[j++];
+                }
+                else{
+                    result[count++] = values[i++];
+                    j++;
+                }
+            }
+            ArrayContainer union = new ArrayContainer(result, count);
+            return count > ARRAY_MAX ? union.toBitmap() : union;
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(1, cardinality)), cardinality);
+        }
+
+        @Override
+        int copyTo(int high, int[] out, int at) {
+            for(int i = 0; i < cardinality; i++){
+                out[at++] = high | values[i];
+            }
+            return at;
+        }
+
+        @Override
+        long estimateBytes() {
+            return 24 + 2L * values.length;
+        }
+
+        BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for(int i = 0; i < cardinality; i++){
+                bitmap.set(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+
+        final long[] words;
+        int cardinality;
+
+        BitmapContainer() {
+            this(new long[BITMAP_WORDS], 0);
+        }
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        void set(char value) {
+            long bit = 1L << value;
+            if((words[value >>> 6] & bit) == 0){
+                words[value >>> 6] |= bit;
+                cardinality++;
+            }
+        }
+
+        @Override
+        Container add(char value) {
+            set(value);
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            long bit = 1L << value;
+            if((words[value >>> 6] & bit) != 0){
+                words[value >>> 6] &= ~bit;
+                cardinality--;
+            }
+            return cardinality <= ARRAY_MAX ? toArrayContainer() : this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container and(Container other) {
+            if(other instanceof ArrayContainer){
+                return other.and(this);
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            long[] result = new long[BITMAP_WORDS];
+            int count = 0;
+            for(int i = 0; i < BITMAP_WORDS; i++){
+                result[i] = words[i] & otherWords[i];
+                count += Long.bitCount(result[i]);
+            }
+            BitmapContainer intersection = new BitmapContainer(result, count);
+            return count <= ARRAY_MAX ? intersection.toArrayContainer() : intersection;
+        }
+
+        @Override
+        Container or(Container other) {
+            long[] result = Arrays.copyOf(words, BITMAP_WORDS);
+            BitmapContainer union = new BitmapContainer(result, cardinality);
+            if(other instanceof ArrayContainer){
+                ArrayContainer array = (ArrayContainer) other;
+                for(int i = 0; i < array.cardinality; i++){
+                    union.set(array.values[i]);
+                }
+            }
+            else{
+                long[] otherWords = ((BitmapContainer) other).words;
+                int count = 0;
+                for(int i = 0; i < BITMAP_WORDS; i++){
+                    result[i] |= otherWords[i];
+                    count += Long.bitCount(result[i]);
+                }
+                union.cardinality = count;
+            }
+            return union;
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(Arrays.copyOf(words, BITMAP_WORDS), cardinality);
+        }
+
+        @Override
+        int copyTo(int high, int[] out, int at) {
+            for(int i = 0; i < BITMAP_WORDS; i++){
+                long word = words[i];
+                while(word != 0){
+                    out[at++] = high | (i << 6) | Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+            return at;
+        }
+
+        @Override
+        long estimateBytes() {
+            return 24 + 8L * BITMAP_WORDS;
+        }
+
+        ArrayContainer toArrayContainer() {
+            char[] values = new char[Math.max(1, cardinality)];
+            int count = 0;
+            for(int i = 0; i < BITMAP_WORDS; i++){
+                long word = words[i];
+                while(word != 0){
+                    values[count++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, count);
+        }
+    }
+}
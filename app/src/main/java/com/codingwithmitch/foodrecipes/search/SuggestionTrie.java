@@ -0,0 +1,352 @@
+package com.codingwithmitch.foodrecipes.search;
+
+import androidx.annotation.NonNull;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Search suggestions: a prefix trie of phrases with weights, answering the heaviest completions of
+ * what has been typed so far.
+ *
+ * Nodes are parallel arrays indexed by node (label, parent, first child, next sibling, weight), so a
+ * few hundred thousand of them cost a few MB and no objects. Every node also keeps the heaviest
+ * weight in its subtree, which makes the top-k a best-first walk from the prefix's node that stops
+ * after k phrases, whatever the size of the subtree. Weights only ever grow ({@link #offer} raises
+ * one, {@link #increment} adds to it), so those maxima are kept right along the path of the update.
+ *
+ * Phrases are expected canonical (trimmed, lower case). Saved as the raw nodes, which load without
+ * re-inserting anything. All methods are synchronized, except that {@link #readFrom} only takes the
+ * lock to swap the loaded nodes in.
+ */
+public class SuggestionTrie implements Persistable {
+
+    private static final int FILE_VERSION = 1;
+    // longer phrases are cut, titles run long
+    static final int MAX_PHRASE_LENGTH = 48;
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+
+    private char[] labels;
+    private int[] parents;
+    private int[] firstChildren;
+    private int[] nextSiblings;
+    private int[] weights;          // 0 unless a phrase ends at the node
+    private int[] bestWeights;      // heaviest weight in the subtree
+    private int nodeCount;
+    private int phraseCount;
+    private long modifications;
+
+    // best-first frontier of searches, reused
+    private long[] heap = new long[64];
+    private int heapSize;
+
+    public SuggestionTrie() {
+        allocate(256);
+        nodeCount = 1;
+        parents[ROOT] = NONE;
+        firstChildren[ROOT] = NONE;
+        nextSiblings[ROOT] = NONE;
+    }
+
+    /**
+     * Raises the weight of @phrase to at least @weight, adding the phrase if it is new. Offering
+     * the same phrase again is a no-op, so sources that are seen more than once use this.
+     */
+    public synchronized void offer(@NonNull String phrase, int weight) {
+        int node = insert(phrase);
+        if(node != ROOT && weight > weights[node]){
+            setWeight(node, weight);
+        }
+    }
+
+    /**
+     * Adds @weight to @phrase, adding the phrase if it is new: for events that count, like a
+     * query being searched once more.
+     */
+    public synchronized void increment(@NonNull String phrase, int weight) {
+        int node = insert(phrase);
+        if(node != ROOT && weight > 0){
+            setWeight(node, (int) Math.min(Integer.MAX_VALUE, (long) weights[node] + weight));
+        }
+    }
+
+    // @return the weight of @phrase, 0 if it is not in the trie
+    public synchronized int weightOf(@NonNull String phrase) {
+        int node = find(phrase);
+        return node == NONE ? 0 : weights[node];
+    }
+
+    /**
+     * @return up to @limit phrases starting with @prefix, heaviest first, ties in insertion order
+     */
+    @NonNull
+    public synchronized List<String> complete(@NonNull String prefix, int limit) {
+        List<String> completions = new ArrayList<>(Math.max(0, Math.min(limit, 16)));
+        int start = find(prefix);
+        if(start == NONE || limit <= 0 || bestWeights[start] == 0){
+            return completions;
+        }
+        heapSize = 0;
+        push(bestWeights[start], false, start);
+        char[] buffer = new char[MAX_PHRASE_LENGTH];
+        while(heapSize > 0 && completions.size() < limit){
+            long entry = pop();
+            int node = nodeOf(entry);
+            if(isPhrase(entry)){
+                completions.add(phraseOf(node, buffer));
+                continue;
+            }
+            // a phrase ending here outranks the longer ones below it at the same weight
+            if(weights[node] > 0){
+                push(weights[node], true, node);
+            }
+            for(int child = firstChildren[node]; child != NONE; child = nextSiblings[child]){
+                if(bestWeights[child] > 0){
+                    push(bestWeights[child], false, child);
+                }
+            }
+        }
+        return completions;
+    }
+
+    public synchronized int size() {
+        return phraseCount;
+    }
+
+    public synchronized int getNodeCount() {
+        return nodeCount;
+    }
+
+    // changes since the trie was created, to tell whether it needs saving
+    public synchronized long getModifications() {
+        return modifications;
+    }
+
+    // rough heap size of the node arrays
+    public synchronized long estimateBytes() {
+        return 2L * labels.length + 5 * 4L * labels.length;
+    }
+
+    /**
+     * Writes the nodes to @out: a node's parent always comes before it, which is all
+     * {@link #readFrom} needs to relink them.
+     */
+    public synchronized void writeTo(@NonNull DataOutputStream out) throws IOException {
+        out.writeInt(FILE_VERSION);
+        out.writeInt(nodeCount);
+        out.writeInt(phraseCount);
+        for(int node = 1; node < nodeCount; node++){
+            out.writeChar(labels[node]);
+            out.writeInt(parents[node]);
+            out.writeInt(weights[node]);
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads back what {@link #writeTo} wrote into a new trie, without holding the lock, so that
+     * completions keep being answered meanwhile; then swaps it in. Phrases added to this trie before
+     * the swap are carried over, at the heavier of the two weights.
+     */
+    public void readFrom(@NonNull DataInputStream in) throws IOException {
+        if(in.readInt() != FILE_VERSION){
+            throw new IOException("Unknown suggestions file version.");
+        }
+        int count = in.readInt();
+        int phrases = in.readInt();
+        if(count < 1 || phrases < 0){
+            throw new IOException("Corrupt suggestions file.");
+        }
+        SuggestionTrie loaded = new SuggestionTrie();
+        loaded.allocate(count);
+        for(int node = 1; node < count; node++){
+            int parent;
+            loaded.labels[node] = in.readChar();
+            loaded.parents[node] = parent = in.readInt();
+            loaded.weights[node] = loaded.bestWeights[node] = in.readInt();
+            loaded.firstChildren[node] = NONE;
+            if(parent < 0 || parent >= node){
+                throw new IOException("Corrupt suggestions file.");
+            }
+        }
+        // children come after their parents: relink and pass the maxima up from the last node back
+        for(int node = count - 1; node > 0; node--){
+            int parent = loaded.parents[node];
+            loaded.nextSiblings[node] = loaded.firstChildren[parent];
+            loaded.firstChildren[parent] = node;
+            loaded.bestWeights[parent] = Math.max(loaded.bestWeights[parent], loaded.bestWeights[node]);
+        }
+        loaded.nodeCount = count;
+        loaded.phraseCount = phrases;
+
+        synchronized (this){
+            // usually nothing, or the few phrases of the searches made since startup
+            copyPhrasesTo(loaded);
+            adopt(loaded);
+            modifications++;
+        }
+    }
+
+    private void adopt(SuggestionTrie loaded) {
+        labels = loaded.labels;
+        parents = loaded.parents;
+        firstChildren = loaded.firstChildren;
+        nextSiblings = loaded.nextSiblings;
+        weights = loaded.weights;
+        bestWeights = loaded.bestWeights;
+        nodeCount = loaded.nodeCount;
+        phraseCount = loaded.phraseCount;
+    }
+
+    private void copyPhrasesTo(SuggestionTrie target) {
+        char[] buffer = new char[MAX_PHRASE_LENGTH];
+        for(int node = 1; node < nodeCount; node++){
+            if(weights[node] > 0){
+                target.offer(phraseOf(node, buffer), weights[node]);
+            }
+        }
+    }
+
+    // the node of @phrase, added with its missing prefixes if need be; ROOT for an empty phrase
+    private int insert(String phrase) {
+        int length = Math.min(phrase.length(), MAX_PHRASE_LENGTH);
+        int node = ROOT;
+        for(int i = 0; i < length; i++){
+            char label = phrase.charAt(i);
+            int child = childOf(node, label);
+            if(child == NONE){
+                child = newNode(node, label);
+            }
+            node = child;
+        }
+        return node;
+    }
+
+    private int find(String phrase) {
+        int length = Math.min(phrase.length(), MAX_PHRASE_LENGTH);
+        int node = ROOT;
+        for(int i = 0; i < length && node != NONE; i++){
+            node = childOf(node, phrase.charAt(i));
+        }
+        return node;
+    }
+
+    private int childOf(int node, char label) {
+        for(int child = firstChildren[node]; child != NONE; child = nextSiblings[child]){
+            if(labels[child] == label){
+                return child;
+            }
+        }
+        return NONE;
+    }
+
+    private int newNode(int parent, char label) {
+        if(nodeCount == labels.length){
+            allocate(nodeCount * 2);
+        }
+        int node = nodeCount++;
+        labels[node] = label;
+        parents[node] = parent;
+        firstChildren[node] = NONE;
+        // appended, so that siblings, and so ties, stay in insertion order
+        nextSiblings[node] = NONE;
+        int last = firstChildren[parent];
+        if(last == NONE){
+            firstChildren[parent] = node;
+        }
+        else{
+            while(nextSiblings[last] != NONE){
+                last = nextSiblings[last];
+            }
+            nextSiblings[last] = node;
+        }
+        return node;
+    }
+
+    private void setWeight(int node, int weight) {
+        if(weights[node] == 0){
+            phraseCount++;
+        }
+        weights[node] = weight;
+        for(int at = node; at != NONE && bestWeights[at] < weight; at = parents[at]){
+            bestWeights[at] = weight;
+        }
+        modifications++;
+    }
+
+    private String phraseOf(int node, char[] buffer) {
+        int end = buffer.length;
+        for(int at = node; at != ROOT; at = parents[at]){
+            buffer[--end] = labels[at];
+        }
+        return new String(buffer, end, buffer.length - end);
+    }
+
+    private void allocate(int capacity) {
+        if(labels != null && capacity <= labels.length){
+            return;
+        }
+        labels = labels == null ? new char[capacity] : Arrays.copyOf(labels, capacity);
+        parents = parents == null ? new int[capacity] : Arrays.copyOf(parents, capacity);
+        firstChildren = firstChildren == null ? new int[capacity] : Arrays.copyOf(firstChildren, capacity);
+        nextSiblings = nextSiblings == null ? new int[capacity] : Arrays.copyOf(nextSiblings, capacity);
+        weights = weights == null ? new int[capacity] : Arrays.copyOf(weights, capacity);
+        bestWeights = bestWeights == null ? new int[capacity] : Arrays.copyOf(bestWeights, capacity);
+    }
+
+    /*
+     * Heap entries pack the weight in the high half, then whether the entry is a phrase to emit
+     * (rather than a subtree to open), then the node inverted so that earlier nodes win ties.
+     */
+    private void push(int weight, boolean phrase, int node) {
+        if(heapSize == heap.length){
+            heap = Arrays.copyOf(heap, heapSize * 2);
+        }
+        long entry = ((long) weight << 32) | (phrase ? 1L << 31 : 0) | (Integer.MAX_VALUE - node);
+        int at = heapSize++;
+        while(at > 0){
+            int parent = (at - 1) >>> 1;
+            if(heap[parent] >= entry){
+                break;
+            }
+            heap[at] = heap[parent];
+            at = parent;
+        }
+        heap[at] = entry;
+    }
+
+    private long pop() {
+        long top = heap[0];
+        long last = heap[--heapSize];
+        int at = 0;
+        while(true){
+            int child = 2 * at + 1;
+            if(child >= heapSize){
+                break;
+            }
+            if(child + 1 < heapSize && heap[child + 1] > heap[child]){
+                child++;
+            }
+            if(last >= heap[child]){
+                break;
+            }
+            heap[at] = heap[child];
+            at = child;
+        }
+        heap[at] = last;
+        return top;
+    }
+
+    private static boolean isPhrase(long entry) {
+        return (entry & (1L << 31)) != 0;
+    }
+
+    private static int nodeOf(long entry) {
+        return Integer.MAX_VALUE - (int) (entry & Integer.MAX_VALUE);
+    }
+}
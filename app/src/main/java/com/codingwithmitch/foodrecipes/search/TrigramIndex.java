@@ -0,0 +1,377 @@
+package com.codingwithmitch.foodrecipes.search;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Typo-tolerant search over recipe titles: "chiken" finds chicken, "lasagne" finds lasagna.
+ *
+ * Every distinct title word is indexed under its trigrams (padded with '$', so "pie" is "$pi",
+ * "pie", "ie$"). A query word gets a bound on its edit distance from its length ({@link #maxDistance});
+ * by the q-gram lemma a word within that distance shares at least (trigrams - 3 * distance) of
+ * its trigrams, so only the words the trigram lists count that often are checked with a bounded
+ * Levenshtein. A recipe matches when its title has a match for every query word, and results come
+ * fewest edits first, then by social_rank.
+ *
+ * Titles are added one recipe at a time, as they are saved. A recipe whose title changes is
+ * re-added under a new document and the old one is only marked deleted. Letters and digits are
+ * indexed as themselves (lower case) and every other character as one wildcard, which keeps each
+ * trigram list at a fixed slot of one array. All methods are synchronized.
+ */
+public class TrigramIndex {
+
+    // '$' padding, a-z, 0-9, anything else
+    private static final int ALPHABET = 38;
+    private static final int PAD = 0;
+    private static final int OTHER = ALPHABET - 1;
+
+    // the sort key of a result packs its document into the low bits
+    private static final int DOCUMENT_BITS = 24;
+    private static final long DOCUMENT_MASK = (1L << DOCUMENT_BITS) - 1;
+    private static final float MAX_SOCIAL_RANK = 100;
+
+    // documents: one per indexed (recipe, title)
+    private final Map<String, Integer> documentsByRecipe = new HashMap<>();
+    private final List<String> recipeIds = new ArrayList<>();
+    private int[] titleHashes = new int[64];
+    private float[] socialRanks = new float[64];
+    private final BitSet deleted = new BitSet();
+
+    // distinct title words, and the documents each occurs in
+    private final Map<String, Integer> termsByWord = new HashMap<>();
+    private final List<String> terms = new ArrayList<>();
+    private final List<IntList> termDocuments = new ArrayList<>();
+
+    // trigram code -> terms containing it
+    private final IntList[] gramTerms = new IntList[ALPHABET * ALPHABET * ALPHABET];
+
+    // per query, grown as the index grows
+    private int[] sharedGrams = new int[0];
+    private int[] documentMatches = new int[0];
+    private int[] documentEdits = new int[0];
+    private int[] documentStamps = new int[0];
+    private int stamp;
+    private final IntList touchedTerms = new IntList(256);
+    private final IntList matchedTerms = new IntList(64);
+    private final IntList matchedDistances = new IntList(64);
+    private final IntList matchedDocuments = new IntList(256);
+    private final IntList grams = new IntList(32);
+    private int[] previousRow = new int[32];
+    private int[] currentRow = new int[32];
+
+    /**
+     * Indexes @title for @recipeId; a no-op if it is already indexed with this title.
+     */
+    public synchronized void add(@NonNull String recipeId, String title, float socialRank) {
+        int titleHash = title == null ? 0 : title.hashCode();
+        Integer existing = documentsByRecipe.get(recipeId);
+        if(existing != null){
+            socialRanks[existing] = socialRank;
+            if(titleHashes[existing] == titleHash){
+                return;
+            }
+            deleted.set(existing);
+        }
+        int document = recipeIds.size();
+        recipeIds.add(recipeId);
+        documentsByRecipe.put(recipeId, document);
+        if(document == titleHashes.length){
+            titleHashes = Arrays.copyOf(titleHashes, document * 2);
+            socialRanks = Arrays.copyOf(socialRanks, document * 2);
+        }
+        titleHashes[document] = titleHash;
+        socialRanks[document] = socialRank;
+        if(title == null){
+            return;
+        }
+
+        int length = title.length();
+        int i = 0;
+        while(i < length){
+            while(i < length && !Character.isLetterOrDigit(title.charAt(i))){
+                i++;
+            }
+            int start = i;
+            while(i < length && Character.isLetterOrDigit(title.charAt(i))){
+                i++;
+            }
+            if(i > start){
+                IntList documents = termDocuments.get(termOf(title.substring(start, i).toLowerCase(Locale.US)));
+                // a word repeated in one title is posted once
+                if(documents.size == 0 || documents.get(documents.size - 1) != document){
+                    documents.add(document);
+                }
+            }
+        }
+    }
+
+    private int termOf(String word) {
+        Integer term = termsByWord.get(word);
+        if(term != null){
+            return term;
+        }
+        term = terms.size();
+        terms.add(word);
+        termsByWord.put(word, term);
+        termDocuments.add(new IntList(2));
+        gramsOf(word, grams);
+        for(int i = 0; i < grams.size; i++){
+            IntList list = gramTerms[grams.get(i)];
+            if(list == null){
+                list = gramTerms[grams.get(i)] = new IntList(4);
+            }
+            list.add(term);
+        }
+        return term;
+    }
+
+    /**
+     * @return up to @limit recipe ids whose titles contain every word of @query, each within
+     * {@link #maxDistance} edits; fewest total edits first, then by social_rank
+     */
+    @NonNull
+    public synchronized List<String> search(@NonNull String query, int limit) {
+        List<String> words = wordsOf(query);
+        if(words.isEmpty()){
+            return new ArrayList<>();
+        }
+        ensureQueryCapacity();
+        // a new stamp marks which documents already matched the current query word
+        stamp += words.size() + 1;
+        int firstStamp = stamp;
+        matchedDocuments.clear();
+
+        for(int w = 0; w < words.size(); w++){
+            String word = words.get(w);
+            int maxDistance = maxDistance(word.length());
+            gramsOf(word, grams);
+            int minShared = Math.max(1, grams.size - 3 * maxDistance);
+
+            touchedTerms.clear();
+            for(int i = 0; i < grams.size; i++){
+                IntList list = gramTerms[grams.get(i)];
+                if(list == null){
+                    continue;
+                }
+                for(int j = 0; j < list.size; j++){
+                    int term = list.get(j);
+                    if(sharedGrams[term]++ == 0){
+                        touchedTerms.add(term);
+                    }
+                }
+            }
+
+            // only the words sharing enough trigrams are worth an edit distance
+            matchedTerms.clear();
+            matchedDistances.clear();
+            for(int i = 0; i < touchedTerms.size; i++){
+                int term = touchedTerms.get(i);
+                String candidate = terms.get(term);
+                if(sharedGrams[term] >= minShared
+                        && Math.abs(candidate.length() - word.length()) <= maxDistance){
+                    int distance = editDistance(word, candidate, maxDistance);
+                    if(distance <= maxDistance){
+                        matchedTerms.add(term);
+                        matchedDistances.add(distance);
+                    }
+                }
+                sharedGrams[term] = 0;
+            }
+
+            // closest words first, so that a document is credited with its best match
+            for(int distance = 0; distance <= maxDistance; distance++){
+                for(int i = 0; i < matchedTerms.size; i++){
+                    if(matchedDistances.get(i) != distance){
+                        continue;
+                    }
+                    IntList documents = termDocuments.get(matchedTerms.get(i));
+                    for(int j = 0; j < documents.size; j++){
+                        credit(documents.get(j), w, firstStamp, distance);
+                    }
+                }
+            }
+        }
+
+        // documents that matched every word, fewest edits first, then by social_rank
+        long[] keys = new long[matchedDocuments.size];
+        int count = 0;
+        for(int i = 0; i < matchedDocuments.size; i++){
+            int document = matchedDocuments.get(i);
+            if(documentMatches[document] == words.size() && !deleted.get(document)){
+                keys[count++] = sortKey(document);
+            }
+        }
+        Arrays.sort(keys, 0, count);
+        int size = Math.min(limit, count);
+        List<String> ids = new ArrayList<>(size);
+        for(int i = 0; i < size; i++){
+            ids.add(recipeIds.get((int) (keys[i] & DOCUMENT_MASK)));
+        }
+        return ids;
+    }
+
+    /*
+     * Credits @document with a match for query word @word. It only counts if the document matched
+     * every earlier word, and only once per word: documentStamps holds firstStamp + the last word
+     * credited.
+     */
+    private void credit(int document, int word, int firstStamp, int distance) {
+        int previous = documentStamps[document];
+        if(word == 0 ? previous >= firstStamp : previous != firstStamp + word - 1){
+            return;
+        }
+        if(word == 0){
+            documentMatches[document] = 0;
+            documentEdits[document] = 0;
+            matchedDocuments.add(document);
+        }
+        documentStamps[document] = firstStamp + word;
+        documentMatches[document]++;
+        documentEdits[document] += distance;
+    }
+
+    // edits, then social_rank descending, then the document, packed to sort as one long
+    private long sortKey(int document) {
+        float rank = Math.max(0, Math.min(MAX_SOCIAL_RANK, socialRanks[document]));
+        long rankKey = (long) ((MAX_SOCIAL_RANK - rank) * 1000);
+        return ((long) documentEdits[document] << 52) | (rankKey << DOCUMENT_BITS) | document;
+    }
+
+    // edits allowed for a query word of @length: none up to 3 letters, one up to 6, then two
+    static int maxDistance(int length) {
+        return length <= 3 ? 0 : length <= 6 ? 1 : 2;
+    }
+
+    /**
+     * Levenshtein distance between @a and @b, or @bound + 1 as soon as it is known to exceed @bound.
+     */
+    int editDistance(String a, String b, int bound) {
+        int n = b.length();
+        if(previousRow.length <= n){
+            previousRow = new int[n + 1];
+            currentRow = new int[n + 1];
+        }
+        for(int j = 0; j <= n; j++){
+            previousRow[j] = j;
+        }
+        for(int i = 1; i <= a.length(); i++){
+            currentRow[0] = i;
+            int rowMin = i;
+            char ca = a.charAt(i - 1);
+            for(int j = 1; j <= n; j++){
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(currentRow[j - 1] + 1, previousRow[j] + 1), previousRow[j - 1] + cost);
+                currentRow[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if(rowMin > bound){
+                return bound + 1;
+            }
+            int[] swap = previousRow;
+            previousRow = currentRow;
+            currentRow = swap;
+        }
+        return Math.min(previousRow[n], bound + 1);
+    }
+
+    private void ensureQueryCapacity() {
+        if(sharedGrams.length < terms.size()){
+            sharedGrams = Arrays.copyOf(sharedGrams, Math.max(terms.size(), sharedGrams.length * 2));
+        }
+        int documents = recipeIds.size();
+        if(documentMatches.length < documents){
+            int capacity = Math.max(documents, documentMatches.length * 2);
+            documentMatches = Arrays.copyOf(documentMatches, capacity);
+            documentEdits = Arrays.copyOf(documentEdits, capacity);
+            documentStamps = Arrays.copyOf(documentStamps, capacity);
+        }
+    }
+
+    private static List<String> wordsOf(String query) {
+        List<String> words = new ArrayList<>();
+        int length = query.length();
+        int i = 0;
+        while(i < length){
+            while(i < length && !Character.isLetterOrDigit(query.charAt(i))){
+                i++;
+            }
+            int start = i;
+            while(i < length && Character.isLetterOrDigit(query.charAt(i))){
+                i++;
+            }
+            if(i > start){
+                String word = query.substring(start, i).toLowerCase(Locale.US);
+                if(!words.contains(word)){
+                    words.add(word);
+                }
+            }
+        }
+        return words;
+    }
+
+    // distinct trigram codes of @word, padded with PAD on both sides
+    private static void gramsOf(String word, IntList out) {
+        out.clear();
+        int previous2 = PAD;
+        int previous1 = codeOf(word.charAt(0));
+        for(int i = 1; i <= word.length(); i++){
+            int current = i < word.length() ? codeOf(word.charAt(i)) : PAD;
+            int gram = (previous2 * ALPHABET + previous1) * ALPHABET + current;
+            boolean seen = false;
+            for(int j = 0; j < out.size && !seen; j++){
+                seen = out.get(j) == gram;
+            }
+            if(!seen){
+                out.add(gram);
+            }
+            previous2 = previous1;
+            previous1 = current;
+        }
+    }
+
+    private static int codeOf(char c) {
+        if(c >= 'a' && c <= 'z'){
+            return 1 + c - 'a';
+        }
+        if(c >= '0' && c <= '9'){
+            return 27 + c - '0';
+        }
+        return OTHER;
+    }
+
+    // recipes indexed, deleted documents aside
+    public synchronized int size() {
+        return recipeIds.size() - deleted.cardinality();
+    }
+
+    public synchronized int getTermCount() {
+        return terms.size();
+    }
+
+    /**
+     * Rough heap size of the index: postings, per-document arrays and the strings and map
+     * entries of ids and words. For the benchmark, not an exact count.
+     */
+    public synchronized long estimateBytes() {
+        long bytes = 4L * gramTerms.length + 8L * titleHashes.length;
+        for(IntList list : gramTerms){
+            if(list != null){
+                bytes += list.capacityBytes();
+            }
+        }
+        for(int i = 0; i < terms.size(); i++){
+            bytes += 40 + 2 * terms.get(i).length() + 48 + termDocuments.get(i).capacityBytes();
+        }
+        for(String recipeId : recipeIds){
+            bytes += 40 + 2 * recipeId.length() + 48;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,45 @@
+package com.codingwithmitch.foodrecipes.util;
+
+import androidx.annotation.NonNull;
+
+/**
+ * How a {@link NetworkBoundResource} chooses between the cache and the network.
+ */
+public class CachePolicy {
+
+    public enum Mode {
+        CACHE_ONLY,             // never touch the network
+        NETWORK_ONLY,           // always fetch, don't show the cache while loading
+        CACHE_FIRST,            // serve the cache unless shouldFetch() says it's stale, else fetch
+        CACHE_THEN_NETWORK,     // show the cache as LOADING, always fetch
+        STALE_WHILE_REVALIDATE  // serve the cache if younger than maxAge, else show it as refreshing and fetch
+    }
+
+    public static final CachePolicy CACHE_ONLY = new CachePolicy(Mode.CACHE_ONLY, 0);
+    public static final CachePolicy NETWORK_ONLY = new CachePolicy(Mode.NETWORK_ONLY, 0);
+    public static final CachePolicy CACHE_FIRST = new CachePolicy(Mode.CACHE_FIRST, 0);
+    public static final CachePolicy CACHE_THEN_NETWORK = new CachePolicy(Mode.CACHE_THEN_NETWORK, 0);
+
+    @NonNull
+    public final Mode mode;
+
+    // only for STALE_WHILE_REVALIDATE: cached data younger than this is served without a fetch
+    public final long maxAgeSeconds;
+
+    private CachePolicy(@NonNull Mode mode, long maxAgeSeconds) {
+        this.mode = mode;
+        this.maxAgeSeconds = maxAgeSeconds;
+    }
+
+    /**
+     * @param maxAgeSeconds 0 to always revalidate
+     */
+    public static CachePolicy staleWhileRevalidate(long maxAgeSeconds) {
+        return new CachePolicy(Mode.STALE_WHILE_REVALIDATE, maxAgeSeconds);
+    }
+
+    @Override
+    public String toString() {
+        return mode == Mode.STALE_WHILE_REVALIDATE ? mode + "(" + maxAgeSeconds + "s)" : mode.toString();
+    }
+}
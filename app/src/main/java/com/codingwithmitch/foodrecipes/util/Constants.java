@@ -14,6 +14,12 @@ public class Constants {
     public static final int READ_TIMEOUT = 2; // 2 seconds
     public static final int WRITE_TIMEOUT = 2; // 2 seconds
 
+    //constants for the API rate limiter
+    public static final int API_DAILY_QUOTA = 500;          // requests per day allowed for API_KEY
+    public static final int API_BURST_SIZE = 5;             // requests that can be sent back to back
+    public static final double API_REQUESTS_PER_SECOND = 2; // sustained request rate
+    public static final String API_QUOTA_ERROR = "limit";   // the "error" of a response once the quota is used up
+
     //refresh time for the data in cache
     public static final long RECIPE_REFRESH_TIME = 60 * 60 * 24 * 30;   // 30 days to refresh recipe
 
@@ -0,0 +1,42 @@
+package com.codingwithmitch.foodrecipes.util;
+
+/**
+ * The reactive-streams interfaces of java.util.concurrent.Flow, which only exists from API 30.
+ * Same names and contracts, so moving to the platform ones later is an import change:
+ *
+ * - a {@link Publisher} starts nothing until subscribed, and sends at most as many onNext as
+ *   requested through the {@link Subscription}
+ * - signals to one subscriber are serialized, and end with at most one onError / onComplete
+ * - {@link Subscription#cancel()} stops the work behind the stream, not just its delivery
+ *
+ * {@link Publishers} has the sources, operators and the LiveData adapter built on them.
+ */
+public final class Flow {
+
+    private Flow() {
+    }
+
+    public interface Publisher<T> {
+
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    public interface Subscriber<T> {
+
+        void onSubscribe(Subscription subscription);
+
+        void onNext(T item);
+
+        void onError(Throwable throwable);
+
+        void onComplete();
+    }
+
+    public interface Subscription {
+
+        // asks for @n (> 0) more items; Long.MAX_VALUE means unbounded
+        void request(long n);
+
+        void cancel();
+    }
+}
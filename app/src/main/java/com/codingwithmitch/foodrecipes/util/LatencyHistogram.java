@@ -0,0 +1,139 @@
+package com.codingwithmitch.foodrecipes.util;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Fixed-size log-linear histogram of durations in microseconds, in the style of HdrHistogram.
+ *
+ * Values below 64us are counted exactly. Above that every power of two is split into 32 linear
+ * sub-buckets, so a recorded value is off by at most ~3%. Values are capped at 2^36us (~19 hours),
+ * which keeps the histogram at {@link #BUCKETS} counters no matter how much is recorded.
+ * Recording never allocates. Not thread safe: callers synchronize.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;           // 32
+    private static final int LINEAR_LIMIT = SUB_BUCKETS << 1;              // 64, counted exactly
+    private static final int MAX_MAGNITUDE = 35;                           // highest power of two kept
+    static final int BUCKETS = LINEAR_LIMIT + (MAX_MAGNITUDE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    private static final long MAX_VALUE = (1L << (MAX_MAGNITUDE + 1)) - 1;
+
+    private final long[] counts = new long[BUCKETS];
+    private long totalCount;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    public void recordMicros(long micros) {
+        long value = Math.max(0, Math.min(micros, MAX_VALUE));
+        counts[indexOf(value)]++;
+        totalCount++;
+        sum += value;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    public void recordNanos(long nanos) {
+        recordMicros(nanos / 1000);
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);            // >= 6
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;             // 0..31
+        return LINEAR_LIMIT + (magnitude - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    // highest value that falls into bucket @index
+    static long highestValueOf(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int magnitude = (index - LINEAR_LIMIT) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+        int subBucket = (index - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        int shift = magnitude - SUB_BUCKET_BITS;
+        return (((long) subBucket + 1) << shift) - 1;
+    }
+
+    public long getCount() {
+        return totalCount;
+    }
+
+    public long getMinMicros() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    public long getMaxMicros() {
+        return max;
+    }
+
+    public long getMeanMicros() {
+        return totalCount == 0 ? 0 : sum / totalCount;
+    }
+
+    /**
+     * @param percentile 0..100
+     * @return the value at @percentile, rounded up to its bucket (never above the max recorded)
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    public void add(@NonNull LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    @NonNull
+    public LatencyHistogram copy() {
+        LatencyHistogram copy = new LatencyHistogram();
+        copy.add(this);
+        return copy;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "n=%d p50=%.1f p90=%.1f p99=%.1f max=%.1f mean=%.1f (ms)",
+                totalCount,
+                getValueAtPercentile(50) / 1e3,
+                getValueAtPercentile(90) / 1e3,
+                getValueAtPercentile(99) / 1e3,
+                max / 1e3,
+                getMeanMicros() / 1e3);
+    }
+}
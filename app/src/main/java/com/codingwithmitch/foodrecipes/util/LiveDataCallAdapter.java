@@ -1,25 +1,36 @@
 package com.codingwithmitch.foodrecipes.util;
 
+import androidx.annotation.NonNull;
 import androidx.lifecycle.LiveData;
 
+import com.codingwithmitch.foodrecipes.RequestScheduler;
+import com.codingwithmitch.foodrecipes.requests.RequestPriority;
 import com.codingwithmitch.foodrecipes.requests.responses.ApiResponse;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import okhttp3.Request;
 import retrofit2.Call;
 import retrofit2.CallAdapter;
-import retrofit2.Callback;
 import retrofit2.Response;
 
 public class LiveDataCallAdapter<R> implements CallAdapter<R, LiveData<ApiResponse<R>>> {
 
     //converts the retrofit response into livedata
 
+    static final String CANCELLED_MESSAGE = "Request cancelled.";
+
     // the network response
     private Type responseType;
 
-    public LiveDataCallAdapter(Type responseType) {
+    // runs the calls by their RequestPriority
+    private final RequestScheduler scheduler;
+
+    public LiveDataCallAdapter(Type responseType, RequestScheduler scheduler) {
         this.responseType = responseType;
+        this.scheduler = scheduler;
     }
 
     @Override
@@ -30,23 +41,97 @@ public class LiveDataCallAdapter<R> implements CallAdapter<R, LiveData<ApiRespon
     @Override
     public LiveData<ApiResponse<R>> adapt(final Call<R> call) {
         return new LiveData<ApiResponse<R>>(){
+
+            // a Call can only run once: don't start it again when the LiveData becomes active again
+            private final AtomicBoolean started = new AtomicBoolean();
+
             @Override
             protected void onActive() {
                 super.onActive();
-                final ApiResponse apiResponse = new ApiResponse();
-                call.enqueue(new Callback<R>() {
-                    @Override
-                    public void onResponse(Call<R> call, Response<R> response) {
-                        postValue(apiResponse.create(response));
-                    }
-
-                    @Override
-                    public void onFailure(Call<R> call, Throwable t) {
-                        postValue(apiResponse.create(t));
-                    }
-                });
+                if(!started.compareAndSet(false, true)){
+                    return;
+                }
+                Request request = call.request();
+                scheduler.submit(
+                        RequestPriority.fromHeader(request.header(RequestPriority.HEADER)),
+                        request.header(RequestScheduler.TAG_HEADER),
+                        new CallJob<R>(call) {
+                            @Override
+                            void deliver(ApiResponse<R> apiResponse) {
+                                postValue(apiResponse);
+                            }
+                        });
             }
         };
     }
 
+    /**
+     * Executes the call on a scheduler thread. A preempted call is cancelled and run again later
+     * as a clone; a cancelled one is delivered as an error so the caller falls back to its cache.
+     */
+    private abstract static class CallJob<R> extends RequestScheduler.Job {
+
+        private final Call<R> call;
+        private volatile Call<R> current;
+
+        // exactly one ApiResponse is delivered, even if a cancel races with the response
+        private final AtomicBoolean delivered = new AtomicBoolean();
+
+        CallJob(Call<R> call) {
+            this.call = call;
+        }
+
+        abstract void deliver(ApiResponse<R> apiResponse);
+
+        private void deliverOnce(ApiResponse<R> apiResponse){
+            if(delivered.compareAndSet(false, true)){
+                deliver(apiResponse);
+            }
+        }
+
+        @Override
+        public boolean run(@NonNull RequestScheduler.Ticket ticket) {
+            final ApiResponse<R> apiResponse = new ApiResponse<>();
+            current = call.isExecuted() ? call.clone() : call;
+            if(ticket.isInterrupted()){
+                // cancelled or preempted before it got going
+                return false;
+            }
+            try {
+                Response<R> response = current.execute();
+                // the response is in: a preemption that came too late doesn't throw it away
+                if(!ticket.isCancelled()){
+                    deliverOnce(apiResponse.create(response));
+                }
+                return true;
+            } catch (IOException | RuntimeException e) {
+                if(ticket.isInterrupted()){
+                    // if preempted the scheduler runs this job again; if cancelled onCancelled() reports it
+                    return false;
+                }
+                deliverOnce(apiResponse.create(e));
+                return true;
+            }
+        }
+
+        // a preempted call is cancelled, and run again as a clone
+        @Override
+        public boolean isPreemptible() {
+            return true;
+        }
+
+        @Override
+        public void interrupt() {
+            Call<R> call = current;
+            if(call != null){
+                call.cancel();
+            }
+        }
+
+        @Override
+        public void onCancelled() {
+            deliverOnce(new ApiResponse<R>().create(new IOException(CANCELLED_MESSAGE)));
+        }
+    }
+
 }
@@ -2,6 +2,8 @@ package com.codingwithmitch.foodrecipes.util;
 
 import androidx.lifecycle.LiveData;
 
+import com.codingwithmitch.foodrecipes.AppExecutors;
+import com.codingwithmitch.foodrecipes.RequestScheduler;
 import com.codingwithmitch.foodrecipes.requests.responses.ApiResponse;
 
 import java.lang.annotation.Annotation;
@@ -13,6 +15,16 @@ import retrofit2.Retrofit;
 
 public class LiveDataCallAdapterFactory extends CallAdapter.Factory {
 
+    private final RequestScheduler scheduler;
+
+    public LiveDataCallAdapterFactory() {
+        this(AppExecutors.getInstance().scheduler());
+    }
+
+    public LiveDataCallAdapterFactory(RequestScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
 
     /**
      * This method performs a number of checks and then returns the Response type for the Retrofit requests
@@ -57,6 +69,6 @@ public class LiveDataCallAdapterFactory extends CallAdapter.Factory {
 
         // get the Response type. (RecipeSearchResponse or RecipeResponse)
         Type bodyType = CallAdapter.Factory.getParameterUpperBound(0, (ParameterizedType) observableType);
-        return new LiveDataCallAdapter<Type>(bodyType);
+        return new LiveDataCallAdapter<Type>(bodyType, scheduler);
     }
 }
@@ -0,0 +1,290 @@
+package com.codingwithmitch.foodrecipes.util;
+
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.codingwithmitch.foodrecipes.BuildConfig;
+import com.codingwithmitch.foodrecipes.MonitoredExecutor;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logging facade used instead of {@link Log}.
+ *
+ * v/d/i are skipped in release builds and below the current level. Both are runtime checks: AGP
+ * doesn't emit BuildConfig.DEBUG as a compile-time constant, and release builds aren't minified, so
+ * the calls stay in the code and return after a branch. Nothing is built for a skipped message:
+ * the overloads taking a value only concatenate it once the level is known to be enabled, and
+ * primitives are never boxed.
+ *
+ * Optionally every message that is logged can also be appended to a file, with debug and info
+ * messages sampled (one in N) so that a chatty screen doesn't fill the disk.
+ */
+public final class Logger {
+
+    // false in release builds: v/d/i calls return without doing anything
+    public static final boolean VERBOSE_LOGS = BuildConfig.DEBUG;
+
+    private static volatile int level = VERBOSE_LOGS ? Log.DEBUG : Log.WARN;
+
+    private static final int MAX_PENDING_LINES = 256;
+
+    private static volatile FileSink fileSink;
+
+    private Logger() {
+    }
+
+    /**
+     * @param level one of the {@link Log} priorities; messages below it are dropped
+     */
+    public static void setLevel(int level) {
+        Logger.level = level;
+    }
+
+    public static int getLevel() {
+        return level;
+    }
+
+    public static boolean isLoggable(int priority) {
+        return priority >= level && (VERBOSE_LOGS || priority >= Log.WARN);
+    }
+
+    /**
+     * Also appends logged messages to @file. Warnings and errors are always written, debug and
+     * info messages one in @sampleEvery. Pass null to stop.
+     */
+    public static synchronized void setFileSink(@Nullable File file, int sampleEvery) {
+        FileSink old = fileSink;
+        fileSink = file != null ? new FileSink(file, Math.max(1, sampleEvery)) : null;
+        if (old != null) {
+            old.close();
+        }
+    }
+
+    // verbose: per-frame / per-bind chatter
+
+    public static void v(String tag, String msg) {
+        if (VERBOSE_LOGS && Log.VERBOSE >= level) {
+            write(Log.VERBOSE, tag, msg, null);
+        }
+    }
+
+    // debug
+
+    public static void d(String tag, String msg) {
+        if (VERBOSE_LOGS && Log.DEBUG >= level) {
+            write(Log.DEBUG, tag, msg, null);
+        }
+    }
+
+    public static void d(String tag, String msg, long value) {
+        if (VERBOSE_LOGS && Log.DEBUG >= level) {
+            write(Log.DEBUG, tag, msg + value, null);
+        }
+    }
+
+    public static void d(String tag, String msg, double value) {
+        if (VERBOSE_LOGS && Log.DEBUG >= level) {
+            write(Log.DEBUG, tag, msg + value, null);
+        }
+    }
+
+    public static void d(String tag, String msg, boolean value) {
+        if (VERBOSE_LOGS && Log.DEBUG >= level) {
+            write(Log.DEBUG, tag, msg + value, null);
+        }
+    }
+
+    // @value's toString() is only called if the message is logged
+    public static void d(String tag, String msg, @Nullable Object value) {
+        if (VERBOSE_LOGS && Log.DEBUG >= level) {
+            write(Log.DEBUG, tag, msg + value, null);
+        }
+    }
+
+    public static void d(String tag, String msg, @Nullable Object value, String msg2, @Nullable Object value2) {
+        if (VERBOSE_LOGS && Log.DEBUG >= level) {
+            write(Log.DEBUG, tag, msg + value + msg2 + value2, null);
+        }
+    }
+
+    // info
+
+    public static void i(String tag, String msg) {
+        if (VERBOSE_LOGS && Log.INFO >= level) {
+            write(Log.INFO, tag, msg, null);
+        }
+    }
+
+    public static void i(String tag, String msg, @Nullable Object value) {
+        if (VERBOSE_LOGS && Log.INFO >= level) {
+            write(Log.INFO, tag, msg + value, null);
+        }
+    }
+
+    // warnings and errors are kept in release builds
+
+    public static void w(String tag, String msg) {
+        if (Log.WARN >= level) {
+            write(Log.WARN, tag, msg, null);
+        }
+    }
+
+    public static void w(String tag, String msg, @Nullable Object value) {
+        if (Log.WARN >= level) {
+            write(Log.WARN, tag, msg + value, null);
+        }
+    }
+
+    public static void e(String tag, String msg) {
+        if (Log.ERROR >= level) {
+            write(Log.ERROR, tag, msg, null);
+        }
+    }
+
+    public static void e(String tag, String msg, @Nullable Object value) {
+        if (Log.ERROR >= level) {
+            write(Log.ERROR, tag, msg + value, null);
+        }
+    }
+
+    public static void e(String tag, String msg, @Nullable Throwable throwable) {
+        if (Log.ERROR >= level) {
+            write(Log.ERROR, tag, msg, throwable);
+        }
+    }
+
+    private static void write(int priority, String tag, String msg, @Nullable Throwable throwable) {
+        if (throwable != null) {
+            Log.println(priority, tag, msg + '\n' + Log.getStackTraceString(throwable));
+        } else {
+            Log.println(priority, tag, msg);
+        }
+        FileSink sink = fileSink;
+        if (sink != null) {
+            sink.offer(priority, tag, msg, throwable);
+        }
+    }
+
+    @VisibleForTesting
+    static void flushFileSink() throws InterruptedException {
+        FileSink sink = fileSink;
+        if (sink != null) {
+            sink.flush();
+        }
+    }
+
+    /**
+     * Appends lines to a file from a single background thread. When the writer falls behind the
+     * oldest pending lines are dropped rather than blocking the caller.
+     */
+    private static class FileSink {
+
+        private final File file;
+        private final int sampleEvery;
+        private final AtomicLong sampled = new AtomicLong();
+        private final MonitoredExecutor writerThread = new MonitoredExecutor("log-writer", 1,
+                MAX_PENDING_LINES, Process.THREAD_PRIORITY_BACKGROUND, new ThreadPoolExecutor.DiscardOldestPolicy());
+        private final SimpleDateFormat timeFormat = new SimpleDateFormat("MM-dd HH:mm:ss.SSS", Locale.US);
+        private Writer writer;
+
+        FileSink(File file, int sampleEvery) {
+            this.file = file;
+            this.sampleEvery = sampleEvery;
+        }
+
+        void offer(final int priority, final String tag, final String msg, @Nullable final Throwable throwable) {
+            if (priority < Log.WARN && sampled.getAndIncrement() % sampleEvery != 0) {
+                return;
+            }
+            final long time = System.currentTimeMillis();
+            writerThread.execute(new Runnable() {
+                @Override
+                public void run() {
+                    append(time, priority, tag, msg, throwable);
+                }
+            });
+        }
+
+        // runs on the writer thread
+        private void append(long time, int priority, String tag, String msg, @Nullable Throwable throwable) {
+            try {
+                if (writer == null) {
+                    writer = new FileWriter(file, true);
+                }
+                writer.write(timeFormat.format(new Date(time)) + ' ' + levelOf(priority) + '/' + tag + ": " + msg + '\n');
+                if (throwable != null) {
+                    writer.write(Log.getStackTraceString(throwable) + '\n');
+                }
+                if (writerThread.getQueue().isEmpty()) {
+                    writer.flush();
+                }
+            } catch (IOException e) {
+                Log.e("Logger", "could not write to " + file, e);
+            }
+        }
+
+        void flush() throws InterruptedException {
+            final CountDownLatch done = new CountDownLatch(1);
+            writerThread.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (writer != null) {
+                            writer.flush();
+                        }
+                    } catch (IOException ignored) {
+                        // reported by the next write
+                    }
+                    done.countDown();
+                }
+            });
+            done.await();
+        }
+
+        void close() {
+            writerThread.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (writer != null) {
+                            writer.close();
+                        }
+                    } catch (IOException ignored) {
+                        // nothing left to write to
+                    }
+                }
+            });
+            writerThread.shutdown();
+        }
+
+        @NonNull
+        private static String levelOf(int priority) {
+            switch (priority) {
+                case Log.VERBOSE:
+                    return "V";
+                case Log.DEBUG:
+                    return "D";
+                case Log.INFO:
+                    return "I";
+                case Log.WARN:
+                    return "W";
+                default:
+                    return "E";
+            }
+        }
+    }
+}
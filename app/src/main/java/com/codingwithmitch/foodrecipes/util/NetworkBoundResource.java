@@ -1,6 +1,5 @@
 package com.codingwithmitch.foodrecipes.util;
 
-import android.util.Log;
 
 import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
@@ -11,8 +10,12 @@ import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.Observer;
 
 import com.codingwithmitch.foodrecipes.AppExecutors;
+import com.codingwithmitch.foodrecipes.requests.ConnectivityMonitor;
 import com.codingwithmitch.foodrecipes.requests.responses.ApiResponse;
 
+import java.util.Collection;
+import java.util.Locale;
+
 // CacheObject: Type for the Resource data.     (database cache)
 // RequestObject: Type for the API response.    (network request)
 public abstract class NetworkBoundResource<CacheObject, RequestObject> {
@@ -21,80 +24,201 @@ public abstract class NetworkBoundResource<CacheObject, RequestObject> {
 
     private AppExecutors appExecutors;
 
+    // how to choose between the cache and the network
+    private final CachePolicy cachePolicy;
+
+    // where the request is; decides what an emission of the db source turns into
+    private enum Phase {
+        READING_CACHE,  // waiting for the first db value to decide whether to fetch
+        OFFLINE,        // serving the cache, fetch queued until connectivity returns
+        FETCHING,       // network call in flight
+        SAVING,         // response being written; a db value now may come from before or after the write
+        SAVED,          // response written, the next db value is the refreshed one
+        DONE,
+        FAILED
+    }
+
+    // only changed on the main thread
+    private Phase phase = Phase.READING_CACHE;
+
+    // whether dbSource emitted while SAVING, i.e. whether the refreshed value may already be in
+    private boolean cacheChangedWhileSaving;
+
+    // the one db observation used for the whole request; Room re-runs it after every write
+    private LiveData<CacheObject> dbSource;
+
+    // latest value of dbSource, re-emitted with a new status instead of re-querying
+    private CacheObject lastCacheObject;
+
+    // set for FAILED
+    private String errorMessage;
+
+    // the refresh queued with ConnectivityMonitor while OFFLINE; only queued while results is observed
+    @Nullable
+    private Runnable deferredFetch;
+
+    private final Counters counters = new Counters();
+
+    // phase timestamps, recorded into RequestMetrics when the request ends
+    private final RequestMetrics.Timeline timeline;
+
     //livedata for getting data from cache db
-    private MediatorLiveData<Resource<CacheObject>> results = new MediatorLiveData<>();
+    private MediatorLiveData<Resource<CacheObject>> results = new MediatorLiveData<Resource<CacheObject>>() {
+        @Override
+        protected void onActive() {
+            super.onActive();
+            if(phase == Phase.OFFLINE && deferredFetch == null){
+                deferFetch();
+            }
+        }
 
+        @Override
+        protected void onInactive() {
+            super.onInactive();
+            // a closed screen shouldn't be kept alive, nor refreshed, by the offline queue
+            if(deferredFetch != null){
+                ConnectivityMonitor.getInstance().cancel(deferredFetch);
+                deferredFetch = null;
+            }
+        }
+    };
+
+    // fetch decision is left to shouldFetch()
     public NetworkBoundResource(AppExecutors appExecutors) {
+        this(appExecutors, CachePolicy.CACHE_FIRST);
+    }
+
+    public NetworkBoundResource(AppExecutors appExecutors, CachePolicy cachePolicy) {
         this.appExecutors = appExecutors;
+        this.cachePolicy = cachePolicy;
+        this.timeline = new RequestMetrics.Timeline(appExecutors.clock());
         init();
     }
 
+    /**
+     * 1) observe local db (once, for the whole request)
+     * 2) if <condition/> query the network
+     * 3) insert new data into local db
+     * 4) the db observation emits the refreshed data from network
+     */
     private void init(){
 
         // update LiveData for loading status
         //initially display loading status b4 getting data from cache
+        timeline.mark(RequestMetrics.Mark.START);
         results.setValue((Resource<CacheObject>) Resource.loading(null));
 
         // observe LiveData source from local db
-        final LiveData<CacheObject> dbSource = loadFromDb();
+        dbSource = loadFromDb();
+        counters.dbQueries++;
 
         results.addSource(dbSource, new Observer<CacheObject>() {
             @Override
             public void onChanged(@Nullable CacheObject cacheObject) {
+                counters.dbEmissions++;
+                timeline.markOnce(RequestMetrics.Mark.CACHE_LOADED);
+                lastCacheObject = cacheObject;
+                onCacheChanged(cacheObject);
+            }
+        });
+    }
 
-                // remove the source that we are observing
-                results.removeSource(dbSource);
-
-                if(shouldFetch(cacheObject)){
-
+    @MainThread
+    private void onCacheChanged(@Nullable CacheObject cacheObject){
+        switch (phase){
+            case READING_CACHE:
+                if(needsFetch(cacheObject)){
                     // get data from the network
-                    fetchFromNetwork(dbSource);
-
+                    fetchFromNetwork();
                 }
                 else{
                     //get data from cache db
-                    results.addSource(dbSource, new Observer<CacheObject>() {
-                        @Override
-                        public void onChanged(@Nullable CacheObject cacheObject) {
-                            setValue(Resource.success(cacheObject));
-
-                        }
-                    });
+                    finish();
                 }
-            }
-        });
+                break;
+
+            case OFFLINE:
+                emit(Resource.Status.ERROR, cacheObject, ConnectivityMonitor.OFFLINE_MESSAGE, false);
+                break;
+
+            case FETCHING:
+                emitLoading(cacheObject);
+                break;
+
+            case SAVING:
+                cacheChangedWhileSaving = true;
+                emitLoading(cacheObject);
+                break;
+
+            case SAVED:
+                timeline.mark(RequestMetrics.Mark.REFRESHED);
+                finish();
+                break;
+
+            case DONE:
+                emit(Resource.Status.SUCCESS, cacheObject, null, false);
+                break;
+
+            case FAILED:
+                emit(Resource.Status.ERROR,
+                        cachePolicy.mode == CachePolicy.Mode.NETWORK_ONLY ? null : cacheObject,
+                        errorMessage, false);
+                break;
+        }
     }
 
-    /**
-     * 1) observe local db
-     * 2) if <condition/> query the network
-     * 3) stop observing the local db
-     * 4) insert new data into local db
-     * 5) begin observing local db again to see the refreshed data from network
-     * @param dbSource
-     */
+    private boolean needsFetch(@Nullable CacheObject cacheObject){
+        switch (cachePolicy.mode){
+            case CACHE_ONLY:
+                return false;
 
+            case NETWORK_ONLY:
+            case CACHE_THEN_NETWORK:
+                return true;
 
-    private void fetchFromNetwork(final LiveData<CacheObject> dbSource){
+            case STALE_WHILE_REVALIDATE:
+                return !hasData(cacheObject) || isOlderThan(cacheObject, cachePolicy.maxAgeSeconds);
 
-        Log.d(TAG, "fetchFromNetwork: called.");
+            case CACHE_FIRST:
+            default:
+                return !hasData(cacheObject) || shouldFetch(cacheObject);
+        }
+    }
+
+    private boolean isOlderThan(@NonNull CacheObject cacheObject, long maxAgeSeconds){
+        long cachedAt = getCachedAtSeconds(cacheObject);
+        return cachedAt <= 0 || (appExecutors.clock().currentTimeMillis() / 1000) - cachedAt >= maxAgeSeconds;
+    }
+
+    @MainThread
+    private void fetchFromNetwork(){
+
+        Logger.d(TAG, "fetchFromNetwork: called.");
+
+        final ConnectivityMonitor connectivityMonitor = ConnectivityMonitor.getInstance();
+        if(!connectivityMonitor.isOnline()){
+            // offline or captive portal: serve the cache now instead of waiting for the call to time out
+            Logger.d(TAG, "fetchFromNetwork: offline, serving cache.");
+            phase = Phase.OFFLINE;
+            onCacheChanged(lastCacheObject);
+            deferFetch();
+            return;
+        }
 
         // update LiveData for loading status
-        results.addSource(dbSource, new Observer<CacheObject>() {
-            @Override
-            public void onChanged(@Nullable CacheObject cacheObject) {
-                setValue(Resource.loading(cacheObject));
-            }
-        });
+        phase = Phase.FETCHING;
+        timeline.mark(RequestMetrics.Mark.FETCH_START);
+        onCacheChanged(lastCacheObject);
 
         final LiveData<ApiResponse<RequestObject>> apiResponse = createCall();
+        counters.networkCalls++;
 
         results.addSource(apiResponse, new Observer<ApiResponse<RequestObject>>() {
             @Override
             public void onChanged(@Nullable final ApiResponse<RequestObject> requestObjectApiResponse) {
 
-                results.removeSource(dbSource);
                 results.removeSource(apiResponse);
+                timeline.mark(RequestMetrics.Mark.RESPONSE);
 
                 /*
                     3 cases:
@@ -104,90 +228,222 @@ public abstract class NetworkBoundResource<CacheObject, RequestObject> {
                  */
 
                 if(requestObjectApiResponse instanceof ApiResponse.ApiSuccessResponse){
-                    Log.d(TAG, "onChanged: ApiSuccessResponse.");
+                    Logger.d(TAG, "onChanged: ApiSuccessResponse.");
 
-                    appExecutors.diskIO().execute(new Runnable() {
+                    // set before the write, so that no value Room re-queries for it is taken for a loading one
+                    phase = Phase.SAVING;
+                    cacheChangedWhileSaving = false;
+                    appExecutors.diskWrite().execute(new Runnable() {
                         @Override
                         public void run() {
 
                             // save the response to the local db
-                            saveCallResult((RequestObject) processResponse((ApiResponse.ApiSuccessResponse)requestObjectApiResponse));
-
-                            //reading data from cache?
+                            timeline.mark(RequestMetrics.Mark.SAVE_START);
+                            long saveStart = Tracer.now();
+                            final boolean written = saveCallResult((RequestObject) processResponse((ApiResponse.ApiSuccessResponse)requestObjectApiResponse));
+                            Tracer.getInstance().complete(getOperationName() + ".saveCallResult", saveStart);
+                            timeline.mark(RequestMetrics.Mark.SAVED);
                             appExecutors.mainThread().execute(new Runnable() {
                                 @Override
                                 public void run() {
-                                    results.addSource(loadFromDb(), new Observer<CacheObject>() {
-                                        @Override
-                                        public void onChanged(@Nullable CacheObject cacheObject) {
-                                            setValue(Resource.success(cacheObject));
-                                        }
-                                    });
+                                    onSaved(written);
                                 }
                             });
                         }
                     });
                 }
                 else if(requestObjectApiResponse instanceof ApiResponse.ApiEmptyResponse){
-                    Log.d(TAG, "onChanged: ApiEmptyResponse");
+                    Logger.d(TAG, "onChanged: ApiEmptyResponse");
 
-                    //reading data from cache
-                    appExecutors.mainThread().execute(new Runnable() {
-                        @Override
-                        public void run() {
-                            results.addSource(loadFromDb(), new Observer<CacheObject>() {
-                                @Override
-                                public void onChanged(@Nullable CacheObject cacheObject) {
-                                    setValue(Resource.success(cacheObject));
-                                }
-                            });
-                        }
-                    });
+                    // nothing to save; the cache is as fresh as it gets
+                    finish();
                 }
                 else if(requestObjectApiResponse instanceof ApiResponse.ApiErrorResponse){
-                    Log.d(TAG, "onChanged: ApiErrorResponse.");
-
-                    results.addSource(dbSource, new Observer<CacheObject>() {
+                    Logger.d(TAG, "onChanged: ApiErrorResponse.");
 
-                        @Override
-                        public void onChanged(@Nullable CacheObject cacheObject) {
-                            setValue(
-                                    Resource.error(
-                                            ((ApiResponse.ApiErrorResponse) requestObjectApiResponse).getErrorMessage(),
-                                            cacheObject
-                                    )
-                            );
-                        }
-                    });
+                    errorMessage = ((ApiResponse.ApiErrorResponse) requestObjectApiResponse).getErrorMessage();
+                    phase = Phase.FAILED;
+                    onCacheChanged(lastCacheObject);
+                    end();
                 }
             }
         });
     }
 
+    // refreshes once connectivity returns, if results is still observed by then
+    @MainThread
+    private void deferFetch(){
+        deferredFetch = new Runnable() {
+            @Override
+            public void run() {
+                if(deferredFetch != this){
+                    return;
+                }
+                deferredFetch = null;
+                if(phase == Phase.OFFLINE && results.hasActiveObservers()){
+                    fetchFromNetwork();
+                }
+            }
+        };
+        ConnectivityMonitor.getInstance().runWhenOnline(deferredFetch);
+    }
+
+    /*
+     * Room re-runs dbSource on its own executor once it has seen a write, so the refreshed value can
+     * reach the main thread before or after this. If none came while SAVING it is still to come;
+     * otherwise it may be the one already here, and the request finishes with it (a later one is
+     * still emitted, as DONE). Nothing written means dbSource won't emit again: finish with what it has.
+     */
+    @MainThread
+    private void onSaved(boolean written){
+        if(written && !cacheChangedWhileSaving){
+            phase = Phase.SAVED;
+            return;
+        }
+        if(written){
+            timeline.mark(RequestMetrics.Mark.REFRESHED);
+        }
+        finish();
+    }
+
     private CacheObject processResponse(ApiResponse.ApiSuccessResponse response){
         //returns the body of the response?
         return (CacheObject) response.getBody();
 
     }
 
-    private void setValue(Resource<CacheObject> newValue){
+    // the cache now holds the final data for this request
+    @MainThread
+    private void finish(){
+        phase = Phase.DONE;
+        onCacheChanged(lastCacheObject);
+        end();
+    }
+
+    @MainThread
+    private void end(){
+        timeline.mark(RequestMetrics.Mark.END);
+        RequestMetrics.getInstance().record(getOperationName(), timeline);
+        trace();
+        Logger.d(TAG, getOperationName(), timeline, ", ", counters);
+    }
+
+    // the timeline as nested async spans: the whole request, then each phase it went through
+    private void trace(){
+        Tracer tracer = Tracer.getInstance();
+        if(!tracer.isEnabled()){
+            return;
+        }
+        long id = tracer.newId();
+        String operation = getOperationName();
+        tracer.asyncSpan(operation, id,
+                timeline.getMarkNanos(RequestMetrics.Mark.START), timeline.getMarkNanos(RequestMetrics.Mark.END));
+        for(RequestMetrics.Phase phase: RequestMetrics.Phase.values()){
+            if(phase != RequestMetrics.Phase.TOTAL && timeline.getDurationNanos(phase) >= 0){
+                tracer.asyncSpan(operation + "." + phase.name().toLowerCase(Locale.US), id,
+                        timeline.getMarkNanos(phase.getFrom()), timeline.getMarkNanos(phase.getTo()));
+            }
+        }
+    }
+
+    @MainThread
+    private void emitLoading(@Nullable CacheObject cacheObject){
+        if(cachePolicy.mode == CachePolicy.Mode.STALE_WHILE_REVALIDATE && hasData(cacheObject)){
+            // show the cache right away, the refresh happens in the background
+            emit(Resource.Status.SUCCESS, cacheObject, null, true);
+        }
+        else if(cachePolicy.mode == CachePolicy.Mode.NETWORK_ONLY){
+            emit(Resource.Status.LOADING, null, null, false);
+        }
+        else{
+            emit(Resource.Status.LOADING, cacheObject, null, false);
+        }
+    }
+
+    // whether @data is worth showing while revalidating (a list must not be empty)
+    private boolean hasData(@Nullable CacheObject data){
+        if(data instanceof Collection){
+            return !((Collection) data).isEmpty();
+        }
+        return data != null;
+    }
 
-        if(results.getValue() != newValue){
-            //replace value in the cache  with @newValue, if value in cache changed
-            results.setValue(newValue);
+    private static boolean equal(@Nullable Object a, @Nullable Object b){
+        return a == null ? b == null : a.equals(b);
+    }
+
+    // only allocates a Resource when it differs from the one already emitted
+    @MainThread
+    private void emit(Resource.Status status, @Nullable CacheObject data, @Nullable String message, boolean refreshing){
+        Resource<CacheObject> current = results.getValue();
+        if(current != null
+                && current.status == status
+                && current.refreshing == refreshing
+                && equal(current.message, message)
+                && equal(current.data, data)){
+            counters.suppressedEmissions++;
+            return;
         }
+        counters.emissions++;
+        results.setValue(new Resource<>(status, data, message, refreshing));
+    }
 
+    /**
+     * @return what this request has cost so far
+     */
+    @MainThread
+    public Counters getCounters(){
+        return counters;
+    }
+
+    public static class Counters {
+
+        // LiveData queries created with loadFromDb()
+        public int dbQueries;
+
+        // values delivered by those queries (each is a query run by Room)
+        public int dbEmissions;
+
+        public int networkCalls;
+
+        // Resources handed to observers
+        public int emissions;
+
+        // Resources not emitted because nothing changed
+        public int suppressedEmissions;
+
+        @Override
+        public String toString() {
+            return "dbQueries=" + dbQueries + " dbEmissions=" + dbEmissions + " networkCalls=" + networkCalls
+                    + " emissions=" + emissions + " suppressed=" + suppressedEmissions;
+        }
     }
 
     // Called to save the result of the API response into the database.
+    // Returns whether anything was written, i.e. whether loadFromDb() will emit again.
     @WorkerThread
-    protected abstract void saveCallResult(@NonNull RequestObject item);
+    protected abstract boolean saveCallResult(@NonNull RequestObject item);
 
     // Called with the data in the database to decide whether to fetch
-    // potentially updated data from the network.
+    // potentially updated data from the network. Only used by CachePolicy.CACHE_FIRST,
+    // and only when there is cached data.
     //checks if we should load data from cache db or not
     @MainThread
-    protected abstract boolean shouldFetch(@Nullable CacheObject data);
+    protected boolean shouldFetch(@NonNull CacheObject data){
+        return true;
+    }
+
+    // When @data was last refreshed from the network, in seconds since the epoch, or 0 if unknown.
+    // Used for the max age of CachePolicy.STALE_WHILE_REVALIDATE; unknown data is always revalidated.
+    protected long getCachedAtSeconds(@NonNull CacheObject data){
+        return 0;
+    }
+
+    // Name the timings of this request are aggregated under in RequestMetrics.
+    @NonNull
+    protected String getOperationName(){
+        return "resource";
+    }
 
     // Called to get the cached data from the database.
     @NonNull @MainThread
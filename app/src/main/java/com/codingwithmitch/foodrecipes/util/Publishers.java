@@ -0,0 +1,650 @@
+package com.codingwithmitch.foodrecipes.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.lifecycle.LiveData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sources and operators for {@link Flow} streams, and the adapter that turns one into LiveData.
+ *
+ * Everything here is demand driven: {@link #generate} only produces (e.g. fetches a page) when the
+ * subscriber has asked for an item, and cancelling a subscription is passed upstream to the
+ * source, which aborts the blocking call it is in.
+ */
+public final class Publishers {
+
+    private static final String TAG = "Publishers";
+
+    private Publishers() {
+    }
+
+    public interface Function<T, R> {
+        R apply(T item) throws Exception;
+    }
+
+    /**
+     * A stream that can be subscribed to again from where an earlier subscription stopped, e.g.
+     * pages from the one after the last delivered.
+     */
+    public interface Resumable<T> {
+
+        // the items after the first @delivered ones
+        @NonNull
+        Flow.Publisher<T> from(long delivered);
+    }
+
+    /**
+     * Produces the items of one subscription, one {@link #next()} per requested item.
+     */
+    public abstract static class Generator<T> {
+
+        // the next item, or null once there are no more. Called on the executor, never concurrently
+        @Nullable @WorkerThread
+        public abstract T next() throws Exception;
+
+        // the subscriber cancelled; may be called from any thread while next() is blocked
+        public void cancel() {
+        }
+    }
+
+    // sources
+
+    /**
+     * @param factory creates the generator of each new subscription
+     * @return a cold publisher calling the generator on @executor as items are requested
+     */
+    @NonNull
+    public static <T> Flow.Publisher<T> generate(@NonNull final Executor executor,
+                                                 @NonNull final Callable<Generator<T>> factory) {
+        return new Flow.Publisher<T>() {
+            @Override
+            public void subscribe(Flow.Subscriber<? super T> subscriber) {
+                Generator<T> generator;
+                try {
+                    generator = factory.call();
+                } catch (Exception e) {
+                    subscriber.onSubscribe(EMPTY_SUBSCRIPTION);
+                    subscriber.onError(e);
+                    return;
+                }
+                GeneratorSubscription<T> subscription = new GeneratorSubscription<>(subscriber, generator, executor);
+                subscriber.onSubscribe(subscription);
+            }
+        };
+    }
+
+    // operators
+
+    @NonNull
+    public static <T, R> Flow.Publisher<R> map(@NonNull final Flow.Publisher<T> upstream,
+                                               @NonNull final Function<? super T, ? extends R> function) {
+        return new Flow.Publisher<R>() {
+            @Override
+            public void subscribe(final Flow.Subscriber<? super R> subscriber) {
+                upstream.subscribe(new ForwardingSubscriber<T, R>(subscriber) {
+                    @Override
+                    void next(T item) throws Exception {
+                        subscriber.onNext(function.apply(item));
+                    }
+                });
+            }
+        };
+    }
+
+    // the first @count items, then upstream is cancelled. Never requests more than @count from it
+    @NonNull
+    public static <T> Flow.Publisher<T> take(@NonNull final Flow.Publisher<T> upstream, final long count) {
+        return new Flow.Publisher<T>() {
+            @Override
+            public void subscribe(final Flow.Subscriber<? super T> subscriber) {
+                upstream.subscribe(new TakeSubscriber<T>(subscriber, count));
+            }
+        };
+    }
+
+    // the items of each publisher in turn; the next one is only subscribed once the previous completed
+    @NonNull
+    public static <T> Flow.Publisher<T> concat(@NonNull final List<? extends Flow.Publisher<? extends T>> publishers) {
+        final List<Flow.Publisher<? extends T>> copy = new ArrayList<>(publishers);
+        return new Flow.Publisher<T>() {
+            @Override
+            public void subscribe(Flow.Subscriber<? super T> subscriber) {
+                ConcatSubscription<T> subscription = new ConcatSubscription<>(subscriber, copy);
+                subscriber.onSubscribe(subscription);
+                subscription.subscribeNext();
+            }
+        };
+    }
+
+    // LiveData
+
+    /**
+     * @param initialDemand items requested when the LiveData is first observed (Long.MAX_VALUE for
+     *                      all); more can be asked for with {@link PublisherLiveData#request(long)}
+     */
+    @NonNull
+    public static <T> PublisherLiveData<T> toLiveData(@NonNull Resumable<T> source, long initialDemand) {
+        return new PublisherLiveData<>(source, initialDemand);
+    }
+
+    /**
+     * LiveData over a stream: LOADING until the first item, SUCCESS with each item, ERROR (with the
+     * last item) if the stream fails. It subscribes when it becomes active and cancels when it
+     * becomes inactive, like LiveDataReactiveStreams, but picks up where it stopped when it is
+     * active again: from the item after the last delivered, with what was requested and not yet
+     * delivered requested again. Values are posted, so the stream never runs on the main thread.
+     */
+    public static class PublisherLiveData<T> extends LiveData<Resource<T>> {
+
+        private final Resumable<T> source;
+        private final Object lock = new Object();
+        // guarded by lock
+        private long delivered;
+        private long outstanding;
+        private boolean ended;
+        @Nullable
+        private T last;
+        // the subscriber of the current subscription, null while inactive
+        private LiveDataSubscriber current;
+
+        PublisherLiveData(Resumable<T> source, long initialDemand) {
+            super(Resource.<T>loading(null));
+            this.source = source;
+            this.outstanding = Math.max(0, initialDemand);
+        }
+
+        // e.g. the next page, when the list is scrolled to the end. Kept for later while inactive
+        public void request(long n) {
+            if (n <= 0) {
+                return;
+            }
+            Flow.Subscription subscription;
+            synchronized (lock) {
+                if (ended) {
+                    return;
+                }
+                outstanding = outstanding + n < 0 ? Long.MAX_VALUE : outstanding + n;
+                subscription = current != null ? current.subscription : null;
+            }
+            // a subscription not there yet picks the demand up from @outstanding instead
+            if (subscription != null) {
+                subscription.request(n);
+            }
+        }
+
+        public boolean hasEnded() {
+            synchronized (lock) {
+                return ended;
+            }
+        }
+
+        @Override
+        protected void onActive() {
+            LiveDataSubscriber subscriber;
+            long from;
+            synchronized (lock) {
+                if (ended || current != null) {
+                    return;
+                }
+                subscriber = new LiveDataSubscriber();
+                current = subscriber;
+                from = delivered;
+            }
+            source.from(from).subscribe(subscriber);
+        }
+
+        @Override
+        protected void onInactive() {
+            Flow.Subscription subscription;
+            synchronized (lock) {
+                subscription = current != null ? current.subscription : null;
+                current = null;
+            }
+            // a subscription that comes later is cancelled by onSubscribe
+            if (subscription != null) {
+                subscription.cancel();
+            }
+        }
+
+        // signals from a subscription that is no longer the current one are dropped
+        private class LiveDataSubscriber implements Flow.Subscriber<T> {
+
+            // guarded by lock
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                long demand;
+                synchronized (lock) {
+                    if (current != this) {
+                        demand = -1;
+                    } else {
+                        this.subscription = subscription;
+                        demand = outstanding;
+                    }
+                }
+                if (demand < 0) {
+                    subscription.cancel();
+                } else if (demand > 0) {
+                    subscription.request(demand);
+                }
+            }
+
+            @Override
+            public void onNext(T item) {
+                synchronized (lock) {
+                    if (current != this) {
+                        return;
+                    }
+                    delivered++;
+                    if (outstanding != Long.MAX_VALUE) {
+                        outstanding--;
+                    }
+                    last = item;
+                }
+                postValue(Resource.success(item));
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                T last;
+                synchronized (lock) {
+                    if (current != this) {
+                        return;
+                    }
+                    ended = true;
+                    current = null;
+                    last = PublisherLiveData.this.last;
+                }
+                Logger.w(TAG, "stream failed: ", throwable);
+                String message = throwable.getMessage();
+                postValue(Resource.error(message != null ? message : throwable.toString(), last));
+            }
+
+            @Override
+            public void onComplete() {
+                synchronized (lock) {
+                    if (current == this) {
+                        ended = true;
+                        current = null;
+                    }
+                }
+            }
+        }
+    }
+
+    // implementation
+
+    private static final Flow.Subscription EMPTY_SUBSCRIPTION = new Flow.Subscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    };
+
+    // @requested + @n, capped at Long.MAX_VALUE (unbounded)
+    private static void addDemand(AtomicLong requested, long n) {
+        while (true) {
+            long current = requested.get();
+            if (current == Long.MAX_VALUE) {
+                return;
+            }
+            long next = current + n < 0 ? Long.MAX_VALUE : current + n;
+            if (requested.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Runs the generator on the executor while there is demand. A work-in-progress counter makes sure
+     * only one drain loop runs at a time, so onNext is never called concurrently.
+     */
+    private static final class GeneratorSubscription<T> implements Flow.Subscription, Runnable {
+
+        private final Flow.Subscriber<? super T> subscriber;
+        private final Generator<T> generator;
+        private final Executor executor;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable badRequest;
+        // only touched by the drain loop
+        private boolean done;
+
+        GeneratorSubscription(Flow.Subscriber<? super T> subscriber, Generator<T> generator, Executor executor) {
+            this.subscriber = subscriber;
+            this.generator = generator;
+            this.executor = executor;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                // rule 3.9: signalled as an error, from the drain loop like every other signal
+                badRequest = new IllegalArgumentException("request(" + n + "): must be positive");
+            } else {
+                addDemand(requested, n);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                generator.cancel();
+            }
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                wip.set(0);
+                cancel();
+                subscriber.onError(e);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            while (true) {
+                while (!cancelled && !done) {
+                    if (badRequest != null) {
+                        done = true;
+                        cancel();
+                        subscriber.onError(badRequest);
+                        return;
+                    }
+                    if (requested.get() == 0) {
+                        break;
+                    }
+                    T item;
+                    try {
+                        item = generator.next();
+                    } catch (Exception e) {
+                        done = true;
+                        if (!cancelled) {
+                            subscriber.onError(e);
+                        }
+                        return;
+                    }
+                    if (cancelled) {
+                        return;
+                    }
+                    if (item == null) {
+                        done = true;
+                        subscriber.onComplete();
+                        return;
+                    }
+                    subscriber.onNext(item);
+                    if (requested.get() != Long.MAX_VALUE) {
+                        requested.decrementAndGet();
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Passes requests and cancellation straight through to upstream; an exception from {@link #next}
+     * cancels upstream and fails the stream.
+     */
+    private abstract static class ForwardingSubscriber<T, R> implements Flow.Subscriber<T> {
+
+        private final Flow.Subscriber<? super R> downstream;
+        private Flow.Subscription upstream;
+        private boolean done;
+
+        ForwardingSubscriber(Flow.Subscriber<? super R> downstream) {
+            this.downstream = downstream;
+        }
+
+        abstract void next(T item) throws Exception;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            upstream = subscription;
+            downstream.onSubscribe(subscription);
+        }
+
+        @Override
+        public void onNext(T item) {
+            if (done) {
+                return;
+            }
+            try {
+                next(item);
+            } catch (Exception e) {
+                done = true;
+                upstream.cancel();
+                downstream.onError(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (!done) {
+                done = true;
+                downstream.onError(throwable);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (!done) {
+                done = true;
+                downstream.onComplete();
+            }
+        }
+    }
+
+    private static final class TakeSubscriber<T> implements Flow.Subscriber<T>, Flow.Subscription {
+
+        private final Flow.Subscriber<? super T> downstream;
+        private final long count;
+        // what may still be requested from upstream
+        private final AtomicLong unrequested;
+        private Flow.Subscription upstream;
+        private long received;
+        private boolean done;
+
+        TakeSubscriber(Flow.Subscriber<? super T> downstream, long count) {
+            this.downstream = downstream;
+            this.count = count;
+            this.unrequested = new AtomicLong(count);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            upstream = subscription;
+            if (count == 0) {
+                done = true;
+                subscription.cancel();
+                downstream.onSubscribe(EMPTY_SUBSCRIPTION);
+                downstream.onComplete();
+                return;
+            }
+            downstream.onSubscribe(this);
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                // let upstream report it
+                upstream.request(n);
+                return;
+            }
+            while (true) {
+                long left = unrequested.get();
+                if (left == 0) {
+                    return;
+                }
+                long granted = Math.min(left, n);
+                if (unrequested.compareAndSet(left, left - granted)) {
+                    upstream.request(granted);
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void cancel() {
+            upstream.cancel();
+        }
+
+        @Override
+        public void onNext(T item) {
+            if (done) {
+                return;
+            }
+            downstream.onNext(item);
+            if (++received == count) {
+                done = true;
+                upstream.cancel();
+                downstream.onComplete();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (!done) {
+                done = true;
+                downstream.onError(throwable);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (!done) {
+                done = true;
+                downstream.onComplete();
+            }
+        }
+    }
+
+    /**
+     * Subscribes to the publishers one after another, carrying the downstream demand that the
+     * previous one didn't use over to the next.
+     */
+    private static final class ConcatSubscription<T> implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super T> downstream;
+        private final List<Flow.Publisher<? extends T>> publishers;
+
+        // guarded by this
+        private long requested;
+        private Flow.Subscription current;
+        private int index;
+        private boolean cancelled;
+
+        ConcatSubscription(Flow.Subscriber<? super T> downstream, List<Flow.Publisher<? extends T>> publishers) {
+            this.downstream = downstream;
+            this.publishers = publishers;
+        }
+
+        void subscribeNext() {
+            Flow.Publisher<? extends T> next;
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                current = null;
+                if (index == publishers.size()) {
+                    next = null;
+                } else {
+                    next = publishers.get(index++);
+                }
+            }
+            if (next == null) {
+                downstream.onComplete();
+                return;
+            }
+            next.subscribe(new Flow.Subscriber<T>() {
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    long demand;
+                    synchronized (ConcatSubscription.this) {
+                        if (cancelled) {
+                            subscription.cancel();
+                            return;
+                        }
+                        current = subscription;
+                        demand = requested;
+                    }
+                    if (demand > 0) {
+                        subscription.request(demand);
+                    }
+                }
+
+                @Override
+                public void onNext(T item) {
+                    synchronized (ConcatSubscription.this) {
+                        if (requested != Long.MAX_VALUE) {
+                            requested--;
+                        }
+                    }
+                    downstream.onNext(item);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    downstream.onError(throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                    subscribeNext();
+                }
+            });
+        }
+
+        @Override
+        public void request(long n) {
+            Flow.Subscription subscription;
+            synchronized (this) {
+                if (n > 0) {
+                    requested = requested + n < 0 ? Long.MAX_VALUE : requested + n;
+                }
+                subscription = current;
+            }
+            // a publisher subscribed after this picks the demand up from @requested instead
+            if (subscription != null) {
+                subscription.request(n);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            Flow.Subscription subscription;
+            synchronized (this) {
+                cancelled = true;
+                subscription = current;
+            }
+            if (subscription != null) {
+                subscription.cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.codingwithmitch.foodrecipes.util;
+
+import android.content.ComponentCallbacks2;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.codingwithmitch.foodrecipes.Clock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory LRU cache of query results, keyed by canonical (query, page), so that repeating a
+ * search can skip {@link NetworkBoundResource} and the database altogether (whether it may is up to
+ * the caller's {@link CachePolicy}, from {@link #getAgeSeconds}).
+ *
+ * Bounded two ways: by weight (the total number of items across all cached results, the oldest
+ * used entries go first) and by age (an entry older than the TTL is a miss and is dropped).
+ * android.util.LruCache is not used because it is stubbed out in JVM tests.
+ */
+public class QueryCache<T> {
+
+    private static final String TAG = "QueryCache";
+
+    private final Clock clock;
+    private final int maxWeight;
+    private final long ttlNanos;
+
+    // guarded by this; access order, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry<T>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int weight;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    /**
+     * @param maxWeight most items kept across all cached results
+     */
+    public QueryCache(@NonNull Clock clock, int maxWeight, long ttlSeconds) {
+        this.clock = clock;
+        this.maxWeight = maxWeight;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    /**
+     * "Chicken", "chicken " and " CHICKEN" are the same search: trimmed, inner whitespace
+     * collapsed to one space, lower case.
+     */
+    @NonNull
+    public static String canonicalize(@Nullable String query) {
+        if(query == null){
+            return "";
+        }
+        return query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.US);
+    }
+
+    @NonNull
+    public static String keyOf(@NonNull String canonicalQuery, int page) {
+        return canonicalQuery + '\u0000' + page;
+    }
+
+    // @return the cached results for @key, or null if there are none or they have expired
+    @Nullable
+    public synchronized List<T> get(@NonNull String key) {
+        Entry<T> entry = entries.get(key);
+        if(entry == null){
+            misses++;
+            return null;
+        }
+        if(clock.nanoTime() - entry.cachedAtNanos > ttlNanos){
+            remove(key, entry);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.items;
+    }
+
+    // @return how many seconds ago @key was cached, or -1 if it isn't. Not counted as a lookup
+    public synchronized long getAgeSeconds(@NonNull String key) {
+        Entry<T> entry = entries.get(key);
+        return entry == null ? -1 : TimeUnit.NANOSECONDS.toSeconds(clock.nanoTime() - entry.cachedAtNanos);
+    }
+
+    public synchronized void put(@NonNull String key, @NonNull List<T> items) {
+        if(items.size() > maxWeight){
+            return;
+        }
+        Entry<T> previous = entries.remove(key);
+        if(previous != null){
+            weight -= previous.items.size();
+        }
+        entries.put(key, new Entry<>(Collections.unmodifiableList(new ArrayList<>(items)), clock.nanoTime()));
+        weight += items.size();
+        trimToWeight(maxWeight);
+    }
+
+    /**
+     * Releases memory as asked by {@link ComponentCallbacks2#onTrimMemory}: half of the cache
+     * when memory runs low, all of it once the app is in the background or memory is critical.
+     */
+    public synchronized void trimMemory(int level) {
+        if(level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL){
+            clear();
+        }
+        else if(level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW){
+            trimToWeight(maxWeight / 2);
+        }
+        Logger.d(TAG, "trimMemory: ", this);
+    }
+
+    public synchronized void clear() {
+        evictions += entries.size();
+        entries.clear();
+        weight = 0;
+    }
+
+    private void trimToWeight(int target) {
+        Iterator<Map.Entry<String, Entry<T>>> iterator = entries.entrySet().iterator();
+        while(weight > target && iterator.hasNext()){
+            weight -= iterator.next().getValue().items.size();
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    private void remove(String key, Entry<T> entry) {
+        entries.remove(key);
+        weight -= entry.items.size();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // items held across all entries
+    public synchronized int weight() {
+        return weight;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    // hits / lookups, 0 before the first lookup
+    public synchronized double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.US,
+                "%d entries, %d/%d items, %d hits, %d misses (%.1f%% hit), %d evicted, %d expired",
+                entries.size(), weight, maxWeight, hits, misses, getHitRatio() * 100, evictions, expirations);
+    }
+
+    private static class Entry<T> {
+
+        final List<T> items;
+        final long cachedAtNanos;
+
+        Entry(List<T> items, long cachedAtNanos) {
+            this.items = items;
+            this.cachedAtNanos = cachedAtNanos;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.codingwithmitch.foodrecipes.util;
+
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.codingwithmitch.foodrecipes.Clock;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-phase timings of every {@link NetworkBoundResource} request, aggregated into one
+ * {@link LatencyHistogram} per repository operation ("searchRecipes", "getRecipe") and phase.
+ *
+ * Each request fills in a {@link Timeline} as it goes and hands it over once it has finished.
+ */
+public class RequestMetrics {
+
+    private static final String TAG = "RequestMetrics";
+
+    // a phase is the time between two marks of the timeline
+    public enum Phase {
+        CACHE_READ(Mark.START, Mark.CACHE_LOADED),          // first db value
+        NETWORK(Mark.FETCH_START, Mark.RESPONSE),           // createCall() -> ApiResponse
+        SAVE_QUEUE(Mark.RESPONSE, Mark.SAVE_START),         // waiting for the db writer
+        SAVE(Mark.SAVE_START, Mark.SAVED),                  // saveCallResult()
+        REREAD(Mark.SAVED, Mark.REFRESHED),                 // write -> refreshed db value
+        TOTAL(Mark.START, Mark.END);
+
+        final Mark from;
+        final Mark to;
+
+        Phase(Mark from, Mark to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @NonNull
+        public Mark getFrom() {
+            return from;
+        }
+
+        @NonNull
+        public Mark getTo() {
+            return to;
+        }
+    }
+
+    public enum Mark {
+        START, CACHE_LOADED, FETCH_START, RESPONSE, SAVE_START, SAVED, REFRESHED, END
+    }
+
+    private static RequestMetrics instance;
+
+    public static synchronized RequestMetrics getInstance() {
+        if (instance == null) {
+            instance = new RequestMetrics();
+        }
+        return instance;
+    }
+
+    // operation -> one histogram per phase
+    private final Map<String, LatencyHistogram[]> operations = new LinkedHashMap<>();
+
+    private ScheduledExecutorService dumpScheduler;
+    private ScheduledFuture<?> periodicDump;
+
+    private RequestMetrics() {
+    }
+
+    void record(@NonNull String operation, @NonNull Timeline timeline) {
+        synchronized (this) {
+            LatencyHistogram[] histograms = operations.get(operation);
+            if (histograms == null) {
+                histograms = new LatencyHistogram[Phase.values().length];
+                for (int i = 0; i < histograms.length; i++) {
+                    histograms[i] = new LatencyHistogram();
+                }
+                operations.put(operation, histograms);
+            }
+            for (Phase phase : Phase.values()) {
+                long nanos = timeline.getDurationNanos(phase);
+                if (nanos >= 0) {
+                    histograms[phase.ordinal()].recordNanos(nanos);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a copy of the histogram of @phase for @operation, or null if it never ran
+     */
+    @Nullable
+    public synchronized LatencyHistogram getHistogram(@NonNull String operation, @NonNull Phase phase) {
+        LatencyHistogram[] histograms = operations.get(operation);
+        return histograms != null ? histograms[phase.ordinal()].copy() : null;
+    }
+
+    @NonNull
+    public synchronized List<String> getOperations() {
+        return new ArrayList<>(operations.keySet());
+    }
+
+    public synchronized void reset() {
+        operations.clear();
+    }
+
+    /**
+     * @return one line per operation and phase that has samples
+     */
+    @NonNull
+    public synchronized String dump() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, LatencyHistogram[]> entry : operations.entrySet()) {
+            for (Phase phase : Phase.values()) {
+                LatencyHistogram histogram = entry.getValue()[phase.ordinal()];
+                if (histogram.getCount() > 0) {
+                    builder.append(String.format(Locale.US, "%-14s %-10s ", entry.getKey(),
+                            phase.name().toLowerCase(Locale.US)))
+                            .append(histogram)
+                            .append('\n');
+                }
+            }
+        }
+        return builder.toString();
+    }
+
+    public void dumpTo(@NonNull File file) throws IOException {
+        String report = dump();
+        PrintWriter writer = new PrintWriter(new FileWriter(file));
+        try {
+            writer.println("# repository request phases");
+            writer.print(report);
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Logs {@link #dump()} every @intervalSeconds until {@link #stopPeriodicDump()}.
+     */
+    public synchronized void startPeriodicDump(long intervalSeconds) {
+        stopPeriodicDump();
+        if (dumpScheduler == null) {
+            dumpScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    Thread thread = new Thread(runnable, "request-metrics-dump");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        periodicDump = dumpScheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                String report = dump();
+                if (!report.isEmpty()) {
+                    Logger.i(TAG, "request phases:\n", report);
+                }
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stopPeriodicDump() {
+        if (periodicDump != null) {
+            periodicDump.cancel(false);
+            periodicDump = null;
+        }
+    }
+
+    /**
+     * {@link Clock#nanoTime()} of each {@link Mark} a single request reached. Marks are set from
+     * the main thread and the db writer, so they are only read once the request has ended.
+     */
+    public static class Timeline {
+
+        private final Clock clock;
+        private final long[] marks = new long[Mark.values().length];
+
+        public Timeline() {
+            this(Clock.SYSTEM);
+        }
+
+        public Timeline(@NonNull Clock clock) {
+            this.clock = clock;
+            for (int i = 0; i < marks.length; i++) {
+                marks[i] = -1;
+            }
+        }
+
+        public void mark(@NonNull Mark mark) {
+            marks[mark.ordinal()] = clock.nanoTime();
+        }
+
+        // only the first time, e.g. the first db value
+        public void markOnce(@NonNull Mark mark) {
+            if (marks[mark.ordinal()] < 0) {
+                mark(mark);
+            }
+        }
+
+        // -1 if the request never got there
+        public long getMarkNanos(@NonNull Mark mark) {
+            return marks[mark.ordinal()];
+        }
+
+        /**
+         * @return the duration of @phase, or -1 if the request skipped it
+         */
+        public long getDurationNanos(@NonNull Phase phase) {
+            long from = marks[phase.from.ordinal()];
+            long to = marks[phase.to.ordinal()];
+            return from < 0 || to < from ? -1 : to - from;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            for (Phase phase : Phase.values()) {
+                long nanos = getDurationNanos(phase);
+                if (nanos >= 0) {
+                    builder.append(builder.length() == 0 ? "" : " ")
+                            .append(phase.name().toLowerCase(Locale.US))
+                            .append('=').append(String.format(Locale.US, "%.1f", nanos / 1e6));
+                }
+            }
+            return builder.append(" (ms)").toString();
+        }
+    }
+}
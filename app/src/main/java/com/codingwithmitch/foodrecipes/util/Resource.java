@@ -15,16 +15,29 @@ public class Resource<T> {
     @Nullable
     public final String message;
 
+    // SUCCESS with cached data while a refresh is still running in the background
+    public final boolean refreshing;
+
     public Resource(@NonNull Status status, @Nullable T data, @Nullable String message) {
+        this(status, data, message, false);
+    }
+
+    public Resource(@NonNull Status status, @Nullable T data, @Nullable String message, boolean refreshing) {
         this.status = status;
         this.data = data;
         this.message = message;
+        this.refreshing = refreshing;
     }
 
     public static <T> Resource<T> success(@NonNull T data) {
         return new Resource<>(Status.SUCCESS, data, null);
     }
 
+    // stale-while-revalidate: the cached data can be shown as-is, a newer version may follow
+    public static <T> Resource<T> refreshing(@NonNull T data) {
+        return new Resource<>(Status.SUCCESS, data, null, true);
+    }
+
     public static <T> Resource<T> error(@NonNull String msg, @Nullable T data) {
         return new Resource<>(Status.ERROR, data, msg);
     }
@@ -34,4 +47,4 @@ public class Resource<T> {
     }
 
     public enum Status { SUCCESS, ERROR, LOADING}
-}
\ No newline at end of file
+}
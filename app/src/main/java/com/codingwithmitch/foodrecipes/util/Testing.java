@@ -1,6 +1,5 @@
 package com.codingwithmitch.foodrecipes.util;
 
-import android.util.Log;
 
 import com.codingwithmitch.foodrecipes.models.Recipe;
 
@@ -10,7 +9,7 @@ public class Testing {
 
     public static void printRecipes(List<Recipe>list, String tag){
         for(Recipe recipe: list){
-            Log.d(tag, "onChanged: " + recipe.getTitle());
+            Logger.d(tag, "onChanged: ", recipe.getTitle());
         }
     }
 }
@@ -0,0 +1,251 @@
+package com.codingwithmitch.foodrecipes.util;
+
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.codingwithmitch.foodrecipes.BuildConfig;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lightweight in-process tracer. Events go into a fixed-size ring buffer (the oldest are overwritten)
+ * and can be exported as Chrome trace JSON, to be opened in chrome://tracing or ui.perfetto.dev.
+ *
+ * Three kinds of events:
+ * - complete spans on the current thread: {@code long start = Tracer.now(); ... tracer.complete(name, start)}
+ * - async spans that may cross threads, tied together by an id: {@link #beginAsync} / {@link #endAsync}
+ * - instants: {@link #instant}
+ *
+ * Disabled in release builds; a disabled tracer returns before touching the buffer.
+ */
+public class Tracer {
+
+    public static final int CAPACITY = 16 * 1024;
+
+    private static final char COMPLETE = 'X';
+    private static final char INSTANT = 'i';
+    private static final char ASYNC_BEGIN = 'b';
+    private static final char ASYNC_END = 'e';
+
+    private static Tracer instance;
+
+    public static synchronized Tracer getInstance() {
+        if (instance == null) {
+            instance = new Tracer(CAPACITY);
+        }
+        return instance;
+    }
+
+    private volatile boolean enabled = BuildConfig.DEBUG;
+
+    // ring buffer, one slot per event
+    private final int capacity;
+    private final String[] names;
+    private final String[] details;
+    private final char[] phases;
+    private final long[] timestamps;      // nanoTime
+    private final long[] durations;       // nanos, COMPLETE only
+    private final long[] threadIds;
+    private final long[] ids;             // async only
+    private int next;
+    private long written;
+
+    private final Map<Long, String> threadNames = new HashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+
+    Tracer(int capacity) {
+        this.capacity = capacity;
+        names = new String[capacity];
+        details = new String[capacity];
+        phases = new char[capacity];
+        timestamps = new long[capacity];
+        durations = new long[capacity];
+        threadIds = new long[capacity];
+        ids = new long[capacity];
+    }
+
+    public static long now() {
+        return System.nanoTime();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    // a span on the current thread from @startNanos (see now()) until now
+    public void complete(@NonNull String name, long startNanos) {
+        if (enabled) {
+            add(COMPLETE, name, null, startNanos, now() - startNanos, 0);
+        }
+    }
+
+    public void complete(@NonNull String name, @Nullable String detail, long startNanos) {
+        if (enabled) {
+            add(COMPLETE, name, detail, startNanos, now() - startNanos, 0);
+        }
+    }
+
+    public void instant(@NonNull String name, @Nullable String detail) {
+        if (enabled) {
+            add(INSTANT, name, detail, now(), 0, 0);
+        }
+    }
+
+    /**
+     * @return the id to pass to {@link #endAsync}, 0 if tracing is disabled
+     */
+    public long beginAsync(@NonNull String name, @Nullable String detail) {
+        if (!enabled) {
+            return 0;
+        }
+        long id = newId();
+        add(ASYNC_BEGIN, name, detail, now(), 0, id);
+        return id;
+    }
+
+    public void endAsync(@NonNull String name, long id) {
+        if (enabled && id != 0) {
+            add(ASYNC_END, name, null, now(), 0, id);
+        }
+    }
+
+    // an async span whose ends were measured elsewhere, e.g. by a RequestMetrics.Timeline
+    public void asyncSpan(@NonNull String name, long id, long startNanos, long endNanos) {
+        if (enabled && id != 0 && startNanos >= 0 && endNanos >= startNanos) {
+            add(ASYNC_BEGIN, name, null, startNanos, 0, id);
+            add(ASYNC_END, name, null, endNanos, 0, id);
+        }
+    }
+
+    public long newId() {
+        return nextId.incrementAndGet();
+    }
+
+    private synchronized void add(char phase, String name, String detail, long timestamp, long duration, long id) {
+        Thread thread = Thread.currentThread();
+        long threadId = thread.getId();
+        if (!threadNames.containsKey(threadId)) {
+            threadNames.put(threadId, thread.getName());
+        }
+
+        int slot = next;
+        names[slot] = name;
+        details[slot] = detail;
+        phases[slot] = phase;
+        timestamps[slot] = timestamp;
+        durations[slot] = duration;
+        threadIds[slot] = threadId;
+        ids[slot] = id;
+        next = (slot + 1) % capacity;
+        written++;
+    }
+
+    // number of events currently in the buffer
+    public synchronized int size() {
+        return (int) Math.min(written, capacity);
+    }
+
+    public synchronized void clear() {
+        next = 0;
+        written = 0;
+        threadNames.clear();
+    }
+
+    /**
+     * Writes the buffered events, oldest first, in the Chrome trace event format.
+     */
+    public synchronized void writeChromeTrace(@NonNull Writer writer) throws IOException {
+        int pid = Process.myPid();
+        writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+
+        boolean first = true;
+        for (Map.Entry<Long, String> thread : threadNames.entrySet()) {
+            first = separator(writer, first);
+            writer.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":" + pid + ",\"tid\":" + thread.getKey()
+                    + ",\"args\":{\"name\":" + quote(thread.getValue()) + "}}");
+        }
+
+        int count = size();
+        int oldest = written > capacity ? next : 0;
+        for (int i = 0; i < count; i++) {
+            int slot = (oldest + i) % capacity;
+            first = separator(writer, first);
+            StringBuilder event = new StringBuilder(128)
+                    .append("{\"name\":").append(quote(names[slot]))
+                    .append(",\"cat\":\"app\",\"ph\":\"").append(phases[slot])
+                    .append("\",\"ts\":").append(micros(timestamps[slot]))
+                    .append(",\"pid\":").append(pid)
+                    .append(",\"tid\":").append(threadIds[slot]);
+            if (phases[slot] == COMPLETE) {
+                event.append(",\"dur\":").append(micros(durations[slot]));
+            } else if (phases[slot] == INSTANT) {
+                event.append(",\"s\":\"t\"");
+            } else {
+                event.append(",\"id\":\"0x").append(Long.toHexString(ids[slot])).append('"');
+            }
+            if (details[slot] != null) {
+                event.append(",\"args\":{\"detail\":").append(quote(details[slot])).append('}');
+            }
+            writer.write(event.append('}').toString());
+        }
+        writer.write("]}");
+    }
+
+    public void exportTo(@NonNull File file) throws IOException {
+        Writer writer = new FileWriter(file);
+        try {
+            writeChromeTrace(writer);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static boolean separator(Writer writer, boolean first) throws IOException {
+        if (!first) {
+            writer.write(',');
+        }
+        return false;
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.US, "%.3f", nanos / 1e3);
+    }
+
+    private static String quote(String value) {
+        StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        builder.append(String.format(Locale.US, "\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+            }
+        }
+        return builder.append('"').toString();
+    }
+}
@@ -2,11 +2,11 @@ package com.codingwithmitch.foodrecipes.viewmodels;
 
 
 import android.app.Application;
-import android.util.Log;
 
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MediatorLiveData;
@@ -14,10 +14,16 @@ import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModel;
 
+import com.codingwithmitch.foodrecipes.AppExecutors;
+import com.codingwithmitch.foodrecipes.Clock;
 import com.codingwithmitch.foodrecipes.models.Recipe;
 import com.codingwithmitch.foodrecipes.repositories.RecipeRepository;
+import com.codingwithmitch.foodrecipes.util.LatencyHistogram;
+import com.codingwithmitch.foodrecipes.util.Logger;
 import com.codingwithmitch.foodrecipes.util.Resource;
+import com.codingwithmitch.foodrecipes.util.Tracer;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class RecipeListViewModel extends AndroidViewModel {
@@ -27,24 +33,61 @@ public class RecipeListViewModel extends AndroidViewModel {
     private static final String TAG = "RecipeListViewModel";
     public static final String QUERY_EXHAUSTED = "Query is exhausted.";
 
+    // how long typing has to pause before a search-as-you-type query goes to the network
+    public static final long TYPEAHEAD_DEBOUNCE_MILLIS = 300;
+
+    // rows in the SearchView's suggestion dropdown
+    public static final int MAX_SUGGESTIONS = 6;
+
     // live data that get viewState
     private MutableLiveData<ViewState> viewState;               // live data on an enum
     private MediatorLiveData<Resource<List<Recipe>>> recipes = new MediatorLiveData<>();
     private RecipeRepository recipeRepository;
+    private AppExecutors appExecutors;
+    private Clock clock;
 
     // query extras
     private boolean isQueryExhausted;
     private String query;
+    private List<String> combinedQueries;                      // non-null for a combined search
     private int pageNumber;
     private boolean isPerformingQuery;
     private boolean cancelRequest;
     private long requestStartTime;
 
+    // Tracer span from submitting a search to its first results (or error)
+    private long searchTraceId;
+
+    // the repository source currently feeding @recipes
+    private LiveData<Resource<List<Recipe>>> repositorySource;
+
+    // search-as-you-type: the cache answers every keystroke, the network only the one typing stops at
+    private String typedQuery = "";
+    private LiveData<List<Recipe>> localSource;
+    private final MutableLiveData<List<String>> suggestions = new MutableLiveData<>();
+    private long keystrokeNanos = -1;                          // -1 once the network has answered
+    private final LatencyHistogram localLatency = new LatencyHistogram();
+    private final LatencyHistogram remoteLatency = new LatencyHistogram();
+    private final Runnable typeaheadSearch = new Runnable() {
+        @Override
+        public void run() {
+            startTypeaheadSearch();
+        }
+    };
 
 
     public RecipeListViewModel(@NonNull Application application) {
+        this(application, RecipeRepository.getInstance(application), AppExecutors.getInstance());
+    }
+
+    // lets tests drive the view model with a fake repository in virtual time
+    @VisibleForTesting
+    public RecipeListViewModel(@NonNull Application application, RecipeRepository recipeRepository,
+                               AppExecutors appExecutors) {
         super(application);
-        recipeRepository = RecipeRepository.getInstance(application);
+        this.recipeRepository = recipeRepository;
+        this.appExecutors = appExecutors;
+        this.clock = appExecutors.clock();
         init();
 
     }
@@ -63,16 +106,59 @@ public class RecipeListViewModel extends AndroidViewModel {
         return recipes;
     }
 
+    public LiveData<List<String>> getSuggestions(){
+        return suggestions;
+    }
+
 
 
     public void searchRecipesApi(String query, int pageNumber){
+        // a submitted query replaces whatever was being typed
+        appExecutors.mainThread().cancel(typeaheadSearch);
+        removeLocalSource();
         if(!isPerformingQuery){
+            if(pageNumber <= 1){
+                // counts towards the queries prefetched on later launches
+                recipeRepository.recordSearch(query);
+            }
+            typedQuery = query;
+            keystrokeNanos = -1;
             if(pageNumber == 0){
                 pageNumber = 1;
             }
             //saving the query
             this.pageNumber = pageNumber;
             this.query = query;
+            combinedQueries = null;
+            isQueryExhausted = false;
+            executeSearch();
+        }
+    }
+
+    /*
+     * The results of several queries at once ("chicken, dinner"), merged by rank as each arrives.
+     * Scrolling to the end loads the next page of all of them.
+     */
+    public void searchRecipesApi(List<String> queries){
+        if(queries.size() == 1){
+            searchRecipesApi(queries.get(0), 1);
+            return;
+        }
+        appExecutors.mainThread().cancel(typeaheadSearch);
+        removeLocalSource();
+        if(!isPerformingQuery){
+            for(String combined : queries){
+                recipeRepository.recordSearch(combined);
+            }
+            StringBuilder joined = new StringBuilder(queries.get(0));
+            for(int i = 1; i < queries.size(); i++){
+                joined.append(", ").append(queries.get(i));
+            }
+            query = joined.toString();
+            typedQuery = query;
+            keystrokeNanos = -1;
+            pageNumber = 1;
+            combinedQueries = new ArrayList<>(queries);
             isQueryExhausted = false;
             executeSearch();
         }
@@ -80,17 +166,102 @@ public class RecipeListViewModel extends AndroidViewModel {
 
     public void setViewCategories(){
         viewState.setValue(ViewState.CATEGORIES);
+        appExecutors.mainThread().cancel(typeaheadSearch);
+        removeLocalSource();
+        typedQuery = "";
+        keystrokeNanos = -1;
+    }
+
+    /*
+     * Called on every keystroke. Cached results for the text typed so far are shown right away; the
+     * network is only asked once typing has paused for TYPEAHEAD_DEBOUNCE_MILLIS, and anything
+     * started for an earlier keystroke is cancelled.
+     */
+    public void searchAsYouType(String text){
+        appExecutors.mainThread().cancel(typeaheadSearch);
+        suggestions.setValue(recipeRepository.suggest(text, MAX_SUGGESTIONS));
+        String typed = text == null ? "" : text.trim();
+        if(typed.equals(typedQuery)){
+            return;
+        }
+        typedQuery = typed;
+
+        // the search (or refresh) for the previous text is stale now
+        cancelSearchRequest();
+        if(repositorySource != null){
+            recipes.removeSource(repositorySource);
+            repositorySource = null;
+            recipeRepository.cancelSearch();
+        }
+        removeLocalSource();
+        if(typed.isEmpty()){
+            keystrokeNanos = -1;
+            return;
+        }
+
+        final long keystroke = clock.nanoTime();
+        keystrokeNanos = keystroke;
+        viewState.setValue(ViewState.RECIPES);
+        final LiveData<List<Recipe>> localSource = recipeRepository.searchCache(typed);
+        this.localSource = localSource;
+        recipes.addSource(localSource, new Observer<List<Recipe>>() {
+            private boolean answered;
+
+            @Override
+            public void onChanged(@Nullable List<Recipe> cached) {
+                if(!answered){
+                    answered = true;
+                    localLatency.recordNanos(clock.nanoTime() - keystroke);
+                }
+                if(cached != null && !cached.isEmpty()){
+                    // shown with the progress bar until the network has answered
+                    recipes.setValue(Resource.refreshing(cached));
+                }
+                else{
+                    recipes.setValue(Resource.loading(cached));
+                }
+            }
+        });
+        appExecutors.mainThread().executeDelayed(typeaheadSearch, TYPEAHEAD_DEBOUNCE_MILLIS);
+    }
+
+    private void startTypeaheadSearch(){
+        // the repository reads the same cache before going to the network
+        removeLocalSource();
+        query = typedQuery;
+        combinedQueries = null;
+        pageNumber = 1;
+        isQueryExhausted = false;
+        executeSearch();
+    }
+
+    private void removeLocalSource(){
+        if(localSource != null){
+            recipes.removeSource(localSource);
+            localSource = null;
+        }
     }
 
     private void executeSearch(){
 
-        requestStartTime = System.currentTimeMillis();
+        requestStartTime = clock.currentTimeMillis();
         isPerformingQuery = true;
+        // a previous cancelSearchRequest() must not swallow the results of this search
+        cancelRequest = false;
+        endSearchTrace();
+        searchTraceId = Tracer.getInstance().beginAsync("search", query + " page " + pageNumber);
 
         //set view state to recipes since we are displaying recipes
         viewState.setValue(ViewState.RECIPES);
 
-        final LiveData<Resource<List<Recipe>>> repositorySource = recipeRepository.searchRecipesApi(query, pageNumber);
+        // a stale-while-revalidate source stays attached after its first SUCCESS; replace it
+        if(repositorySource != null){
+            recipes.removeSource(repositorySource);
+        }
+        final LiveData<Resource<List<Recipe>>> repositorySource = combinedQueries != null
+                ? recipeRepository.searchRecipesMulti(combinedQueries, pageNumber)
+                : recipeRepository.searchRecipesApi(query, pageNumber);
+        this.repositorySource = repositorySource;
         recipes.addSource(repositorySource, new Observer<Resource<List<Recipe>>>() {
             @Override
             public void onChanged(@Nullable Resource<List<Recipe>> listResource) {
@@ -98,22 +269,42 @@ public class RecipeListViewModel extends AndroidViewModel {
 
                     if(listResource != null){
 
-                        recipes.setValue(listResource);                     // sending data to mutable livedata
-                        if(listResource.status == Resource.Status.SUCCESS ){
-                            Log.d(TAG, "onChanged: REQUEST TIME: " + (System.currentTimeMillis() - requestStartTime) / 1000 + " seconds.");
-                            isPerformingQuery = false;                                                  // we got the
+                        if(keystrokeNanos != -1 && listResource.status == Resource.Status.LOADING
+                                && listResource.data != null && !listResource.data.isEmpty()){
+                            // keep the cached results of search-as-you-type on screen while loading
+                            recipes.setValue(Resource.refreshing(listResource.data));
+                        }
+                        else{
+                            recipes.setValue(listResource);                     // sending data to mutable livedata
+                        }
+                        if(listResource.status == Resource.Status.ERROR
+                                || (listResource.status == Resource.Status.SUCCESS && !listResource.refreshing)){
+                            recordRemoteLatency();
+                        }
+                        if(listResource.status == Resource.Status.SUCCESS && listResource.refreshing){
+                            // cached results are on screen; keep listening for the refreshed ones
+                            Logger.d(TAG, "onChanged: STALE RESULTS TIME (ms): ", clock.currentTimeMillis() - requestStartTime);
+                            isPerformingQuery = false;
+                            endSearchTrace();
+                        }
+                        else if(listResource.status == Resource.Status.SUCCESS ){
+                            // per-phase timings are in RequestMetrics
+                            Logger.d(TAG, "onChanged: REQUEST TIME (ms): ", clock.currentTimeMillis() - requestStartTime);
+                            isPerformingQuery = false;
+                            endSearchTrace();
                             if(listResource.data != null) {
 
                                 if (listResource.data.size() == 0) {
 
                                     // the query is exhausted
-                                    Log.d(TAG, "onChanged: query is EXHAUSTED...");
+                                    Logger.d(TAG, "onChanged: query is EXHAUSTED...");
                                     recipes.setValue(new Resource<List<Recipe>>(
                                             Resource.Status.ERROR,
                                             listResource.data,
                                             QUERY_EXHAUSTED
                                     ));
-                                    isPerformingQuery = true;
+                                    // stops searchNextPage(), without blocking a new query
+                                    isQueryExhausted = true;
                                 }
                             }
                             // must remove or it will keep listening to repository
@@ -121,6 +312,7 @@ public class RecipeListViewModel extends AndroidViewModel {
                         }
                         else if(listResource.status == Resource.Status.ERROR ){
                             isPerformingQuery = false;
+                            endSearchTrace();
                             recipes.removeSource(repositorySource);
                         }
                     }
@@ -137,6 +329,30 @@ public class RecipeListViewModel extends AndroidViewModel {
 
     }
 
+    private void recordRemoteLatency(){
+        if(keystrokeNanos != -1){
+            long elapsedNanos = clock.nanoTime() - keystrokeNanos;
+            remoteLatency.recordNanos(elapsedNanos);
+            Logger.d(TAG, "onChanged: KEYSTROKE TO NETWORK RESULTS (ms): ", elapsedNanos / 1000000);
+            keystrokeNanos = -1;
+        }
+    }
+
+    // keystroke to cached results, per search-as-you-type keystroke
+    public LatencyHistogram getLocalLatency(){
+        return localLatency.copy();
+    }
+
+    // last keystroke to network results, per search-as-you-type query that reached the network
+    public LatencyHistogram getRemoteLatency(){
+        return remoteLatency.copy();
+    }
+
+    private void endSearchTrace(){
+        Tracer.getInstance().endAsync("search", searchTraceId);
+        searchTraceId = 0;
+    }
+
     public int getPageNumber() {
         return pageNumber;
     }
@@ -151,9 +367,12 @@ public class RecipeListViewModel extends AndroidViewModel {
 
     public void cancelSearchRequest(){
         if(isPerformingQuery){
-            Log.d(TAG, "cancelSearchRequest: canceling the search request.");
+            Logger.d(TAG, "cancelSearchRequest: canceling the search request.");
             cancelRequest = true;
             isPerformingQuery = false;
+            endSearchTrace();
+            // don't spend a network slot (or the API quota) on results nobody will see
+            recipeRepository.cancelSearch();
             pageNumber = 1;
         }
     }
@@ -10,8 +10,12 @@ import androidx.lifecycle.LiveData;
 
 import com.codingwithmitch.foodrecipes.models.Recipe;
 import com.codingwithmitch.foodrecipes.repositories.RecipeRepository;
+import com.codingwithmitch.foodrecipes.util.CachePolicy;
+import com.codingwithmitch.foodrecipes.util.Constants;
 import com.codingwithmitch.foodrecipes.util.Resource;
 
+import java.util.List;
+
 
 public class RecipeViewModel extends AndroidViewModel {
 
@@ -24,7 +28,13 @@ public class RecipeViewModel extends AndroidViewModel {
     }
 
     public LiveData<Resource<Recipe>> searchRecipeApi(String recipeId){
-        return recipeRepository.searchRecipe(recipeId);
+        // show the cached recipe right away and refresh it in the background once it's due
+        return recipeRepository.searchRecipe(recipeId,
+                CachePolicy.staleWhileRevalidate(Constants.RECIPE_REFRESH_TIME));
+    }
+
+    public LiveData<List<Recipe>> getSimilarRecipes(String recipeId){
+        return recipeRepository.getSimilarRecipes(recipeId);
     }
 
 }
@@ -0,0 +1,68 @@
+package com.codingwithmitch.foodrecipes;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * A bounded pool, as the db reader and compute pools are: once its thread is busy and its queue full,
+ * a task is rejected, counted in the stats, and never run on the caller.
+ */
+public class MonitoredExecutorTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private final MonitoredExecutor executor = new MonitoredExecutor("test", 1, 1, 0,
+            new ThreadPoolExecutor.AbortPolicy());
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    public void fullQueue_rejectsAndCounts() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicInteger runs = new AtomicInteger();
+        Runnable blocking = new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                runs.incrementAndGet();
+            }
+        };
+        executor.execute(blocking);
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        executor.execute(blocking);
+
+        try {
+            executor.execute(blocking);
+            fail("a third task fits neither the thread nor the queue");
+        } catch (RejectedExecutionException expected) {
+        }
+        assertEquals(1, executor.getStats().rejectedTasks);
+        assertEquals(1, executor.getStats().queueDepth);
+
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        // the two accepted, on the pool's thread; not the rejected one
+        assertEquals(2, runs.get());
+    }
+}
@@ -0,0 +1,56 @@
+package com.codingwithmitch.foodrecipes;
+
+import com.codingwithmitch.foodrecipes.repositories.RecipeRepository;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QueryPrefetcherTest {
+
+    private static final List<String> CATEGORIES = Arrays.asList("chicken", "dessert");
+    private static final List<String> NONE = Collections.emptyList();
+
+    @Test
+    public void selectQueries_mostSearchedFirst_withoutCategories() {
+        List<String> frequent = Arrays.asList("lasagna", "chicken", "tacos", "ramen", "pho");
+        assertEquals(Arrays.asList("lasagna", "tacos", "ramen"),
+                QueryPrefetcher.selectQueries(frequent, CATEGORIES, NONE, 3, 10));
+    }
+
+    @Test
+    public void selectQueries_warmQueries_stillUseTheQueryBudget() {
+        List<String> frequent = Arrays.asList("lasagna", "tacos", "ramen", "pho");
+        // "tacos" is already in memory: kept warm, but not fetched, and "pho" is past maxQueries
+        assertEquals(Arrays.asList("lasagna", "ramen"),
+                QueryPrefetcher.selectQueries(frequent, CATEGORIES, Arrays.asList("tacos"), 3, 10));
+    }
+
+    @Test
+    public void selectQueries_atMostTheRequestsLeftToday() {
+        List<String> frequent = Arrays.asList("lasagna", "tacos", "ramen");
+        assertEquals(Arrays.asList("lasagna"),
+                QueryPrefetcher.selectQueries(frequent, CATEGORIES, NONE, 3, 1));
+        assertTrue(QueryPrefetcher.selectQueries(frequent, CATEGORIES, NONE, 3, 0).isEmpty());
+        // more sent today than the budget allows
+        assertTrue(QueryPrefetcher.selectQueries(frequent, CATEGORIES, NONE, 3, -2).isEmpty());
+    }
+
+    @Test
+    public void budget_storageCapsTheQueriesKeptWarm() {
+        int page = RecipeRepository.PAGE_SIZE;
+        assertEquals(5, new QueryPrefetcher.Budget(5, 10, 10 * page).getQueriesKeptWarm());
+        assertEquals(2, new QueryPrefetcher.Budget(5, 10, 2 * page + page / 2).getQueriesKeptWarm());
+        assertEquals(0, new QueryPrefetcher.Budget(5, 10, page - 1).getQueriesKeptWarm());
+    }
+
+    @Test
+    public void selectQueries_nothingFrequent() {
+        assertTrue(QueryPrefetcher.selectQueries(NONE, CATEGORIES, NONE, 3, 10).isEmpty());
+    }
+}
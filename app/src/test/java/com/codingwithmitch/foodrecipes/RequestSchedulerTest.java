@@ -0,0 +1,167 @@
+package com.codingwithmitch.foodrecipes;
+
+import androidx.annotation.NonNull;
+
+import com.codingwithmitch.foodrecipes.requests.RequestPriority;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Preemption on a scheduler with two threads: a search arriving while a background job and another
+ * search hold both threads preempts the background job.
+ */
+public class RequestSchedulerTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private final RequestScheduler scheduler = new RequestScheduler("test", 2);
+    private final CountDownLatch releaseSearch = new CountDownLatch(1);
+    private final CountDownLatch searchStarted = new CountDownLatch(1);
+
+    @After
+    public void tearDown() {
+        releaseSearch.countDown();
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void interruptedJob_runsAgain() throws InterruptedException {
+        final AtomicInteger runs = new AtomicInteger();
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        RequestScheduler.Ticket background = scheduler.submit(RequestPriority.BACKGROUND, null, new PreemptibleJob() {
+            @Override
+            public boolean run(@NonNull RequestScheduler.Ticket ticket) {
+                if (runs.incrementAndGet() > 1) {
+                    return true;
+                }
+                preempt();
+                await(interrupted);
+                return false;
+            }
+
+            @Override
+            public void interrupt() {
+                interrupted.countDown();
+            }
+        });
+
+        awaitState(background, RequestScheduler.State.DONE);
+        assertEquals(2, runs.get());
+        assertEquals(1, scheduler.getStats().preempted);
+    }
+
+    @Test
+    public void jobThatFinishedAnyway_isDone() throws InterruptedException {
+        final AtomicInteger runs = new AtomicInteger();
+        RequestScheduler.Ticket background = scheduler.submit(RequestPriority.BACKGROUND, null, new PreemptibleJob() {
+            @Override
+            public boolean run(@NonNull RequestScheduler.Ticket ticket) {
+                runs.incrementAndGet();
+                // the preemption comes after the work is done, e.g. with the response already read
+                preempt();
+                return true;
+            }
+        });
+
+        awaitState(background, RequestScheduler.State.DONE);
+        releaseSearch.countDown();
+        awaitQueuedAndRunning(0);
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void preemptedJob_cancelledOnShutdown() throws InterruptedException {
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        RequestScheduler.Ticket background = scheduler.submit(RequestPriority.BACKGROUND, null, new PreemptibleJob() {
+            @Override
+            public boolean run(@NonNull RequestScheduler.Ticket ticket) {
+                preempt();
+                await(interrupted);
+                scheduler.shutdown();
+                return false;
+            }
+
+            @Override
+            public void interrupt() {
+                interrupted.countDown();
+            }
+
+            @Override
+            public void onCancelled() {
+                cancelled.countDown();
+            }
+        });
+
+        assertTrue(cancelled.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(RequestScheduler.State.CANCELLED, background.getState());
+    }
+
+    private abstract class PreemptibleJob extends RequestScheduler.Job {
+
+        @Override
+        public boolean isPreemptible() {
+            return true;
+        }
+
+        // fills the other thread with a search, then submits one more to preempt this job
+        void preempt() {
+            scheduler.submit(RequestPriority.SEARCH, null, new Runnable() {
+                @Override
+                public void run() {
+                    searchStarted.countDown();
+                    await(releaseSearch);
+                }
+            });
+            await(searchStarted);
+            scheduler.submit(RequestPriority.SEARCH, null, new Runnable() {
+                @Override
+                public void run() {
+                    releaseSearch.countDown();
+                }
+            });
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void awaitState(RequestScheduler.Ticket ticket, RequestScheduler.State state)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (ticket.getState() != state && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(state, ticket.getState());
+    }
+
+    private void awaitQueuedAndRunning(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (queuedAndRunning() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(expected, queuedAndRunning());
+    }
+
+    private int queuedAndRunning() {
+        RequestScheduler.Stats stats = scheduler.getStats();
+        int count = stats.running;
+        for (RequestPriority priority : RequestPriority.values()) {
+            count += stats.getQueued(priority);
+        }
+        return count;
+    }
+}
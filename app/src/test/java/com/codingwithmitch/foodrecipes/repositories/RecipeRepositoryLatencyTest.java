@@ -0,0 +1,97 @@
+package com.codingwithmitch.foodrecipes.repositories;
+
+import com.codingwithmitch.foodrecipes.standin.FakeRecipeDao;
+import com.codingwithmitch.foodrecipes.standin.LatencyHarness;
+import com.codingwithmitch.foodrecipes.standin.RecipeApiStandIn;
+import com.codingwithmitch.foodrecipes.standin.TestMainThread;
+import com.codingwithmitch.foodrecipes.util.RequestMetrics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * End-to-end runs of RecipeRepository + NetworkBoundResource against the local stand-in API.
+ *
+ * The latency table under varying network conditions depends on the wall clock, so it is a
+ * benchmark rather than a unit test: it only runs with ./gradlew test -PlatencyBenchmarks, and the
+ * table it prints is the baseline to compare networking and caching changes against.
+ */
+public class RecipeRepositoryLatencyTest {
+
+    private static final int RUNS = 10;
+
+    private TestMainThread mainThread;
+    private RecipeApiStandIn standIn;
+    private LatencyHarness harness;
+
+    @Before
+    public void setUp() throws Exception {
+        mainThread = new TestMainThread();
+        mainThread.install();
+        standIn = new RecipeApiStandIn(42);
+        standIn.start();
+        harness = new LatencyHarness(standIn, mainThread);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        harness.shutdown();
+        standIn.shutdown();
+        mainThread.uninstall();
+    }
+
+    @Test
+    public void searchLatency_underVaryingConditions() throws Exception {
+        assumeTrue(Boolean.getBoolean("latencyBenchmarks"));
+        LatencyHarness.Result[] results = {
+                harness.run("fast network", new RecipeApiStandIn.Conditions(), "chicken", RUNS, false),
+                harness.run("slow network", new RecipeApiStandIn.Conditions().latency(150, 50), "chicken", RUNS, false),
+                harness.run("large responses", new RecipeApiStandIn.Conditions().responseSize(30, 40), "chicken", RUNS, false),
+                harness.run("slow network", new RecipeApiStandIn.Conditions().latency(150, 50), "chicken", RUNS, true),
+        };
+
+        for (LatencyHarness.Result result : results) {
+            System.out.println(result);
+            assertEquals(result.scenario, 0, result.getFailures());
+        }
+        // where the time went, across all of the above
+        System.out.print(RequestMetrics.getInstance().dump());
+    }
+
+    @Test
+    public void search_withInjectedErrors() throws Exception {
+        LatencyHarness.Result flaky = harness.run("flaky network",
+                new RecipeApiStandIn.Conditions().errorRate(0.3), "beef", RUNS, false);
+        LatencyHarness.Result down = harness.run("server down",
+                new RecipeApiStandIn.Conditions().errorRate(1), "beef", RUNS, false);
+        // stale-while-revalidate: a warm cache is served even though every refresh fails
+        LatencyHarness.Result downWarm = harness.run("server down",
+                new RecipeApiStandIn.Conditions().errorRate(1), "beef", RUNS, true);
+
+        assertEquals(RUNS, flaky.getSuccesses() + flaky.getFailures());
+        assertEquals(RUNS, down.getFailures());
+        assertEquals(RUNS, downWarm.getSuccesses());
+    }
+
+    @Test
+    public void replaysRecordedResponses() throws Exception {
+        standIn.replay("api/search?q=chicken&page=1", "standin/search_chicken_page1.json");
+        FakeRecipeDao dao = new FakeRecipeDao();
+
+        long nanos = harness.firstSuccessNanos(harness.newRepository(dao), "Chicken", 1);
+
+        assertTrue(nanos >= 0);
+        assertEquals(3, dao.size());
+        assertNotNull(dao.get("35382"));
+        assertEquals("Chicken Enchilada Soup", dao.get("35382").getTitle());
+        assertEquals(1, standIn.getRequestCount());
+        // the cache is queried once up front and re-run once after the response is saved
+        assertEquals(2, dao.getQueryCount());
+    }
+}
@@ -0,0 +1,302 @@
+package com.codingwithmitch.foodrecipes.repositories;
+
+import android.content.ComponentCallbacks2;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+
+import com.codingwithmitch.foodrecipes.AppExecutors;
+import com.codingwithmitch.foodrecipes.models.Recipe;
+import com.codingwithmitch.foodrecipes.standin.FakeRecipeApi;
+import com.codingwithmitch.foodrecipes.standin.FakeRecipeDao;
+import com.codingwithmitch.foodrecipes.standin.VirtualTime;
+import com.codingwithmitch.foodrecipes.util.CachePolicy;
+import com.codingwithmitch.foodrecipes.util.LatencyHistogram;
+import com.codingwithmitch.foodrecipes.util.RequestMetrics;
+import com.codingwithmitch.foodrecipes.util.Resource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Concurrent searches through RecipeRepository + NetworkBoundResource in {@link VirtualTime}: every
+ * run interleaves the same way, so emission and query counts and phase durations are exact.
+ */
+public class RecipeRepositoryVirtualTimeTest {
+
+    private static final long LATENCY_MILLIS = 200;
+    private static final long DISK_WRITE_MILLIS = 5;
+
+    private VirtualTime time;
+    private FakeRecipeApi api;
+    private FakeRecipeDao dao;
+    private AppExecutors appExecutors;
+    private RecipeRepository repository;
+
+    @Before
+    public void setUp() {
+        time = new VirtualTime();
+        time.install();
+        api = new FakeRecipeApi(time, LATENCY_MILLIS);
+        dao = new FakeRecipeDao();
+        appExecutors = time.newAppExecutors(DISK_WRITE_MILLIS);
+        repository = new RecipeRepository(dao, api, appExecutors);
+        RequestMetrics.getInstance().reset();
+    }
+
+    @After
+    public void tearDown() {
+        time.uninstall();
+    }
+
+    @Test
+    public void concurrentSearches_queueOnTheDbWriter() {
+        int searches = 20;
+        List<List<Resource<List<Recipe>>>> emissions = new ArrayList<>();
+        for (int i = 0; i < searches; i++) {
+            emissions.add(observe(repository.searchRecipesApi(queryOf(i), 1)));
+        }
+
+        time.runUntilIdle();
+
+        assertEquals(searches, api.getSearchCount());
+        for (int i = 0; i < searches; i++) {
+            List<Resource<List<Recipe>>> resources = emissions.get(i);
+            // LOADING before the cache is read, LOADING with the (empty) cache, SUCCESS once refreshed
+            assertEquals(queryOf(i), 3, resources.size());
+            assertEquals(Resource.Status.LOADING, resources.get(0).status);
+            assertEquals(Resource.Status.LOADING, resources.get(1).status);
+            Resource<List<Recipe>> last = resources.get(2);
+            assertEquals(Resource.Status.SUCCESS, last.status);
+            assertEquals(10, last.data.size());
+            assertEquals(queryOf(i) + " recipe 0", last.data.get(0).getTitle());
+        }
+
+        // one read per search, then every write re-runs every query still observed
+        assertEquals(searches + searches * searches, dao.getQueryCount());
+
+        // the responses all arrive at 200ms and are saved one after another
+        assertEquals(searches, ((VirtualTime.VirtualExecutor) appExecutors.diskWrite()).getCompletedCount());
+        assertEquals((searches - 1) * DISK_WRITE_MILLIS,
+                ((VirtualTime.VirtualExecutor) appExecutors.diskWrite()).getMaxWaitMillis());
+        assertEquals(LATENCY_MILLIS + searches * DISK_WRITE_MILLIS, time.nowMillis());
+
+        assertPhase(RequestMetrics.Phase.CACHE_READ, searches, 0, 0);
+        assertPhase(RequestMetrics.Phase.NETWORK, searches, LATENCY_MILLIS, LATENCY_MILLIS);
+        assertPhase(RequestMetrics.Phase.SAVE_QUEUE, searches, DISK_WRITE_MILLIS, searches * DISK_WRITE_MILLIS);
+        assertPhase(RequestMetrics.Phase.TOTAL, searches,
+                LATENCY_MILLIS + DISK_WRITE_MILLIS, LATENCY_MILLIS + searches * DISK_WRITE_MILLIS);
+    }
+
+    @Test
+    public void repeatedSearch_servesCacheWhileRevalidating() {
+        List<Resource<List<Recipe>>> first = observe(repository.searchRecipesApi("querya", 1));
+        time.runUntilIdle();
+        assertEquals(Resource.Status.SUCCESS, first.get(first.size() - 1).status);
+        // past the in-memory cache, so that the search goes through NetworkBoundResource again
+        time.advanceBy(RecipeRepository.QUERY_CACHE_TTL_SECONDS * 1000 + 1);
+        int queries = dao.getQueryCount();
+        long start = time.nowMillis();
+
+        List<Resource<List<Recipe>>> second = observe(repository.searchRecipesApi("querya", 1));
+        // the cache is read and shown before any network time passes
+        time.advanceBy(0);
+        assertEquals(2, second.size());
+        assertEquals(Resource.Status.SUCCESS, second.get(1).status);
+        assertTrue(second.get(1).refreshing);
+
+        time.runUntilIdle();
+        // the refresh wrote identical rows: only the terminal, non-refreshing SUCCESS is added
+        assertEquals(3, second.size());
+        assertFalse(second.get(2).refreshing);
+        assertEquals(2, api.getSearchCount());
+        assertEquals(start + LATENCY_MILLIS + DISK_WRITE_MILLIS, time.nowMillis());
+        // the second search's read, then each of the 10 rows updated by the refresh re-runs both
+        // queries still observed
+        assertEquals(queries + 1 + 10 * 2, dao.getQueryCount());
+    }
+
+    @Test
+    public void repeatedSearch_isServedFromMemory() {
+        List<Resource<List<Recipe>>> first = observe(repository.searchRecipesApi("querya", 1));
+        time.runUntilIdle();
+        assertEquals(Resource.Status.SUCCESS, first.get(first.size() - 1).status);
+        int queries = dao.getQueryCount();
+
+        // the same search, however it is typed, is answered before anything else runs
+        List<Resource<List<Recipe>>> second = observe(repository.searchRecipesApi("  QueryA ", 1));
+        assertEquals(1, second.size());
+        assertEquals(Resource.Status.SUCCESS, second.get(0).status);
+        assertFalse(second.get(0).refreshing);
+        assertEquals("querya recipe 0", second.get(0).data.get(0).getTitle());
+        time.runUntilIdle();
+        assertEquals(1, second.size());
+        assertEquals(1, api.getSearchCount());
+        assertEquals(queries, dao.getQueryCount());
+        assertEquals(0.5, repository.getQueryCache().getHitRatio(), 0);
+
+        // another page is another entry
+        observe(repository.searchRecipesApi("querya", 2));
+        time.runUntilIdle();
+        assertEquals(2, api.getSearchCount());
+
+        // expired entries are misses
+        time.advanceBy(RecipeRepository.QUERY_CACHE_TTL_SECONDS * 1000 + 1);
+        observe(repository.searchRecipesApi("querya", 1));
+        time.runUntilIdle();
+        assertEquals(3, api.getSearchCount());
+
+        // and everything goes once the app is in the background
+        assertEquals(2, repository.getQueryCache().size());
+        repository.trimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        assertEquals(0, repository.getQueryCache().size());
+        assertEquals(0, repository.getQueryCache().weight());
+    }
+
+    @Test
+    public void pageInMemory_isRevalidated_whenThePolicySaysSo() {
+        observe(repository.searchRecipesApi("querya", 1));
+        time.runUntilIdle();
+
+        // always revalidate: the page in memory is shown at once, and the search still goes out
+        List<Resource<List<Recipe>>> second = observe(
+                repository.searchRecipesApi("querya", 1, CachePolicy.staleWhileRevalidate(0)));
+        assertEquals(Resource.Status.SUCCESS, second.get(0).status);
+        assertTrue(second.get(0).refreshing);
+        assertEquals("querya recipe 0", second.get(0).data.get(0).getTitle());
+        time.runUntilIdle();
+        assertEquals(2, api.getSearchCount());
+        Resource<List<Recipe>> last = second.get(second.size() - 1);
+        assertEquals(Resource.Status.SUCCESS, last.status);
+        assertFalse(last.refreshing);
+        for (Resource<List<Recipe>> resource : second) {
+            // never blanked while the db is read
+            assertEquals(10, resource.data.size());
+        }
+
+        // cache only: the page in memory is the answer
+        List<Resource<List<Recipe>>> third = observe(repository.searchRecipesApi("querya", 1, CachePolicy.CACHE_ONLY));
+        time.runUntilIdle();
+        assertEquals(1, third.size());
+        assertEquals(2, api.getSearchCount());
+    }
+
+    @Test
+    public void multiSearch_mergesEachQueryAsItSettles() {
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            queries.add(queryOf(i));
+        }
+        // the same query twice is searched once
+        queries.add(" QueryA");
+
+        List<Resource<List<Recipe>>> emissions = observe(repository.searchRecipesMulti(queries, 1));
+        time.runUntilIdle();
+
+        assertEquals(5, api.getSearchCount());
+        // three at a time: the last two only start once the first ones have settled
+        assertTrue(time.nowMillis() >= 2 * LATENCY_MILLIS);
+
+        // LOADING, a refreshing SUCCESS as each of the first four settles, then the final SUCCESS
+        assertEquals(6, emissions.size());
+        assertEquals(Resource.Status.LOADING, emissions.get(0).status);
+        for (int i = 1; i < 5; i++) {
+            assertEquals(Resource.Status.SUCCESS, emissions.get(i).status);
+            assertTrue(emissions.get(i).refreshing);
+            assertEquals(10 * i, emissions.get(i).data.size());
+        }
+        Resource<List<Recipe>> last = emissions.get(5);
+        assertEquals(Resource.Status.SUCCESS, last.status);
+        assertFalse(last.refreshing);
+        assertEquals(50, last.data.size());
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < last.data.size(); i++) {
+            assertTrue(ids.add(last.data.get(i).getRecipe_id()));
+            if (i > 0) {
+                assertTrue(last.data.get(i - 1).getSocial_rank() >= last.data.get(i).getSocial_rank());
+            }
+        }
+    }
+
+    @Test
+    public void multiSearch_oneQueryFails_endsInError_withTheOthersResults() {
+        api.failing(queryOf(1));
+        List<String> queries = new ArrayList<>();
+        queries.add(queryOf(0));
+        queries.add(queryOf(1));
+
+        List<Resource<List<Recipe>>> emissions = observe(repository.searchRecipesMulti(queries, 1));
+        time.runUntilIdle();
+
+        // what was found is still shown, but the search didn't succeed
+        Resource<List<Recipe>> last = emissions.get(emissions.size() - 1);
+        assertEquals(Resource.Status.ERROR, last.status);
+        assertNotNull(last.message);
+        assertEquals(10, last.data.size());
+        for (Recipe recipe : last.data) {
+            assertTrue(recipe.getTitle().startsWith(queryOf(0)));
+        }
+    }
+
+    @Test
+    public void isPageCached_inMemoryOrInTheDb() {
+        assertFalse(isPageCached(queryOf(0)));
+
+        observe(repository.searchRecipesApi(queryOf(0), 1));
+        time.runUntilIdle();
+        assertTrue(isPageCached(queryOf(0)));
+
+        // past the memory TTL, the saved rows are still shown at once
+        time.advanceBy(RecipeRepository.QUERY_CACHE_TTL_SECONDS * 1000 + 1);
+        assertTrue(isPageCached(queryOf(0)));
+        assertFalse(isPageCached(queryOf(1)));
+    }
+
+    private boolean isPageCached(String query) {
+        final List<Boolean> answers = new ArrayList<>();
+        repository.isPageCached(query, 1, new Observer<Boolean>() {
+            @Override
+            public void onChanged(Boolean cached) {
+                answers.add(cached);
+            }
+        });
+        time.runUntilIdle();
+        assertEquals(1, answers.size());
+        return answers.get(0);
+    }
+
+    private static String queryOf(int i) {
+        // distinct letters, so that no query is a substring of another one's titles
+        return "query" + (char) ('a' + i);
+    }
+
+    private static <T> List<Resource<T>> observe(LiveData<Resource<T>> liveData) {
+        final List<Resource<T>> emissions = new ArrayList<>();
+        liveData.observeForever(new Observer<Resource<T>>() {
+            @Override
+            public void onChanged(Resource<T> resource) {
+                emissions.add(resource);
+            }
+        });
+        return emissions;
+    }
+
+    private static void assertPhase(RequestMetrics.Phase phase, int count, long minMillis, long maxMillis) {
+        LatencyHistogram histogram = RequestMetrics.getInstance().getHistogram("searchRecipes", phase);
+        assertNotNull(phase.name(), histogram);
+        assertEquals(phase.name(), count, histogram.getCount());
+        assertEquals(phase.name(), minMillis * 1000, histogram.getMinMicros());
+        assertEquals(phase.name(), maxMillis * 1000, histogram.getMaxMicros());
+    }
+}
@@ -0,0 +1,48 @@
+package com.codingwithmitch.foodrecipes.search;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IngredientIndexTest {
+
+    @Test
+    public void normalize_keepsWhatTheIngredientIs() {
+        assertEquals(Collections.singletonList("tomato"), IngredientIndex.normalize("2 cups diced Tomatoes"));
+        assertEquals(Arrays.asList("chicken", "breast"),
+                IngredientIndex.normalize("1 1/2 lbs boneless skinless chicken breasts, cut into strips"));
+        assertEquals(Collections.singletonList("berry"), IngredientIndex.normalize("1 cup fresh berries"));
+    }
+
+    @Test
+    public void ranksByCoverage_thenByWhatElseIsNeeded() {
+        IngredientIndex index = new IngredientIndex();
+        index.add("stir-fry", new String[]{"2 chicken breasts", "1 cup rice", "2 tbsp soy sauce", "1 onion"}, 50);
+        index.add("fried-rice", new String[]{"2 cups cooked rice", "2 eggs", "3 tbsp soy sauce"}, 40);
+        index.add("omelette", new String[]{"3 eggs", "1 onion, diced"}, 90);
+        index.add("pancakes", new String[]{"2 cups flour", "2 eggs", "1 cup milk"}, 99);
+
+        List<String> have = Arrays.asList("eggs", "rice", "soy sauce");
+        assertEquals(Arrays.asList("fried-rice", "stir-fry", "omelette", "pancakes"), index.search(have, 1, 10));
+        // omelette and pancakes both use one; the omelette needs one other ingredient, pancakes two
+        assertEquals(Arrays.asList("fried-rice", "stir-fry"), index.search(have, 2, 10));
+        assertEquals(Collections.singletonList("fried-rice"), index.search(have, 3, 10));
+        assertTrue(index.search(Collections.singletonList("saffron"), 1, 10).isEmpty());
+    }
+
+    @Test
+    public void reAdding_replacesTheIngredients() {
+        IngredientIndex index = new IngredientIndex();
+        index.add("1", new String[]{"1 lb beef"}, 50);
+        index.add("1", new String[]{"1 lb pork"}, 50);
+
+        assertEquals(1, index.size());
+        assertTrue(index.search(Collections.singletonList("beef"), 1, 10).isEmpty());
+        assertEquals(Collections.singletonList("1"), index.search(Collections.singletonList("pork"), 1, 10));
+    }
+}
@@ -0,0 +1,114 @@
+package com.codingwithmitch.foodrecipes.search;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MinHashIndexTest {
+
+    private static final String[] PANTRY = {
+            "chicken", "beef", "pork", "salmon", "shrimp", "tofu", "rice", "pasta", "noodle", "potato",
+            "onion", "garlic", "ginger", "tomato", "carrot", "celery", "pepper", "spinach", "basil",
+            "oregano", "thyme", "cumin", "paprika", "chili", "lemon", "lime", "butter", "cream",
+            "cheese", "parmesan", "egg", "flour", "sugar", "honey", "soy", "vinegar", "mustard", "bean",
+            "corn", "mushroom", "zucchini", "avocado", "cilantro", "parsley", "yogurt", "milk", "oat",
+            "almond", "walnut", "coconut", "curry", "broth", "wine", "bacon", "sausage", "lettuce"};
+
+    // distinct ingredient words, as in a few thousand real recipes
+    private static final int RARE_INGREDIENTS = 800;
+
+    @Test
+    public void mostSharedIngredients_first() {
+        MinHashIndex index = new MinHashIndex();
+        index.add("soup", new String[]{"2 chicken breasts", "1 onion", "2 carrots", "celery", "chicken broth", "salt"});
+        index.add("stew", new String[]{"1 lb chicken", "onions", "carrots", "celery", "potatoes", "broth", "salt"});
+        index.add("pot-pie", new String[]{"chicken", "carrot", "peas", "flour", "butter", "milk", "salt"});
+        index.add("brownies", new String[]{"butter", "sugar", "cocoa", "eggs", "flour", "vanilla"});
+
+        assertEquals(Arrays.asList("stew", "pot-pie"), index.similarTo("soup", 0.25f, 10));
+        assertEquals(Arrays.asList("stew"), index.similarTo("soup", 0.25f, 1));
+        assertTrue(index.similarTo("soup", 0.9f, 10).isEmpty());
+        assertTrue(index.similarTo("unknown", 0.1f, 10).isEmpty());
+    }
+
+    @Test
+    public void reAdding_replacesTheIngredients() {
+        MinHashIndex index = new MinHashIndex();
+        index.add("a", new String[]{"chicken", "rice", "soy sauce", "ginger"});
+        index.add("b", new String[]{"chicken", "rice", "soy sauce", "garlic"});
+        index.add("b", new String[]{"chicken", "rice", "soy sauce", "garlic"});
+        assertEquals(2, index.size());
+        assertEquals(Arrays.asList("b"), index.similarTo("a", 0.3f, 10));
+
+        index.add("b", new String[]{"flour", "sugar", "butter", "egg"});
+        assertEquals(2, index.size());
+        assertTrue(index.similarTo("a", 0.3f, 10).isEmpty());
+        assertEquals(0, index.estimateSimilarity("a", "b"), 0.1);
+    }
+
+    @Test
+    public void estimate_tracksJaccard() {
+        Random random = new Random(3);
+        double error = 0;
+        int pairs = 200;
+        for (int i = 0; i < pairs; i++) {
+            String[] a = ingredients(random);
+            String[] b = ingredients(random);
+            MinHashIndex index = new MinHashIndex();
+            index.add("a", a);
+            index.add("b", b);
+            error += Math.abs(index.estimateSimilarity("a", "b") - jaccard(a, b));
+        }
+        // the standard error of a 64-value estimate is at most 1 / (2 * sqrt(64)) = 0.0625
+        assertTrue(error / pairs < 0.07);
+    }
+
+    @Test
+    public void similarTo_20kRecipes() {
+        Random random = new Random(11);
+        MinHashIndex index = new MinHashIndex();
+        int recipes = 20000;
+        for (int i = 0; i < recipes; i++) {
+            index.add(String.valueOf(i), ingredients(random));
+        }
+        assertEquals(recipes, index.size());
+
+        for (int i = 0; i < 2000; i++) {
+            String recipeId = String.valueOf(random.nextInt(recipes));
+            List<String> similar = index.similarTo(recipeId, 0.4f, 5);
+            assertTrue(similar.size() <= 5 && !similar.contains(recipeId));
+        }
+    }
+
+    // 5 to 12 ingredients, common ones (the start of the pantry) far more often than rare ones
+    private static String[] ingredients(Random random) {
+        Set<String> ingredients = new HashSet<>();
+        int count = 5 + random.nextInt(8);
+        while (ingredients.size() < count) {
+            double skewed = random.nextDouble();
+            int at = (int) (skewed * skewed * skewed * RARE_INGREDIENTS);
+            ingredients.add(at < PANTRY.length ? PANTRY[at] : rare(at));
+        }
+        return ingredients.toArray(new String[0]);
+    }
+
+    // a made-up word for the @at-th ingredient, letters only as normalize keeps nothing else
+    private static String rare(int at) {
+        return "rare" + (char) ('a' + at % 26) + (char) ('a' + at / 26 % 26) + (char) ('a' + at / 676);
+    }
+
+    private static double jaccard(String[] a, String[] b) {
+        Set<String> union = new HashSet<>(Arrays.asList(a));
+        union.addAll(Arrays.asList(b));
+        Set<String> intersection = new HashSet<>(Arrays.asList(a));
+        intersection.retainAll(Arrays.asList(b));
+        return intersection.size() / (double) union.size();
+    }
+}
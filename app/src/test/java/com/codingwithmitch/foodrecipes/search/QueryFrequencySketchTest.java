@@ -0,0 +1,123 @@
+package com.codingwithmitch.foodrecipes.search;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QueryFrequencySketchTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final long HALF_LIFE = 7 * DAY;
+
+    @Test
+    public void top_mostSearchedFirst() {
+        QueryFrequencySketch sketch = new QueryFrequencySketch(HALF_LIFE, 16, 0);
+        search(sketch, "lasagna", 5, 0);
+        search(sketch, "tacos", 3, 0);
+        search(sketch, "ramen", 1, 0);
+
+        assertEquals(5, sketch.estimate("lasagna", 0), 1e-3);
+        assertEquals(0, sketch.estimate("pho", 0), 1e-3);
+        assertEquals(Arrays.asList("lasagna", "tacos"), sketch.top(10, 2, 0));
+        assertEquals(Arrays.asList("lasagna"), sketch.top(1, 0, 0));
+    }
+
+    @Test
+    public void olderSearches_countLess() {
+        QueryFrequencySketch sketch = new QueryFrequencySketch(HALF_LIFE, 16, 0);
+        search(sketch, "lasagna", 8, 0);
+        search(sketch, "tacos", 3, 14 * DAY);
+
+        assertEquals(2, sketch.estimate("lasagna", 14 * DAY), 1e-3);
+        assertEquals(Arrays.asList("tacos", "lasagna"), sketch.top(10, 1, 14 * DAY));
+        // a year later both are forgotten, and the counters were rescaled on the way
+        search(sketch, "pho", 1, 365 * DAY);
+        assertEquals(1, sketch.estimate("pho", 365 * DAY), 1e-3);
+        assertEquals(Arrays.asList("pho"), sketch.top(10, 0.5, 365 * DAY));
+    }
+
+    @Test
+    public void candidates_keepTheFrequentOnes() {
+        QueryFrequencySketch sketch = new QueryFrequencySketch(HALF_LIFE, 3, 0);
+        search(sketch, "lasagna", 4, 0);
+        search(sketch, "tacos", 3, 0);
+        search(sketch, "ramen", 2, 0);
+        // one-off queries don't push out the habits
+        for (int i = 0; i < 100; i++) {
+            sketch.add("query " + i, 0);
+        }
+        assertEquals(Arrays.asList("lasagna", "tacos", "ramen"), sketch.top(10, 0, 0));
+
+        // one that catches up does
+        search(sketch, "pho", 3, 0);
+        assertEquals(Arrays.asList("lasagna", "tacos", "pho"), sketch.top(10, 0, 0));
+    }
+
+    @Test
+    public void writeThenRead_keepsTheCounts() throws IOException {
+        QueryFrequencySketch sketch = new QueryFrequencySketch(HALF_LIFE, 16, 0);
+        search(sketch, "lasagna", 5, 0);
+        search(sketch, "tacos", 3, DAY);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sketch.writeTo(new DataOutputStream(bytes));
+        QueryFrequencySketch loaded = new QueryFrequencySketch(HALF_LIFE, 16, 30 * DAY);
+        loaded.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(sketch.estimate("lasagna", 2 * DAY), loaded.estimate("lasagna", 2 * DAY), 1e-3);
+        assertEquals(sketch.top(10, 0, 2 * DAY), loaded.top(10, 0, 2 * DAY));
+    }
+
+    @Test
+    public void estimates_stayClose_withManyQueries() {
+        // a few habits among thousands of one-off queries, far more than the counters
+        QueryFrequencySketch sketch = new QueryFrequencySketch(HALF_LIFE, 32, 0);
+        final Map<String, Integer> counts = new HashMap<>();
+        Random random = new Random(5);
+        for (int i = 0; i < 20000; i++) {
+            double skewed = random.nextDouble();
+            String query = "query " + (int) (skewed * skewed * skewed * 5000);
+            sketch.add(query, 0);
+            Integer count = counts.get(query);
+            counts.put(query, count == null ? 1 : count + 1);
+        }
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            double estimate = sketch.estimate(entry.getKey(), 0);
+            // never under, and the queries worth prefetching within searches / WIDTH
+            assertTrue(estimate >= entry.getValue() - 1e-3);
+            if (entry.getValue() >= 20) {
+                assertTrue(estimate - entry.getValue() <= 20000 / QueryFrequencySketch.WIDTH);
+            }
+        }
+
+        List<String> expected = new ArrayList<>(counts.keySet());
+        Collections.sort(expected, new Comparator<String>() {
+            @Override
+            public int compare(String a, String b) {
+                return counts.get(b) - counts.get(a);
+            }
+        });
+        assertEquals(expected.subList(0, 5), sketch.top(5, 0, 0));
+    }
+
+    private static void search(QueryFrequencySketch sketch, String query, int times, long nowMillis) {
+        for (int i = 0; i < times; i++) {
+            sketch.add(query, nowMillis);
+        }
+    }
+}
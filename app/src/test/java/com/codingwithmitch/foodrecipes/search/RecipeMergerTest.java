@@ -0,0 +1,48 @@
+package com.codingwithmitch.foodrecipes.search;
+
+import com.codingwithmitch.foodrecipes.models.Recipe;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class RecipeMergerTest {
+
+    @Test
+    public void mergesByRank_withoutRepeats() {
+        List<Recipe> chicken = Arrays.asList(recipe("c1", 99), recipe("both", 90), recipe("c2", 40));
+        List<Recipe> dinner = Arrays.asList(recipe("d1", 95), recipe("both", 90), recipe("d2", 40), recipe("d3", 10));
+
+        List<Recipe> merged = RecipeMerger.mergeByRank(Arrays.asList(chicken, dinner), 100);
+        // equal ranks keep the order of the lists
+        assertEquals(Arrays.asList("c1", "d1", "both", "c2", "d2", "d3"), ids(merged));
+
+        assertEquals(Arrays.asList("c1", "d1", "both"), ids(RecipeMerger.mergeByRank(Arrays.asList(chicken, dinner), 3)));
+    }
+
+    @Test
+    public void unorderedAndEmptyLists() {
+        List<Recipe> unordered = Arrays.asList(recipe("a", 10), recipe("b", 80), recipe("c", 50));
+        List<Recipe> empty = new ArrayList<>();
+
+        assertEquals(Arrays.asList("b", "c", "a"),
+                ids(RecipeMerger.mergeByRank(Arrays.asList(empty, unordered, empty), 10)));
+        assertEquals(0, RecipeMerger.mergeByRank(new ArrayList<List<Recipe>>(), 10).size());
+    }
+
+    private static Recipe recipe(String id, float rank) {
+        return new Recipe(id, "title " + id, "publisher", null, rank, null, 0);
+    }
+
+    private static List<String> ids(List<Recipe> recipes) {
+        List<String> ids = new ArrayList<>();
+        for (Recipe recipe : recipes) {
+            ids.add(recipe.getRecipe_id());
+        }
+        return ids;
+    }
+}
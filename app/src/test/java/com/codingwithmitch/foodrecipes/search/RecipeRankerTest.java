@@ -0,0 +1,81 @@
+package com.codingwithmitch.foodrecipes.search;
+
+import com.codingwithmitch.foodrecipes.models.Recipe;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class RecipeRankerTest {
+
+    private final RecipeRanker ranker = new RecipeRanker();
+
+    @Test
+    public void titleMatch_outranksIngredientMention() {
+        List<Recipe> candidates = Arrays.asList(
+                recipe("1", "Beef Stew", "Allrecipes", 100, "1 lb beef", "2 cups chicken stock", "3 carrots"),
+                recipe("2", "Lemon Chicken", "Closet Cooking", 40, "4 chicken thighs", "1 lemon"),
+                recipe("3", "Pancakes", "Allrecipes", 99, "2 cups flour", "1 egg"));
+
+        List<Recipe> ranked = ranker.rank("chicken", candidates, 3);
+
+        assertEquals("2", ranked.get(0).getRecipe_id());
+        assertEquals("1", ranked.get(1).getRecipe_id());
+        // no match at all: ranked on social_rank alone, last
+        assertEquals("3", ranked.get(2).getRecipe_id());
+    }
+
+    @Test
+    public void prefixMatch_countsWhileTyping() {
+        List<Recipe> candidates = Arrays.asList(
+                recipe("1", "Chickpea Curry", "Allrecipes", 50, "1 can chickpeas"),
+                recipe("2", "Sweet Potato Fries", "Allrecipes", 50, "2 sweet potatoes"));
+
+        List<Recipe> ranked = ranker.rank("  CHICK ", candidates, 2);
+
+        assertEquals("1", ranked.get(0).getRecipe_id());
+    }
+
+    @Test
+    public void equalRelevance_isOrderedBySocialRank_thenInputOrder() {
+        List<Recipe> candidates = Arrays.asList(
+                recipe("1", "Tomato Soup", "A", 50),
+                recipe("2", "Tomato Soup", "A", 90),
+                recipe("3", "Tomato Soup", "A", 50));
+
+        List<Recipe> ranked = ranker.rank("tomato soup", candidates, 3);
+
+        assertEquals("2", ranked.get(0).getRecipe_id());
+        assertEquals("1", ranked.get(1).getRecipe_id());
+        assertEquals("3", ranked.get(2).getRecipe_id());
+    }
+
+    @Test
+    public void reusedBuffers_giveTheSameRanking() {
+        List<Recipe> large = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            large.add(recipe(String.valueOf(i), (i % 7 == 0 ? "Garlic Bread " : "Bread ") + i, "P", i % 100,
+                    "bread", i % 3 == 0 ? "garlic" : "butter"));
+        }
+        List<Recipe> small = Arrays.asList(recipe("a", "Garlic Shrimp", "P", 10, "garlic"));
+
+        List<Recipe> first = ranker.rank("garlic bread", large, 30);
+        assertEquals(1, ranker.rank("garlic", small, 30).size());
+        List<Recipe> again = ranker.rank("garlic bread", large, 30);
+
+        assertEquals(30, first.size());
+        assertEquals(first, again);
+        for (Recipe recipe : first) {
+            // every title match (with garlic in the ingredients or not) ranks above the rest
+            assertEquals(0, Integer.parseInt(recipe.getRecipe_id()) % 7);
+        }
+    }
+
+    private static Recipe recipe(String id, String title, String publisher, float socialRank, String... ingredients) {
+        return new Recipe(id, title, publisher, null, socialRank, ingredients, 0);
+    }
+}
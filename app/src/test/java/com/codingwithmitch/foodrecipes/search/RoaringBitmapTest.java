@@ -0,0 +1,79 @@
+package com.codingwithmitch.foodrecipes.search;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link RoaringBitmap} against java.util.BitSet, with sets dense and sparse enough to use both
+ * kinds of container and to cross between them.
+ */
+public class RoaringBitmapTest {
+
+    private final Random random = new Random(7);
+
+    @Test
+    public void matchesBitSet() {
+        int[] densities = {10, 3000, 5000, 40000};
+        for (int da : densities) {
+            for (int db : densities) {
+                BitSet expectedA = new BitSet();
+                BitSet expectedB = new BitSet();
+                RoaringBitmap a = fill(expectedA, da);
+                RoaringBitmap b = fill(expectedB, db);
+
+                BitSet and = (BitSet) expectedA.clone();
+                and.and(expectedB);
+                BitSet or = (BitSet) expectedA.clone();
+                or.or(expectedB);
+
+                assertArrayEquals(and.stream().toArray(), RoaringBitmap.and(a, b).toArray());
+                assertArrayEquals(or.stream().toArray(), RoaringBitmap.or(a, b).toArray());
+                assertEquals(or.cardinality(), RoaringBitmap.or(a, b).cardinality());
+                // the operands are left as they were
+                assertArrayEquals(expectedA.stream().toArray(), a.toArray());
+                assertArrayEquals(expectedB.stream().toArray(), b.toArray());
+            }
+        }
+    }
+
+    @Test
+    public void removeShrinksBackToAnArray() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        BitSet expected = new BitSet();
+        for (int i = 0; i < RoaringBitmap.ARRAY_MAX + 100; i++) {
+            bitmap.add(i * 3);
+            expected.set(i * 3);
+        }
+        for (int i = 0; i < RoaringBitmap.ARRAY_MAX; i++) {
+            bitmap.remove(i * 3);
+            expected.clear(i * 3);
+        }
+        assertEquals(100, bitmap.cardinality());
+        assertArrayEquals(expected.stream().toArray(), bitmap.toArray());
+        assertTrue(bitmap.contains(RoaringBitmap.ARRAY_MAX * 3));
+        assertFalse(bitmap.contains(0));
+
+        for (int value : bitmap.toArray()) {
+            bitmap.remove(value);
+        }
+        assertTrue(bitmap.isEmpty());
+    }
+
+    // @count random values spread over three high halves
+    private RoaringBitmap fill(BitSet expected, int count) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int i = 0; i < count; i++) {
+            int value = random.nextInt(3 * 65536);
+            bitmap.add(value);
+            expected.set(value);
+        }
+        return bitmap;
+    }
+}
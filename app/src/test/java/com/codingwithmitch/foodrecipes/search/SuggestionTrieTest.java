@@ -0,0 +1,116 @@
+package com.codingwithmitch.foodrecipes.search;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SuggestionTrieTest {
+
+    @Test
+    public void completions_heaviestFirst() {
+        SuggestionTrie trie = new SuggestionTrie();
+        trie.offer("chicken", 50);
+        trie.offer("chicken enchilada soup", 9);
+        trie.offer("chickpea", 12);
+        trie.offer("chili", 3);
+        trie.offer("beef", 50);
+
+        assertEquals(Arrays.asList("chicken", "chickpea", "chicken enchilada soup", "chili"),
+                trie.complete("chi", 10));
+        assertEquals(Arrays.asList("chicken", "chickpea"), trie.complete("c", 2));
+        assertEquals(Arrays.asList("chicken enchilada soup"), trie.complete("chicken ", 10));
+        assertTrue(trie.complete("pork", 10).isEmpty());
+    }
+
+    @Test
+    public void offer_isIdempotent_incrementAccumulates() {
+        SuggestionTrie trie = new SuggestionTrie();
+        trie.offer("lasagna", 5);
+        trie.offer("lasagna", 5);
+        trie.offer("lasagna", 2);
+        assertEquals(5, trie.weightOf("lasagna"));
+        assertEquals(1, trie.size());
+
+        trie.offer("lamb", 4);
+        trie.increment("lamb", 20);
+        trie.increment("lamb", 20);
+        assertEquals(44, trie.weightOf("lamb"));
+        assertEquals(Arrays.asList("lamb", "lasagna"), trie.complete("la", 10));
+    }
+
+    @Test
+    public void savedTrie_loadsTheSame() throws IOException {
+        SuggestionTrie trie = new SuggestionTrie();
+        trie.offer("pancakes", 7);
+        trie.offer("pancake", 3);
+        trie.offer("pasta", 7);
+        trie.increment("pad thai", 40);
+
+        SuggestionTrie loaded = new SuggestionTrie();
+        loaded.readFrom(read(write(trie)));
+        assertEquals(trie.size(), loaded.size());
+        assertEquals(trie.getNodeCount(), loaded.getNodeCount());
+        assertEquals(trie.complete("pa", 10), loaded.complete("pa", 10));
+
+        // phrases added before the file was read are kept, at the heavier weight
+        SuggestionTrie merged = new SuggestionTrie();
+        merged.offer("pasta", 30);
+        merged.offer("paella", 1);
+        merged.readFrom(read(write(trie)));
+        assertEquals(Arrays.asList("pad thai", "pasta", "pancakes", "pancake", "paella"),
+                merged.complete("pa", 10));
+    }
+
+    @Test
+    public void complete_100kPhrases() {
+        Random random = new Random(7);
+        SuggestionTrie trie = new SuggestionTrie();
+        String[] phrases = new String[100000];
+        for (int i = 0; i < phrases.length; i++) {
+            phrases[i] = phrase(random);
+            trie.offer(phrases[i], 1 + random.nextInt(100));
+        }
+
+        for (int i = 0; i < 5000; i++) {
+            String phrase = phrases[random.nextInt(phrases.length)];
+            String prefix = phrase.substring(0, 1 + random.nextInt(Math.min(6, phrase.length())));
+            List<String> completions = trie.complete(prefix, 6);
+            assertTrue(!completions.isEmpty() && completions.get(0).startsWith(prefix));
+        }
+    }
+
+    private static String phrase(Random random) {
+        StringBuilder phrase = new StringBuilder();
+        int words = 1 + random.nextInt(4);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                phrase.append(' ');
+            }
+            int length = 3 + random.nextInt(7);
+            for (int j = 0; j < length; j++) {
+                phrase.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return phrase.toString();
+    }
+
+    private static byte[] write(SuggestionTrie trie) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        trie.writeTo(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    private static DataInputStream read(byte[] bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+}
@@ -0,0 +1,176 @@
+package com.codingwithmitch.foodrecipes.search;
+
+import com.codingwithmitch.foodrecipes.util.LatencyHistogram;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Correctness of {@link TrigramIndex}, on a few titles and over a 100k-recipe cache of generated
+ * titles, where its estimated size is bounded too. Its build time, heap and query latency over that
+ * cache are wall-clock numbers, printed rather than asserted: that benchmark only runs with
+ * ./gradlew test -PlatencyBenchmarks.
+ */
+public class TrigramIndexBenchmarkTest {
+
+    private static final int RECIPES = 100000;
+    private static final int QUERIES = 2000;
+
+    private static final String[] WORDS = {
+            "chicken", "beef", "pork", "lasagna", "spaghetti", "bolognese", "curry", "soup", "stew",
+            "salad", "tacos", "enchilada", "burrito", "pizza", "pie", "cake", "cookies", "brownies",
+            "pancakes", "waffles", "muffins", "bread", "garlic", "lemon", "honey", "mustard", "spicy",
+            "grilled", "roasted", "baked", "fried", "slow", "cooker", "easy", "quick", "healthy",
+            "vegan", "chocolate", "vanilla", "strawberry", "banana", "apple", "pumpkin", "cinnamon",
+            "shrimp", "salmon", "tuna", "quinoa", "risotto", "mushroom", "spinach", "avocado"};
+
+    @Test
+    public void findsMisspelledWords() {
+        TrigramIndex index = new TrigramIndex();
+        index.add("1", "Lemon Chicken", 40);
+        index.add("2", "Chicken Enchilada Soup", 90);
+        index.add("3", "Classic Lasagna", 70);
+        index.add("4", "Chickpea Curry", 99);
+        index.add("5", "Pie", 10);
+
+        assertEquals(ids("2", "1"), index.search("chiken", 10));
+        assertEquals(ids("3"), index.search("lasagne", 10));
+        assertEquals(ids("2"), index.search("chiken enchilda", 10));
+        // short words have to be exact
+        assertEquals(ids("5"), index.search("pie", 10));
+        assertTrue(index.search("pig", 10).isEmpty());
+        // fewest edits first, whatever the social_rank: chicken, chickens (1), chickpea (2)
+        index.add("6", "Chickens", 100);
+        assertEquals(ids("2", "1", "6", "4"), index.search("chicken", 10));
+    }
+
+    @Test
+    public void changedTitle_isReindexed() {
+        TrigramIndex index = new TrigramIndex();
+        index.add("1", "Beef Stew", 50);
+        index.add("1", "Beef Stew", 60);
+        assertEquals(1, index.size());
+
+        index.add("1", "Pork Stew", 60);
+        assertEquals(1, index.size());
+        assertTrue(index.search("beef", 10).isEmpty());
+        assertEquals(ids("1"), index.search("stew", 10));
+    }
+
+    @Test
+    public void search_100kRecipes() {
+        Random random = new Random(42);
+        String[] titles = titles(random);
+
+        TrigramIndex index = new TrigramIndex();
+        for (int i = 0; i < RECIPES; i++) {
+            index.add(String.valueOf(i), titles[i], random.nextInt(101));
+        }
+        assertEquals(RECIPES, index.size());
+        // about 230 bytes a recipe with these titles
+        assertTrue(index.estimateBytes() < 32 * 1024 * 1024);
+
+        int empty = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            String query = misspell(WORDS[random.nextInt(WORDS.length)], random);
+            if (i % 2 == 0) {
+                query += " " + WORDS[random.nextInt(WORDS.length)];
+            }
+            if (index.search(query, 30).isEmpty()) {
+                empty++;
+            }
+        }
+        assertFalse(index.search("chiken", 30).isEmpty());
+        // two generated words are together in only some titles, but a single misspelled one always matches
+        assertTrue(empty < QUERIES / 2);
+    }
+
+    @Test
+    public void benchmark_100kRecipes() {
+        assumeTrue(Boolean.getBoolean("latencyBenchmarks"));
+        Random random = new Random(42);
+        String[] titles = titles(random);
+
+        TrigramIndex index = new TrigramIndex();
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        for (int i = 0; i < RECIPES; i++) {
+            index.add(String.valueOf(i), titles[i], random.nextInt(101));
+        }
+        long buildMillis = (System.nanoTime() - start) / 1000000;
+        long heapBytes = usedHeap() - heapBefore;
+
+        LatencyHistogram latency = new LatencyHistogram();
+        for (int i = 0; i < QUERIES; i++) {
+            String query = misspell(WORDS[random.nextInt(WORDS.length)], random);
+            if (i % 2 == 0) {
+                query += " " + WORDS[random.nextInt(WORDS.length)];
+            }
+            long queryStart = System.nanoTime();
+            index.search(query, 30);
+            latency.recordNanos(System.nanoTime() - queryStart);
+        }
+
+        System.out.println(String.format(Locale.US,
+                "TrigramIndex: %d recipes, %d words, built in %d ms, ~%d KB estimated (%d KB heap delta)",
+                index.size(), index.getTermCount(), buildMillis, index.estimateBytes() / 1024, heapBytes / 1024));
+        System.out.println("TrigramIndex query latency: " + latency);
+    }
+
+    private static String[] titles(Random random) {
+        String[] titles = new String[RECIPES];
+        for (int i = 0; i < RECIPES; i++) {
+            titles[i] = title(random);
+        }
+        return titles;
+    }
+
+    private static String title(Random random) {
+        int words = 2 + random.nextInt(3);
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                title.append(' ');
+            }
+            String word = WORDS[random.nextInt(WORDS.length)];
+            title.append(Character.toUpperCase(word.charAt(0))).append(word.substring(1));
+        }
+        // a unique word per recipe, like the names and places in real titles
+        return title.append(" No").append(random.nextInt(RECIPES)).toString();
+    }
+
+    // one random edit, for words long enough to allow one
+    private static String misspell(String word, Random random) {
+        if (TrigramIndex.maxDistance(word.length()) == 0) {
+            return word;
+        }
+        int at = 1 + random.nextInt(word.length() - 1);
+        switch (random.nextInt(3)) {
+            case 0:
+                return word.substring(0, at) + word.substring(at + 1);
+            case 1:
+                return word.substring(0, at) + 'x' + word.substring(at);
+            default:
+                return word.substring(0, at - 1) + 'x' + word.substring(at);
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static List<String> ids(String... ids) {
+        return Arrays.asList(ids);
+    }
+}
@@ -0,0 +1,166 @@
+package com.codingwithmitch.foodrecipes.standin;
+
+import androidx.lifecycle.LiveData;
+
+import com.codingwithmitch.foodrecipes.models.Recipe;
+import com.codingwithmitch.foodrecipes.requests.RecipeApi;
+import com.codingwithmitch.foodrecipes.requests.responses.ApiResponse;
+import com.codingwithmitch.foodrecipes.requests.responses.RecipeResponse;
+import com.codingwithmitch.foodrecipes.requests.responses.RecipeSearchResponse;
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * {@link RecipeApi} answering in {@link VirtualTime}: like LiveDataCallAdapter, a call starts when its
+ * LiveData first becomes active, and its response is posted @latencyMillis (virtual) later.
+ *
+ * A search for "q" returns recipes titled "q recipe <n>" for pages up to {@link #pages}, and an
+ * empty list after that, unless "q" is one of the {@link #failing} queries.
+ */
+public class FakeRecipeApi implements RecipeApi {
+
+    private static final Gson GSON = new Gson();
+
+    private final VirtualTime time;
+    private long latencyMillis;
+    private int recipesPerPage = 10;
+    private int pages = Integer.MAX_VALUE;
+    private final List<String> failingQueries = new ArrayList<>();
+
+    private int searchCount;
+    private int getCount;
+
+    public FakeRecipeApi(VirtualTime time, long latencyMillis) {
+        this.time = time;
+        this.latencyMillis = latencyMillis;
+    }
+
+    public FakeRecipeApi latency(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+        return this;
+    }
+
+    public FakeRecipeApi recipesPerPage(int recipesPerPage) {
+        this.recipesPerPage = recipesPerPage;
+        return this;
+    }
+
+    public FakeRecipeApi pages(int pages) {
+        this.pages = pages;
+        return this;
+    }
+
+    // searches for @query fail as if the device were offline
+    public FakeRecipeApi failing(String query) {
+        failingQueries.add(query);
+        return this;
+    }
+
+    // calls started, counted as they go out; each is answered @latencyMillis later, even if nobody
+    // is listening any more (cancelling through the RequestScheduler isn't modelled)
+    public int getSearchCount() {
+        return searchCount;
+    }
+
+    public int getGetCount() {
+        return getCount;
+    }
+
+    @Override
+    public LiveData<ApiResponse<RecipeSearchResponse>> searchRecipe(String key, final String query, final String page,
+                                                                     String priority, String tag) {
+        return new FakeCall<RecipeSearchResponse>() {
+            @Override
+            void onStarted() {
+                searchCount++;
+            }
+
+            @Override
+            String failure() {
+                return failingQueries.contains(query) ? "Unable to resolve host" : null;
+            }
+
+            @Override
+            RecipeSearchResponse respond() {
+                int pageNumber = Integer.parseInt(page);
+                List<Recipe> recipes = new ArrayList<>();
+                if (pageNumber <= pages) {
+                    for (int i = 0; i < recipesPerPage; i++) {
+                        int n = (pageNumber - 1) * recipesPerPage + i;
+                        recipes.add(new Recipe(query + "-" + n, query + " recipe " + n, "publisher", null,
+                                100 - n, null, 0));
+                    }
+                }
+                Map<String, Object> body = new LinkedHashMap<>();
+                body.put("count", recipes.size());
+                body.put("recipes", recipes);
+                return GSON.fromJson(GSON.toJson(body), RecipeSearchResponse.class);
+            }
+        };
+    }
+
+    @Override
+    public LiveData<ApiResponse<RecipeResponse>> getRecipe(String key, final String recipe_id, String priority,
+                                                           String tag) {
+        return new FakeCall<RecipeResponse>() {
+            @Override
+            void onStarted() {
+                getCount++;
+            }
+
+            @Override
+            RecipeResponse respond() {
+                Map<String, Object> body = new LinkedHashMap<>();
+                body.put("recipe", new Recipe(recipe_id, "recipe " + recipe_id, "publisher", null, 50,
+                        new String[]{"salt", "pepper"}, 0));
+                return GSON.fromJson(GSON.toJson(body), RecipeResponse.class);
+            }
+        };
+    }
+
+    // the virtual-time tests only go through the LiveData calls
+    @Override
+    public Call<RecipeSearchResponse> searchRecipeCall(String key, String query, String page, String priority) {
+        throw new UnsupportedOperationException("blocking calls don't run in virtual time");
+    }
+
+    private abstract class FakeCall<T> extends LiveData<ApiResponse<T>> {
+
+        private boolean started;
+
+        abstract void onStarted();
+
+        abstract T respond();
+
+        // the message of the IOException the call fails with, or null if it succeeds
+        String failure() {
+            return null;
+        }
+
+        @Override
+        protected void onActive() {
+            if (started) {
+                return;
+            }
+            started = true;
+            onStarted();
+            time.schedule(latencyMillis, new Runnable() {
+                @Override
+                public void run() {
+                    String failure = failure();
+                    postValue(failure != null
+                            ? new ApiResponse<T>().create(new IOException(failure))
+                            : new ApiResponse<T>().create(Response.success(respond())));
+                }
+            });
+        }
+    }
+}
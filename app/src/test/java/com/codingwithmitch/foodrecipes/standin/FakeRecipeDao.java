@@ -0,0 +1,220 @@
+package com.codingwithmitch.foodrecipes.standin;
+
+import androidx.arch.core.executor.ArchTaskExecutor;
+import androidx.lifecycle.LiveData;
+
+import com.codingwithmitch.foodrecipes.models.Recipe;
+import com.codingwithmitch.foodrecipes.persistence.RecipeDao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory {@link RecipeDao} that behaves like Room's generated one where it matters for timing:
+ * LiveData queries run on the disk IO executor when they become active, and every active query
+ * is re-run after a write to the table.
+ */
+public class FakeRecipeDao implements RecipeDao {
+
+    private final Map<String, Recipe> table = new LinkedHashMap<>();
+    private final List<TableLiveData<?>> activeQueries = new CopyOnWriteArrayList<>();
+    private final AtomicInteger queryCount = new AtomicInteger();
+
+    @Override
+    public long[] insertRecipes(Recipe... recipes) {
+        long[] rowIds = new long[recipes.length];
+        boolean changed = false;
+        synchronized (this) {
+            for (int i = 0; i < recipes.length; i++) {
+                if (table.containsKey(recipes[i].getRecipe_id())) {
+                    rowIds[i] = -1;
+                } else {
+                    table.put(recipes[i].getRecipe_id(), copy(recipes[i]));
+                    rowIds[i] = table.size();
+                    changed = true;
+                }
+            }
+        }
+        if (changed) {
+            invalidate();
+        }
+        return rowIds;
+    }
+
+    @Override
+    public void insertRecipe(Recipe recipe) {
+        synchronized (this) {
+            table.put(recipe.getRecipe_id(), copy(recipe));
+        }
+        invalidate();
+    }
+
+    @Override
+    public void updateRecipe(String recipe_id, String title, String publisher, String image_url, float social_rank) {
+        synchronized (this) {
+            Recipe recipe = table.get(recipe_id);
+            if (recipe == null) {
+                return;
+            }
+            recipe.setTitle(title);
+            recipe.setPublisher(publisher);
+            recipe.setImage_url(image_url);
+            recipe.setSocial_rank(social_rank);
+        }
+        invalidate();
+    }
+
+    @Override
+    public LiveData<List<Recipe>> searchRecipes(final String query, final int pageNumber) {
+        return new TableLiveData<List<Recipe>>() {
+            @Override
+            List<Recipe> query() {
+                return searchNow(query, pageNumber);
+            }
+        };
+    }
+
+    @Override
+    public LiveData<Recipe> getRecipe(final String recipe_id) {
+        return new TableLiveData<Recipe>() {
+            @Override
+            Recipe query() {
+                synchronized (FakeRecipeDao.this) {
+                    Recipe recipe = table.get(recipe_id);
+                    return recipe != null ? copy(recipe) : null;
+                }
+            }
+        };
+    }
+
+    @Override
+    public List<Recipe> searchRecipesSync(String query, int pageNumber) {
+        return searchNow(query, pageNumber);
+    }
+
+    @Override
+    public synchronized Recipe getRecipeSync(String recipe_id) {
+        Recipe recipe = table.get(recipe_id);
+        return recipe != null ? copy(recipe) : null;
+    }
+
+    @Override
+    public synchronized List<Recipe> getRecipesSync(List<String> recipe_ids) {
+        List<Recipe> recipes = new ArrayList<>();
+        for (String recipeId : recipe_ids) {
+            Recipe recipe = table.get(recipeId);
+            if (recipe != null) {
+                recipes.add(copy(recipe));
+            }
+        }
+        return recipes;
+    }
+
+    @Override
+    public synchronized List<Recipe> getRecipesAfterSync(String after_recipe_id, int limit) {
+        List<Recipe> recipes = new ArrayList<>();
+        for (Recipe recipe : table.values()) {
+            if (recipe.getRecipe_id().compareTo(after_recipe_id) > 0) {
+                recipes.add(copy(recipe));
+            }
+        }
+        Collections.sort(recipes, new Comparator<Recipe>() {
+            @Override
+            public int compare(Recipe a, Recipe b) {
+                return a.getRecipe_id().compareTo(b.getRecipe_id());
+            }
+        });
+        return recipes.size() > limit ? new ArrayList<>(recipes.subList(0, limit)) : recipes;
+    }
+
+    // same semantics as the @Query on RecipeDao.searchRecipes
+    synchronized List<Recipe> searchNow(String query, int pageNumber) {
+        String needle = query.toLowerCase(Locale.US);
+        List<Recipe> matches = new ArrayList<>();
+        for (Recipe recipe : table.values()) {
+            if (contains(recipe.getTitle(), needle) || contains(ingredientsOf(recipe), needle)) {
+                matches.add(copy(recipe));
+            }
+        }
+        Collections.sort(matches, new Comparator<Recipe>() {
+            @Override
+            public int compare(Recipe a, Recipe b) {
+                return Float.compare(b.getSocial_rank(), a.getSocial_rank());
+            }
+        });
+        int limit = pageNumber * 30;
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    public synchronized int size() {
+        return table.size();
+    }
+
+    public synchronized Recipe get(String recipeId) {
+        return table.get(recipeId);
+    }
+
+    // number of queries the LiveData returned by this DAO have run
+    public int getQueryCount() {
+        return queryCount.get();
+    }
+
+    private void invalidate() {
+        for (TableLiveData<?> liveData : activeQueries) {
+            liveData.refresh();
+        }
+    }
+
+    private static boolean contains(String haystack, String needle) {
+        return haystack != null && haystack.toLowerCase(Locale.US).contains(needle);
+    }
+
+    private static String ingredientsOf(Recipe recipe) {
+        if (recipe.getIngredients() == null) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder();
+        for (String ingredient : recipe.getIngredients()) {
+            builder.append(ingredient).append('\n');
+        }
+        return builder.toString();
+    }
+
+    private static Recipe copy(Recipe recipe) {
+        return new Recipe(recipe.getRecipe_id(), recipe.getTitle(), recipe.getPublisher(), recipe.getImage_url(),
+                recipe.getSocial_rank(), recipe.getIngredients(), recipe.getTimestamp());
+    }
+
+    private abstract class TableLiveData<T> extends LiveData<T> {
+
+        abstract T query();
+
+        @Override
+        protected void onActive() {
+            activeQueries.add(this);
+            refresh();
+        }
+
+        @Override
+        protected void onInactive() {
+            activeQueries.remove(this);
+        }
+
+        void refresh() {
+            ArchTaskExecutor.getInstance().executeOnDiskIO(new Runnable() {
+                @Override
+                public void run() {
+                    queryCount.incrementAndGet();
+                    postValue(query());
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.codingwithmitch.foodrecipes.standin;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+
+import com.codingwithmitch.foodrecipes.AppExecutors;
+import com.codingwithmitch.foodrecipes.RequestScheduler;
+import com.codingwithmitch.foodrecipes.models.Recipe;
+import com.codingwithmitch.foodrecipes.repositories.RecipeRepository;
+import com.codingwithmitch.foodrecipes.requests.RateLimiter;
+import com.codingwithmitch.foodrecipes.requests.RecipeApi;
+import com.codingwithmitch.foodrecipes.requests.ServiceGenerator;
+import com.codingwithmitch.foodrecipes.util.Resource;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency from {@link RecipeRepository#searchRecipesApi} to its first
+ * {@link Resource.Status#SUCCESS} emission, against a {@link RecipeApiStandIn} and a {@link FakeRecipeDao}.
+ */
+public class LatencyHarness {
+
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private final RecipeApiStandIn standIn;
+    private final TestMainThread mainThread;
+    private final RecipeApi recipeApi;
+    private final ExecutorService diskIO = Executors.newSingleThreadExecutor();
+    // runs the API calls, shared by every repository this harness builds
+    private final RequestScheduler scheduler = new RequestScheduler("harness-scheduler", 2);
+
+    public LatencyHarness(RecipeApiStandIn standIn, TestMainThread mainThread) {
+        this.standIn = standIn;
+        this.mainThread = mainThread;
+        // effectively unlimited, so the limiter doesn't skew the numbers
+        this.recipeApi = ServiceGenerator.createRecipeApi(standIn.baseUrl(),
+                new RateLimiter(Integer.MAX_VALUE, 1e6, Integer.MAX_VALUE), scheduler);
+    }
+
+    public void shutdown() {
+        diskIO.shutdownNow();
+        scheduler.shutdown();
+    }
+
+    public RecipeRepository newRepository(FakeRecipeDao dao) {
+        return new RecipeRepository(dao, recipeApi, new AppExecutors(diskIO, scheduler, mainThread));
+    }
+
+    /**
+     * Runs @runs searches for @query under @conditions, each against its own cache.
+     * @param warmCache whether each cache is filled with page 1 before the measured search
+     */
+    public Result run(String scenario, RecipeApiStandIn.Conditions conditions, String query, int runs,
+                      boolean warmCache) throws InterruptedException {
+        standIn.setConditions(conditions);
+        Result result = new Result(scenario + " [" + conditions + (warmCache ? ", warm cache" : "") + "]", runs);
+
+        for (int i = 0; i < runs; i++) {
+            FakeRecipeDao dao = new FakeRecipeDao();
+            RecipeRepository repository = newRepository(dao);
+            if (warmCache) {
+                // an error-free fetch to fill the cache; not measured
+                standIn.setConditions(new RecipeApiStandIn.Conditions()
+                        .responseSize(conditions.recipesPerPage, conditions.ingredientsPerRecipe));
+                firstSuccessNanos(repository, query, 1);
+                standIn.setConditions(conditions);
+            }
+            long nanos = firstSuccessNanos(repository, query, 1);
+            result.add(nanos);
+        }
+        return result;
+    }
+
+    /**
+     * @return nanos until the first SUCCESS emission, or -1 if an ERROR came first (or nothing came)
+     */
+    public long firstSuccessNanos(final RecipeRepository repository, final String query, final int page)
+            throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final long[] start = new long[1];
+        final long[] elapsed = {-1};
+
+        final Observer<Resource<List<Recipe>>> observer = new Observer<Resource<List<Recipe>>>() {
+            @Override
+            public void onChanged(Resource<List<Recipe>> resource) {
+                if (resource == null || latch.getCount() == 0) {
+                    return;
+                }
+                if (resource.status == Resource.Status.SUCCESS) {
+                    elapsed[0] = System.nanoTime() - start[0];
+                    latch.countDown();
+                } else if (resource.status == Resource.Status.ERROR) {
+                    latch.countDown();
+                }
+            }
+        };
+
+        final LiveData<Resource<List<Recipe>>> liveData = mainThread.call(new Callable<LiveData<Resource<List<Recipe>>>>() {
+            @Override
+            public LiveData<Resource<List<Recipe>>> call() {
+                start[0] = System.nanoTime();
+                LiveData<Resource<List<Recipe>>> liveData = repository.searchRecipesApi(query, page);
+                liveData.observeForever(observer);
+                return liveData;
+            }
+        });
+
+        latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        mainThread.call(new Callable<Void>() {
+            @Override
+            public Void call() {
+                liveData.removeObserver(observer);
+                return null;
+            }
+        });
+        return elapsed[0];
+    }
+
+    public static class Result {
+
+        public final String scenario;
+        private final long[] nanos;
+        private int count;
+        private int failures;
+
+        Result(String scenario, int runs) {
+            this.scenario = scenario;
+            this.nanos = new long[runs];
+        }
+
+        void add(long elapsed) {
+            if (elapsed < 0) {
+                failures++;
+            } else {
+                nanos[count++] = elapsed;
+            }
+        }
+
+        public int getSuccesses() {
+            return count;
+        }
+
+        public int getFailures() {
+            return failures;
+        }
+
+        public long percentileMillis(double percentile) {
+            if (count == 0) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(nanos, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.min(count - 1, Math.ceil(percentile / 100 * count) - 1);
+            return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(0, index)]);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%-70s ok=%d failed=%d p50=%dms p90=%dms max=%dms",
+                    scenario, count, failures, percentileMillis(50), percentileMillis(90), percentileMillis(100));
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.codingwithmitch.foodrecipes.standin;
+
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Local stand-in for the recipe API ("api/search" and "api/get") on top of MockWebServer.
+ *
+ * Responses are either replayed from recordings (see {@link #replay}) or generated with the
+ * size given by the current {@link Conditions}. Latency and error rate are applied to both.
+ */
+public class RecipeApiStandIn {
+
+    public static class Conditions {
+
+        long latencyMillis;
+        long jitterMillis;
+        double errorRate;
+        int recipesPerPage = 30;
+        int ingredientsPerRecipe = 8;
+        int pages = 5;
+
+        public Conditions latency(long latencyMillis, long jitterMillis) {
+            this.latencyMillis = latencyMillis;
+            this.jitterMillis = jitterMillis;
+            return this;
+        }
+
+        // share of requests answered with a 500
+        public Conditions errorRate(double errorRate) {
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        public Conditions responseSize(int recipesPerPage, int ingredientsPerRecipe) {
+            this.recipesPerPage = recipesPerPage;
+            this.ingredientsPerRecipe = ingredientsPerRecipe;
+            return this;
+        }
+
+        // pages after this one come back empty, i.e. the query is exhausted
+        public Conditions pages(int pages) {
+            this.pages = pages;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "latency=%d±%dms errors=%.0f%% size=%dx%d",
+                    latencyMillis, jitterMillis, errorRate * 100, recipesPerPage, ingredientsPerRecipe);
+        }
+    }
+
+    private final MockWebServer server = new MockWebServer();
+    private final Gson gson = new Gson();
+    private final Random random;
+    private final Map<String, String> recordings = new HashMap<>();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private volatile Conditions conditions = new Conditions();
+
+    public RecipeApiStandIn(long seed) {
+        random = new Random(seed);
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                return respond(request.getRequestUrl());
+            }
+        });
+    }
+
+    public void start() throws IOException {
+        server.start();
+    }
+
+    public void shutdown() throws IOException {
+        server.shutdown();
+    }
+
+    public String baseUrl() {
+        return server.url("/").toString();
+    }
+
+    public void setConditions(Conditions conditions) {
+        this.conditions = conditions;
+    }
+
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Answers requests matching @requestKey (e.g. "api/search?q=chicken&page=1" or "api/get?rId=35382")
+     * with the body recorded in the classpath resource @resource.
+     */
+    public void replay(String requestKey, String resource) throws IOException {
+        InputStream stream = getClass().getClassLoader().getResourceAsStream(resource);
+        if (stream == null) {
+            throw new IOException("missing recording " + resource);
+        }
+        try {
+            Scanner scanner = new Scanner(stream, "UTF-8").useDelimiter("\\A");
+            recordings.put(requestKey, scanner.hasNext() ? scanner.next() : "");
+        } finally {
+            stream.close();
+        }
+    }
+
+    private MockResponse respond(HttpUrl url) throws InterruptedException {
+        requestCount.incrementAndGet();
+        Conditions conditions = this.conditions;
+
+        long delay;
+        boolean fail;
+        synchronized (random) {
+            delay = conditions.latencyMillis
+                    + (conditions.jitterMillis > 0 ? (long) (random.nextDouble() * conditions.jitterMillis) : 0);
+            fail = random.nextDouble() < conditions.errorRate;
+        }
+        if (delay > 0) {
+            Thread.sleep(delay);
+        }
+        if (fail) {
+            return new MockResponse().setResponseCode(500).setBody("stand-in: injected failure");
+        }
+
+        String key = keyOf(url);
+        String recorded = recordings.get(key);
+        if (recorded != null) {
+            return json(recorded);
+        }
+
+        String path = url.encodedPath();
+        if (path.equals("/api/search")) {
+            return json(searchBody(url.queryParameter("q"), parsePage(url.queryParameter("page")), conditions));
+        }
+        if (path.equals("/api/get")) {
+            return json(getBody(url.queryParameter("rId"), conditions));
+        }
+        return new MockResponse().setResponseCode(404);
+    }
+
+    static String keyOf(HttpUrl url) {
+        String path = url.encodedPath().substring(1);
+        if (path.equals("api/search")) {
+            return path + "?q=" + url.queryParameter("q").trim().toLowerCase(Locale.US)
+                    + "&page=" + parsePage(url.queryParameter("page"));
+        }
+        return path + "?rId=" + url.queryParameter("rId");
+    }
+
+    private static int parsePage(String page) {
+        try {
+            return Math.max(1, Integer.parseInt(page));
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    private String searchBody(String query, int page, Conditions conditions) {
+        List<Map<String, Object>> recipes = new ArrayList<>();
+        if (page <= conditions.pages) {
+            for (int i = 0; i < conditions.recipesPerPage; i++) {
+                int index = (page - 1) * conditions.recipesPerPage + i;
+                recipes.add(recipe(query, index, conditions, false));
+            }
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("count", recipes.size());
+        body.put("recipes", recipes);
+        return gson.toJson(body);
+    }
+
+    private String getBody(String recipeId, Conditions conditions) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        Map<String, Object> recipe = recipe("recipe", 0, conditions, true);
+        recipe.put("recipe_id", recipeId);
+        body.put("recipe", recipe);
+        return gson.toJson(body);
+    }
+
+    private static Map<String, Object> recipe(String query, int index, Conditions conditions, boolean withIngredients) {
+        Map<String, Object> recipe = new LinkedHashMap<>();
+        String id = query.trim().toLowerCase(Locale.US).replace(' ', '-') + "-" + index;
+        recipe.put("recipe_id", id);
+        recipe.put("title", query + " recipe #" + index);
+        recipe.put("publisher", "Stand-in Kitchen");
+        recipe.put("image_url", "http://localhost/images/" + id + ".jpg");
+        recipe.put("social_rank", 100.0 - (index % 100));
+        if (withIngredients) {
+            List<String> ingredients = new ArrayList<>();
+            for (int i = 0; i < conditions.ingredientsPerRecipe; i++) {
+                ingredients.add((i + 1) + " cups of ingredient " + i + " for " + query);
+            }
+            recipe.put("ingredients", ingredients);
+        }
+        return recipe;
+    }
+
+    private static MockResponse json(String body) {
+        return new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody(body);
+    }
+}
@@ -0,0 +1,115 @@
+package com.codingwithmitch.foodrecipes.standin;
+
+import androidx.annotation.NonNull;
+import androidx.arch.core.executor.ArchTaskExecutor;
+import androidx.arch.core.executor.TaskExecutor;
+
+import com.codingwithmitch.foodrecipes.AppExecutors;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stands in for the Android main looper in JVM tests: a single "test-main" thread that LiveData
+ * treats as the main thread, plus a pool for LiveData's disk IO.
+ * Unlike an instant executor, postValue() from OkHttp threads still hops to one thread, so
+ * MediatorLiveData is never touched concurrently.
+ */
+public class TestMainThread extends TaskExecutor implements AppExecutors.DelayedExecutor {
+
+    private volatile Thread mainThread;
+
+    private final ScheduledExecutorService main = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            mainThread = new Thread(runnable, "test-main");
+            return mainThread;
+        }
+    });
+
+    private final ExecutorService diskIO = Executors.newCachedThreadPool();
+
+    // pending executeDelayed() commands, so that they can be cancelled
+    private final Map<ScheduledFuture<?>, Runnable> delayed = new ConcurrentHashMap<>();
+
+    public void install() {
+        ArchTaskExecutor.getInstance().setDelegate(this);
+    }
+
+    public void uninstall() {
+        ArchTaskExecutor.getInstance().setDelegate(null);
+        main.shutdownNow();
+        diskIO.shutdownNow();
+    }
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        main.execute(command);
+    }
+
+    @Override
+    public void executeDelayed(@NonNull final Runnable command, long delayMillis) {
+        final ScheduledFuture<?>[] future = new ScheduledFuture<?>[1];
+        synchronized (delayed) {
+            future[0] = main.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (delayed) {
+                        delayed.remove(future[0]);
+                    }
+                    command.run();
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+            delayed.put(future[0], command);
+        }
+    }
+
+    @Override
+    public void cancel(@NonNull Runnable command) {
+        synchronized (delayed) {
+            Iterator<Map.Entry<ScheduledFuture<?>, Runnable>> iterator = delayed.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<ScheduledFuture<?>, Runnable> entry = iterator.next();
+                if (entry.getValue() == command) {
+                    entry.getKey().cancel(false);
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs @callable on the main thread and waits for its result.
+     */
+    public <T> T call(Callable<T> callable) throws InterruptedException {
+        try {
+            return main.submit(callable).get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @Override
+    public void executeOnDiskIO(@NonNull Runnable runnable) {
+        diskIO.execute(runnable);
+    }
+
+    @Override
+    public void postToMainThread(@NonNull Runnable runnable) {
+        main.execute(runnable);
+    }
+
+    @Override
+    public boolean isMainThread() {
+        return Thread.currentThread() == mainThread;
+    }
+}
@@ -0,0 +1,294 @@
+package com.codingwithmitch.foodrecipes.standin;
+
+import androidx.annotation.NonNull;
+import androidx.arch.core.executor.ArchTaskExecutor;
+import androidx.arch.core.executor.TaskExecutor;
+
+import com.codingwithmitch.foodrecipes.AppExecutors;
+import com.codingwithmitch.foodrecipes.Clock;
+import com.codingwithmitch.foodrecipes.RequestScheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A clock and a set of executors that run everything on the test thread, in virtual time.
+ *
+ * Nothing runs when it is submitted: tasks are queued by the virtual time they are due at (then by
+ * submission order) and only run from {@link #runUntilIdle()} or {@link #advanceBy(long)}, which move
+ * the clock forward as they go. The same test therefore always interleaves the same way, and a
+ * simulated 200ms of latency takes no real time.
+ *
+ * Once installed it is also LiveData's main thread and disk IO executor (and so Room's and
+ * {@link FakeRecipeDao}'s), and {@link #newAppExecutors} puts the app's pools on it.
+ */
+public class VirtualTime extends TaskExecutor implements Clock, AppExecutors.DelayedExecutor {
+
+    // wall clock at virtual time zero
+    private static final long EPOCH_MILLIS = 1600000000000L;
+
+    // a test that runs more tasks than this without going idle is assumed to be livelocked
+    private static final int MAX_TASKS = 1000000;
+
+    private final PriorityQueue<Task> queue = new PriorityQueue<>();
+    private long nowNanos;
+    private long sequence;
+    private long executed;
+    // the schedulers of newAppExecutors, shut down by uninstall()
+    private final List<RequestScheduler> schedulers = new ArrayList<>();
+
+    public void install() {
+        ArchTaskExecutor.getInstance().setDelegate(this);
+    }
+
+    public void uninstall() {
+        ArchTaskExecutor.getInstance().setDelegate(null);
+        for (RequestScheduler scheduler : schedulers) {
+            scheduler.shutdown();
+        }
+        schedulers.clear();
+    }
+
+    /**
+     * @return AppExecutors whose disk reads and compute run instantly, and whose disk
+     * writes go through one virtual thread that takes @diskWriteMillis per task
+     */
+    public AppExecutors newAppExecutors(long diskWriteMillis) {
+        VirtualExecutor background = newExecutor("background", 4, 0);
+        // never started: the fake APIs used with virtual time don't go through Retrofit
+        RequestScheduler scheduler = new RequestScheduler("virtual-scheduler", 2);
+        schedulers.add(scheduler);
+        return new AppExecutors(newExecutor("db-writer", 1, diskWriteMillis), background, background,
+                scheduler, this, this);
+    }
+
+    /**
+     * @return a pool of @threads virtual threads that each spend @costMillis on a task. A task runs
+     * once its cost has been paid, so with one thread the n-th of a burst runs n * @costMillis later.
+     */
+    public VirtualExecutor newExecutor(String name, int threads, long costMillis) {
+        return new VirtualExecutor(name, threads, TimeUnit.MILLISECONDS.toNanos(costMillis));
+    }
+
+    // Clock
+
+    @Override
+    public long nanoTime() {
+        return nowNanos;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return EPOCH_MILLIS + nowMillis();
+    }
+
+    // virtual milliseconds since the start of the test
+    public long nowMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(nowNanos);
+    }
+
+    // scheduling
+
+    public void schedule(long delayMillis, @NonNull Runnable runnable) {
+        scheduleAt(nowNanos + TimeUnit.MILLISECONDS.toNanos(delayMillis), runnable);
+    }
+
+    private void scheduleAt(long atNanos, Runnable runnable) {
+        queue.add(new Task(Math.max(atNanos, nowNanos), sequence++, runnable));
+    }
+
+    /**
+     * Runs tasks in order of due time, moving the clock to each, until none are left.
+     * @return how many tasks ran
+     */
+    public int runUntilIdle() {
+        return runUntil(Long.MAX_VALUE);
+    }
+
+    /**
+     * Runs every task due in the next @millis, then sets the clock to the end of that interval.
+     * @return how many tasks ran
+     */
+    public int advanceBy(long millis) {
+        long target = nowNanos + TimeUnit.MILLISECONDS.toNanos(millis);
+        int count = runUntil(target);
+        nowNanos = Math.max(nowNanos, target);
+        return count;
+    }
+
+    private int runUntil(long targetNanos) {
+        int count = 0;
+        Task task;
+        while ((task = queue.peek()) != null && task.atNanos <= targetNanos) {
+            queue.poll();
+            nowNanos = task.atNanos;
+            task.runnable.run();
+            executed++;
+            if (++count > MAX_TASKS) {
+                throw new IllegalStateException("still not idle after " + MAX_TASKS + " tasks");
+            }
+        }
+        return count;
+    }
+
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    // tasks run since the start of the test
+    public long getExecutedCount() {
+        return executed;
+    }
+
+    // main thread
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        scheduleAt(nowNanos, command);
+    }
+
+    @Override
+    public void executeDelayed(@NonNull Runnable command, long delayMillis) {
+        schedule(delayMillis, command);
+    }
+
+    @Override
+    public void cancel(@NonNull Runnable command) {
+        Iterator<Task> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().runnable == command) {
+                iterator.remove();
+            }
+        }
+    }
+
+    @Override
+    public void executeOnDiskIO(@NonNull Runnable runnable) {
+        scheduleAt(nowNanos, runnable);
+    }
+
+    @Override
+    public void postToMainThread(@NonNull Runnable runnable) {
+        scheduleAt(nowNanos, runnable);
+    }
+
+    // every task runs on the test thread, which is also the main thread
+    @Override
+    public boolean isMainThread() {
+        return true;
+    }
+
+    private static class Task implements Comparable<Task> {
+
+        final long atNanos;
+        final long sequence;
+        final Runnable runnable;
+
+        Task(long atNanos, long sequence, Runnable runnable) {
+            this.atNanos = atNanos;
+            this.sequence = sequence;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public int compareTo(@NonNull Task other) {
+            int byTime = Long.compare(atNanos, other.atNanos);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * A fixed pool of virtual threads. A task is started on the thread that frees up first and
+     * runs when that thread has spent the pool's cost on it.
+     */
+    public class VirtualExecutor extends AbstractExecutorService {
+
+        private final String name;
+        private final long costNanos;
+        // when each thread is free again
+        private final long[] freeAtNanos;
+        private int submitted;
+        private int completed;
+        private long maxWaitNanos;
+        private boolean shutdown;
+
+        VirtualExecutor(String name, int threads, long costNanos) {
+            this.name = name;
+            this.costNanos = costNanos;
+            this.freeAtNanos = new long[threads];
+        }
+
+        @Override
+        public void execute(@NonNull final Runnable command) {
+            if (shutdown) {
+                throw new IllegalStateException(name + " is shut down");
+            }
+            int thread = 0;
+            for (int i = 1; i < freeAtNanos.length; i++) {
+                if (freeAtNanos[i] < freeAtNanos[thread]) {
+                    thread = i;
+                }
+            }
+            long start = Math.max(nowNanos, freeAtNanos[thread]);
+            maxWaitNanos = Math.max(maxWaitNanos, start - nowNanos);
+            freeAtNanos[thread] = start + costNanos;
+            submitted++;
+            scheduleAt(freeAtNanos[thread], new Runnable() {
+                @Override
+                public void run() {
+                    completed++;
+                    command.run();
+                }
+            });
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getSubmittedCount() {
+            return submitted;
+        }
+
+        public int getCompletedCount() {
+            return completed;
+        }
+
+        // longest a task waited for a free thread, in virtual ms
+        public long getMaxWaitMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos);
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @NonNull
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown && completed == submitted;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, @NonNull TimeUnit unit) {
+            return isTerminated();
+        }
+    }
+}
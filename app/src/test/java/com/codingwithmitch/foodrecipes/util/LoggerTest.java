@@ -0,0 +1,118 @@
+package com.codingwithmitch.foodrecipes.util;
+
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class LoggerTest {
+
+    private static final int CALLS = 100000;
+    private static final int WARM_UP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 5;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private int previousLevel;
+
+    @Before
+    public void setUp() {
+        previousLevel = Logger.getLevel();
+    }
+
+    @After
+    public void tearDown() {
+        Logger.setLevel(previousLevel);
+        Logger.setFileSink(null, 1);
+    }
+
+    @Test
+    public void disabledLevel_allocatesNothing() {
+        com.sun.management.ThreadMXBean threads = allocationCounter();
+        long threadId = Thread.currentThread().getId();
+        Logger.setLevel(Log.ASSERT);
+        Object value = new Object() {
+            @Override
+            public String toString() {
+                throw new AssertionError("toString() must not be called for a disabled level");
+            }
+        };
+
+        // warm up so class loading and JIT compilation (up to C2) aren't counted
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            logEverything(value);
+        }
+
+        // the least of several rounds: a late compilation or a GC-triggered allocation in one round
+        // isn't the logger's
+        long least = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long before = threads.getThreadAllocatedBytes(threadId);
+            long overhead = threads.getThreadAllocatedBytes(threadId) - before;
+            before = threads.getThreadAllocatedBytes(threadId);
+            logEverything(value);
+            least = Math.min(least, threads.getThreadAllocatedBytes(threadId) - before - overhead);
+        }
+
+        assertEquals("bytes allocated by " + CALLS + " rounds of disabled log calls", 0, least);
+    }
+
+    @Test
+    public void fileSink_samplesDebugButKeepsErrors() throws Exception {
+        assumeTrue(Logger.VERBOSE_LOGS);
+        File file = folder.newFile("log.txt");
+        Logger.setLevel(Log.DEBUG);
+        Logger.setFileSink(file, 10);
+
+        for (int i = 0; i < 100; i++) {
+            Logger.d("LoggerTest", "debug ", i);
+        }
+        Logger.e("LoggerTest", "error");
+        Logger.flushFileSink();
+
+        List<String> lines = Files.readAllLines(file.toPath(), Charset.forName("UTF-8"));
+        assertEquals(11, lines.size());
+        assertTrue(lines.get(0).endsWith("D/LoggerTest: debug 0"));
+        assertTrue(lines.get(1).endsWith("D/LoggerTest: debug 10"));
+        assertTrue(lines.get(10).endsWith("E/LoggerTest: error"));
+    }
+
+    private static void logEverything(Object value) {
+        for (int i = 0; i < CALLS; i++) {
+            Logger.v("LoggerTest", "verbose");
+            Logger.d("LoggerTest", "debug");
+            Logger.d("LoggerTest", "int ", i);
+            Logger.d("LoggerTest", "long ", (long) i);
+            Logger.d("LoggerTest", "double ", i / 2.0);
+            Logger.d("LoggerTest", "boolean ", i % 2 == 0);
+            Logger.d("LoggerTest", "object ", value);
+            Logger.d("LoggerTest", "two ", value, " objects ", value);
+            Logger.i("LoggerTest", "info ", value);
+            Logger.w("LoggerTest", "warn ", value);
+            Logger.e("LoggerTest", "error ", value);
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(counter.isThreadAllocatedMemorySupported());
+        counter.setThreadAllocatedMemoryEnabled(true);
+        return counter;
+    }
+}
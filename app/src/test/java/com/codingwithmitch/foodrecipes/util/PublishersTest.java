@@ -0,0 +1,344 @@
+package com.codingwithmitch.foodrecipes.util;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Observer;
+
+import com.codingwithmitch.foodrecipes.standin.VirtualTime;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Demand and cancellation through {@link Publishers}, on an executor that runs everything on the
+ * test thread, and the LiveData adapter in {@link VirtualTime}.
+ */
+public class PublishersTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(@NonNull Runnable command) {
+            command.run();
+        }
+    };
+
+    // keeps a LiveData active
+    private static final Observer<Object> IGNORE = new Observer<Object>() {
+        @Override
+        public void onChanged(Object value) {
+        }
+    };
+
+    private VirtualTime time;
+
+    @Before
+    public void setUp() {
+        time = new VirtualTime();
+        time.install();
+    }
+
+    @After
+    public void tearDown() {
+        time.uninstall();
+    }
+
+    @Test
+    public void generate_producesOnlyWhatIsRequested() {
+        CountingGenerator generator = new CountingGenerator(5);
+        Recorder<Integer> recorder = new Recorder<>();
+        source(generator).subscribe(recorder);
+        assertEquals(0, generator.calls);
+
+        recorder.subscription.request(2);
+        assertEquals(Arrays.asList(1, 2), recorder.items);
+        assertEquals(2, generator.calls);
+
+        recorder.subscription.request(Long.MAX_VALUE);
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), recorder.items);
+        assertTrue(recorder.completed);
+        assertNull(recorder.error);
+    }
+
+    @Test
+    public void generate_badRequest_fails() {
+        Recorder<Integer> recorder = new Recorder<>();
+        source(new CountingGenerator(5)).subscribe(recorder);
+        recorder.subscription.request(0);
+        assertTrue(recorder.error instanceof IllegalArgumentException);
+        assertTrue(recorder.items.isEmpty());
+    }
+
+    @Test
+    public void cancel_stopsTheGenerator() {
+        final CountingGenerator generator = new CountingGenerator(5);
+        Recorder<Integer> recorder = new Recorder<Integer>() {
+            @Override
+            public void onNext(Integer item) {
+                super.onNext(item);
+                if (item == 2) {
+                    subscription.cancel();
+                }
+            }
+        };
+        source(generator).subscribe(recorder);
+        recorder.subscription.request(Long.MAX_VALUE);
+
+        assertEquals(Arrays.asList(1, 2), recorder.items);
+        assertEquals(2, generator.calls);
+        assertTrue(generator.cancelled);
+        assertFalse(recorder.completed);
+    }
+
+    @Test
+    public void take_neverRequestsMoreThanItTakes() {
+        CountingGenerator generator = new CountingGenerator(10);
+        Recorder<Integer> recorder = new Recorder<>();
+        Publishers.take(source(generator), 3).subscribe(recorder);
+
+        recorder.subscription.request(Long.MAX_VALUE);
+        assertEquals(Arrays.asList(1, 2, 3), recorder.items);
+        assertEquals(3, generator.calls);
+        assertTrue(generator.cancelled);
+        assertTrue(recorder.completed);
+    }
+
+    @Test
+    public void take_zero_completesWithoutProducing() {
+        CountingGenerator generator = new CountingGenerator(10);
+        Recorder<Integer> recorder = new Recorder<>();
+        Publishers.take(source(generator), 0).subscribe(recorder);
+
+        assertTrue(recorder.completed);
+        assertEquals(0, generator.calls);
+        assertTrue(generator.cancelled);
+    }
+
+    @Test
+    public void concat_carriesDemandOverToTheNext() {
+        CountingGenerator first = new CountingGenerator(2);
+        CountingGenerator second = new CountingGenerator(2);
+        Recorder<Integer> recorder = new Recorder<>();
+        Publishers.concat(Arrays.asList(source(first), source(second))).subscribe(recorder);
+
+        recorder.subscription.request(3);
+        assertEquals(Arrays.asList(1, 2, 1), recorder.items);
+        assertEquals(1, second.calls);
+        assertFalse(recorder.completed);
+
+        recorder.subscription.request(1);
+        assertEquals(Arrays.asList(1, 2, 1, 2), recorder.items);
+        // the end of the second one is only found out with more demand
+        recorder.subscription.request(1);
+        assertTrue(recorder.completed);
+    }
+
+    @Test
+    public void concat_cancel_reachesTheCurrentPublisher() {
+        CountingGenerator first = new CountingGenerator(2);
+        CountingGenerator second = new CountingGenerator(2);
+        Recorder<Integer> recorder = new Recorder<>();
+        Publishers.concat(Arrays.asList(source(first), source(second))).subscribe(recorder);
+
+        recorder.subscription.request(3);
+        recorder.subscription.cancel();
+        assertTrue(second.cancelled);
+        recorder.subscription.request(1);
+        assertEquals(Arrays.asList(1, 2, 1), recorder.items);
+    }
+
+    @Test
+    public void map_failure_cancelsUpstream() {
+        CountingGenerator generator = new CountingGenerator(5);
+        Recorder<String> recorder = new Recorder<>();
+        Publishers.map(source(generator), new Publishers.Function<Integer, String>() {
+            @Override
+            public String apply(Integer item) throws Exception {
+                if (item == 2) {
+                    throw new Exception("no 2");
+                }
+                return "item " + item;
+            }
+        }).subscribe(recorder);
+
+        recorder.subscription.request(Long.MAX_VALUE);
+        assertEquals(Arrays.asList("item 1"), recorder.items);
+        assertEquals("no 2", recorder.error.getMessage());
+        assertTrue(generator.cancelled);
+        assertEquals(2, generator.calls);
+    }
+
+    @Test
+    public void liveData_resumesAfterTheLastItem() {
+        ResumableCounter counter = new ResumableCounter(DIRECT, 5);
+        Publishers.PublisherLiveData<Integer> liveData = Publishers.toLiveData(counter, 2);
+        assertEquals(Resource.Status.LOADING, liveData.getValue().status);
+
+        liveData.observeForever(IGNORE);
+        time.runUntilIdle();
+        assertEquals(Integer.valueOf(2), liveData.getValue().data);
+
+        // asked for while nobody is looking: fetched once observed again, after what was delivered
+        liveData.removeObserver(IGNORE);
+        liveData.request(1);
+        time.runUntilIdle();
+        assertEquals(Integer.valueOf(2), liveData.getValue().data);
+        liveData.observeForever(IGNORE);
+        time.runUntilIdle();
+        assertEquals(Integer.valueOf(3), liveData.getValue().data);
+        assertEquals(Arrays.asList(0L, 2L), counter.resumedFrom);
+        assertFalse(liveData.hasEnded());
+
+        liveData.request(Long.MAX_VALUE);
+        time.runUntilIdle();
+        assertEquals(Integer.valueOf(5), liveData.getValue().data);
+        assertTrue(liveData.hasEnded());
+    }
+
+    @Test
+    public void liveData_inactiveBeforeDelivery_requestsAgain() {
+        // items come from the virtual executor, so nothing is delivered before runUntilIdle
+        ResumableCounter counter = new ResumableCounter(time, 5);
+        Publishers.PublisherLiveData<Integer> liveData = Publishers.toLiveData(counter, 2);
+
+        liveData.observeForever(IGNORE);
+        liveData.removeObserver(IGNORE);
+        time.runUntilIdle();
+        assertEquals(Resource.Status.LOADING, liveData.getValue().status);
+
+        liveData.observeForever(IGNORE);
+        time.runUntilIdle();
+        assertEquals(Resource.Status.SUCCESS, liveData.getValue().status);
+        assertEquals(Integer.valueOf(2), liveData.getValue().data);
+        assertEquals(Arrays.asList(0L, 0L), counter.resumedFrom);
+    }
+
+    @Test
+    public void liveData_failure_keepsTheLastItem() {
+        Publishers.PublisherLiveData<Integer> liveData = Publishers.toLiveData(new Publishers.Resumable<Integer>() {
+            @NonNull
+            @Override
+            public Flow.Publisher<Integer> from(long delivered) {
+                return Publishers.map(source(new CountingGenerator(5)), new Publishers.Function<Integer, Integer>() {
+                    @Override
+                    public Integer apply(Integer item) throws Exception {
+                        if (item == 2) {
+                            throw new Exception("no 2");
+                        }
+                        return item;
+                    }
+                });
+            }
+        }, Long.MAX_VALUE);
+        liveData.observeForever(IGNORE);
+        time.runUntilIdle();
+        Resource<Integer> last = liveData.getValue();
+        assertEquals(Resource.Status.ERROR, last.status);
+        assertEquals("no 2", last.message);
+        assertEquals(Integer.valueOf(1), last.data);
+        assertTrue(liveData.hasEnded());
+    }
+
+    private static Flow.Publisher<Integer> source(final CountingGenerator generator) {
+        return Publishers.generate(DIRECT, new Callable<Publishers.Generator<Integer>>() {
+            @Override
+            public Publishers.Generator<Integer> call() {
+                return generator;
+            }
+        });
+    }
+
+    // 1 to @size, counting the calls to next()
+    private static class CountingGenerator extends Publishers.Generator<Integer> {
+
+        private final int size;
+        int calls;
+        boolean cancelled;
+
+        CountingGenerator(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public Integer next() {
+            calls++;
+            return calls <= size ? calls : null;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    // 1 to @size on @executor, each subscription after the items already delivered
+    private static class ResumableCounter implements Publishers.Resumable<Integer> {
+
+        private final Executor executor;
+        private final int size;
+        final List<Long> resumedFrom = new ArrayList<>();
+
+        ResumableCounter(Executor executor, int size) {
+            this.executor = executor;
+            this.size = size;
+        }
+
+        @NonNull
+        @Override
+        public Flow.Publisher<Integer> from(final long delivered) {
+            resumedFrom.add(delivered);
+            return Publishers.generate(executor, new Callable<Publishers.Generator<Integer>>() {
+                @Override
+                public Publishers.Generator<Integer> call() {
+                    return new Publishers.Generator<Integer>() {
+
+                        private int last = (int) delivered;
+
+                        @Override
+                        public Integer next() {
+                            return last < size ? ++last : null;
+                        }
+                    };
+                }
+            });
+        }
+    }
+
+    private static class Recorder<T> implements Flow.Subscriber<T> {
+
+        Flow.Subscription subscription;
+        final List<T> items = new ArrayList<>();
+        Throwable error;
+        boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(T item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.codingwithmitch.foodrecipes.viewmodels;
+
+import android.app.Application;
+
+import androidx.lifecycle.Observer;
+
+import com.codingwithmitch.foodrecipes.AppExecutors;
+import com.codingwithmitch.foodrecipes.models.Recipe;
+import com.codingwithmitch.foodrecipes.repositories.RecipeRepository;
+import com.codingwithmitch.foodrecipes.standin.FakeRecipeApi;
+import com.codingwithmitch.foodrecipes.standin.FakeRecipeDao;
+import com.codingwithmitch.foodrecipes.standin.VirtualTime;
+import com.codingwithmitch.foodrecipes.util.LatencyHistogram;
+import com.codingwithmitch.foodrecipes.util.Resource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Searches and cancellations through RecipeListViewModel in {@link VirtualTime}, so that the order
+ * of user actions and responses is exactly the one written in the test.
+ */
+public class RecipeListViewModelTest {
+
+    private static final long LATENCY_MILLIS = 200;
+    private static final long DISK_WRITE_MILLIS = 5;
+
+    private VirtualTime time;
+    private FakeRecipeApi api;
+    private FakeRecipeDao dao;
+    private RecipeListViewModel viewModel;
+
+    // what the activity would have been shown, and when
+    private final List<Resource<List<Recipe>>> emissions = new ArrayList<>();
+    private final List<Long> emittedAtMillis = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        time = new VirtualTime();
+        time.install();
+        api = new FakeRecipeApi(time, LATENCY_MILLIS);
+        dao = new FakeRecipeDao();
+        AppExecutors appExecutors = time.newAppExecutors(DISK_WRITE_MILLIS);
+        RecipeRepository repository = new RecipeRepository(dao, api, appExecutors);
+        viewModel = new RecipeListViewModel(new Application(), repository, appExecutors);
+        viewModel.getRecipes().observeForever(new Observer<Resource<List<Recipe>>>() {
+            @Override
+            public void onChanged(Resource<List<Recipe>> resource) {
+                emissions.add(resource);
+                emittedAtMillis.add(time.nowMillis());
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        time.uninstall();
+    }
+
+    @Test
+    public void searchAfterCancellations_isDelivered() {
+        int cancelled = 10;
+        for (int i = 0; i < cancelled; i++) {
+            viewModel.searchRecipesApi("query" + (char) ('a' + i), 1);
+            time.advanceBy(50);
+            int before = emissions.size();
+            viewModel.cancelSearchRequest();
+            time.advanceBy(0);
+            // nothing of a cancelled search reaches the screen
+            assertEquals(before, emissions.size());
+        }
+
+        viewModel.searchRecipesApi("queryz", 1);
+        long start = time.nowMillis();
+        time.runUntilIdle();
+
+        // every search loaded twice (before and after reading the cache); only the last one finished
+        assertEquals(cancelled * 2 + 3, emissions.size());
+        Resource<List<Recipe>> last = emissions.get(emissions.size() - 1);
+        assertEquals(Resource.Status.SUCCESS, last.status);
+        assertEquals("queryz recipe 0", last.data.get(0).getTitle());
+        assertEquals(start + LATENCY_MILLIS + DISK_WRITE_MILLIS, (long) emittedAtMillis.get(emittedAtMillis.size() - 1));
+
+        // the cancelled calls still went out (and were answered), but their results were never saved
+        assertEquals(cancelled + 1, api.getSearchCount());
+        assertEquals(10, dao.size());
+        // one read per search, one re-read after the only write
+        assertEquals(cancelled + 2, dao.getQueryCount());
+    }
+
+    @Test
+    public void newSearch_afterExhaustedQuery_isNotBlocked() {
+        api.pages(0);
+        viewModel.searchRecipesApi("querya", 1);
+        time.runUntilIdle();
+        Resource<List<Recipe>> exhausted = emissions.get(emissions.size() - 1);
+        assertEquals(Resource.Status.ERROR, exhausted.status);
+        assertEquals(RecipeListViewModel.QUERY_EXHAUSTED, exhausted.message);
+
+        // no next page for an exhausted query...
+        viewModel.searchNextPage();
+        time.runUntilIdle();
+        assertEquals(1, api.getSearchCount());
+
+        // ...but a new query goes through
+        api.pages(1);
+        viewModel.searchRecipesApi("queryb", 1);
+        time.runUntilIdle();
+        Resource<List<Recipe>> last = emissions.get(emissions.size() - 1);
+        assertEquals(Resource.Status.SUCCESS, last.status);
+        assertEquals(10, last.data.size());
+        assertEquals(2, api.getSearchCount());
+    }
+
+    @Test
+    public void searchAsYouType_answersFromCache_andSearchesOnceTypingPauses() {
+        viewModel.searchRecipesApi("querya", 1);
+        time.runUntilIdle();
+        viewModel.setViewCategories();
+        assertEquals(1, api.getSearchCount());
+
+        String[] keystrokes = {"q", "qu", "que", "quer", "query"};
+        for (String typed : keystrokes) {
+            int before = emissions.size();
+            viewModel.searchAsYouType(typed);
+            time.advanceBy(100);
+            // the cached "querya" results match every prefix, and are shown right away
+            Resource<List<Recipe>> shown = emissions.get(emissions.size() - 1);
+            assertTrue(emissions.size() > before);
+            assertEquals(Resource.Status.SUCCESS, shown.status);
+            assertTrue(shown.refreshing);
+            assertEquals(10, shown.data.size());
+            // still typing: nothing went to the network
+            assertEquals(1, api.getSearchCount());
+        }
+
+        time.runUntilIdle();
+        Resource<List<Recipe>> last = emissions.get(emissions.size() - 1);
+        assertEquals(Resource.Status.SUCCESS, last.status);
+        assertEquals("query recipe 0", last.data.get(0).getTitle());
+        // only the text typing stopped at was searched
+        assertEquals(2, api.getSearchCount());
+
+        LatencyHistogram local = viewModel.getLocalLatency();
+        assertEquals(keystrokes.length, local.getCount());
+        assertEquals(0, local.getMaxMicros());
+        LatencyHistogram remote = viewModel.getRemoteLatency();
+        assertEquals(1, remote.getCount());
+        assertEquals((RecipeListViewModel.TYPEAHEAD_DEBOUNCE_MILLIS + LATENCY_MILLIS + DISK_WRITE_MILLIS) * 1000,
+                remote.getMaxMicros());
+    }
+
+    @Test
+    public void searchAsYouType_dropsTheSearchForEarlierText() {
+        viewModel.searchAsYouType("querya");
+        // past the debounce, with the search for "querya" in flight
+        time.advanceBy(RecipeListViewModel.TYPEAHEAD_DEBOUNCE_MILLIS + LATENCY_MILLIS / 2);
+        assertEquals(1, api.getSearchCount());
+
+        viewModel.searchAsYouType("queryb");
+        time.runUntilIdle();
+
+        Resource<List<Recipe>> last = emissions.get(emissions.size() - 1);
+        assertEquals(Resource.Status.SUCCESS, last.status);
+        assertEquals("queryb recipe 0", last.data.get(0).getTitle());
+        for (Resource<List<Recipe>> resource : emissions) {
+            if (resource.data != null && !resource.data.isEmpty()) {
+                // the fake answers "querya" anyway, but its LiveData was detached and it never reached the screen
+                assertTrue(resource.data.get(0).getTitle().startsWith("queryb"));
+            }
+        }
+        assertEquals(2, api.getSearchCount());
+        assertEquals(1, viewModel.getRemoteLatency().getCount());
+    }
+}